@@ -0,0 +1,250 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget;
+
+import android.appwidget.AppWidgetManager;
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.widget.RemoteViews;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class WidgetUpdateDispatcherTest
+{
+    public static final int WIDGET_ID = Integer.MAX_VALUE - 100;    // not bound to any widget
+
+    private Context context;
+    private TestClock clock;
+    private TestExecutor executor;
+    private WidgetUpdateDispatcher dispatcher;
+    private final HashMap<Integer, String> keys = new HashMap<>();
+    private final List<Integer> updated = new ArrayList<>();      // ids in the order they were updated
+    private final List<Boolean> pushed = new ArrayList<>();       // updateAppWidget results (in the same order)
+
+    @Before
+    public void init()
+    {
+        context = InstrumentationRegistry.getTargetContext();
+        clock = new TestClock();
+        executor = new TestExecutor(clock);
+        dispatcher = new WidgetUpdateDispatcher(executor, clock)
+        {
+            @Override
+            protected String calculationKey(Context context, int appWidgetId) {
+                return (keys.containsKey(appWidgetId) ? keys.get(appWidgetId) : "");
+            }
+        };
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void test_requestUpdate_debounce()
+    {
+        TestWidget widget0 = new TestWidget();
+        TestWidget1 widget1 = new TestWidget1();
+        dispatcher.requestUpdate(context, widget0, new int[] { WIDGET_ID + 1 }, null);
+        assertEquals(1, executor.numScheduled());
+
+        clock.advance(100);
+        dispatcher.requestUpdate(context, widget1, new int[] { WIDGET_ID + 2, WIDGET_ID + 1 }, null);    // within the window; merged
+        dispatcher.requestUpdate(context, widget0, new int[] { WIDGET_ID + 1 }, null);
+        assertEquals(1, executor.numScheduled());
+
+        executor.advance(WidgetUpdateDispatcher.DEBOUNCE_MILLIS - 101);
+        assertTrue(updated.isEmpty());
+        executor.advance(1);    // DEBOUNCE_MILLIS after the first request
+        assertEquals(Arrays.asList(WIDGET_ID + 1, WIDGET_ID + 2, WIDGET_ID + 1), updated);    // once per class
+        assertEquals(0, executor.numScheduled());
+
+        updated.clear();
+        executor.advance(WidgetUpdateDispatcher.DEBOUNCE_MILLIS);
+        assertTrue(updated.isEmpty());    // nothing pending
+
+        dispatcher.requestUpdate(context, widget0, new int[] { WIDGET_ID + 3 }, null);    // starts another window
+        executor.advance(WidgetUpdateDispatcher.DEBOUNCE_MILLIS - 1);
+        assertTrue(updated.isEmpty());
+        executor.advance(1);
+        assertEquals(Arrays.asList(WIDGET_ID + 3), updated);
+    }
+
+    @Test
+    public void test_requestUpdate_orderedByCalculation()
+    {
+        keys.put(WIDGET_ID + 1, "b");
+        keys.put(WIDGET_ID + 2, "a");
+        keys.put(WIDGET_ID + 3, "c");
+        keys.put(WIDGET_ID + 4, "a");
+        dispatcher.requestUpdate(context, new TestWidget(), new int[] { WIDGET_ID + 1, WIDGET_ID + 2 }, null);
+        dispatcher.requestUpdate(context, new TestWidget1(), new int[] { WIDGET_ID + 3, WIDGET_ID + 4 }, null);
+        executor.advance(WidgetUpdateDispatcher.DEBOUNCE_MILLIS);
+
+        assertEquals(Arrays.asList(WIDGET_ID + 2, WIDGET_ID + 4, WIDGET_ID + 1, WIDGET_ID + 3), updated);    // widgets that share a calculation are consecutive (across classes)
+    }
+
+    @Test
+    public void test_updateAppWidget_unchanged()
+    {
+        AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+        assertTrue(updateAppWidget(appWidgetManager, WIDGET_ID, "one"));
+        assertFalse(updateAppWidget(appWidgetManager, WIDGET_ID, "one"));    // same views; skipped
+        assertTrue(updateAppWidget(appWidgetManager, WIDGET_ID + 1, "one"));    // (fingerprints are per widget)
+        assertTrue(updateAppWidget(appWidgetManager, WIDGET_ID, "two"));
+        assertFalse(updateAppWidget(appWidgetManager, WIDGET_ID, "two"));
+
+        dispatcher.invalidate(WIDGET_ID);
+        assertTrue(updateAppWidget(appWidgetManager, WIDGET_ID, "two"));
+        assertFalse(updateAppWidget(appWidgetManager, WIDGET_ID, "two"));
+    }
+
+    @Test
+    public void test_requestUpdate_force()
+    {
+        TestWidget widget = new TestWidget();
+        assertTrue(updateAppWidget(AppWidgetManager.getInstance(context), WIDGET_ID, TestWidget.TITLE));
+
+        dispatcher.requestUpdate(context, widget, new int[] { WIDGET_ID }, null);
+        executor.advance(WidgetUpdateDispatcher.DEBOUNCE_MILLIS);
+        assertEquals(Arrays.asList(false), pushed);    // unchanged; skipped
+
+        pushed.clear();
+        dispatcher.requestUpdate(context, widget, new int[] { WIDGET_ID }, null, true);
+        executor.advance(WidgetUpdateDispatcher.DEBOUNCE_MILLIS);
+        assertEquals(Arrays.asList(true), pushed);    // forced; pushed anyway
+
+        pushed.clear();
+        dispatcher.requestUpdate(context, widget, new int[] { WIDGET_ID }, null, true);
+        dispatcher.requestUpdate(context, widget, new int[] { WIDGET_ID }, null);    // merged with the forced request
+        executor.advance(WidgetUpdateDispatcher.DEBOUNCE_MILLIS);
+        assertEquals(Arrays.asList(true), pushed);
+
+        pushed.clear();
+        dispatcher.requestUpdate(context, widget, new int[] { WIDGET_ID }, null);
+        executor.advance(WidgetUpdateDispatcher.DEBOUNCE_MILLIS);
+        assertEquals(Arrays.asList(false), pushed);    // not forced again
+    }
+
+    protected boolean updateAppWidget(AppWidgetManager appWidgetManager, int appWidgetId, String title)
+    {
+        RemoteViews views = new RemoteViews(context.getPackageName(), R.layout.layout_widget_1x1_0);
+        views.setTextViewText(R.id.text_title, title);
+        return dispatcher.updateAppWidget(appWidgetManager, appWidgetId, views, R.id.widgetframe_inner, SuntimesWidget0.clickActionIntent(context, appWidgetId, SuntimesWidget0.class));
+    }
+
+    /**
+     * TestWidget
+     */
+    public class TestWidget extends SuntimesWidget0
+    {
+        public static final String TITLE = "test";
+
+        @Override
+        protected void updateWidget(Context context, AppWidgetManager appWidgetManager, int appWidgetId)
+        {
+            updated.add(appWidgetId);
+            pushed.add(updateAppWidget(appWidgetManager, appWidgetId, TITLE));
+        }
+
+        @Override
+        protected void setUpdateAlarm(Context context, int alarmID) {
+            /* EMPTY */
+        }
+    }
+    public class TestWidget1 extends TestWidget {}
+
+    /**
+     * TestClock
+     */
+    public static class TestClock implements WidgetUpdateDispatcher.Clock
+    {
+        private long millis = 0;
+
+        @Override
+        public synchronized long elapsedRealtime() {
+            return millis;
+        }
+
+        public synchronized void advance(long millis) {
+            this.millis += millis;
+        }
+    }
+
+    /**
+     * TestExecutor
+     * Scheduled tasks are run by the test (on the calling thread) when the clock is advanced past them.
+     */
+    public static class TestExecutor extends ScheduledThreadPoolExecutor
+    {
+        private final TestClock clock;
+        private final List<Long> times = new ArrayList<>();
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        public TestExecutor(TestClock clock)
+        {
+            super(1);
+            this.clock = clock;
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit)
+        {
+            times.add(clock.elapsedRealtime() + unit.toMillis(delay));
+            tasks.add(command);
+            return null;    // (unused by the dispatcher)
+        }
+
+        public int numScheduled() {
+            return tasks.size();
+        }
+
+        public void advance(long millis)
+        {
+            clock.advance(millis);
+            for (int i=0; i<tasks.size(); i++)
+            {
+                if (times.get(i) <= clock.elapsedRealtime())
+                {
+                    times.remove(i);
+                    tasks.remove(i).run();
+                    i = -1;    // (tasks may schedule others)
+                }
+            }
+        }
+    }
+}
@@ -48,6 +48,7 @@ import static com.forrestguice.suntimeswidget.alarmclock.AlarmClockItem.AlarmTyp
 import static com.forrestguice.suntimeswidget.alarmclock.AlarmClockItem.AlarmType.NOTIFICATION;
 import static junit.framework.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 @RunWith(AndroidJUnit4.class)
@@ -181,6 +182,31 @@ public class AlarmDatabaseAdapterTest
         db.close();
     }
 
+    @Test
+    public void test_findUpcomingAlarmId()
+    {
+        db.open();
+        long[] rowID = populateDatabase();    // enabled ALARM items are [0] (alarmtime 0) and [4] (alarmtime 4)
+
+        assertEquals(Long.valueOf(rowID[0]), db.findUpcomingAlarmId(-1));
+        assertEquals(Long.valueOf(rowID[4]), db.findUpcomingAlarmId(0));    // alarmtime must be after now
+        assertEquals(Long.valueOf(rowID[4]), db.findUpcomingAlarmId(3));
+        assertNull(db.findUpcomingAlarmId(4));
+
+        Cursor cursor = db.getUpcomingAlarms(0, ALARM, -1, new String[] { AlarmDatabaseAdapter.KEY_ROWID });
+        assertEquals(2, cursor.getCount());    // ordered by alarmtime
+        assertEquals(rowID[0], cursor.getLong(0));
+        cursor.moveToNext();
+        assertEquals(rowID[4], cursor.getLong(0));
+        cursor.close();
+
+        cursor = db.getUpcomingAlarms(1, ALARM, -1, new String[] { AlarmDatabaseAdapter.KEY_ROWID });
+        assertEquals(1, cursor.getCount());
+        cursor.close();
+
+        db.close();
+    }
+
     protected HashMap<Long, AlarmClockItem> mapDatabase(long[] rowID)
     {
         HashMap<Long, AlarmClockItem> result = new HashMap<>();
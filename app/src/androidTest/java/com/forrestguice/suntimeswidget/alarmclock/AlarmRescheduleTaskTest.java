@@ -0,0 +1,150 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.alarmclock;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.forrestguice.suntimeswidget.calculator.core.Location;
+import com.forrestguice.suntimeswidget.settings.SolarEvents;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNotNull;
+import static junit.framework.Assert.assertTrue;
+
+@SuppressWarnings("ConstantConditions")
+@RunWith(AndroidJUnit4.class)
+public class AlarmRescheduleTaskTest
+{
+    public Context context;
+
+    @Before
+    public void init() {
+        context = InstrumentationRegistry.getTargetContext();
+    }
+
+    /**
+     * The batched reschedule (AlarmRescheduleTask.reschedule) should produce the same alarm times and states
+     * as scheduling each alarm individually (ACTION_SCHEDULE).
+     */
+    @Test
+    public void test_reschedule_matchesScheduleEach()
+    {
+        List<AlarmClockItem> items = createItems();
+        List<AlarmClockItem> expected = new ArrayList<>();
+        for (AlarmClockItem item : items) {
+            expected.add(new AlarmClockItem(item));
+        }
+
+        Calendar now = Calendar.getInstance();
+        HashMap<Long, Boolean> expectedScheduled = new HashMap<>();
+        for (AlarmClockItem item : expected) {
+            expectedScheduled.put(item.rowID, scheduleEach(item, now));
+        }
+
+        AlarmRescheduleTask.AlarmRescheduleResult result = AlarmRescheduleTask.reschedule(context, items, now, false);
+        assertEquals(items.size(), result.size());
+        assertEquals(0, result.skipped.size());
+        assertTrue("calculations should be shared", result.numCalculations < items.size());
+
+        for (AlarmClockItem item0 : expected)
+        {
+            AlarmClockItem item = findItem(items, item0.rowID);
+            assertNotNull(item);
+            assertEquals(item0.rowID + "", (boolean) expectedScheduled.get(item0.rowID), result.scheduled.contains(item));
+            assertEquals(item0.rowID + "", item0.alarmtime, item.alarmtime);
+            assertEquals(item0.rowID + "", item0.timestamp, item.timestamp);
+            assertEquals(item0.rowID + "", item0.hour, item.hour);
+            assertEquals(item0.rowID + "", item0.minute, item.minute);
+            assertEquals(item0.rowID + "", item0.state.getState(), item.state.getState());
+        }
+    }
+
+    /**
+     * Schedules an item the same as the ACTION_SCHEDULE branch of AlarmNotifications.NotificationService.
+     * @return true scheduled, false failed
+     */
+    protected boolean scheduleEach(AlarmClockItem item, Calendar now)
+    {
+        assertTrue(AlarmState.transitionState(item.state, AlarmState.STATE_NONE));
+        if (AlarmNotifications.updateScheduledAlarmTime(item, AlarmNotifications.findAlarmEventTime(context, item, now)))
+        {
+            assertTrue(AlarmState.transitionState(item.state, AlarmNotifications.nextScheduledState(context, item, now.getTimeInMillis())));
+            return true;
+        } else return false;
+    }
+
+    protected List<AlarmClockItem> createItems()
+    {
+        Location location = new Location("Helsinki", "60", "25", "0");
+        List<AlarmClockItem> items = new ArrayList<>();
+        long rowID = 1;
+        for (AlarmClockItem.AlarmType type : new AlarmClockItem.AlarmType[] { AlarmClockItem.AlarmType.ALARM, AlarmClockItem.AlarmType.NOTIFICATION })
+        {
+            for (String event : new String[] { null, SolarEvents.SUNRISE.name(), SolarEvents.SUNSET.name() })
+            {
+                for (long reminderWithin : new long[] { 0, 60 * 1000, 12 * 60 * 60 * 1000 })
+                {
+                    for (int j=0; j<2; j++)    // duplicates (shared calculations)
+                    {
+                        AlarmClockItem item = AlarmNotificationsTest.createAlarmClockItem(true);
+                        item.rowID = rowID++;
+                        item.type = type;
+                        item.location = location;
+                        item.setEvent(event);
+                        item.offset = (j == 0 ? 0 : -30 * 60 * 1000);
+                        item.setFlag(AlarmClockItem.FLAG_REMINDER_WITHIN, reminderWithin);
+                        item.state = new AlarmState(item.rowID, AlarmState.STATE_SCHEDULED_DISTANT);
+                        items.add(item);
+                        items.add(createCopy(item, rowID++));
+                    }
+                }
+            }
+        }
+        return items;
+    }
+
+    protected static AlarmClockItem createCopy(AlarmClockItem item, long rowID)
+    {
+        AlarmClockItem copy = new AlarmClockItem(item);
+        copy.rowID = rowID;
+        copy.state = new AlarmState(rowID, item.state.getState());
+        return copy;
+    }
+
+    protected static AlarmClockItem findItem(List<AlarmClockItem> items, long rowID)
+    {
+        for (AlarmClockItem item : items) {
+            if (item.rowID == rowID) {
+                return item;
+            }
+        }
+        return null;
+    }
+}
@@ -28,6 +28,7 @@ import android.util.Log;
 
 import com.forrestguice.suntimeswidget.SuntimesUtils;
 import com.forrestguice.suntimeswidget.UnlistedTest;
+import com.forrestguice.suntimeswidget.calculator.SuntimesRiseSetData;
 import com.forrestguice.suntimeswidget.calculator.core.Location;
 import com.forrestguice.suntimeswidget.settings.SolarEvents;
 import com.forrestguice.suntimeswidget.settings.WidgetTimezones;
@@ -90,6 +91,64 @@ public class AlarmScheduleTest
         }
     }
 
+    @Test
+    public void test_updateAlarmTime_sunElevationEvent()
+    {
+        Location location = new Location("Phoenix", "33.45", "-111.94", "1263");
+        double[] angles = new double[] { -12, -6, -0.5, 0, 10 };
+        int[] offsets = new int[] { 0, -30 * 60 * 1000, 45 * 60 * 1000 };
+        boolean[] rising = new boolean[] { true, false };
+
+        for (double angle : angles)
+        {
+            for (int offset : offsets)
+            {
+                for (boolean isRising : rising)
+                {
+                    AlarmEventProvider.SunElevationEvent event = new AlarmEventProvider.SunElevationEvent(angle, offset, isRising);
+                    Calendar now = Calendar.getInstance();
+                    Calendar eventTime = AlarmEventProvider.updateAlarmTime_sunElevationEvent(context, event, location, 0, false, AlarmClockItem.everyday(), now);
+                    assertNotNull(eventTime);
+                    assertFalse(now.after(eventTime));
+
+                    Calendar day = Calendar.getInstance();
+                    day.setTimeInMillis(eventTime.getTimeInMillis() - offset);
+                    SuntimesRiseSetData data = new SuntimesRiseSetData(context, 0);    // the event as it is displayed
+                    data.setLocation(location);
+                    data.setAngle(angle);
+                    data.setOffset(offset);
+                    data.setTodayIs(day);
+                    data.calculate();
+
+                    Calendar displayed = (isRising ? data.sunriseCalendarToday() : data.sunsetCalendarToday());
+                    assertNotNull(displayed);
+                    displayed.set(Calendar.SECOND, 0);
+                    assertEquals("alarm time should match the displayed event (" + event.getEventName(context) + ")", displayed.getTimeInMillis(), eventTime.getTimeInMillis());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_updateAlarmTime_sunElevationEvent_offsetCrossesMidnight()
+    {
+        Location location = new Location("Phoenix", "33.45", "-111.94", "1263");
+        ArrayList<Integer> saturdays = new ArrayList<>();
+        saturdays.add(Calendar.SATURDAY);
+
+        int hour = 60 * 60 * 1000;
+        int[] offsets = new int[] { -11 * hour, -8 * hour, -5 * hour, -3 * hour, 3 * hour, 5 * hour, 8 * hour, 11 * hour };    // some of these move the event to the day before (or after)
+        for (int offset : offsets)
+        {
+            AlarmEventProvider.SunElevationEvent event = new AlarmEventProvider.SunElevationEvent(-6, offset, (offset < 0));
+            Calendar now = Calendar.getInstance();
+            Calendar eventTime = AlarmEventProvider.updateAlarmTime_sunElevationEvent(context, event, location, 0, true, saturdays, now);
+            assertNotNull(eventTime);
+            assertEquals(Calendar.SATURDAY, eventTime.get(Calendar.DAY_OF_WEEK));
+            assertTrue("the next saturday event should be within a week (" + event.getEventName(context) + ")", eventTime.getTimeInMillis() - now.getTimeInMillis() < 8 * 24 * hour);
+        }
+    }
+
     @Test
     public void test_updateAlarmTime_clockTime_ltst()
     {
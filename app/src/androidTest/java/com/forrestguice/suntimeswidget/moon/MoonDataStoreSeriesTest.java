@@ -0,0 +1,178 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.moon;
+
+import android.content.Context;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import com.forrestguice.suntimeswidget.calculator.SuntimesMoonData0;
+import com.forrestguice.suntimeswidget.calculator.core.Location;
+import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator;
+import com.forrestguice.suntimeswidget.calculator.time4a.Time4ANOAASuntimesCalculator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TimeZone;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class MoonDataStoreSeriesTest
+{
+    private Context context;
+    private MoonDataStore store;
+
+    private Location location = new Location("test", "35", "-112");
+    private TimeZone timezone = TimeZone.getTimeZone("US/Arizona");
+    private boolean isCurrent = true;
+
+    private final List<Integer> adjacent = new ArrayList<>();     // indices created from the adjacent entry
+    private final List<Integer> estimated = new ArrayList<>();    // indices estimated from index 0
+
+    @Before
+    public void init()
+    {
+        context = InstrumentationRegistry.getTargetContext();
+        store = new MoonDataStore(16);
+    }
+
+    @Test
+    public void test_series_center()
+    {
+        TestSeries series0 = new TestSeries();
+        assertEquals(1, store.size());
+        assertTrue(series0.getCenter().isCalculated());
+        assertSame(series0.getCenter(), series0.get(0));
+
+        TestSeries series1 = new TestSeries();    // today's entry is reused
+        assertSame(series0.getCenter(), series1.getCenter());
+        assertEquals(1, store.size());
+
+        isCurrent = false;                        // no longer valid; recalculated (and replaced)
+        TestSeries series2 = new TestSeries();
+        assertNotSame(series0.getCenter(), series2.getCenter());
+        assertEquals(1, store.size());
+
+        isCurrent = true;
+        assertSame(series2.getCenter(), new TestSeries().getCenter());
+    }
+
+    @Test
+    public void test_series_get()
+    {
+        TestSeries series = new TestSeries();
+        SuntimesMoonData0 data1 = series.get(1);
+        SuntimesMoonData0 data2 = series.get(2);
+        series.get(-1);
+        assertEquals(Arrays.asList(1, 2, -1), adjacent);    // from index 0, then from the adjacent entry
+        assertTrue(estimated.isEmpty());
+
+        series.get(5);                                      // index 4 isn't stored (a jump); estimated from index 0
+        series.get(6);
+        series.get(-3);
+        assertEquals(Arrays.asList(5, -3), estimated);
+        assertEquals(Arrays.asList(1, 2, -1, 6), adjacent);
+
+        assertSame(data1, series.get(1));                   // stored
+        assertSame(data2, series.get(2));
+        assertEquals(Arrays.asList(1, 2, -1, 6), adjacent);
+        assertEquals(Arrays.asList(5, -3), estimated);
+
+        store.put(series.key(1), null);                     // (evicted)
+        series.get(1);
+        assertEquals(Arrays.asList(1, 2, -1, 6, 1), adjacent);
+    }
+
+    @Test
+    public void test_series_key()
+    {
+        TestSeries series0 = new TestSeries();
+        SuntimesMoonData0 data1 = series0.get(1);
+        assertSame(data1, new TestSeries().get(1));                // same calculation; shared
+
+        timezone = TimeZone.getTimeZone("UTC");
+        TestSeries series1 = new TestSeries();
+        assertFalse(series0.key(1).equals(series1.key(1)));        // timezone changed
+        assertNotSame(series0.getCenter(), series1.getCenter());
+        assertNotSame(data1, series1.get(1));
+
+        timezone = TimeZone.getTimeZone("US/Arizona");
+        location = new Location("test", "36", "-112");
+        TestSeries series2 = new TestSeries();
+        assertFalse(series0.key(1).equals(series2.key(1)));        // location changed
+        assertFalse(series1.key(1).equals(series2.key(1)));
+        assertNotSame(series0.getCenter(), series2.getCenter());
+        assertNotSame(data1, series2.get(1));
+
+        location = new Location("test", "35", "-112");
+        assertSame(data1, new TestSeries().get(1));                // (still stored)
+    }
+
+    /**
+     * TestSeries
+     * Index 0 is calculated (using `location` and `timezone`); other entries are copies of the entry they are created from.
+     */
+    public class TestSeries extends MoonDataStore.IncrementalSeries<SuntimesMoonData0>
+    {
+        public TestSeries() {
+            super(context, store, MoonDataStore.TYPE_APSIS);
+        }
+
+        @Override
+        protected SuntimesMoonData0 createData(Context context)
+        {
+            SuntimesCalculator calculator = new Time4ANOAASuntimesCalculator();
+            calculator.init(location, timezone);
+            SuntimesMoonData0 data = new SuntimesMoonData0(context, 0, "moon");
+            data.setLocation(location);
+            data.setTimezone(timezone);
+            data.setCalculator(calculator, Time4ANOAASuntimesCalculator.getDescriptor());
+            return data;
+        }
+
+        @Override
+        protected SuntimesMoonData0 createData(int index, SuntimesMoonData0 data)
+        {
+            adjacent.add(index);
+            return new SuntimesMoonData0(data);
+        }
+
+        @Override
+        protected SuntimesMoonData0 estimateData(int index, SuntimesMoonData0 center)
+        {
+            estimated.add(index);
+            return new SuntimesMoonData0(center);
+        }
+
+        @Override
+        protected boolean isCurrent(SuntimesMoonData0 data) {
+            return isCurrent;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.views;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.support.test.InstrumentationRegistry;
+
+import com.forrestguice.suntimeswidget.LightMapView;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNotSame;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+
+public class BitmapPoolTest
+{
+    @Test
+    public void test_acquireRelease()
+    {
+        BitmapPool pool = new BitmapPool(2, 2);
+        Bitmap b0 = pool.acquire(64, 32, Bitmap.Config.ARGB_8888);
+        assertEquals(64, b0.getWidth());
+        assertEquals(32, b0.getHeight());
+        assertEquals(1, pool.getAllocationCount());
+
+        b0.eraseColor(Color.RED);
+        pool.release(b0);
+        pool.release(b0);    // released twice; pooled once
+        assertEquals(1, pool.size());
+
+        Bitmap b1 = pool.acquire(64, 32, Bitmap.Config.ARGB_8888);
+        assertSame(b0, b1);
+        assertEquals(Color.TRANSPARENT, b1.getPixel(0, 0));    // reused bitmaps are cleared
+        assertEquals(1, pool.getAllocationCount());
+        assertEquals(1, pool.getReuseCount());
+
+        Bitmap b2 = pool.acquire(64, 32, Bitmap.Config.RGB_565);    // different config
+        Bitmap b3 = pool.acquire(32, 64, Bitmap.Config.ARGB_8888);  // different size
+        assertNotSame(b1, b2);
+        assertNotSame(b1, b3);
+        assertEquals(3, pool.getAllocationCount());
+    }
+
+    @Test
+    public void test_bounded()
+    {
+        BitmapPool pool = new BitmapPool(2, 2);
+        for (int i=0; i<4; i++) {
+            pool.release(Bitmap.createBitmap(16, 16, Bitmap.Config.ARGB_8888));
+        }
+        assertEquals(2, pool.size());    // at most 2 per key
+
+        pool.release(Bitmap.createBitmap(8, 8, Bitmap.Config.ARGB_8888));
+        pool.release(Bitmap.createBitmap(4, 4, Bitmap.Config.ARGB_8888));
+        assertEquals(2, pool.size());    // at most 2 keys (16x16 dropped)
+
+        Bitmap recycled = Bitmap.createBitmap(4, 4, Bitmap.Config.ARGB_8888);
+        recycled.recycle();
+        pool.release(recycled);
+        assertEquals(2, pool.size());    // recycled bitmaps are ignored
+    }
+
+    @Test
+    public void test_frameBuffers()
+    {
+        BitmapPool pool = new BitmapPool(2, 2);
+        FrameBuffers buffers = new FrameBuffers(pool);
+        for (int i=0; i<100; i++)
+        {
+            Bitmap back = buffers.acquireBackBuffer(64, 32, Bitmap.Config.RGB_565);
+            assertNotSame(back, buffers.getFrontBuffer());    // never draws into the displayed frame
+            buffers.swap(back);
+        }
+        assertEquals(2, pool.getAllocationCount());    // double buffered
+        assertEquals(98, pool.getReuseCount());
+    }
+
+    @Test
+    public void test_lightmapAnimation_allocations()
+    {
+        BitmapPool pool = BitmapPool.getInstance();
+        pool.clear();
+        pool.resetCounts();
+
+        FrameBuffers buffers = new FrameBuffers(pool);
+        LightMapView.LightMapTask task = new LightMapView.LightMapTask();
+        task.setFrameBuffers(buffers);
+        LightMapView.LightMapColors colors = new LightMapView.LightMapColors();
+        for (int i=0; i<100; i++)
+        {
+            colors.offsetMinutes = i;
+            Bitmap frame = task.makeBitmap(null, 128, 16, colors);
+            buffers.swap(frame);
+        }
+        assertTrue("allocations should be bounded: " + pool, pool.getAllocationCount() <= 2);
+    }
+
+    @Test
+    public void test_frameBuffers_discard()
+    {
+        BitmapPool pool = new BitmapPool(2, 2);
+        FrameBuffers buffers = new FrameBuffers(pool);
+        buffers.swap(buffers.acquireBackBuffer(64, 32, Bitmap.Config.RGB_565));
+
+        Bitmap frame1 = buffers.acquireBackBuffer(64, 32, Bitmap.Config.RGB_565);
+        buffers.discard(frame1);    // never shown
+        assertEquals(1, pool.size());
+        buffers.discard(buffers.getFrontBuffer());    // the displayed frame is kept
+        assertEquals(1, pool.size());
+    }
+
+    @Test
+    public void test_lightmapView_listener_reuse()
+    {
+        final BitmapPool pool = BitmapPool.getInstance();
+        pool.clear();
+        pool.resetCounts();
+
+        final int[] frameCount = new int[] {0};
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                LightMapView view = new LightMapView(InstrumentationRegistry.getTargetContext());
+                view.setUseMainThread(true);
+                view.setMapTaskListener(new LightMapView.LightMapTaskListener()
+                {
+                    @Override
+                    public void onFinished(Bitmap result)
+                    {
+                        assertFalse(result.isRecycled());    // valid during the callback
+                        frameCount[0]++;
+                    }
+                });
+                view.layout(0, 0, 128, 16);
+                for (int i=0; i<100; i++)
+                {
+                    view.getColors().offsetMinutes = i;
+                    view.updateViews(true);
+                }
+            }
+        });
+        assertTrue(frameCount[0] >= 100);
+        assertTrue("frames shown to a listener should be reused: " + pool, pool.getAllocationCount() <= 2);
+        assertTrue("frames shown to a listener should be reused: " + pool, pool.getReuseCount() >= 98);
+    }
+
+    @Test
+    public void test_makeBitmap_unpooled()
+    {
+        BitmapPool pool = BitmapPool.getInstance();
+        pool.clear();
+        pool.resetCounts();
+
+        LightMapView.LightMapTask task = new LightMapView.LightMapTask();    // e.g. widgets (no frame buffers)
+        Bitmap b0 = task.makeBitmap(null, 128, 16, new LightMapView.LightMapColors());
+        Bitmap b1 = task.makeBitmap(null, 128, 16, new LightMapView.LightMapColors());
+        assertNotSame(b0, b1);
+        assertEquals(0, pool.getAllocationCount() + pool.getReuseCount());    // allocated directly
+    }
+}
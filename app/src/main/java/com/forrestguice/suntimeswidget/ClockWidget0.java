@@ -29,6 +29,7 @@ import com.forrestguice.suntimeswidget.widgets.layouts.ClockLayout;
 import com.forrestguice.suntimeswidget.widgets.layouts.ClockLayout_1x1_0;
 import com.forrestguice.suntimeswidget.settings.AppSettings;
 import com.forrestguice.suntimeswidget.settings.WidgetSettings;
+import com.forrestguice.suntimeswidget.settings.WidgetSettingsSnapshot;
 
 import java.util.Calendar;
 
@@ -76,12 +77,11 @@ public class ClockWidget0 extends SuntimesWidget0
         layout.prepareForUpdate(context, appWidgetId, data);
         RemoteViews views = layout.getViews(context);
 
-        boolean showTitle = WidgetSettings.loadShowTitlePref(context, appWidgetId);
+        boolean showTitle = WidgetSettingsSnapshot.get(context, appWidgetId).showTitle;
         views.setViewVisibility(R.id.text_title, showTitle ? View.VISIBLE : View.GONE);
-        views.setOnClickPendingIntent(R.id.widgetframe_inner, SuntimesWidget0.clickActionIntent(context, appWidgetId, ClockWidget0.class));
         layout.themeViews(context, views, appWidgetId);
         layout.updateViews(context, appWidgetId, views, data);
-        appWidgetManager.updateAppWidget(appWidgetId, views);
+        WidgetUpdateDispatcher.getInstance().updateAppWidget(appWidgetManager, appWidgetId, views, R.id.widgetframe_inner, SuntimesWidget0.clickActionIntent(context, appWidgetId, ClockWidget0.class));
 
         Calendar nextUpdate = Calendar.getInstance();
         nextUpdate.setTimeInMillis(data.calendar().getTimeInMillis());
@@ -0,0 +1,232 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget;
+
+import android.support.annotation.NonNull;
+
+import java.text.DecimalFormatSymbols;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DateFormatRegistry
+ * Hands out SimpleDateFormat instances keyed by (pattern, locale, timezone).
+ *
+ * SimpleDateFormat isn't thread-safe, so formatters are confined to the thread that requested them (each
+ * thread has its own cache); the timezone is applied when the formatter is handed out (timezones can't be
+ * part of the cache key since custom zones, e.g. local mean time, share an ID but differ in offset).
+ * The "HH:mm" and "HH:mm:ss" patterns are formatted directly (without SimpleDateFormat) when the locale
+ * uses ascii digits.
+ *
+ * Cached formatters are discarded by invalidate (e.g. after the locale or display strings have changed).
+ */
+public final class DateFormatRegistry
+{
+    public static final int MAX_SIZE = 16;    // per thread
+
+    public static final String PATTERN_24HR = "HH:mm";
+    public static final String PATTERN_24HR_SECONDS = "HH:mm:ss";
+
+    private static final AtomicInteger generation = new AtomicInteger(0);
+    private static final AtomicLong createCount = new AtomicLong(0);
+
+    private static final ThreadLocal<FormatCache> cache = new ThreadLocal<FormatCache>() {
+        @Override
+        protected FormatCache initialValue() {
+            return new FormatCache();
+        }
+    };
+
+    private static final HashMap<Locale, Boolean> asciiDigits = new HashMap<>();
+
+    private DateFormatRegistry() {}
+
+    /**
+     * @param pattern SimpleDateFormat pattern
+     * @param locale locale
+     * @param timezone timezone (applied to the returned formatter)
+     * @return a formatter that may only be used by the calling thread (and shouldn't be retained)
+     */
+    @NonNull
+    public static SimpleDateFormat getFormat(@NonNull String pattern, @NonNull Locale locale, @NonNull TimeZone timezone)
+    {
+        FormatCache formats = cache.get();
+        int g = generation.get();
+        if (formats.generation != g) {
+            formats.clear();
+            formats.generation = g;
+        }
+
+        formats.key.set(pattern, locale);
+        SimpleDateFormat format = formats.get(formats.key);
+        if (format == null)
+        {
+            format = new SimpleDateFormat(pattern, locale);
+            formats.put(new FormatKey(pattern, locale), format);
+            createCount.incrementAndGet();
+        }
+        format.setTimeZone(timezone);
+        return format;
+    }
+
+    /**
+     * @param pattern SimpleDateFormat pattern
+     * @param locale locale
+     * @param timezone timezone
+     * @param time the time (after any adjustment, @see SuntimesUtils.applyTimeZone)
+     * @return formatted time
+     */
+    @NonNull
+    public static String format(@NonNull String pattern, @NonNull Locale locale, @NonNull TimeZone timezone, @NonNull Date time)
+    {
+        boolean withSeconds = PATTERN_24HR_SECONDS.equals(pattern);
+        if ((withSeconds || PATTERN_24HR.equals(pattern)) && hasAsciiDigits(locale)) {
+            return format24Hr(time.getTime(), timezone, withSeconds);
+        }
+        return getFormat(pattern, locale, timezone).format(time);
+    }
+
+    /**
+     * Formats "HH:mm" (or "HH:mm:ss") without SimpleDateFormat.
+     * @param millis the time
+     * @param timezone timezone
+     * @param withSeconds true "HH:mm:ss", false "HH:mm"
+     * @return formatted time
+     */
+    @NonNull
+    public static String format24Hr(long millis, @NonNull TimeZone timezone, boolean withSeconds)
+    {
+        long local = millis + timezone.getOffset(millis);
+        long dayMillis = local % DAY_MILLIS;
+        if (dayMillis < 0) {
+            dayMillis += DAY_MILLIS;
+        }
+        int seconds = (int)(dayMillis / 1000);
+        int hour = seconds / 3600;
+        int minute = (seconds / 60) % 60;
+        int second = seconds % 60;
+
+        char[] c = new char[withSeconds ? 8 : 5];
+        c[0] = (char)('0' + hour / 10);
+        c[1] = (char)('0' + hour % 10);
+        c[2] = ':';
+        c[3] = (char)('0' + minute / 10);
+        c[4] = (char)('0' + minute % 10);
+        if (withSeconds)
+        {
+            c[5] = ':';
+            c[6] = (char)('0' + second / 10);
+            c[7] = (char)('0' + second % 10);
+        }
+        return new String(c);
+    }
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    /**
+     * @return true the locale formats numbers using ascii digits (0-9)
+     */
+    public static boolean hasAsciiDigits(@NonNull Locale locale)
+    {
+        synchronized (asciiDigits)
+        {
+            Boolean value = asciiDigits.get(locale);
+            if (value == null) {
+                asciiDigits.put(locale, (value = (DecimalFormatSymbols.getInstance(locale).getZeroDigit() == '0')));
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Discards all cached formatters (the cache of each thread is cleared on its next use).
+     */
+    public static void invalidate()
+    {
+        generation.incrementAndGet();
+        synchronized (asciiDigits) {
+            asciiDigits.clear();
+        }
+    }
+
+    /**
+     * @return the number of formatters created (by all threads)
+     */
+    public static long getCreateCount() {
+        return createCount.get();
+    }
+
+    /**
+     * FormatKey
+     */
+    private static final class FormatKey
+    {
+        private String pattern;
+        private Locale locale;
+
+        public FormatKey(String pattern, Locale locale) {
+            set(pattern, locale);
+        }
+
+        public void set(String pattern, Locale locale)
+        {
+            this.pattern = pattern;
+            this.locale = locale;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof FormatKey)) {
+                return false;
+            }
+            FormatKey other = (FormatKey) obj;
+            return pattern.equals(other.pattern) && locale.equals(other.locale);
+        }
+
+        @Override
+        public int hashCode() {
+            return pattern.hashCode() * 37 + locale.hashCode();
+        }
+    }
+
+    /**
+     * FormatCache
+     */
+    private static final class FormatCache extends LinkedHashMap<FormatKey, SimpleDateFormat>
+    {
+        public int generation = -1;
+        public final FormatKey key = new FormatKey("", Locale.ROOT);    // reused for lookups
+
+        public FormatCache() {
+            super(MAX_SIZE, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<FormatKey, SimpleDateFormat> eldest) {
+            return (size() > MAX_SIZE);
+        }
+    }
+}
@@ -35,10 +35,13 @@ import android.util.Log;
 import android.view.View;
 
 import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator;
+import com.forrestguice.suntimeswidget.calculator.SunElevationSolver;
 import com.forrestguice.suntimeswidget.calculator.SuntimesRiseSetData;
 import com.forrestguice.suntimeswidget.calculator.SuntimesRiseSetDataset;
 import com.forrestguice.suntimeswidget.settings.WidgetTimezones;
 import com.forrestguice.suntimeswidget.themes.SuntimesTheme;
+import com.forrestguice.suntimeswidget.views.AnimationFrameScheduler;
+import com.forrestguice.suntimeswidget.views.FrameBuffers;
 
 import java.util.Calendar;
 import java.util.TimeZone;
@@ -55,6 +58,7 @@ public class LightMapView extends android.support.v7.widget.AppCompatImageView
     public static final int DEFAULT_MAX_UPDATE_RATE = 15 * 1000;  // ms value; once every 15s
 
     private LightMapTask drawTask = null;
+    private final FrameBuffers frameBuffers = new FrameBuffers();    // the displayed frame is released to the pool when replaced
 
     private int maxUpdateRate = DEFAULT_MAX_UPDATE_RATE;
 
@@ -191,12 +195,15 @@ public class LightMapView extends android.support.v7.widget.AppCompatImageView
         {
             //Log.d("DEBUG", "updating lightmap on main thread.. " + getWidth() + "x" + getHeight() + " @ " + getNow() + " :: view-" + Integer.toHexString(getColors().hashCode()));
             LightMapTask draw = new LightMapTask();
+            draw.setFrameBuffers(frameBuffers);
             Bitmap b = draw.makeBitmap(data, getWidth(), getHeight(), colors);
             drawTaskListener.onFinished(b);
 
         } else {
             drawTask = new LightMapTask();
             drawTask.setListener(drawTaskListener);
+            drawTask.setFrameBuffers(frameBuffers);
+            drawTask.setLowPowerMode(!hasWindowFocus());
             drawTask.execute(data, getWidth(), getHeight(), colors, (animated ? 0 : 1), colors.offsetMinutes);
         }
     }
@@ -223,6 +230,7 @@ public class LightMapView extends android.support.v7.widget.AppCompatImageView
         public void onFrame(Bitmap frame, long offsetMinutes) {
             //Log.d(LightMapView.class.getSimpleName(), "LightmapView.updateViews: onFrame: " + Integer.toHexString(getColors().hashCode()));
             setImageBitmap(frame);
+            frameBuffers.swap(frame);
             if (mapListener != null) {
                 mapListener.onFrame(frame, offsetMinutes);
             }
@@ -237,6 +245,7 @@ public class LightMapView extends android.support.v7.widget.AppCompatImageView
         public void onFinished(Bitmap frame) {
             //Log.d(LightMapView.class.getSimpleName(), "LightmapView.updateViews: onFinished: " + Integer.toHexString(getColors().hashCode()));
             setImageBitmap(frame);
+            frameBuffers.swap(frame);
             if (mapListener != null) {
                 mapListener.onFinished(frame);
             }
@@ -323,6 +332,15 @@ public class LightMapView extends android.support.v7.widget.AppCompatImageView
         }
     }
 
+    @Override
+    public void onWindowFocusChanged(boolean hasWindowFocus)
+    {
+        super.onWindowFocusChanged(hasWindowFocus);
+        if (drawTask != null) {
+            drawTask.setLowPowerMode(!hasWindowFocus);    // reduce the frame rate while unfocused
+        }
+    }
+
     @Override
     protected void onVisibilityChanged(@NonNull View view, int visibility)
     {
@@ -373,9 +391,15 @@ public class LightMapView extends android.support.v7.widget.AppCompatImageView
         {
             Calendar calendar = Calendar.getInstance(data.timezone());
             calendar.setTimeInMillis(colors.now + (colors.offsetMinutes * 60 * 1000));
-            Calendar event = rising ? data.calculator().getSunriseCalendarForDate(calendar, degrees)
-                    : data.calculator().getSunsetCalendarForDate(calendar, degrees);
-            return ((event != null) ? event.getTimeInMillis() : null);
+            calendar.set(Calendar.HOUR_OF_DAY, 0);
+            calendar.set(Calendar.MINUTE, 0);
+            calendar.set(Calendar.SECOND, 0);
+            calendar.set(Calendar.MILLISECOND, 0);
+            long startMillis = calendar.getTimeInMillis();
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+
+            SunElevationSolver solver = new SunElevationSolver(SunElevationSolver.sunElevation(data.calculator()));
+            return solver.findEvent(SunElevationSolver.sunEvents(data.calculator()), degrees, startMillis, calendar.getTimeInMillis() - 1, rising);
         } else return null;
     }
 
@@ -413,7 +437,6 @@ public class LightMapView extends android.support.v7.widget.AppCompatImageView
         {
             int w, h;
             int numFrames = 1;
-            long frameDuration = 250000000;    // nanoseconds (250 ms)
             long initialOffset = 0;
             SuntimesRiseSetDataset data;
             try {
@@ -428,18 +451,19 @@ public class LightMapView extends android.support.v7.widget.AppCompatImageView
                 if (params.length > 5) {
                     initialOffset = (long)params[5];
                 }
-                frameDuration = colors.anim_frameLengthMs * 1000000;   // ms to ns
+                scheduler = new AnimationFrameScheduler(colors.anim_frameLengthMs);
+                scheduler.setLowPowerMode(lowPower);
 
             } catch (ClassCastException e) {
                 Log.w(LightMapTask.class.getSimpleName(), "Invalid params; using [null, 0, 0]");
                 return null;
             }
 
-            long time0 = System.nanoTime();
             Bitmap frame = null;
             colors.offsetMinutes = initialOffset;
 
-            int i = 0;
+            int i = 0, lastAdvance = 1;
+            scheduler.start();
             while (i < numFrames || numFrames <= 0)
             {
                 //Log.d(LightMapTask.class.getSimpleName(), "generating frame " + i + " | " + w + "," + h);
@@ -468,21 +492,26 @@ public class LightMapView extends android.support.v7.widget.AppCompatImageView
 
                 frame = makeBitmap(data, w, h, colors);
 
-                long time1 = System.nanoTime();
-                while ((time1 - time0) < frameDuration) {
-                    time1 = System.nanoTime();
+                int advance = scheduler.awaitNextFrame();
+                if (advance <= 0) {    // interrupted (cancelled)
+                    if (frameBuffers != null) {
+                        frameBuffers.discard(frame);    // never shown
+                    }
+                    frame = null;
+                    colors.releaseDrawLock();
+                    break;
                 }
 
                 publishProgress(frame);
                 if (listener != null) {
                     listener.afterFrame(frame, colors.offsetMinutes);
                 }
-                colors.offsetMinutes += colors.anim_frameOffsetMinutes;
-                time0 = System.nanoTime();
-                i++;
+                colors.offsetMinutes += colors.anim_frameOffsetMinutes * advance;    // skip ahead over dropped frames
+                lastAdvance = advance;
+                i += advance;
                 colors.releaseDrawLock();
             }
-            colors.offsetMinutes -= colors.anim_frameOffsetMinutes;
+            colors.offsetMinutes -= colors.anim_frameOffsetMinutes * lastAdvance;
 
             //Log.d("DEBUG", "doInBackground: done: " + (data != null ? data.dataActual.sunsetCalendarToday().get(Calendar.DAY_OF_YEAR) : "null"));
             return frame;
@@ -504,9 +533,12 @@ public class LightMapView extends android.support.v7.widget.AppCompatImageView
 
             this.colors = colors;
             Calendar now = mapTime(data, colors);
-            Bitmap b = Bitmap.createBitmap(w, h, Bitmap.Config.RGB_565);
-            Canvas c = new Canvas(b);
-            Paint p = new Paint(Paint.ANTI_ALIAS_FLAG);
+            Bitmap b = FrameBuffers.acquire(frameBuffers, w, h, Bitmap.Config.RGB_565);
+            Canvas c = canvas;
+            c.setBitmap(b);
+            Paint p = paint;
+            p.reset();
+            p.setAntiAlias(true);
 
             boolean layer_astro, layer_nautical, layer_civil;
 
@@ -603,8 +635,7 @@ public class LightMapView extends android.support.v7.widget.AppCompatImageView
 
                     switch (colors.option_drawNow) {
                         case LightMapColors.DRAW_SUN2:
-                            DashPathEffect dashed = new DashPathEffect(new float[] {4, 2}, 0);
-                            drawPoint(now, pointRadius, pointStroke, c, p, Color.TRANSPARENT, colors.colorPointStroke, dashed);
+                            drawPoint(now, pointRadius, pointStroke, c, p, Color.TRANSPARENT, colors.colorPointStroke, DASHED);
                             break;
 
                         case LightMapColors.DRAW_SUN1:
@@ -619,6 +650,9 @@ public class LightMapView extends android.support.v7.widget.AppCompatImageView
             //Log.d("BENCH", "make lightmap :: " + ((bench_end - bench_start) / 1000000.0) + " ms");
             return b;
         }
+        private final Canvas canvas = new Canvas();
+        private final Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        private static final DashPathEffect DASHED = new DashPathEffect(new float[] {4, 2}, 0);
 
         protected Calendar mapTime(@Nullable SuntimesRiseSetDataset data, @NonNull LightMapColors options)
         {
@@ -804,6 +838,30 @@ public class LightMapView extends android.support.v7.widget.AppCompatImageView
         {
             this.listener = listener;
         }
+
+        private FrameBuffers frameBuffers = null;
+        /**
+         * @param buffers the view's frame buffers (frames are acquired from its pool), or null to allocate each frame
+         */
+        public void setFrameBuffers(@Nullable FrameBuffers buffers) {
+            this.frameBuffers = buffers;
+        }
+
+        private volatile AnimationFrameScheduler scheduler = null;
+        public AnimationFrameScheduler getScheduler() {
+            return scheduler;
+        }
+
+        private volatile boolean lowPower = false;
+        public void setLowPowerMode(boolean value)
+        {
+            lowPower = value;
+            AnimationFrameScheduler s = scheduler;
+            if (s != null) {
+                s.setLowPowerMode(value);
+            }
+        }
+
         public void clearListener()
         {
             this.listener = null;
@@ -812,6 +870,8 @@ public class LightMapView extends android.support.v7.widget.AppCompatImageView
 
     /**
      * LightMapTaskListener
+     * Frames passed to a view's listener (onFrame, afterFrame, onFinished) come from the view's FrameBuffers; a frame
+     * is only valid during the callback (it is returned to the pool when the next frame is shown), so copy it to keep it.
      */
     @SuppressWarnings("EmptyMethod")
     public static abstract class LightMapTaskListener
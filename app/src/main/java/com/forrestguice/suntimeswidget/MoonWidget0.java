@@ -32,6 +32,7 @@ import com.forrestguice.suntimeswidget.widgets.layouts.MoonLayout_2x1_0;
 import com.forrestguice.suntimeswidget.widgets.layouts.MoonLayout_3x1_0;
 import com.forrestguice.suntimeswidget.settings.AppSettings;
 import com.forrestguice.suntimeswidget.settings.WidgetSettings;
+import com.forrestguice.suntimeswidget.settings.WidgetSettingsSnapshot;
 
 import java.util.Calendar;
 
@@ -75,18 +76,16 @@ public class MoonWidget0 extends SuntimesWidget0
         layout.prepareForUpdate(context, appWidgetId, data);
 
         RemoteViews views = layout.getViews(context);
-        views.setOnClickPendingIntent(R.id.widgetframe_inner, SuntimesWidget0.clickActionIntent(context, appWidgetId, widgetClass));
-
-        boolean showTitle = WidgetSettings.loadShowTitlePref(context, appWidgetId);
+        boolean showTitle = WidgetSettingsSnapshot.get(context, appWidgetId).showTitle;
         views.setViewVisibility(R.id.text_title, showTitle ? View.VISIBLE : View.GONE);
 
         layout.themeViews(context, views, appWidgetId);
         layout.updateViews(context, appWidgetId, views, data);
-        appWidgetManager.updateAppWidget(appWidgetId, views);
+        WidgetUpdateDispatcher.getInstance().updateAppWidget(appWidgetManager, appWidgetId, views, R.id.widgetframe_inner, SuntimesWidget0.clickActionIntent(context, appWidgetId, widgetClass));
 
         if (!layout.saveNextSuggestedUpdate(context, appWidgetId))
         {
-            WidgetSettings.RiseSetOrder order = WidgetSettings.loadRiseSetOrderPref(context, appWidgetId);
+            WidgetSettings.RiseSetOrder order = WidgetSettingsSnapshot.get(context, appWidgetId).riseSetOrder;
             if (order == WidgetSettings.RiseSetOrder.TODAY) {
                 WidgetSettings.saveNextSuggestedUpdate(context, appWidgetId, -1);
                 Log.d(TAG, "saveNextSuggestedUpdate: -1");
@@ -111,7 +110,7 @@ public class MoonWidget0 extends SuntimesWidget0
     {
         int[] mustFitWithinDp = widgetSizeDp(context, appWidgetManager, appWidgetId, defSize);
         MoonLayout layout;
-        if (WidgetSettings.loadAllowResizePref(context, appWidgetId))
+        if (WidgetSettingsSnapshot.get(context, appWidgetId).allowResize)
         {
             int minWidth3x1 = context.getResources().getInteger(R.integer.widget_size_minWidthDp3x1);
             int minWidth2x1 = context.getResources().getInteger(R.integer.widget_size_minWidthDp2x1);
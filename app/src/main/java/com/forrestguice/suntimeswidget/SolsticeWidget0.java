@@ -35,6 +35,7 @@ import com.forrestguice.suntimeswidget.widgets.layouts.SolsticeLayout_1x1_0;
 
 import com.forrestguice.suntimeswidget.settings.AppSettings;
 import com.forrestguice.suntimeswidget.settings.WidgetSettings;
+import com.forrestguice.suntimeswidget.settings.WidgetSettingsSnapshot;
 
 import java.util.Calendar;
 
@@ -94,12 +95,11 @@ public class SolsticeWidget0 extends SuntimesWidget0
         layout.prepareForUpdate(context, appWidgetId, data);
         RemoteViews views = layout.getViews(context);
 
-        boolean showTitle = WidgetSettings.loadShowTitlePref(context, appWidgetId);
+        boolean showTitle = WidgetSettingsSnapshot.get(context, appWidgetId).showTitle;
         views.setViewVisibility(R.id.text_title, showTitle ? View.VISIBLE : View.GONE);
-        views.setOnClickPendingIntent(R.id.widgetframe_inner, SuntimesWidget0.clickActionIntent(context, appWidgetId, SolsticeWidget0.class));
         layout.themeViews(context, views, appWidgetId);
         layout.updateViews(context, appWidgetId, views, data);
-        appWidgetManager.updateAppWidget(appWidgetId, views);
+        WidgetUpdateDispatcher.getInstance().updateAppWidget(appWidgetManager, appWidgetId, views, R.id.widgetframe_inner, SuntimesWidget0.clickActionIntent(context, appWidgetId, SolsticeWidget0.class));
     }
 
     protected static SuntimesEquinoxSolsticeData getSolsticeEquinoxData(Context context, int appWidgetId)
@@ -92,9 +92,7 @@ import com.forrestguice.suntimeswidget.settings.WidgetTimezones;
 
 import java.text.DateFormatSymbols;
 import java.text.NumberFormat;
-import java.text.SimpleDateFormat;
 
-import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Date;
@@ -216,6 +214,7 @@ public class SuntimesUtils
         strDateTimeLongFormatSec = dateTimeFormatLong(res, is24, true);    // context.getString(R.string.datetime_format_long, strDateLongFormat, timeFormatSec);
 
         CardinalDirection.initDisplayStrings(context);
+        DateFormatRegistry.invalidate();    // locale or display strings may have changed
 
         initialized = true;
         ///initCount++;
@@ -612,25 +611,8 @@ public class SuntimesUtils
     {
         Date time = cal.getTime();
         applyTimeZone(time, cal.getTimeZone());
-        SimpleDateFormat timeFormat = initTimeFormat_24(showSeconds);
-        timeFormat.setTimeZone(cal.getTimeZone());
-        return timeFormat.format(time);
-    }
-    private SimpleDateFormat initTimeFormat_24(boolean showSeconds)
-    {
-        if (showSeconds)
-        {
-            if (timeFormat_24s == null)
-                return (timeFormat_24s = new SimpleDateFormat(strTimeVeryShortFormat24s, getLocale()));
-            else return timeFormat_24s;
-
-        } else {
-            if (timeFormat_24 == null) {
-                return (timeFormat_24 = new SimpleDateFormat(strTimeVeryShortFormat24, getLocale()));
-            } else return timeFormat_24;
-        }
+        return DateFormatRegistry.format((showSeconds ? strTimeVeryShortFormat24s : strTimeVeryShortFormat24), getLocale(), cal.getTimeZone(), time);
     }
-    private SimpleDateFormat timeFormat_24, timeFormat_24s;
 
     /**
      * applyTimeZone
@@ -685,45 +667,21 @@ public class SuntimesUtils
         //   dansk               6.47 AM        11.46 PM           (da)
         //   norsk bokmal        6.47 a.m.      11.46 p.m.         (nb)
 
-        SimpleDateFormat timeFormat = initTimeFormat_12(showSeconds);
-        timeFormat.setTimeZone(cal.getTimeZone());
-        timeFormat_12_suffix.setTimeZone(cal.getTimeZone());
-
+        Locale locale = getLocale();
         Date time = cal.getTime();
         applyTimeZone(time, cal.getTimeZone());
-        TimeDisplayText retValue = new TimeDisplayText(timeFormat.format(time), "", timeFormat_12_suffix.format(time));
+        String timeString = DateFormatRegistry.format((showSeconds ? strTimeVeryShortFormat12s : strTimeVeryShortFormat12), locale, cal.getTimeZone(), time);
+        String suffixString = DateFormatRegistry.format(strTimeSuffixFormat, locale, cal.getTimeZone(), time);  // a
+        TimeDisplayText retValue = new TimeDisplayText(timeString, "", suffixString);
         retValue.setRawValue(cal.getTimeInMillis());
         return retValue;
     }
 
-    private SimpleDateFormat initTimeFormat_12(boolean showSeconds)
-    {
-        if (timeFormat_12_suffix == null) {
-            timeFormat_12_suffix = new SimpleDateFormat(strTimeSuffixFormat, getLocale());  // a
-        }
-        if (showSeconds)
-        {
-            if (timeFormat_12s == null)
-                return (timeFormat_12s = new SimpleDateFormat(strTimeVeryShortFormat12s, getLocale()));
-            else return timeFormat_12s;
-
-        } else {
-            if (timeFormat_12 == null) {
-                return (timeFormat_12 = new SimpleDateFormat(strTimeVeryShortFormat12, getLocale()));
-            } else return timeFormat_12;
-        }
-    }
-    private SimpleDateFormat timeFormat_12, timeFormat_12s, timeFormat_12_suffix;
-
     public String calendarTime12HrString(Context context, @NonNull Calendar cal)
     {
-        Locale locale = getLocale();
-        SimpleDateFormat timeFormat = new SimpleDateFormat(strTimeShortFormat12, locale); // h:mm a
-
         Date time = cal.getTime();
         applyTimeZone(time, cal.getTimeZone());
-        timeFormat.setTimeZone(cal.getTimeZone());
-        return timeFormat.format(time);
+        return DateFormatRegistry.format(strTimeShortFormat12, getLocale(), cal.getTimeZone(), time);  // h:mm a
     }
 
     /**
@@ -739,13 +697,9 @@ public class SuntimesUtils
             return new TimeDisplayText(strTimeNone);
         }
 
-        Locale locale = getLocale();
-        SimpleDateFormat dayFormat = new SimpleDateFormat((abbreviate ? "E" : "EEEE"), locale);
-
         Date time = calendar.getTime();
         applyTimeZone(time, calendar.getTimeZone());
-        dayFormat.setTimeZone(calendar.getTimeZone());
-        TimeDisplayText displayText = new TimeDisplayText(dayFormat.format(time), "", "");
+        TimeDisplayText displayText = new TimeDisplayText(DateFormatRegistry.format((abbreviate ? "E" : "EEEE"), getLocale(), calendar.getTimeZone(), time), "", "");
         displayText.setRawValue(calendar.getTimeInMillis());
         return displayText;
     }
@@ -768,17 +722,11 @@ public class SuntimesUtils
             return new TimeDisplayText(strTimeNone);
         }
 
-        Locale locale = getLocale();
-        SimpleDateFormat dateFormat;
-
-        if (showYear)
-            dateFormat = new SimpleDateFormat(strDateLongFormat, locale);
-        else dateFormat = new SimpleDateFormat((abbreviate ? strDateVeryShortFormat : strDateShortFormat), locale);
+        String pattern = (showYear ? strDateLongFormat : (abbreviate ? strDateVeryShortFormat : strDateShortFormat));
 
         Date time = calendar.getTime();
         applyTimeZone(time, calendar.getTimeZone());
-        dateFormat.setTimeZone(calendar.getTimeZone());
-        TimeDisplayText displayText = new TimeDisplayText(dateFormat.format(time), "", "");
+        TimeDisplayText displayText = new TimeDisplayText(DateFormatRegistry.format(pattern, getLocale(), calendar.getTimeZone(), time), "", "");
         displayText.setRawValue(calendar.getTimeInMillis());
         return displayText;
     }
@@ -812,19 +760,17 @@ public class SuntimesUtils
             return new TimeDisplayText(strTimeNone);
         }
 
-        Locale locale = getLocale();
-        SimpleDateFormat dateTimeFormat;
+        String pattern;
         if (showTime) {
             if (showSeconds)
-                dateTimeFormat = new SimpleDateFormat((showYear ? strDateTimeLongFormatSec : (abbreviate ? strDateTimeVeryShortFormatSec : strDateTimeShortFormatSec)), locale);
-            else dateTimeFormat = new SimpleDateFormat((showYear ? strDateTimeLongFormat : (abbreviate ? strDateTimeVeryShortFormat : strDateTimeShortFormat)), locale);
-        } else dateTimeFormat = new SimpleDateFormat((showYear ? strDateLongFormat : (abbreviate ? strDateVeryShortFormat : strDateShortFormat)), locale);
-        //Log.d("DEBUG","DateTimeFormat: " + dateTimeFormat.toPattern() + " (" + locale.toString() + ")");
+                pattern = (showYear ? strDateTimeLongFormatSec : (abbreviate ? strDateTimeVeryShortFormatSec : strDateTimeShortFormatSec));
+            else pattern = (showYear ? strDateTimeLongFormat : (abbreviate ? strDateTimeVeryShortFormat : strDateTimeShortFormat));
+        } else pattern = (showYear ? strDateLongFormat : (abbreviate ? strDateVeryShortFormat : strDateShortFormat));
+        //Log.d("DEBUG","DateTimeFormat: " + pattern + " (" + getLocale().toString() + ")");
 
         Date time = cal.getTime();
         applyTimeZone(time, cal.getTimeZone());
-        dateTimeFormat.setTimeZone(cal.getTimeZone());
-        TimeDisplayText displayText = new TimeDisplayText(dateTimeFormat.format(time), "", "");
+        TimeDisplayText displayText = new TimeDisplayText(DateFormatRegistry.format(pattern, getLocale(), cal.getTimeZone(), time), "", "");
         displayText.setRawValue(cal.getTimeInMillis());
         return displayText;
 
@@ -865,23 +811,19 @@ public class SuntimesUtils
             case MODE_24HR: default: formatIs24 = true; break;
         }
 
-        Locale locale = getLocale();
-        SimpleDateFormat dateTimeFormat;
+        String pattern;
         if (showTime) {
-            dateTimeFormat = new SimpleDateFormat((showYear ? dateTimeFormatLong(context.getResources(), formatIs24, showSeconds)
+            pattern = (showYear ? dateTimeFormatLong(context.getResources(), formatIs24, showSeconds)
                     : (abbreviate ? dateTimeFormatVeryShort(context.getResources(), formatIs24, showSeconds)
-                        : dateTimeFormatShort(context.getResources(), formatIs24, showSeconds))
-            ), locale);
-        } else dateTimeFormat = new SimpleDateFormat((showYear ? strDateLongFormat
+                        : dateTimeFormatShort(context.getResources(), formatIs24, showSeconds)));
+        } else pattern = (showYear ? strDateLongFormat
                 : (abbreviate ? strDateVeryShortFormat
-                    : strDateShortFormat)
-        ), locale);
-        //Log.d("DEBUG","DateTimeFormat: " + dateTimeFormat.toPattern() + " (" + locale.toString() + ")");
+                    : strDateShortFormat));
+        //Log.d("DEBUG","DateTimeFormat: " + pattern + " (" + getLocale().toString() + ")");
 
         Date time = cal.getTime();
         applyTimeZone(time, cal.getTimeZone());
-        dateTimeFormat.setTimeZone(cal.getTimeZone());
-        TimeDisplayText displayText = new TimeDisplayText(dateTimeFormat.format(time), "", "");
+        TimeDisplayText displayText = new TimeDisplayText(DateFormatRegistry.format(pattern, getLocale(), cal.getTimeZone(), time), "", "");
         displayText.setRawValue(cal.getTimeInMillis());
         return displayText;
     }
@@ -897,10 +839,7 @@ public class SuntimesUtils
         {
             return new TimeDisplayText(strTimeNone);
         }
-        Locale locale = getLocale();
-        SimpleDateFormat dateFormat = new SimpleDateFormat(strDateYearFormat, locale);
-        //Log.d("DEBUG", "Year Format: " + dateFormat.toPattern() + " (" + locale.toString() + ")");
-        return new TimeDisplayText(dateFormat.format(cal.getTime()), "", "");
+        return new TimeDisplayText(DateFormatRegistry.format(strDateYearFormat, getLocale(), TimeZone.getDefault(), cal.getTime()), "", "");
     }
 
     /**
@@ -1237,177 +1176,26 @@ public class SuntimesUtils
      */
     public String displayStringForTitlePattern(Context context, String titlePattern, @Nullable SuntimesRiseSetData data)
     {
-        String displayString = displayStringForTitlePattern(context, titlePattern, (SuntimesData)data);
-        String modePattern = "%M";
-        String modePatternShort = "%m";
-        String orderPattern = "%o";
-        String[] patterns = new String[] { modePattern, modePatternShort, orderPattern };
-
-        SolarEvents[] events = { SolarEvents.SUNRISE, SolarEvents.NOON, SolarEvents.SUNSET };
-        HashMap<SolarEvents, String> patterns_em = getPatternsForEvent_em(events);
-        HashMap<SolarEvents, String> patterns_et = getPatternsForEvent_et(events);
-        HashMap<SolarEvents, String> patterns_eT = getPatternsForEvent_eT(events);
-        HashMap<SolarEvents, String> patterns_eA = getPatternsForEvent_eA(events);   // angle/elevation
-        HashMap<SolarEvents, String> patterns_eZ = getPatternsForEvent_eZ(events);   // azimuth
-        HashMap<SolarEvents, String> patterns_eD = getPatternsForEvent_eD(events);   // declination
-        HashMap<SolarEvents, String> patterns_eR = getPatternsForEvent_eR(events);   // right-ascension
-
-        if (data == null) {
-            displayString = removePatterns(displayString, Arrays.asList(patterns));
-            displayString = removePatterns(displayString, patterns_em.values());
-            displayString = removePatterns(displayString, patterns_et.values());
-            displayString = removePatterns(displayString, patterns_eT.values());
-            displayString = removePatterns(displayString, patterns_eA.values());
-            displayString = removePatterns(displayString, patterns_eZ.values());
-            displayString = removePatterns(displayString, patterns_eD.values());
-            displayString = removePatterns(displayString, patterns_eR.values());
-            return displayString;
-        }
-
-        WidgetSettings.TimeMode timeMode = data.timeMode();
-        String modeDisplayShort = timeMode.getShortDisplayString();
-        String modeDisplayLong = timeMode.getLongDisplayString();
-
-        WidgetSettings.RiseSetDataMode timeModeItem = data.dataMode();
-        if (timeModeItem instanceof WidgetSettings.EventAliasTimeMode) {
-            String label = EventSettings.loadEventValue(context, timeModeItem.name(), EventSettings.PREF_KEY_EVENT_LABEL);
-            if (label != null) {
-                modeDisplayLong = modeDisplayShort = label;
-            }
-        }
-
-        displayString = displayString.replaceAll(modePatternShort, modeDisplayShort);
-        displayString = displayString.replaceAll(modePattern, modeDisplayLong);
-
-        WidgetSettings.RiseSetOrder order = WidgetSettings.loadRiseSetOrderPref(context, data.appWidgetID());
-        displayString = displayString.replaceAll(orderPattern, order.toString());
-
-        for (SolarEvents event : events)
-        {
-            String pattern_em = patterns_em.get(event);
-            String pattern_et = patterns_et.get(event);
-            String pattern_eT = patterns_eT.get(event);
-            String pattern_eA = patterns_eA.get(event);
-            String pattern_eZ = patterns_eZ.get(event);
-            String pattern_eD = patterns_eD.get(event);
-            String pattern_eR = patterns_eR.get(event);
-
-            if (!displayString.contains(pattern_em) && !displayString.contains(pattern_et) && !displayString.contains(pattern_eT) && !displayString.contains(pattern_eA)
-                    && !displayString.contains(pattern_eZ) && !displayString.contains(pattern_eD) && !displayString.contains(pattern_eR)) {
-                continue;
-            }
-
-            SuntimesRiseSetData d = (event == SolarEvents.NOON && data.getLinked() != null ? data.getLinked() : data);
-            if (event == SolarEvents.SUNRISE) {
-                event = SolarEvents.valueOf(timeMode, true);
-            } else if (event == SolarEvents.SUNSET) {
-                event = SolarEvents.valueOf(timeMode, false);
-            }
-
-            Calendar eventTime = d.getEvents(event.isRising())[0];
-            if (eventTime != null)
-            {
-                if (displayString.contains(pattern_em)) {
-                    displayString = displayString.replaceAll(pattern_em, eventTime.getTimeInMillis() + "");
-                }
-                if (displayString.contains(pattern_et)) {
-                    displayString = displayString.replaceAll(pattern_et, calendarTimeShortDisplayString(context, eventTime, false).toString());
-                }
-                if (displayString.contains(pattern_eT)) {
-                    displayString = displayString.replaceAll(pattern_eT, calendarTimeShortDisplayString(context, eventTime, true).toString());
-                }
-                if (displayString.contains(pattern_eA)) {
-                    Double angle = (d.angle() != null ? Double.valueOf(d.angle()) : getAltitudeForEvent(event, d));
-                    displayString = displayString.replaceAll(pattern_eA, (angle != null ? formatAsDegrees(angle, 1) : ""));
-                }
-                if (displayString.contains(pattern_eZ)) {
-                    Double value = getAzimuthForEvent(event, d);
-                    displayString = displayString.replaceAll(pattern_eZ, (value != null ? formatAsDirection(value, 1) : ""));
-                }
-                if (displayString.contains(pattern_eD)) {
-                    Double value = getDeclinationForEvent(event, d);
-                    displayString = displayString.replaceAll(pattern_eD, (value != null ? formatAsDeclination(value, 1).toString() : ""));
-                }
-                if (displayString.contains(pattern_eR)) {
-                    Double value = getRightAscensionForEvent(event, d);
-                    displayString = displayString.replaceAll(pattern_eR, (value != null ? formatAsRightAscension(value, 1).toString() : ""));
-                }
-
-            } else {
-                displayString = displayString.replaceAll(pattern_em, "");
-                displayString = displayString.replaceAll(pattern_et, "");
-                displayString = displayString.replaceAll(pattern_eT, "");
-                displayString = displayString.replaceAll(pattern_eA, "");
-                displayString = displayString.replaceAll(pattern_eZ, "");
-                displayString = displayString.replaceAll(pattern_eD, "");
-                displayString = displayString.replaceAll(pattern_eR, "");
-            }
-
-        }
-
-        return displayString;
+        TitlePattern pattern = TitlePattern.compile(titlePattern, TitlePattern.KIND_RISESET, (data == null));
+        return pattern.render(new RiseSetTitleResolver(context, data));
     }
-    
+
     public String displayStringForTitlePattern(Context context, String titlePattern, @Nullable SuntimesMoonData data)
     {
-        String displayString = displayStringForTitlePattern(context, titlePattern, (SuntimesData)data);
-        String modePattern = "%M";
-        String modePatternShort = "%m";
-        String illumPattern = "%i";
-        String orderPattern = "%o";
-
-        if (data != null && data.isCalculated())
-        {
-            WidgetSettings.RiseSetOrder order = WidgetSettings.loadRiseSetOrderPref(context, data.appWidgetID());
-
-            displayString = displayString.replaceAll(modePatternShort, data.getMoonPhaseToday().getShortDisplayString());
-            displayString = displayString.replaceAll(modePattern, data.getMoonPhaseToday().getLongDisplayString());
-            displayString = displayString.replaceAll(orderPattern, order.toString());
-
-            if (displayString.contains(illumPattern)) {
-                NumberFormat percentage = NumberFormat.getPercentInstance();
-                displayString = displayString.replaceAll(illumPattern, percentage.format(data.getMoonIlluminationToday()));
-            }
-        } else {
-            displayString = displayString.replaceAll(modePatternShort, "").replaceAll(modePattern, "").replaceAll(orderPattern, "").replaceAll(illumPattern, "");
-        }
-        return displayString;
+        TitlePattern pattern = TitlePattern.compile(titlePattern, TitlePattern.KIND_MOON, (data == null));
+        return pattern.render(new MoonTitleResolver(context, data));
     }
 
     public String displayStringForTitlePattern(Context context, String titlePattern, @Nullable SuntimesEquinoxSolsticeData data)
     {
-        String displayString = displayStringForTitlePattern(context, titlePattern, (SuntimesData)data);
-        String modePattern = "%M";
-        String modePatternShort = "%m";
-        String orderPattern = "%o";
-
-        if (data == null) {
-            return displayString.replaceAll(modePatternShort, "").replaceAll(modePattern, "").replaceAll(orderPattern, "");
-        }
-
-        WidgetSettings.TrackingMode trackingMode = WidgetSettings.loadTrackingModePref(context, data.appWidgetID());
-        WidgetSettings.SolsticeEquinoxMode timeMode = data.timeMode();
-
-        displayString = displayString.replaceAll(modePatternShort, timeMode.getShortDisplayString());
-        displayString = displayString.replaceAll(modePattern, timeMode.getLongDisplayString());
-        displayString = displayString.replaceAll(orderPattern, trackingMode.toString());
-        return displayString;
+        TitlePattern pattern = TitlePattern.compile(titlePattern, TitlePattern.KIND_EQUINOX, (data == null));
+        return pattern.render(new EquinoxTitleResolver(context, data));
     }
 
     public String displayStringForTitlePattern(Context context, String titlePattern, @Nullable SuntimesClockData data)
     {
-        String displayString = displayStringForTitlePattern(context, titlePattern, (SuntimesData)data);
-        String modePattern = "%M";
-        String modePatternShort = "%m";
-
-        if (data == null) {
-            return displayString.replaceAll(modePatternShort, "").replaceAll(modePattern, "");
-        }
-
-        CalendarMode mode = CalendarSettings.loadCalendarModePref(context, data.appWidgetID());
-        displayString = displayString.replaceAll(modePatternShort, mode.getDisplayString());
-        displayString = displayString.replaceAll(modePattern, mode.getDisplayString());
-        return displayString;
+        TitlePattern pattern = TitlePattern.compile(titlePattern, TitlePattern.KIND_CLOCK, (data == null));
+        return pattern.render(new ClockTitleResolver(context, data));
     }
 
     /*public String displayStringForTitlePattern(Context context, String titlePattern, @Nullable SuntimesRiseSetDataset dataset) {
@@ -1627,166 +1415,311 @@ public class SuntimesUtils
 
     public String displayStringForTitlePattern(Context context, String titlePattern, @Nullable SuntimesRiseSetDataset dataset)
     {
-        String displayString = titlePattern;
+        SuntimesRiseSetData data = (dataset != null ? dataset.dataActual : null);
+        TitlePattern pattern = TitlePattern.compile(titlePattern, TitlePattern.KIND_DATASET, (data == null));
+        return pattern.render(new RiseSetDatasetTitleResolver(context, dataset, (dataset != null && dataset.isCalculated())));
+    }
+
+    public String displayStringForTitlePattern(Context context, String titlePattern, @Nullable SuntimesData data)
+    {
+        TitlePattern pattern = TitlePattern.compile(titlePattern, TitlePattern.KIND_DATA, (data == null));
+        return pattern.render(new DataTitleResolver(context, data));
+    }
 
-        SolarEvents[] events = getRiseSetDatasetEvents();
-        HashMap<SolarEvents, String> patterns0 = getPatternsForEvent_em(events);
-        HashMap<SolarEvents, String> patterns1 = getPatternsForEvent_et(events);
-        HashMap<SolarEvents, String> patterns2 = getPatternsForEvent_eT(events);
-        HashMap<SolarEvents, String> patterns3 = getPatternsForEvent_eA(events);
-        HashMap<SolarEvents, String> patterns4 = getPatternsForEvent_eZ(events);
-        HashMap<SolarEvents, String> patterns5 = getPatternsForEvent_eD(events);
-        HashMap<SolarEvents, String> patterns6 = getPatternsForEvent_eR(events);
+    /**
+     * DataTitleResolver
+     * Supplies the values of title pattern tokens (@see TitlePattern) that are common to all data.
+     */
+    protected class DataTitleResolver implements TitlePattern.Resolver
+    {
+        protected final Context context;
+        protected final SuntimesData data;
+        private Long eot = null;
+
+        public DataTitleResolver(Context context, @Nullable SuntimesData data)
+        {
+            this.context = context;
+            this.data = data;
+            if (data != null && !data.isCalculated()) {
+                data.calculate();
+            }
+        }
 
-        if (dataset != null && dataset.isCalculated())
+        @Override
+        public void append(StringBuilder out, TitlePattern.Token token)
         {
-            for (SolarEvents event : patterns0.keySet())
+            if (data == null) {
+                return;
+            }
+
+            switch (token.id)
             {
-                String pattern_em = patterns0.get(event);   // %em .. eventMillis
-                String pattern_et = patterns1.get(event);   // %et .. eventTime (formatted)
-                String pattern_eT = patterns2.get(event);   // %eT .. eventTime (formatted)
-                String pattern_eA = patterns3.get(event);   // %eA .. event angle (formatted)
-                String pattern_eZ = patterns4.get(event);   // %eZ .. event azimuth (formatted)
-                String pattern_eD = patterns5.get(event);   // %eD .. event declination (formatted)
-                String pattern_eR = patterns6.get(event);   // %eR .. event right ascension (formatted)
-                if (!displayString.contains(pattern_em) && !displayString.contains(pattern_et) && !displayString.contains(pattern_eT) && !displayString.contains(pattern_eA)
-                        && !displayString.contains(pattern_eZ) && !displayString.contains(pattern_eD) && !displayString.contains(pattern_eR)) {
-                    continue;
-                }
+                case TitlePattern.TOKEN_LOCATION: out.append(data.location().getLabel()); break;
+                case TitlePattern.TOKEN_LATITUDE: out.append(data.location().getLatitude()); break;
+                case TitlePattern.TOKEN_LONGITUDE: out.append(data.location().getLongitude()); break;
+
+                case TitlePattern.TOKEN_ALTITUDE:
+                    Location location = data.location();
+                    out.append((WidgetSettings.loadLengthUnitsPref(context, 0) == WidgetSettings.LengthUnit.IMPERIAL)
+                            ? (int)WidgetSettings.LengthUnit.metersToFeet(location.getAltitudeAsDouble())
+                            : location.getAltitudeAsInteger());
+                    break;
+
+                case TitlePattern.TOKEN_EOT_MILLIS: out.append(eot()); break;
+                case TitlePattern.TOKEN_EOT: out.append((eot() < 0) ? "-" : "+").append(timeDeltaLongDisplayString(eot(), true).getValue()); break;
+
+                case TitlePattern.TOKEN_TIMEZONE: out.append(data.timezone().getID()); break;
+                case TitlePattern.TOKEN_DATASOURCE: out.append((data.calculatorMode() == null) ? "" : data.calculatorMode().getName()); break;
+                case TitlePattern.TOKEN_WIDGETID: out.append(data.appWidgetID() != null ? String.format("%s", data.appWidgetID()) : ""); break;
+
+                case TitlePattern.TOKEN_TIME_SHORT: out.append(calendarTimeShortDisplayString(context, data.now(), false).toString()); break;
+                case TitlePattern.TOKEN_TIME: out.append(calendarTimeShortDisplayString(context, data.now(), true).toString()); break;
+                case TitlePattern.TOKEN_DAY_SHORT: out.append(calendarDayDisplayString(context, data.calendar(), true).toString()); break;
+                case TitlePattern.TOKEN_DAY: out.append(calendarDayDisplayString(context, data.calendar(), false).toString()); break;
+                case TitlePattern.TOKEN_YEAR: out.append(calendarDateYearDisplayString(context, data.calendar()).toString()); break;
+                case TitlePattern.TOKEN_DATE_MILLIS: out.append(data.calendar().getTimeInMillis()); break;
+                case TitlePattern.TOKEN_DATE: out.append(calendarDateDisplayString(context, data.calendar(), false).toString()); break;
+            }
+        }
+
+        private long eot()
+        {
+            if (eot == null) {
+                eot = WidgetTimezones.ApparentSolarTime.equationOfTimeOffset(data.calendar().getTimeInMillis(), data.calculator());
+            }
+            return eot;
+        }
+    }
 
-                WidgetSettings.TimeMode eventMode = event.toTimeMode();
-                SuntimesRiseSetData data = dataset.getData(eventMode != null ? eventMode.name() : null);
-                Calendar[] eventTimes = (pattern_em != null ? dataset.getRiseSetEvents(event.name()) : null);
-                Calendar eventTime = (eventTimes != null && eventTimes[0] != null ? eventTimes[0] : null);
+    /**
+     * RiseSetTitleResolver
+     */
+    protected class RiseSetTitleResolver extends DataTitleResolver
+    {
+        protected final SuntimesRiseSetData data;
+        private String[] modeDisplay = null;
 
-                if (eventTime != null)
-                {
-                    if (displayString.contains(pattern_em)) {
-                        displayString = displayString.replaceAll(pattern_em, eventTime.getTimeInMillis() + "");
-                    }
-                    if (displayString.contains(pattern_et)) {
-                        displayString = displayString.replaceAll(pattern_et, calendarTimeShortDisplayString(context, eventTime, false).toString());
-                    }
-                    if (displayString.contains(pattern_eT)) {
-                        displayString = displayString.replaceAll(pattern_eT, calendarTimeShortDisplayString(context, eventTime, true).toString());
-                    }
-                    if (displayString.contains(pattern_eA)) {
-                        Double angle = getAltitudeForEvent(event, data);
-                        displayString = displayString.replaceAll(pattern_eA, angle != null ? formatAsDegrees(angle, 1) : "");
-                    }
-                    if (displayString.contains(pattern_eZ)) {
-                        Double value = getAzimuthForEvent(event, data);
-                        displayString = displayString.replaceAll(pattern_eZ, value != null ? formatAsDirection(value, 1) : "");
-                    }
-                    if (displayString.contains(pattern_eD)) {
-                        Double value = getDeclinationForEvent(event, data);
-                        displayString = displayString.replaceAll(pattern_eD, value != null ? formatAsDeclination(value, 1).toString() : "");
+        public RiseSetTitleResolver(Context context, @Nullable SuntimesRiseSetData data)
+        {
+            super(context, data);
+            this.data = data;
+        }
+
+        @Override
+        public void append(StringBuilder out, TitlePattern.Token token)
+        {
+            switch (token.id)
+            {
+                case TitlePattern.TOKEN_MODE_SHORT: if (data != null) out.append(modeDisplay()[0]); break;
+                case TitlePattern.TOKEN_MODE: if (data != null) out.append(modeDisplay()[1]); break;
+                case TitlePattern.TOKEN_ORDER: if (data != null) out.append(WidgetSettings.loadRiseSetOrderPref(context, data.appWidgetID()).toString()); break;
+
+                case TitlePattern.TOKEN_EVENT_MILLIS: case TitlePattern.TOKEN_EVENT_TIME: case TitlePattern.TOKEN_EVENT_TIME_SECONDS:
+                case TitlePattern.TOKEN_EVENT_ANGLE: case TitlePattern.TOKEN_EVENT_AZIMUTH: case TitlePattern.TOKEN_EVENT_DECLINATION: case TitlePattern.TOKEN_EVENT_RIGHTASCENSION:
+                    if (data != null && token.event != null)
+                    {
+                        SolarEvents event = token.event;
+                        WidgetSettings.TimeMode timeMode = data.timeMode();
+                        SuntimesRiseSetData d = (event == SolarEvents.NOON && data.getLinked() != null ? data.getLinked() : data);
+                        if (event == SolarEvents.SUNRISE) {
+                            event = SolarEvents.valueOf(timeMode, true);
+                        } else if (event == SolarEvents.SUNSET) {
+                            event = SolarEvents.valueOf(timeMode, false);
+                        }
+                        Calendar eventTime = d.getEvents(event.isRising())[0];
+                        Double angle = ((token.id == TitlePattern.TOKEN_EVENT_ANGLE && d.angle() != null) ? Double.valueOf(d.angle()) : null);
+                        appendEventToken(context, out, token, event, d, eventTime, angle);
                     }
-                    if (displayString.contains(pattern_eR)) {
-                        Double value = getRightAscensionForEvent(event, data);
-                        displayString = displayString.replaceAll(pattern_eR, value != null ? formatAsRightAscension(value, 1).toString() : "");
+                    break;
+
+                default: super.append(out, token); break;
+            }
+        }
+
+        private String[] modeDisplay()
+        {
+            if (modeDisplay == null)
+            {
+                WidgetSettings.TimeMode timeMode = data.timeMode();
+                String modeDisplayShort = timeMode.getShortDisplayString();
+                String modeDisplayLong = timeMode.getLongDisplayString();
+
+                WidgetSettings.RiseSetDataMode timeModeItem = data.dataMode();
+                if (timeModeItem instanceof WidgetSettings.EventAliasTimeMode) {
+                    String label = EventSettings.loadEventValue(context, timeModeItem.name(), EventSettings.PREF_KEY_EVENT_LABEL);
+                    if (label != null) {
+                        modeDisplayLong = modeDisplayShort = label;
                     }
-                } else {
-                    displayString = displayString.replaceAll(pattern_em, "");
-                    displayString = displayString.replaceAll(pattern_et, "");
-                    displayString = displayString.replaceAll(pattern_eT, "");
-                    displayString = displayString.replaceAll(pattern_eA, "");
-                    displayString = displayString.replaceAll(pattern_eZ, "");
-                    displayString = displayString.replaceAll(pattern_eD, "");
-                    displayString = displayString.replaceAll(pattern_eR, "");
                 }
+                modeDisplay = new String[] { modeDisplayShort, modeDisplayLong };
             }
-        } else {
-            displayString = removePatterns(displayString, patterns0.values());
-            displayString = removePatterns(displayString, patterns1.values());
-            displayString = removePatterns(displayString, patterns2.values());
-            displayString = removePatterns(displayString, patterns3.values());
-            displayString = removePatterns(displayString, patterns4.values());
-            displayString = removePatterns(displayString, patterns5.values());
-            displayString = removePatterns(displayString, patterns6.values());
+            return modeDisplay;
         }
-        return displayStringForTitlePattern(context, displayString, (dataset != null ? dataset.dataActual : null));
     }
 
-    public String displayStringForTitlePattern(Context context, String titlePattern, @Nullable SuntimesData data)
+    /**
+     * RiseSetDatasetTitleResolver
+     */
+    protected class RiseSetDatasetTitleResolver extends RiseSetTitleResolver
     {
-        String displayString = titlePattern;
-        String locPattern = "%loc";
-        String latPattern = "%lat";
-        String lonPattern = "%lon";
-        String altPattern = "%lel";
-        String eotPattern = "%eot";
-        String eotMillisPattern = "%eot_m";
-        String timezoneIDPattern = "%t";
-        String datasourcePattern = "%s";
-        String widgetIDPattern = "%id";
-        String datePattern = "%d";
-        String dateYearPattern = "%dY";
-        String dateDayPattern = "%dD";
-        String dateDayPatternShort = "%dd";
-        String dateTimePattern = "%dT";
-        String dateTimePatternShort = "%dt";
-        String dateMillisPattern = "%dm";
-        String percentPattern = "%%";
-
-        if (data == null)
-        {
-            String[] patterns = new String[] { locPattern, latPattern, lonPattern, altPattern,          // in order of operation
-                    timezoneIDPattern, datasourcePattern, widgetIDPattern,
-                    dateTimePatternShort, dateTimePattern, dateDayPatternShort, dateDayPattern, dateYearPattern, dateMillisPattern, datePattern,
-                    percentPattern };
-
-            for (int i=0; i<patterns.length; i++) {
-                displayString = displayString.replaceAll(patterns[i], "");
+        protected final SuntimesRiseSetDataset dataset;
+        protected final boolean isCalculated;
+
+        public RiseSetDatasetTitleResolver(Context context, @Nullable SuntimesRiseSetDataset dataset, boolean isCalculated)
+        {
+            super(context, (dataset != null ? dataset.dataActual : null));
+            this.dataset = dataset;
+            this.isCalculated = isCalculated;    // before dataActual is calculated
+        }
+
+        @Override
+        public void append(StringBuilder out, TitlePattern.Token token)
+        {
+            switch (token.id)
+            {
+                case TitlePattern.TOKEN_EVENT_MILLIS: case TitlePattern.TOKEN_EVENT_TIME: case TitlePattern.TOKEN_EVENT_TIME_SECONDS:
+                case TitlePattern.TOKEN_EVENT_ANGLE: case TitlePattern.TOKEN_EVENT_AZIMUTH: case TitlePattern.TOKEN_EVENT_DECLINATION: case TitlePattern.TOKEN_EVENT_RIGHTASCENSION:
+                    if (dataset != null && isCalculated && token.event != null)
+                    {
+                        SolarEvents event = token.event;
+                        WidgetSettings.TimeMode eventMode = event.toTimeMode();
+                        SuntimesRiseSetData d = dataset.getData(eventMode != null ? eventMode.name() : null);
+                        Calendar[] eventTimes = dataset.getRiseSetEvents(event.name());
+                        Calendar eventTime = (eventTimes != null && eventTimes[0] != null ? eventTimes[0] : null);
+                        appendEventToken(context, out, token, event, d, eventTime, null);
+                    }
+                    break;
+
+                default: super.append(out, token); break;
             }
-            return displayString;
         }
+    }
+
+    /**
+     * Appends the value of an event token (%em, %et, %eT, %eA, %eZ, %eD, %eR); nothing if eventTime is null.
+     * @param angle the event angle (%eA), or null to use the angle of the event (@see getAltitudeForEvent)
+     */
+    protected void appendEventToken(Context context, StringBuilder out, TitlePattern.Token token, SolarEvents event, @Nullable SuntimesRiseSetData d, @Nullable Calendar eventTime, @Nullable Double angle)
+    {
+        if (eventTime == null) {
+            return;
+        }
+
+        Double value;
+        switch (token.id)
+        {
+            case TitlePattern.TOKEN_EVENT_MILLIS:
+                out.append(eventTime.getTimeInMillis());
+                break;
+
+            case TitlePattern.TOKEN_EVENT_TIME:
+                out.append(calendarTimeShortDisplayString(context, eventTime, false).toString());
+                break;
+
+            case TitlePattern.TOKEN_EVENT_TIME_SECONDS:
+                out.append(calendarTimeShortDisplayString(context, eventTime, true).toString());
+                break;
 
-        if (!data.isCalculated()) {
-            data.calculate();
+            case TitlePattern.TOKEN_EVENT_ANGLE:
+                value = (angle != null ? angle : getAltitudeForEvent(event, d));
+                out.append(value != null ? formatAsDegrees(value, 1) : "");
+                break;
+
+            case TitlePattern.TOKEN_EVENT_AZIMUTH:
+                value = getAzimuthForEvent(event, d);
+                out.append(value != null ? formatAsDirection(value, 1) : "");
+                break;
+
+            case TitlePattern.TOKEN_EVENT_DECLINATION:
+                value = getDeclinationForEvent(event, d);
+                out.append(value != null ? formatAsDeclination(value, 1).toString() : "");
+                break;
+
+            case TitlePattern.TOKEN_EVENT_RIGHTASCENSION:
+                value = getRightAscensionForEvent(event, d);
+                out.append(value != null ? formatAsRightAscension(value, 1).toString() : "");
+                break;
         }
+    }
 
-        Location location = data.location();
-        String timezoneID = data.timezone().getID();
-        String datasource = (data.calculatorMode() == null) ? "" : data.calculatorMode().getName();
-        String appWidgetID = (data.appWidgetID() != null ? String.format("%s", data.appWidgetID()) : "");
+    /**
+     * MoonTitleResolver
+     */
+    protected class MoonTitleResolver extends DataTitleResolver
+    {
+        protected final SuntimesMoonData data;
 
-        displayString = displayString.replaceAll(locPattern, location.getLabel());
-        displayString = displayString.replaceAll(latPattern, location.getLatitude());
-        displayString = displayString.replaceAll(lonPattern, location.getLongitude());
+        public MoonTitleResolver(Context context, @Nullable SuntimesMoonData data)
+        {
+            super(context, data);
+            this.data = data;
+        }
 
-        if (displayString.contains(altPattern))
+        @Override
+        public void append(StringBuilder out, TitlePattern.Token token)
         {
-            String altitudeDisplay = (WidgetSettings.loadLengthUnitsPref(context, 0) == WidgetSettings.LengthUnit.IMPERIAL)
-                                   ? (int)WidgetSettings.LengthUnit.metersToFeet(location.getAltitudeAsDouble()) + ""
-                                   : location.getAltitudeAsInteger() + "";
-            displayString = displayString.replaceAll(altPattern, altitudeDisplay);
+            boolean isCalculated = (data != null && data.isCalculated());
+            switch (token.id)
+            {
+                case TitlePattern.TOKEN_MODE_SHORT: if (isCalculated) out.append(data.getMoonPhaseToday().getShortDisplayString()); break;
+                case TitlePattern.TOKEN_MODE: if (isCalculated) out.append(data.getMoonPhaseToday().getLongDisplayString()); break;
+                case TitlePattern.TOKEN_ORDER: if (isCalculated) out.append(WidgetSettings.loadRiseSetOrderPref(context, data.appWidgetID()).toString()); break;
+                case TitlePattern.TOKEN_ILLUMINATION: if (isCalculated) out.append(NumberFormat.getPercentInstance().format(data.getMoonIlluminationToday())); break;
+                default: super.append(out, token); break;
+            }
         }
+    }
 
-        if (displayString.contains(eotPattern) || displayString.contains(eotMillisPattern))
+    /**
+     * EquinoxTitleResolver
+     */
+    protected class EquinoxTitleResolver extends DataTitleResolver
+    {
+        protected final SuntimesEquinoxSolsticeData data;
+
+        public EquinoxTitleResolver(Context context, @Nullable SuntimesEquinoxSolsticeData data)
+        {
+            super(context, data);
+            this.data = data;
+        }
+
+        @Override
+        public void append(StringBuilder out, TitlePattern.Token token)
         {
-            long eot = WidgetTimezones.ApparentSolarTime.equationOfTimeOffset(data.calendar().getTimeInMillis(), data.calculator());
-            displayString = displayString.replaceAll(eotMillisPattern, eot+"");
-            displayString = displayString.replaceAll(eotPattern, ((eot < 0) ? "-" : "+") + timeDeltaLongDisplayString(eot, true).getValue());
+            switch (token.id)
+            {
+                case TitlePattern.TOKEN_MODE_SHORT: if (data != null) out.append(data.timeMode().getShortDisplayString()); break;
+                case TitlePattern.TOKEN_MODE: if (data != null) out.append(data.timeMode().getLongDisplayString()); break;
+                case TitlePattern.TOKEN_ORDER: if (data != null) out.append(WidgetSettings.loadTrackingModePref(context, data.appWidgetID()).toString()); break;
+                default: super.append(out, token); break;
+            }
         }
+    }
 
-        displayString = displayString.replaceAll(timezoneIDPattern, timezoneID);
-        displayString = displayString.replaceAll(datasourcePattern, datasource);
-        displayString = displayString.replaceAll(widgetIDPattern, appWidgetID);
+    /**
+     * ClockTitleResolver
+     */
+    protected class ClockTitleResolver extends DataTitleResolver
+    {
+        protected final SuntimesClockData data;
 
-        if (displayString.contains(datePattern))
+        public ClockTitleResolver(Context context, @Nullable SuntimesClockData data)
         {
-            displayString = displayString.replaceAll(dateTimePatternShort, calendarTimeShortDisplayString(context, data.now(), false).toString());
-            displayString = displayString.replaceAll(dateTimePattern, calendarTimeShortDisplayString(context, data.now(), true).toString());
-            displayString = displayString.replaceAll(dateDayPatternShort, calendarDayDisplayString(context, data.calendar(), true).toString());
-            displayString = displayString.replaceAll(dateDayPattern, calendarDayDisplayString(context, data.calendar(), false).toString());
-            displayString = displayString.replaceAll(dateYearPattern, calendarDateYearDisplayString(context, data.calendar()).toString());
-            displayString = displayString.replaceAll(dateMillisPattern, Long.toString(data.calendar().getTimeInMillis()));
-            displayString = displayString.replaceAll(datePattern, calendarDateDisplayString(context, data.calendar(), false).toString());
+            super(context, data);
+            this.data = data;
         }
 
-        displayString = displayString.replaceAll(percentPattern, "%");
-        return displayString;
+        @Override
+        public void append(StringBuilder out, TitlePattern.Token token)
+        {
+            switch (token.id)
+            {
+                case TitlePattern.TOKEN_MODE_SHORT: case TitlePattern.TOKEN_MODE:
+                    if (data != null) out.append(CalendarSettings.loadCalendarModePref(context, data.appWidgetID()).getDisplayString());
+                    break;
+                default: super.append(out, token); break;
+            }
+        }
     }
 
     public static SpannableStringBuilder createSpan(Context context, String text, String spanTag, ImageSpan imageSpan)
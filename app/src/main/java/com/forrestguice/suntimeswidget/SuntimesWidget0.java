@@ -27,6 +27,7 @@ import android.os.Build;
 
 import android.os.Bundle;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.Log;
 import android.view.View;
 import android.content.Context;
@@ -42,6 +43,7 @@ import com.forrestguice.suntimeswidget.calculator.core.Location;
 import com.forrestguice.suntimeswidget.getfix.GetFixHelper;
 import com.forrestguice.suntimeswidget.settings.WidgetSettingsImportTask;
 import com.forrestguice.suntimeswidget.settings.WidgetSettingsMetadata;
+import com.forrestguice.suntimeswidget.settings.WidgetSettingsSnapshot;
 import com.forrestguice.suntimeswidget.widgets.layouts.SunLayout;
 import com.forrestguice.suntimeswidget.widgets.layouts.SunLayout_2x1_0;
 import com.forrestguice.suntimeswidget.widgets.layouts.SunLayout_3x1_0;
@@ -101,7 +103,7 @@ public class SuntimesWidget0 extends AppWidgetProvider
         newOptions.putString(WidgetSettingsMetadata.PREF_KEY_META_CLASSNAME, getClass().getSimpleName());
         WidgetSettingsMetadata.saveMetaData(context, appWidgetId, newOptions);
         initLocale(context);
-        updateWidget(context, appWidgetManager, appWidgetId);
+        WidgetUpdateDispatcher.getInstance().requestUpdate(context, this, new int[] { appWidgetId }, goAsyncCompat(), true);
     }
 
     @Override
@@ -133,7 +135,6 @@ public class SuntimesWidget0 extends AppWidgetProvider
 
         String filter = getUpdateIntentFilter();
         String action = intent.getAction();
-        Bundle extras = intent.getExtras();
 
         if (action != null && action.equals(filter))
         {
@@ -147,8 +148,7 @@ public class SuntimesWidget0 extends AppWidgetProvider
                     updateWidgets(context);
                 } else {
                     onUpdate(context, AppWidgetManager.getInstance(context), new int[]{appWidgetID});
-                }
-                setUpdateAlarm(context, appWidgetID);      // schedule next update
+                }    // the next update is scheduled after the update is dispatched (@see WidgetUpdateDispatcher)
             }
 
         } else if (isClickAction(action)) {
@@ -182,8 +182,7 @@ public class SuntimesWidget0 extends AppWidgetProvider
 
         } else if (action != null && action.equals(SUNTIMES_ALARM_UPDATE)) {
             Log.d(TAG, "onReceive: SUNTIMES_ALARM_UPDATE :: " + getClass());
-            updateWidgets(context);
-            setUpdateAlarms(context);
+            updateWidgets(context);    // next updates are scheduled after the update is dispatched
 
         } else if (action != null && action.equals("android.intent.action.TIME_SET")) {
             Log.d(TAG, "onReceive: android.intent.action.TIME_SET :: " + getClass());
@@ -193,16 +192,7 @@ public class SuntimesWidget0 extends AppWidgetProvider
 
         } else if (action != null && action.equals(AppWidgetManager.ACTION_APPWIDGET_UPDATE)) {
             Log.d(TAG, "onReceive: ACTION_APPWIDGET_UPDATE :: " + getClass());
-            if (extras != null)
-            {
-                int[] appWidgetIds = extras.getIntArray(AppWidgetManager.EXTRA_APPWIDGET_IDS);
-                if (appWidgetIds != null)
-                {
-                    for (int appWidgetId : appWidgetIds) {
-                        setUpdateAlarm(context, appWidgetId);
-                    }
-                }
-            }
+            // handled by onUpdate; next updates are scheduled after the update is dispatched (@see WidgetUpdateDispatcher)
 
         } else {
             Log.d(TAG, "onReceive: unhandled :: " + action + " :: " + getClass());
@@ -255,7 +245,7 @@ public class SuntimesWidget0 extends AppWidgetProvider
         // OnTap: Update
         if (action.equals(WidgetSettings.ActionMode.ONTAP_UPDATE.name()))
         {
-            updateWidget(context, AppWidgetManager.getInstance(context), appWidgetId);
+            WidgetUpdateDispatcher.getInstance().requestUpdate(context, this, new int[] { appWidgetId }, goAsyncCompat(), true);
             return true;
         }
 
@@ -279,7 +269,7 @@ public class SuntimesWidget0 extends AppWidgetProvider
                 data.calculate();
             }
             WidgetActions.startIntent(context.getApplicationContext(), appWidgetId, null, data, getConfigClass(), Intent.FLAG_ACTIVITY_NEW_TASK);
-            updateWidget(context, AppWidgetManager.getInstance(context), appWidgetId);
+            WidgetUpdateDispatcher.getInstance().requestUpdate(context, this, new int[] { appWidgetId }, goAsyncCompat());
             return true;
         }
 
@@ -358,6 +348,7 @@ public class SuntimesWidget0 extends AppWidgetProvider
     }
 
     /**
+     * Requests an update from WidgetUpdateDispatcher; the widgets are updated (on a background thread) shortly after.
      * @param context the context
      * @param appWidgetManager widget manager
      * @param appWidgetIds the widgetIDs that need to be updated
@@ -367,15 +358,22 @@ public class SuntimesWidget0 extends AppWidgetProvider
     {
         initLocale(context);
         WidgetThemes.initThemes(context);
-
-        for (int appWidgetId : appWidgetIds)
-        {
-            updateWidget(context, appWidgetManager, appWidgetId);
-        }
-
+        WidgetUpdateDispatcher.getInstance().requestUpdate(context, this, appWidgetIds, goAsyncCompat());
         super.onUpdate(context, appWidgetManager, appWidgetIds);
     }
 
+    /**
+     * @return a PendingResult that keeps the broadcast alive until the dispatched update is finished, or null (api < 11, or not called from onReceive)
+     */
+    @Nullable
+    @TargetApi(Build.VERSION_CODES.HONEYCOMB)
+    protected PendingResult goAsyncCompat()
+    {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+            return goAsync();
+        } else return null;
+    }
+
     protected void updateWidget(Context context, AppWidgetManager appWidgetManager, int appWidgetId)
     {
         SunLayout defLayout = WidgetSettings.loadSun1x1ModePref_asLayout(context, appWidgetId);
@@ -404,6 +402,7 @@ public class SuntimesWidget0 extends AppWidgetProvider
     @Override
     public void onDeleted(Context context, int[] appWidgetIds)
     {
+        WidgetUpdateDispatcher.getInstance().invalidate(appWidgetIds);
         for (int appWidgetId : appWidgetIds)
         {
             unsetUpdateAlarm(context, appWidgetId);
@@ -508,7 +507,7 @@ public class SuntimesWidget0 extends AppWidgetProvider
         int[] mustFitWithinDp = widgetSizeDp(context, appWidgetManager, appWidgetId, defSize);
 
         SunLayout layout;
-        if (WidgetSettings.loadAllowResizePref(context, appWidgetId))
+        if (WidgetSettingsSnapshot.get(context, appWidgetId).allowResize)
         {
             //int minDimen_x4 = context.getResources().getInteger(R.integer.widget_size_minWidthDp4x1);
             int minDimen_x3 = context.getResources().getInteger(R.integer.widget_size_minWidthDp3x1);
@@ -569,13 +568,14 @@ public class SuntimesWidget0 extends AppWidgetProvider
     }
 
     protected static boolean isCurrentLocationMode(Context context, int appWidgetId) {
-        return (WidgetSettings.loadLocationModePref(context, appWidgetId) == WidgetSettings.LocationMode.CURRENT_LOCATION);
+        return (WidgetSettingsSnapshot.get(context, appWidgetId).locationMode == WidgetSettings.LocationMode.CURRENT_LOCATION);
     }
     protected static void updateLocationToLastKnown(Context context, int appWidgetId)
     {
         android.location.Location currentLocation = GetFixHelper.lastKnownLocation(context);
         if (currentLocation != null) {
             WidgetSettings.saveLocationPref(context, appWidgetId, new Location(context.getString(R.string.gps_lastfix_title_found), currentLocation));
+            WidgetSettingsSnapshot.invalidate(appWidgetId);    // read back immediately (listeners are notified later)
         }
     }
 
@@ -591,10 +591,11 @@ public class SuntimesWidget0 extends AppWidgetProvider
             updateLocationToLastKnown(context, appWidgetId);
         }
 
+        WidgetSettingsSnapshot settings = WidgetSettingsSnapshot.get(context, appWidgetId);
         SuntimesRiseSetData data = getRiseSetData(context, appWidgetId);
         data.calculate();
 
-        boolean showSolarNoon = WidgetSettings.loadShowNoonPref(context, appWidgetId);
+        boolean showSolarNoon = settings.showNoon;
         if (showSolarNoon)
         {
             SuntimesRiseSetData noonData = new SuntimesRiseSetData(data);
@@ -606,18 +607,16 @@ public class SuntimesWidget0 extends AppWidgetProvider
         layout.prepareForUpdate(context, appWidgetId, data);
 
         RemoteViews views = layout.getViews(context);
-        views.setOnClickPendingIntent(R.id.widgetframe_inner, SuntimesWidget0.clickActionIntent(context, appWidgetId, widgetClass));
-
-        boolean showTitle = WidgetSettings.loadShowTitlePref(context, appWidgetId);
+        boolean showTitle = settings.showTitle;
         views.setViewVisibility(R.id.text_title, showTitle ? View.VISIBLE : View.GONE);
 
         layout.themeViews(context, views, appWidgetId);
         layout.updateViews(context, appWidgetId, views, data);
-        appWidgetManager.updateAppWidget(appWidgetId, views);
+        WidgetUpdateDispatcher.getInstance().updateAppWidget(appWidgetManager, appWidgetId, views, R.id.widgetframe_inner, SuntimesWidget0.clickActionIntent(context, appWidgetId, widgetClass));
 
         if (!layout.saveNextSuggestedUpdate(context, appWidgetId))
         {
-            WidgetSettings.RiseSetOrder order = WidgetSettings.loadRiseSetOrderPref(context, appWidgetId);
+            WidgetSettings.RiseSetOrder order = settings.riseSetOrder;
             if (order == WidgetSettings.RiseSetOrder.TODAY) {
                 WidgetSettings.saveNextSuggestedUpdate(context, appWidgetId, -1);
                 Log.d(TAG, "saveNextSuggestedUpdate: -1");
@@ -638,7 +637,7 @@ public class SuntimesWidget0 extends AppWidgetProvider
      */
     protected static SuntimesRiseSetData getRiseSetData(Context context, int appWidgetId)
     {
-        WidgetSettings.RiseSetOrder order = WidgetSettings.loadRiseSetOrderPref(context, appWidgetId);
+        WidgetSettings.RiseSetOrder order = WidgetSettingsSnapshot.get(context, appWidgetId).riseSetOrder;
         return (order == WidgetSettings.RiseSetOrder.TODAY)
                 ? new SuntimesRiseSetData(context, appWidgetId) : new SuntimesRiseSetData2(context, appWidgetId);
     }
@@ -805,7 +804,7 @@ public class SuntimesWidget0 extends AppWidgetProvider
      */
     public static PendingIntent clickActionIntent(Context context, int appWidgetId, Class widgetClass)
     {
-        WidgetSettings.ActionMode actionMode = WidgetSettings.loadActionModePref(context, appWidgetId);
+        WidgetSettings.ActionMode actionMode = WidgetSettingsSnapshot.get(context, appWidgetId).actionMode;
         Intent actionIntent = new Intent(context, widgetClass);
         actionIntent.setAction(actionMode.name());
         actionIntent.putExtra(AppWidgetManager.EXTRA_APPWIDGET_ID, appWidgetId);
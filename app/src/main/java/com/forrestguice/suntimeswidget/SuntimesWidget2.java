@@ -28,6 +28,7 @@ import com.forrestguice.suntimeswidget.calculator.SuntimesRiseSetDataset;
 import com.forrestguice.suntimeswidget.widgets.layouts.SunPosLayout;
 import com.forrestguice.suntimeswidget.widgets.layouts.SunPosLayout_3X3_0;
 import com.forrestguice.suntimeswidget.settings.WidgetSettings;
+import com.forrestguice.suntimeswidget.settings.WidgetSettingsSnapshot;
 
 import java.util.Calendar;
 
@@ -91,14 +92,12 @@ public class SuntimesWidget2 extends SuntimesWidget0
         layout.prepareForUpdate(context, appWidgetId, dataset, widgetMaxSizeDp(context, appWidgetManager, appWidgetId, new int[] {40, 40}));
 
         RemoteViews views = layout.getViews(context);
-        boolean showTitle = WidgetSettings.loadShowTitlePref(context, appWidgetId);
+        boolean showTitle = WidgetSettingsSnapshot.get(context, appWidgetId).showTitle;
         views.setViewVisibility(R.id.text_title, showTitle ? View.VISIBLE : View.GONE);
 
-        views.setOnClickPendingIntent(R.id.widgetframe_inner, SuntimesWidget0.clickActionIntent(context, appWidgetId, widgetClass));
-
         layout.themeViews(context, views, appWidgetId);
         layout.updateViews(context, appWidgetId, views, dataset);
-        appWidgetManager.updateAppWidget(appWidgetId, views);
+        WidgetUpdateDispatcher.getInstance().updateAppWidget(appWidgetManager, appWidgetId, views, R.id.widgetframe_inner, SuntimesWidget0.clickActionIntent(context, appWidgetId, widgetClass));
     }
 
     @Override
@@ -110,7 +109,7 @@ public class SuntimesWidget2 extends SuntimesWidget0
     {
         int[] mustFitWithinDp = widgetSizeDp(context, appWidgetManager, appWidgetId, defSize);
         SunPosLayout layout;
-        if (WidgetSettings.loadAllowResizePref(context, appWidgetId))
+        if (WidgetSettingsSnapshot.get(context, appWidgetId).allowResize)
         {
             int minDimen_x3 = context.getResources().getInteger(R.integer.widget_size_minWidthDp3x1);
             int minDimen_x2 = context.getResources().getInteger(R.integer.widget_size_minWidthDp2x1);
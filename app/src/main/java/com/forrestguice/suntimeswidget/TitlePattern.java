@@ -0,0 +1,369 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.forrestguice.suntimeswidget.settings.SolarEvents;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TitlePattern
+ * A title pattern (@see SuntimesUtils.displayStringForTitlePattern) that has been parsed into a list of
+ * literal text and tokens; patterns are compiled once (and cached), then rendered in a single pass.
+ *
+ * Patterns are compiled by applying the same substitutions, in the same order, that were previously applied
+ * with String.replaceAll (e.g. %eot_m before %eot, %dY before %d, and %% last among the common patterns), so
+ * the result is the same for every token. The values substituted for tokens are not scanned for patterns again.
+ */
+public final class TitlePattern
+{
+    public static final int KIND_DATA = 0;       // SuntimesData
+    public static final int KIND_RISESET = 1;    // SuntimesRiseSetData
+    public static final int KIND_MOON = 2;       // SuntimesMoonData
+    public static final int KIND_EQUINOX = 3;    // SuntimesEquinoxSolsticeData
+    public static final int KIND_CLOCK = 4;      // SuntimesClockData
+    public static final int KIND_DATASET = 5;    // SuntimesRiseSetDataset
+    private static final int NUM_KINDS = 6;
+
+    public static final int TOKEN_LOCATION = 0;             // %loc
+    public static final int TOKEN_LATITUDE = 1;             // %lat
+    public static final int TOKEN_LONGITUDE = 2;            // %lon
+    public static final int TOKEN_ALTITUDE = 3;             // %lel
+    public static final int TOKEN_EOT_MILLIS = 4;           // %eot_m
+    public static final int TOKEN_EOT = 5;                  // %eot
+    public static final int TOKEN_TIMEZONE = 6;             // %t
+    public static final int TOKEN_DATASOURCE = 7;           // %s
+    public static final int TOKEN_WIDGETID = 8;             // %id
+    public static final int TOKEN_TIME_SHORT = 9;           // %dt
+    public static final int TOKEN_TIME = 10;                // %dT
+    public static final int TOKEN_DAY_SHORT = 11;           // %dd
+    public static final int TOKEN_DAY = 12;                 // %dD
+    public static final int TOKEN_YEAR = 13;                // %dY
+    public static final int TOKEN_DATE_MILLIS = 14;         // %dm
+    public static final int TOKEN_DATE = 15;                // %d
+    public static final int TOKEN_PERCENT = 16;             // %% (replaced with a literal)
+    public static final int TOKEN_MODE_SHORT = 17;          // %m
+    public static final int TOKEN_MODE = 18;                // %M
+    public static final int TOKEN_ORDER = 19;               // %o
+    public static final int TOKEN_ILLUMINATION = 20;        // %i
+    public static final int TOKEN_EVENT_MILLIS = 21;        // %em@<event>
+    public static final int TOKEN_EVENT_TIME = 22;          // %et@<event>
+    public static final int TOKEN_EVENT_TIME_SECONDS = 23;  // %eT@<event>
+    public static final int TOKEN_EVENT_ANGLE = 24;         // %eA@<event>
+    public static final int TOKEN_EVENT_AZIMUTH = 25;       // %eZ@<event>
+    public static final int TOKEN_EVENT_DECLINATION = 26;   // %eD@<event>
+    public static final int TOKEN_EVENT_RIGHTASCENSION = 27; // %eR@<event>
+
+    public static final int MAX_CACHE_SIZE = 32;
+
+    private final Object[] parts;    // String (literal text) or Token
+
+    private TitlePattern(List<Object> parts) {
+        this.parts = parts.toArray();
+    }
+
+    /**
+     * @return the number of tokens in the pattern
+     */
+    public int numTokens()
+    {
+        int n = 0;
+        for (Object part : parts) {
+            if (part instanceof Token) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * @param resolver supplies the value of each token
+     * @return the rendered string
+     */
+    @NonNull
+    public String render(@NonNull Resolver resolver)
+    {
+        StringBuilder out = builder.get();
+        out.setLength(0);
+        render(out, resolver);
+        String value = out.toString();
+        out.setLength(0);
+        return value;
+    }
+
+    public void render(@NonNull StringBuilder out, @NonNull Resolver resolver)
+    {
+        for (Object part : parts)
+        {
+            if (part instanceof Token) {
+                resolver.append(out, (Token) part);
+            } else out.append((String) part);
+        }
+    }
+
+    private static final ThreadLocal<StringBuilder> builder = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(64);
+        }
+    };
+
+    /**
+     * Resolver
+     */
+    public interface Resolver
+    {
+        /**
+         * Appends the value of a token (or nothing if the token has no value).
+         */
+        void append(StringBuilder out, Token token);
+    }
+
+    /**
+     * Token
+     */
+    public static final class Token
+    {
+        public final int id;
+        public final String pattern;
+        @Nullable
+        public final SolarEvents event;    // event tokens only
+        @Nullable
+        public final String literal;       // replaced with literal text when compiled (instead of a token)
+
+        public Token(int id, @NonNull String pattern, @Nullable SolarEvents event) {
+            this(id, pattern, event, null);
+        }
+
+        public Token(int id, @NonNull String pattern, @Nullable SolarEvents event, @Nullable String literal)
+        {
+            this.id = id;
+            this.pattern = pattern;
+            this.event = event;
+            this.literal = literal;
+        }
+
+        @Override
+        public String toString() {
+            return pattern;
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////
+    ///////////////////////////////////////////////////////////////////////////////////////////////
+
+    @SuppressWarnings("unchecked")
+    private static final LinkedHashMap<String, TitlePattern>[] cache = new LinkedHashMap[2 * NUM_KINDS];
+    static
+    {
+        for (int i=0; i<cache.length; i++)
+        {
+            cache[i] = new LinkedHashMap<String, TitlePattern>(MAX_CACHE_SIZE, 0.75f, true)
+            {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, TitlePattern> eldest) {
+                    return (size() > MAX_CACHE_SIZE);
+                }
+            };
+        }
+    }
+
+    /**
+     * @param pattern a title pattern
+     * @param kind the kind of data the pattern is rendered against; KIND_DATA, KIND_RISESET, KIND_MOON, KIND_EQUINOX, KIND_CLOCK, or KIND_DATASET
+     * @param nullData true the pattern is rendered without data (tokens that need data are removed, as is %%; %eot is left as is)
+     * @return the compiled pattern (cached)
+     */
+    @NonNull
+    public static TitlePattern compile(@NonNull String pattern, int kind, boolean nullData)
+    {
+        LinkedHashMap<String, TitlePattern> patterns = cache[2 * kind + (nullData ? 1 : 0)];
+        synchronized (patterns)
+        {
+            TitlePattern compiled = patterns.get(pattern);
+            if (compiled == null) {
+                patterns.put(pattern, (compiled = compile(pattern, steps(kind, nullData))));
+            }
+            return compiled;
+        }
+    }
+
+    /**
+     * @param pattern a title pattern
+     * @param steps the substitutions (in order of operation)
+     * @return the compiled pattern
+     */
+    @NonNull
+    public static TitlePattern compile(@NonNull String pattern, @NonNull List<Token> steps)
+    {
+        List<Object> parts = new ArrayList<>();
+        parts.add(pattern);
+
+        for (Token step : steps)
+        {
+            List<Object> next = new ArrayList<>(parts.size() + 2);
+            for (Object part : parts)
+            {
+                if (part instanceof String) {
+                    split((String) part, step, next);
+                } else next.add(part);
+            }
+            parts = next;
+        }
+        return new TitlePattern(parts);
+    }
+
+    private static void split(String text, Token step, List<Object> out)
+    {
+        if (step.literal != null)
+        {
+            String value = text.replace(step.pattern, step.literal);
+            if (!value.isEmpty()) {
+                out.add(value);
+            }
+            return;
+        }
+
+        int i0 = 0, i;
+        while ((i = text.indexOf(step.pattern, i0)) >= 0)
+        {
+            if (i > i0) {
+                out.add(text.substring(i0, i));
+            }
+            out.add(step);
+            i0 = i + step.pattern.length();
+        }
+        if (i0 < text.length()) {
+            out.add(text.substring(i0));
+        }
+    }
+
+    public static void clearCache()
+    {
+        for (LinkedHashMap<String, TitlePattern> patterns : cache)
+        {
+            synchronized (patterns) {
+                patterns.clear();
+            }
+        }
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////
+    ///////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * @return the substitutions for a kind of data (in order of operation)
+     */
+    @NonNull
+    public static List<Token> steps(int kind, boolean nullData)
+    {
+        List<Token> steps = new ArrayList<>();
+        switch (kind)
+        {
+            case KIND_DATASET:
+                addEventSteps(steps, SuntimesUtils.getRiseSetDatasetEvents());
+                addDataSteps(steps, nullData);
+                addModeSteps(steps, true, false);
+                addEventSteps(steps, new SolarEvents[] { SolarEvents.SUNRISE, SolarEvents.NOON, SolarEvents.SUNSET });
+                break;
+
+            case KIND_RISESET:
+                addDataSteps(steps, nullData);
+                addModeSteps(steps, true, false);
+                addEventSteps(steps, new SolarEvents[] { SolarEvents.SUNRISE, SolarEvents.NOON, SolarEvents.SUNSET });
+                break;
+
+            case KIND_MOON:
+                addDataSteps(steps, nullData);
+                addModeSteps(steps, true, true);
+                break;
+
+            case KIND_EQUINOX:
+                addDataSteps(steps, nullData);
+                addModeSteps(steps, true, false);
+                break;
+
+            case KIND_CLOCK:
+                addDataSteps(steps, nullData);
+                addModeSteps(steps, false, false);
+                break;
+
+            case KIND_DATA:
+            default:
+                addDataSteps(steps, nullData);
+                break;
+        }
+        return steps;
+    }
+
+    private static void addDataSteps(List<Token> steps, boolean nullData)
+    {
+        steps.add(new Token(TOKEN_LOCATION, "%loc", null));
+        steps.add(new Token(TOKEN_LATITUDE, "%lat", null));
+        steps.add(new Token(TOKEN_LONGITUDE, "%lon", null));
+        steps.add(new Token(TOKEN_ALTITUDE, "%lel", null));
+        if (!nullData) {
+            steps.add(new Token(TOKEN_EOT_MILLIS, "%eot_m", null));
+            steps.add(new Token(TOKEN_EOT, "%eot", null));
+        }
+        steps.add(new Token(TOKEN_TIMEZONE, "%t", null));
+        steps.add(new Token(TOKEN_DATASOURCE, "%s", null));
+        steps.add(new Token(TOKEN_WIDGETID, "%id", null));
+        steps.add(new Token(TOKEN_TIME_SHORT, "%dt", null));
+        steps.add(new Token(TOKEN_TIME, "%dT", null));
+        steps.add(new Token(TOKEN_DAY_SHORT, "%dd", null));
+        steps.add(new Token(TOKEN_DAY, "%dD", null));
+        steps.add(new Token(TOKEN_YEAR, "%dY", null));
+        steps.add(new Token(TOKEN_DATE_MILLIS, "%dm", null));
+        steps.add(new Token(TOKEN_DATE, "%d", null));
+        steps.add(new Token(TOKEN_PERCENT, "%%", null, (nullData ? "" : "%")));
+    }
+
+    private static void addModeSteps(List<Token> steps, boolean withOrder, boolean withIllumination)
+    {
+        steps.add(new Token(TOKEN_MODE_SHORT, "%m", null));
+        steps.add(new Token(TOKEN_MODE, "%M", null));
+        if (withOrder) {
+            steps.add(new Token(TOKEN_ORDER, "%o", null));
+        }
+        if (withIllumination) {
+            steps.add(new Token(TOKEN_ILLUMINATION, "%i", null));
+        }
+    }
+
+    private static void addEventSteps(List<Token> steps, SolarEvents[] events)
+    {
+        for (SolarEvents event : events)
+        {
+            steps.add(new Token(TOKEN_EVENT_MILLIS, SuntimesUtils.getPatternForEvent_em(event), event));
+            steps.add(new Token(TOKEN_EVENT_TIME, SuntimesUtils.getPatternForEvent_et(event), event));
+            steps.add(new Token(TOKEN_EVENT_TIME_SECONDS, SuntimesUtils.getPatternForEvent_eT(event), event));
+            steps.add(new Token(TOKEN_EVENT_ANGLE, SuntimesUtils.getPatternForEvent_eA(event), event));
+            steps.add(new Token(TOKEN_EVENT_AZIMUTH, SuntimesUtils.getPatternForEvent_eZ(event), event));
+            steps.add(new Token(TOKEN_EVENT_DECLINATION, SuntimesUtils.getPatternForEvent_eD(event), event));
+            steps.add(new Token(TOKEN_EVENT_RIGHTASCENSION, SuntimesUtils.getPatternForEvent_eR(event), event));
+        }
+    }
+}
@@ -0,0 +1,331 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget;
+
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.os.Parcel;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import android.widget.RemoteViews;
+
+import com.forrestguice.suntimeswidget.calculator.SuntimesCalculatorDescriptor;
+import com.forrestguice.suntimeswidget.calculator.core.Location;
+import com.forrestguice.suntimeswidget.settings.WidgetSettingsSnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * WidgetUpdateDispatcher
+ * Coalesces widget updates (e.g. the burst of updates that follows a time zone, locale, or theme change) and
+ * performs them on a background thread.
+ *
+ * Requests that arrive within DEBOUNCE_MILLIS of the first are merged (a widget requested several times is
+ * updated once), then the widgets of every class are updated together, ordered by calculation (calculator,
+ * location, timezone, and date mode) so that widgets that share a calculation are updated consecutively and
+ * reuse the same pooled calculator and cached results (@see SuntimesCalculatorPool, SuntimesEventCache).
+ *
+ * Widgets push their views through updateAppWidget, which skips views that are unchanged from the last push.
+ * The next update of each widget is scheduled after it is updated (once its next suggested update is saved).
+ * All updates (including resizes and tap-to-update) go through the dispatcher, so widgets are only ever updated
+ * from its (single) thread.
+ */
+public class WidgetUpdateDispatcher
+{
+    public static final String TAG = "WidgetUpdate";
+    public static final long DEBOUNCE_MILLIS = 250;
+
+    private static final WidgetUpdateDispatcher instance = new WidgetUpdateDispatcher();
+    public static WidgetUpdateDispatcher getInstance() {
+        return instance;
+    }
+
+    /**
+     * Clock
+     */
+    public interface Clock
+    {
+        long elapsedRealtime();    // millis
+    }
+
+    public static final Clock SYSTEM_CLOCK = new Clock()
+    {
+        @Override
+        public long elapsedRealtime() {
+            return SystemClock.elapsedRealtime();
+        }
+    };
+
+    private final ScheduledExecutorService executor;
+    private final Clock clock;
+    private final LinkedHashMap<Class<?>, PendingUpdate> pending = new LinkedHashMap<>();
+    private final ArrayList<BroadcastReceiver.PendingResult> pendingResults = new ArrayList<>();
+    private boolean flushScheduled = false;
+
+    private final HashMap<Integer, Long> fingerprints = new HashMap<>();
+    private long pushCount = 0, skipCount = 0;
+
+    public WidgetUpdateDispatcher() {
+        this(Executors.newSingleThreadScheduledExecutor(), SYSTEM_CLOCK);
+    }
+
+    /**
+     * @param executor performs the updates (DEBOUNCE_MILLIS after the first request)
+     * @param clock measures the updates (e.g. SYSTEM_CLOCK)
+     */
+    public WidgetUpdateDispatcher(@NonNull ScheduledExecutorService executor, @NonNull Clock clock)
+    {
+        this.executor = executor;
+        this.clock = clock;
+    }
+
+    /**
+     * Requests an update; the update is performed (on a background thread) after DEBOUNCE_MILLIS.
+     * @param context context
+     * @param widget the widget provider that will perform the update (@see SuntimesWidget0.updateWidget)
+     * @param appWidgetIds the widgets to update
+     * @param result an (optional) PendingResult (@see BroadcastReceiver.goAsync); finished after the update
+     */
+    public void requestUpdate(@NonNull Context context, @NonNull SuntimesWidget0 widget, @NonNull int[] appWidgetIds, @Nullable BroadcastReceiver.PendingResult result) {
+        requestUpdate(context, widget, appWidgetIds, result, false);
+    }
+
+    /**
+     * Requests an update; the update is performed (on a background thread) after DEBOUNCE_MILLIS.
+     * @param context context
+     * @param widget the widget provider that will perform the update (@see SuntimesWidget0.updateWidget)
+     * @param appWidgetIds the widgets to update
+     * @param result an (optional) PendingResult (@see BroadcastReceiver.goAsync); finished after the update
+     * @param force true the views are always pushed (e.g. the widget was resized, or tapped to update); @see invalidate
+     */
+    public void requestUpdate(@NonNull Context context, @NonNull SuntimesWidget0 widget, @NonNull int[] appWidgetIds, @Nullable BroadcastReceiver.PendingResult result, boolean force)
+    {
+        synchronized (pending)
+        {
+            PendingUpdate update = pending.get(widget.getClass());
+            if (update == null) {
+                pending.put(widget.getClass(), (update = new PendingUpdate()));
+            }
+            update.widget = widget;
+            for (int appWidgetId : appWidgetIds)
+            {
+                update.appWidgetIds.add(appWidgetId);
+                if (force) {
+                    update.forcedIds.add(appWidgetId);
+                }
+            }
+            if (result != null) {
+                pendingResults.add(result);
+            }
+
+            if (!flushScheduled)
+            {
+                flushScheduled = true;
+                final Context appContext = context.getApplicationContext();
+                executor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        flush(appContext);
+                    }
+                }, DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    protected void flush(Context context)
+    {
+        long bench_start = clock.elapsedRealtime();
+        ArrayList<PendingUpdate> updates;
+        ArrayList<BroadcastReceiver.PendingResult> results;
+        synchronized (pending)
+        {
+            updates = new ArrayList<>(pending.values());
+            results = new ArrayList<>(pendingResults);
+            pending.clear();
+            pendingResults.clear();
+            flushScheduled = false;
+        }
+
+        try {
+            AppWidgetManager appWidgetManager = AppWidgetManager.getInstance(context);
+            List<WidgetItem> items = new ArrayList<>();
+            for (PendingUpdate update : updates)
+            {
+                for (int appWidgetId : update.appWidgetIds) {
+                    items.add(new WidgetItem(update.widget, appWidgetId, calculationKey(context, appWidgetId)));
+                }
+                for (int appWidgetId : update.forcedIds) {
+                    invalidate(appWidgetId);
+                }
+            }
+            Collections.sort(items, new Comparator<WidgetItem>() {
+                @Override
+                public int compare(WidgetItem o1, WidgetItem o2) {
+                    return o1.key.compareTo(o2.key);
+                }
+            });
+
+            for (WidgetItem item : items)
+            {
+                try {
+                    item.widget.updateWidget(context, appWidgetManager, item.appWidgetId);
+                    item.widget.setUpdateAlarm(context, item.appWidgetId);
+                } catch (Exception e) {
+                    Log.e(TAG, "flush: failed to update " + item.widget.getClass().getSimpleName() + "(" + item.appWidgetId + "): " + e);
+                }
+            }
+            Log.d(TAG, "flush: updated " + items.size() + " widgets (" + updates.size() + " classes) in " + (clock.elapsedRealtime() - bench_start) + "ms :: " + this);
+
+        } finally {
+            for (BroadcastReceiver.PendingResult result : results) {
+                result.finish();
+            }
+        }
+    }
+
+    /**
+     * @return a key identifying the calculation used by a widget; widgets that share a key are updated consecutively
+     */
+    protected String calculationKey(Context context, int appWidgetId)
+    {
+        WidgetSettingsSnapshot settings = WidgetSettingsSnapshot.get(context, appWidgetId);
+        SuntimesCalculatorDescriptor descriptor = settings.calculatorMode;
+        Location location = settings.location();
+        return (descriptor != null ? descriptor.getName() : "") + "@" + location.getLatitude() + "," + location.getLongitude() + "," + location.getAltitude()
+                + "|" + settings.timezone + "|" + settings.dateMode;
+    }
+
+    /**
+     * Pushes a widget's views to the AppWidgetManager (unless they are unchanged since the last push).
+     * @param appWidgetManager widget manager
+     * @param appWidgetId widget id
+     * @param views the views; without the click intent (it is attached here, after the views are compared)
+     * @param clickViewID the view that receives clickIntent
+     * @param clickIntent the click intent (@see SuntimesWidget0.clickActionIntent)
+     * @return true the views were pushed, false they were unchanged
+     */
+    public boolean updateAppWidget(@NonNull AppWidgetManager appWidgetManager, int appWidgetId, @NonNull RemoteViews views, int clickViewID, @NonNull PendingIntent clickIntent)
+    {
+        Long fingerprint = fingerprint(views, clickViewID, clickIntent);
+        views.setOnClickPendingIntent(clickViewID, clickIntent);
+
+        synchronized (fingerprints)
+        {
+            if (fingerprint != null && fingerprint.equals(fingerprints.get(appWidgetId))) {
+                skipCount++;
+                return false;
+            }
+            appWidgetManager.updateAppWidget(appWidgetId, views);
+            pushCount++;
+            if (fingerprint != null) {
+                fingerprints.put(appWidgetId, fingerprint);
+            } else fingerprints.remove(appWidgetId);
+            return true;
+        }
+    }
+
+    /**
+     * Forgets the views last pushed to a widget (so that the next update is always pushed); e.g. the widget was
+     * resized, or deleted.
+     */
+    public void invalidate(int... appWidgetIds)
+    {
+        synchronized (fingerprints)
+        {
+            for (int appWidgetId : appWidgetIds) {
+                fingerprints.remove(appWidgetId);
+            }
+        }
+    }
+
+    /**
+     * @return a fingerprint of the views (length and CRC32 of their parceled contents), or null if the views
+     * can't be flattened (e.g. they contain binders or file descriptors; large bitmaps are shared that way)
+     */
+    @Nullable
+    protected static Long fingerprint(RemoteViews views, int clickViewID, PendingIntent clickIntent)
+    {
+        Parcel parcel = Parcel.obtain();
+        try {
+            views.writeToParcel(parcel, 0);
+            parcel.writeInt(clickViewID);
+            parcel.writeInt(clickIntent.hashCode());    // same target (action, widget id, class)
+            byte[] bytes = parcel.marshall();
+
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            return (((long) bytes.length) << 32) ^ crc.getValue();
+
+        } catch (RuntimeException e) {
+            return null;
+
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        synchronized (fingerprints) {
+            return pushCount + " pushed, " + skipCount + " unchanged";
+        }
+    }
+
+    /**
+     * PendingUpdate
+     */
+    private static class PendingUpdate
+    {
+        public SuntimesWidget0 widget;
+        public final LinkedHashSet<Integer> appWidgetIds = new LinkedHashSet<>();
+        public final LinkedHashSet<Integer> forcedIds = new LinkedHashSet<>();
+    }
+
+    /**
+     * WidgetItem
+     */
+    private static class WidgetItem
+    {
+        public final SuntimesWidget0 widget;
+        public final int appWidgetId;
+        public final String key;
+
+        public WidgetItem(SuntimesWidget0 widget, int appWidgetId, String key)
+        {
+            this.widget = widget;
+            this.appWidgetId = appWidgetId;
+            this.key = key;
+        }
+    }
+}
@@ -56,7 +56,7 @@ import java.util.List;
 public class AlarmDatabaseAdapter
 {
     public static final String DATABASE_NAME = "suntimesAlarms";
-    public static final int DATABASE_VERSION = 4;
+    public static final int DATABASE_VERSION = 5;
 
     //
     // Table: Alarms
@@ -186,6 +186,9 @@ public class AlarmDatabaseAdapter
                                                                             "alter table " + TABLE_ALARMS + " add column " + DEF_ALARM_NOTE };
     private static final String[] TABLE_ALARMS_DOWNGRADE = new String[] { "DROP TABLE " + TABLE_ALARMS, TABLE_ALARMS_CREATE };
 
+    private static final String INDEX_ALARMS_UPCOMING = "alarms_upcoming";    // (type, enabled, alarmtime); see getUpcomingAlarms
+    private static final String INDEX_ALARMS_UPCOMING_CREATE = "create index if not exists " + INDEX_ALARMS_UPCOMING + " on " + TABLE_ALARMS + " (" + KEY_ALARM_TYPE + ", " + KEY_ALARM_ENABLED + ", " + KEY_ALARM_DATETIME_ADJUSTED + ");";
+
     private static final String[] QUERY_ALARMS_MINENTRY = new String[] { KEY_ROWID, KEY_ALARM_TYPE, KEY_ALARM_ENABLED, KEY_ALARM_DATETIME, KEY_ALARM_LABEL };
     private static final String[] QUERY_ALARMS_FULLENTRY = new String[] { KEY_ROWID, KEY_ALARM_TYPE, KEY_ALARM_ENABLED, KEY_ALARM_LABEL,
                                                                           KEY_ALARM_REPEATING, KEY_ALARM_REPEATING_DAYS,
@@ -209,6 +212,11 @@ public class AlarmDatabaseAdapter
     private static final String TABLE_ALARMSTATE_CREATE = "create table " + TABLE_ALARMSTATE + " (" + TABLE_ALARMSTATE_CREATE_COLS + ");";
     private static final String[] QUERY_ALARMSTATE_FULLENTRY = new String[] { KEY_STATE_ALARMID, KEY_STATE };
 
+    private static final String INDEX_ALARMSTATE_STATE = "alarmstate_state";    // (state); see getAllAlarmsByState
+    private static final String INDEX_ALARMSTATE_STATE_CREATE = "create index if not exists " + INDEX_ALARMSTATE_STATE + " on " + TABLE_ALARMSTATE + " (" + KEY_STATE + ");";
+
+    private static final String[] DATABASE_UPGRADE_4_5 = new String[] { INDEX_ALARMS_UPCOMING_CREATE, INDEX_ALARMSTATE_STATE_CREATE };
+
     /**
      *
      */
@@ -294,15 +302,22 @@ public class AlarmDatabaseAdapter
         return getAllAlarms(n, query, selection, selectionArgs);
     }
 
+    /**
+     * Get a Cursor over the state of alarms with the given state(s); uses the alarmstate_state index.
+     * @param n get first n results (n <= 0 for complete list)
+     * @param alarmState one or more states (AlarmState.STATE_*)
+     * @return a Cursor into the database
+     */
     public Cursor getAllAlarmsByState(int n, int... alarmState)
     {
-        StringBuilder selection = new StringBuilder(KEY_STATE + " = ?");
+        StringBuilder selection = new StringBuilder(KEY_STATE + " IN (?");
         String[] selectionArgs = new String[alarmState.length];
         selectionArgs[0] = Integer.toString(alarmState[0]);
         for (int i=1; i<alarmState.length; i++) {
-            selection.append(" OR " + KEY_STATE + " = ?");
+            selection.append(", ?");
             selectionArgs[i] = Integer.toString(alarmState[i]);
         }
+        selection.append(")");
 
         Cursor cursor =  (n > 0) ? database.query( TABLE_ALARMSTATE, QUERY_ALARMSTATE_FULLENTRY, selection.toString(), selectionArgs, null, null, KEY_STATE_ALARMID + " DESC", n+"" )
                                  : database.query( TABLE_ALARMSTATE, QUERY_ALARMSTATE_FULLENTRY, selection.toString(), selectionArgs, null, null, KEY_STATE_ALARMID + " DESC" );
@@ -312,6 +327,19 @@ public class AlarmDatabaseAdapter
         return cursor;
     }
 
+    /**
+     * Get a Cursor over the state of all alarms.
+     * @return a Cursor into the database
+     */
+    public Cursor getAllAlarmStates()
+    {
+        Cursor cursor = database.query( TABLE_ALARMSTATE, QUERY_ALARMSTATE_FULLENTRY, null, null, null, null, null );
+        if (cursor != null) {
+            cursor.moveToFirst();
+        }
+        return cursor;
+    }
+
     public Cursor getAllAlarms(int n, String[] columns, @Nullable String selection, @Nullable String[] selectionArgs)
     {
         Cursor cursor =  (n > 0) ? database.query( TABLE_ALARMS, columns, selection, selectionArgs, null, null, KEY_ROWID + " DESC", n+"" )
@@ -354,33 +382,45 @@ public class AlarmDatabaseAdapter
         return cursor;
     }
 
-    public Long findUpcomingAlarmId(long nowMillis) throws SQLException
+    /**
+     * Get a Cursor over enabled alarms of the given type that are scheduled after `nowMillis` (soonest first); uses
+     * the alarms_upcoming index, so the cost does not depend on the total number of alarms.
+     * @param n get first n results (n <= 0 for complete list)
+     * @param type alarm type
+     * @param nowMillis only alarms with an (adjusted) alarmtime after this value
+     * @param columns columns to query
+     * @return a Cursor into the database
+     */
+    public Cursor getUpcomingAlarms(int n, @NonNull AlarmClockItem.AlarmType type, long nowMillis, @NonNull String[] columns)
     {
-        String[] columns = new String[] { KEY_ROWID, KEY_ALARM_TYPE, KEY_ALARM_ENABLED, KEY_ALARM_DATETIME_ADJUSTED };
-        String selection = KEY_ALARM_TYPE + "= ? AND " + KEY_ALARM_ENABLED + " = ?";
-        String[] selectionArgs = new String[] { "ALARM", "1" };
+        String selection = KEY_ALARM_TYPE + " = ? AND " + KEY_ALARM_ENABLED + " = ? AND " + KEY_ALARM_DATETIME_ADJUSTED + " > ?";
+        String[] selectionArgs = new String[] { type.name(), "1", Long.toString(nowMillis) };
+        String orderBy = KEY_ALARM_DATETIME_ADJUSTED + " ASC, " + KEY_ROWID + " ASC";
 
-        Cursor cursor = database.query( true, TABLE_ALARMS, columns, selection, selectionArgs, null, null, null, null );
+        Cursor cursor =  (n > 0) ? database.query( TABLE_ALARMS, columns, selection, selectionArgs, null, null, orderBy, n+"" )
+                                 : database.query( TABLE_ALARMS, columns, selection, selectionArgs, null, null, orderBy );
+        if (cursor != null) {
+            cursor.moveToFirst();
+        }
+        return cursor;
+    }
+
+    /**
+     * @param nowMillis from now
+     * @return the rowID of the next enabled alarm (type ALARM), or null if there is none
+     */
+    public Long findUpcomingAlarmId(long nowMillis) throws SQLException
+    {
+        Long upcomingAlarmId = null;
+        Cursor cursor = getUpcomingAlarms(1, AlarmClockItem.AlarmType.ALARM, nowMillis, new String[] { KEY_ROWID });
         if (cursor != null)
         {
-            Long upcomingAlarmId = null;
-            long timeToUpcomingAlarm = Long.MAX_VALUE;
-
-            cursor.moveToFirst();
-            while (!cursor.isAfterLast())
-            {
-                long alarmtime = cursor.getLong(cursor.getColumnIndex(AlarmDatabaseAdapter.KEY_ALARM_DATETIME_ADJUSTED));
-                long timeToAlarm = alarmtime - nowMillis;
-                if (timeToAlarm > 0 && timeToAlarm < timeToUpcomingAlarm) {
-                    timeToUpcomingAlarm = timeToAlarm;
-                    upcomingAlarmId = cursor.getLong(cursor.getColumnIndex(AlarmDatabaseAdapter.KEY_ROWID));
-                }
-                cursor.moveToNext();
+            if (!cursor.isAfterLast()) {
+                upcomingAlarmId = cursor.getLong(0);
             }
             cursor.close();
-            return upcomingAlarmId;
         }
-        return null;
+        return upcomingAlarmId;
     }
 
     /**
@@ -442,6 +482,33 @@ public class AlarmDatabaseAdapter
         return database.update(TABLE_ALARMSTATE, values, KEY_STATE_ALARMID + "=" + row, null) > 0;
     }
 
+    /**
+     * Update several alarms (and their state) within a single transaction.
+     * @param items alarms to update
+     * @param withState true update the alarm state table too
+     * @return true if all items were updated
+     */
+    public boolean updateAlarms( AlarmClockItem[] items, boolean withState )
+    {
+        boolean updated = true;
+        database.beginTransaction();
+        try {
+            for (AlarmClockItem item : items)
+            {
+                boolean itemUpdated = updateAlarm(item.rowID, item.asContentValues(false));
+                if (itemUpdated && withState && item.state != null) {
+                    updateAlarmState(item.rowID, item.state.asContentValues());
+                }
+                updated = updated && itemUpdated;
+            }
+            database.setTransactionSuccessful();
+
+        } finally {
+            database.endTransaction();
+        }
+        return updated;
+    }
+
     public String addAlarmCSV_header()
     {
         String separator = ", ";
@@ -573,10 +640,12 @@ public class AlarmDatabaseAdapter
             switch (DATABASE_VERSION)
             {
                 //noinspection ConstantConditions
-                case 0: case 1: case 2: case 3: case 4:
+                case 0: case 1: case 2: case 3: case 4: case 5:
                 default:
                     db.execSQL(TABLE_ALARMS_CREATE);
                     db.execSQL(TABLE_ALARMSTATE_CREATE);
+                    db.execSQL(INDEX_ALARMS_UPCOMING_CREATE);
+                    db.execSQL(INDEX_ALARMSTATE_STATE_CREATE);
                     break;
             }
         }
@@ -601,6 +670,12 @@ public class AlarmDatabaseAdapter
                         applyUpgrade(db, TABLE_ALARMS_UPGRADE_2_3);
                         applyUpgrade(db, TABLE_ALARMS_UPGRADE_3_4);
                         break;
+                    case 5:
+                        applyUpgrade(db, TABLE_ALARMS_UPGRADE_1_2);
+                        applyUpgrade(db, TABLE_ALARMS_UPGRADE_2_3);
+                        applyUpgrade(db, TABLE_ALARMS_UPGRADE_3_4);
+                        applyUpgrade(db, DATABASE_UPGRADE_4_5);
+                        break;
                 }
 
             } else if (oldVersion == 2) {
@@ -613,6 +688,11 @@ public class AlarmDatabaseAdapter
                         applyUpgrade(db, TABLE_ALARMS_UPGRADE_2_3);
                         applyUpgrade(db, TABLE_ALARMS_UPGRADE_3_4);
                         break;
+                    case 5:
+                        applyUpgrade(db, TABLE_ALARMS_UPGRADE_2_3);
+                        applyUpgrade(db, TABLE_ALARMS_UPGRADE_3_4);
+                        applyUpgrade(db, DATABASE_UPGRADE_4_5);
+                        break;
                 }
 
             } else if (oldVersion == 3) {
@@ -621,6 +701,18 @@ public class AlarmDatabaseAdapter
                     case 4:
                         applyUpgrade(db, TABLE_ALARMS_UPGRADE_3_4);
                         break;
+                    case 5:
+                        applyUpgrade(db, TABLE_ALARMS_UPGRADE_3_4);
+                        applyUpgrade(db, DATABASE_UPGRADE_4_5);
+                        break;
+                }
+
+            } else if (oldVersion == 4) {
+                switch (newVersion)
+                {
+                    case 5:
+                        applyUpgrade(db, DATABASE_UPGRADE_4_5);
+                        break;
                 }
             }
         }
@@ -994,10 +1086,11 @@ public class AlarmDatabaseAdapter
                         ? db.getAllAlarmsByState(0, param_withAlarmState)
                         : db.getAllAlarms(0, false, param_enabledOnly);
 
+                String index = (param_withAlarmState != null) ? AlarmDatabaseAdapter.KEY_STATE_ALARMID : AlarmDatabaseAdapter.KEY_ROWID;
+                int i = cursor.getColumnIndex(index);
                 while (!cursor.isAfterLast())
                 {
-                    String index = (param_withAlarmState != null) ? AlarmDatabaseAdapter.KEY_STATE_ALARMID : AlarmDatabaseAdapter.KEY_ROWID;
-                    long alarmId = cursor.getLong(cursor.getColumnIndex(index));
+                    long alarmId = cursor.getLong(i);
                     if (passesFilter(cursor, alarmId)) {
                         alarmIds.add(alarmId);
                     }
@@ -32,8 +32,10 @@ import android.util.Log;
 import com.forrestguice.suntimeswidget.R;
 import com.forrestguice.suntimeswidget.SuntimesUtils;
 import com.forrestguice.suntimeswidget.calculator.CalculatorProvider;
+import com.forrestguice.suntimeswidget.calculator.SunElevationSolver;
 import com.forrestguice.suntimeswidget.calculator.SuntimesRiseSetData;
 import com.forrestguice.suntimeswidget.calculator.core.Location;
+import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator;
 import com.forrestguice.suntimeswidget.events.EventSettings;
 import com.forrestguice.suntimeswidget.settings.SolarEvents;
 import com.forrestguice.suntimeswidget.settings.WidgetSettings;
@@ -41,9 +43,8 @@ import com.forrestguice.suntimeswidget.settings.WidgetSettings;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.TimeZone;
 
 import static com.forrestguice.suntimeswidget.alarmclock.AlarmEventContract.AUTHORITY;
 import static com.forrestguice.suntimeswidget.alarmclock.AlarmEventContract.COLUMN_EVENT_NAME;
@@ -691,14 +692,26 @@ public class AlarmEventProvider extends ContentProvider
     public static Calendar updateAlarmTime_sunElevationEvent(Context context, @NonNull SunElevationEvent event, @NonNull Location location, long offset, boolean repeating, ArrayList<Integer> repeatingDays, Calendar now)
     {
         SuntimesRiseSetData sunData = getData_sunElevationEvent(context, event.getAngle(), event.getOffset(), location);
+        sunData.initCalculator();
+        sunData.initTimezone(context);
+        return updateAlarmTime_sunElevationEvent(sunData.calculator(), sunData.timezone(), event, location, offset, repeating, repeatingDays, now);
+    }
 
+    /**
+     * @param calculator an initialized calculator (location and timezone)
+     * @param timezone the calculator's timezone
+     * @return the next event (after `now`, minus `offset`) that matches `repeatingDays`, or null if the event isn't reached within MAX_SEARCH_DAYS
+     */
+    @Nullable
+    public static Calendar updateAlarmTime_sunElevationEvent(@NonNull SuntimesCalculator calculator, @NonNull TimeZone timezone, @NonNull SunElevationEvent event, @NonNull Location location, long offset, boolean repeating, ArrayList<Integer> repeatingDays, Calendar now)
+    {
+        SunElevationSolver solver = new SunElevationSolver(SunElevationSolver.sunElevation(calculator));
+        SunElevationSolver.EventFunction events = SunElevationSolver.sunEvents(calculator);
         Calendar alarmTime = Calendar.getInstance();
         Calendar eventTime;
 
         Calendar day = Calendar.getInstance();
-        sunData.setTodayIs(day);
-        sunData.calculate();
-        eventTime = (event.isRising() ? sunData.sunriseCalendarToday() : sunData.sunsetCalendarToday());
+        eventTime = findSunElevationEvent(solver, events, event, timezone, day);
         if (eventTime != null)
         {
             eventTime.set(Calendar.SECOND, 0);
@@ -706,31 +719,55 @@ public class AlarmEventProvider extends ContentProvider
         }
 
         int c = 0;
-        Set<Long> timestamps = new HashSet<>();
+        double latitude = location.getLatitudeAsDouble();
+        double margin = SunElevationDaySearch.margin(location);
         while (now.after(alarmTime)
                 || eventTime == null
                 || (repeating && !repeatingDays.contains(eventTime.get(Calendar.DAY_OF_WEEK))))
         {
-            if (!timestamps.add(alarmTime.getTimeInMillis()) && c > 365) {
-                Log.e(AlarmNotifications.TAG, "updateAlarmTime: encountered same timestamp twice! (breaking loop)");
+            day.add(Calendar.DAY_OF_YEAR, 1);
+            int skipped = SunElevationDaySearch.advanceToCandidate(day, timezone, latitude, event.getAngle(), margin, (repeating ? repeatingDays : null), SunElevationDaySearch.MAX_SEARCH_DAYS - c);
+            if (skipped < 0) {
+                Log.w(AlarmNotifications.TAG, "updateAlarmTime: sunElevationEvent not reached within " + SunElevationDaySearch.MAX_SEARCH_DAYS + " days! (breaking loop)");
                 return null;
             }
+            c += skipped + 1;
 
-            Log.w(AlarmNotifications.TAG, "updateAlarmTime: sunElevationEvent advancing by 1 day..");
-            day.add(Calendar.DAY_OF_YEAR, 1);
-            sunData.setTodayIs(day);
-            sunData.calculate();
-            eventTime = (event.isRising() ? sunData.sunriseCalendarToday() : sunData.sunsetCalendarToday());
+            eventTime = findSunElevationEvent(solver, events, event, timezone, day);
             if (eventTime != null)
             {
                 eventTime.set(Calendar.SECOND, 0);
                 alarmTime.setTimeInMillis(eventTime.getTimeInMillis() + offset);
             }
-            c++;
         }
         return eventTime;
     }
 
+    /**
+     * The solver's crossing is refined with the calculator's own event for the angle (see SunElevationSolver.findEvent),
+     * so the alarm is set for the same time that is displayed by SuntimesRiseSetData.
+     * @return the time the sun reaches the event's angle (rising or setting) on the given day (plus the event's offset), or null if it isn't reached that day
+     */
+    @Nullable
+    protected static Calendar findSunElevationEvent(@NonNull SunElevationSolver solver, @NonNull SunElevationSolver.EventFunction events, @NonNull SunElevationEvent event, @NonNull TimeZone timezone, @NonNull Calendar day)
+    {
+        Calendar calendar = Calendar.getInstance(timezone);
+        calendar.setTimeInMillis(day.getTimeInMillis());
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        long startMillis = calendar.getTimeInMillis();
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+
+        Long millis = solver.findEvent(events, event.getAngle(), startMillis, calendar.getTimeInMillis() - 1, event.isRising());
+        if (millis != null)
+        {
+            calendar.setTimeInMillis(millis + event.getOffset());
+            return calendar;
+        } else return null;
+    }
+
     private static SuntimesRiseSetData getData_sunElevationEvent(Context context, double angle, int offset, @NonNull Location location)
     {
         SuntimesRiseSetData sunData = new SuntimesRiseSetData(context, 0);
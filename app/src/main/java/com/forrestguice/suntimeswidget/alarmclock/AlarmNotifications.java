@@ -1373,16 +1373,17 @@ public class AlarmNotifications extends BroadcastReceiver
                         final long startTime = SystemClock.elapsedRealtime();
                         AlarmSettings.savePrefLastBootCompleted_started(getApplicationContext(), startTime);
 
-                        AlarmDatabaseAdapter.AlarmListTask alarmListTask = new AlarmDatabaseAdapter.AlarmListTask(getApplicationContext());
-                        alarmListTask.setParam_enabledOnly(true);
-                        alarmListTask.setAlarmItemTaskListener(new AlarmDatabaseAdapter.AlarmListTask.AlarmListTaskListener() {
+                        AlarmRescheduleTask rescheduleTask = new AlarmRescheduleTask(getApplicationContext());
+                        rescheduleTask.setTaskListener(new AlarmRescheduleTask.AlarmRescheduleTaskListener()
+                        {
                             @Override
-                            public void onItemsLoaded(final Long[] ids)
+                            public void onFinished(final AlarmRescheduleTask.AlarmRescheduleResult result)
                             {
-                                final AlarmDatabaseAdapter.AlarmListObserver observer = new AlarmDatabaseAdapter.AlarmListObserver(ids, new AlarmDatabaseAdapter.AlarmListObserver.AlarmListObserverListener()
+                                onRescheduled(getApplicationContext(), result, new Runnable()
                                 {
                                     @Override
-                                    public void onObservedAll() {
+                                    public void run()
+                                    {
                                         final long endTime = SystemClock.elapsedRealtime();
                                         final long duration = endTime - startTime;
                                         AlarmSettings.savePrefLastBootCompleted_finished(getApplicationContext(), System.currentTimeMillis(), duration);
@@ -1393,8 +1394,7 @@ public class AlarmNotifications extends BroadcastReceiver
                                             public void run()
                                             {
                                                 Context context = getApplicationContext();
-                                                sendBroadcast(getFullscreenBroadcast(null));
-                                                if (ids.length > 0) {    // show warning if alarms where rescheduled
+                                                if (result.size() > 0) {    // show warning if alarms where rescheduled
                                                     if (!AlarmSettings.isIgnoringBatteryOptimizations(context)) {
                                                         notifications.showNotification(context, createBatteryOptWarningNotification(context), NOTIFICATION_BATTERYOPT_WARNING_ID);
                                                     }
@@ -1405,33 +1405,13 @@ public class AlarmNotifications extends BroadcastReceiver
                                                 notifications.dismissNotification(context, NOTIFICATION_SCHEDULE_ALL_ID);
                                                 notifications.stopSelf(startId);
                                             }
-                                        }, (ids.length > 0 ? NOTIFICATION_SCHEDULE_ALL_DURATION : 0));
+                                        }, (result.size() > 0 ? NOTIFICATION_SCHEDULE_ALL_DURATION : 0));
                                     }
                                 });
-
-                                if (ids.length == 0) {
-                                    observer.notify(null);
-                                    return;
-                                }
-
-                                AlarmDatabaseAdapter.AlarmItemTaskListener notifyObserver = new AlarmDatabaseAdapter.AlarmItemTaskListener()
-                                {
-                                    @Override
-                                    public void onFinished(Boolean result, AlarmClockItem item) {
-                                        Log.d(TAG, "schedule " + item.rowID + " completed!");
-                                        observer.notify(item.rowID);
-                                    }
-                                };
-                                for (long id : ids)
-                                {
-                                    AlarmDatabaseAdapter.AlarmItemTask itemTask = new AlarmDatabaseAdapter.AlarmItemTask(getApplicationContext());
-                                    itemTask.addAlarmItemTaskListener(createAlarmOnReceiveListener(getApplicationContext(), startId, AlarmNotifications.ACTION_RESCHEDULE, notifyObserver));
-                                    itemTask.execute(id);
-                                }
                             }
                         });
                         notifications.startForeground(NOTIFICATION_SCHEDULE_ALL_ID, createProgressNotification(getApplicationContext(), getString(R.string.app_name_alarmclock), getString(R.string.configLabel_alarms_bootcompleted_action_message)));
-                        alarmListTask.execute();
+                        rescheduleTask.execute();
 
                     } else if (Intent.ACTION_TIMEZONE_CHANGED.equals(action)) {
                         Log.d(TAG, "TIMEZONE_CHANGED received");
@@ -1448,7 +1428,10 @@ public class AlarmNotifications extends BroadcastReceiver
                             {
                                 Log.i(TAG, "system tz offset changed from " + tzOffset_prev + " to " + tzOffset);
                                 notifications.startForeground(NOTIFICATION_SCHEDULE_ALL_ID, createProgressNotification(getApplicationContext(), getString(R.string.app_name_alarmclock), getString(R.string.configLabel_alarms_bootcompleted_action_message)));
-                                findEnabledAlarms(getApplicationContext(), rescheduleTaskListener_clocktime(startId));
+                                AlarmRescheduleTask rescheduleTask = new AlarmRescheduleTask(getApplicationContext());
+                                rescheduleTask.setParam_clockTimeOnly(true);
+                                rescheduleTask.setTaskListener(rescheduleTaskListener_clocktime(startId));
+                                rescheduleTask.execute();
                                 rescheduling = true;
                             }
                             AlarmSettings.saveSystemTimeZoneInfo(getApplicationContext(), tzID, tzOffset);
@@ -1499,20 +1482,19 @@ public class AlarmNotifications extends BroadcastReceiver
             return START_STICKY;
         }
 
-        private AlarmDatabaseAdapter.AlarmListTask.AlarmListTaskListener rescheduleTaskListener_clocktime(final int startId)
+        private AlarmRescheduleTask.AlarmRescheduleTaskListener rescheduleTaskListener_clocktime(final int startId)
         {
-            return new AlarmDatabaseAdapter.AlarmListTask.AlarmListTaskListener()
+            return new AlarmRescheduleTask.AlarmRescheduleTaskListener()
             {
                 @Override
-                public void onItemsLoaded(final Long[] ids)
+                public void onFinished(final AlarmRescheduleTask.AlarmRescheduleResult result)
                 {
-                    final long startedAt = System.currentTimeMillis();
-                    final AlarmDatabaseAdapter.AlarmListObserver observer = new AlarmDatabaseAdapter.AlarmListObserver(ids, new AlarmDatabaseAdapter.AlarmListObserver.AlarmListObserverListener() {
+                    onRescheduled(getApplicationContext(), result, new Runnable()
+                    {
                         @Override
-                        public void onObservedAll()
+                        public void run()
                         {
-                            long duration = System.currentTimeMillis() - startedAt;
-                            Log.d(TAG, "Re-schedule completed (time zone changed); took " + duration + "ms");
+                            Log.d(TAG, "Re-schedule completed (time zone changed); " + result);
                             new Handler(Looper.getMainLooper()).postDelayed(new Runnable()
                             {
                                 @Override
@@ -1520,37 +1502,45 @@ public class AlarmNotifications extends BroadcastReceiver
                                     notifications.dismissNotification(getApplicationContext(), NOTIFICATION_SCHEDULE_ALL_ID);
                                     notifications.stopSelf(startId);
                                 }
-                            }, (ids.length > 0 ? NOTIFICATION_SCHEDULE_ALL_DURATION : 0));
+                            }, (result.size() > 0 ? NOTIFICATION_SCHEDULE_ALL_DURATION : 0));
                         }
                     });
-                    if (ids.length == 0) {
-                        observer.notify(null);
-                        return;
-                    }
-                    final AlarmDatabaseAdapter.AlarmItemTaskListener notifyObserver = new AlarmDatabaseAdapter.AlarmItemTaskListener() {
-                        @Override
-                        public void onFinished(Boolean result, AlarmClockItem item) {
-                            observer.notify(item.rowID);
-                        }
-                    };
-                    for (long id : ids) {
-                        AlarmDatabaseAdapter.AlarmItemTask itemTask = new AlarmDatabaseAdapter.AlarmItemTask(getApplicationContext());
-                        itemTask.addAlarmItemTaskListener(new AlarmDatabaseAdapter.AlarmItemTaskListener() {
-                            @Override
-                            public void onFinished(Boolean result, final AlarmClockItem item)
-                            {
-                                int state = item.state.getState();
-                                if (item.getEvent() == null && state != AlarmState.STATE_SOUNDING && state != AlarmState.STATE_SNOOZING) {
-                                    createAlarmOnReceiveListener(getApplicationContext(), startId, AlarmNotifications.ACTION_RESCHEDULE, notifyObserver).onFinished(result, item);
-                                } else notifyObserver.onFinished(false, item);
-                            }
-                        });
-                        itemTask.execute(id);
-                    }
                 }
             };
         }
 
+        /**
+         * Registers alarms rescheduled by AlarmRescheduleTask (the same as onScheduledSoonState, onScheduledDistantState, and
+         * onScheduledNotification, but the upcoming alarm is found once for the entire batch), and disables alarms that failed.
+         */
+        private void onRescheduled(final Context context, AlarmRescheduleTask.AlarmRescheduleResult result, @Nullable final Runnable onFinished)
+        {
+            for (AlarmClockItem item : result.scheduled)
+            {
+                cancelAlarmTimeouts(context, item);
+                addScheduledTimeouts(context, item);
+                updateScheduledNotification(context, item);
+            }
+
+            for (AlarmClockItem item : result.failed)
+            {
+                Log.d(TAG, "Disabling: " + item.rowID);
+                sendBroadcast(getAlarmIntent(context, ACTION_DISABLE, item.getUri()));
+            }
+
+            context.sendBroadcast(getFullscreenBroadcast(null));
+            findUpcomingAlarm(context, new AlarmDatabaseAdapter.AlarmListTask.AlarmListTaskListener()
+            {
+                @Override
+                public void onItemsLoaded(Long[] ids)
+                {
+                    if (onFinished != null) {
+                        onFinished.run();
+                    }
+                }
+            });
+        }
+
         private AlarmDatabaseAdapter.AlarmListTask.AlarmListTaskListener clearTaskListener = new AlarmDatabaseAdapter.AlarmListTask.AlarmListTaskListener()
         {
             @Override
@@ -1719,10 +1709,9 @@ public class AlarmNotifications extends BroadcastReceiver
                                         if (dismissedEarly) {
                                             scheduledFrom.setTimeInMillis(item.alarmtime + 60 * 1000);
                                         }
-                                        boolean updated = updateAlarmTime(context, item, scheduledFrom, true);     // sets item.hour, item.minute, item.timestamp (calculates the eventTime)
+                                        boolean updated = updateScheduledAlarmTime(item, findAlarmEventTime(context, item, scheduledFrom));     // sets item.hour, item.minute, item.timestamp, item.alarmtime (calculates the eventTime)
                                         if (updated)
                                         {
-                                            item.alarmtime = item.timestamp + item.offset;     // scheduled sounding time (-before/+after eventTime by some offset)
                                             if (dismissedEarly) {
                                                 showTimeUntilToast(context, null, item);
                                             }
@@ -1742,14 +1731,11 @@ public class AlarmNotifications extends BroadcastReceiver
                                     Log.i(TAG, "Scheduling: " + item.rowID + " already has a valid alarmTime! (skipped call to updateAlarmTime)");
                                 }
 
-                                int nextState = AlarmState.STATE_SCHEDULED_DISTANT;
+                                int nextState = nextScheduledState(context, item, now);
                                 AlarmDatabaseAdapter.AlarmItemTaskListener onScheduledState;
                                 if (item.type == AlarmClockItem.AlarmType.ALARM)
                                 {
-                                    long reminderWithin = item.getFlag(AlarmClockItem.FLAG_REMINDER_WITHIN, AlarmSettings.loadPrefAlarmUpcoming(context));
-                                    boolean verySoon = (((item.alarmtime - now) < reminderWithin) || reminderWithin <= 0);
-                                    nextState = (verySoon ? AlarmState.STATE_SCHEDULED_SOON : AlarmState.STATE_SCHEDULED_DISTANT);
-                                    if (verySoon)
+                                    if (nextState == AlarmState.STATE_SCHEDULED_SOON)
                                     {
                                         Log.i(TAG, "Scheduling: " + item.rowID + " :: very soon");
                                         onScheduledState = onScheduledSoonState(context, startId, chained);
@@ -2034,6 +2020,33 @@ public class AlarmNotifications extends BroadcastReceiver
             };
         }
 
+        /**
+         * Registers the timeouts of a scheduled item; STATE_SCHEDULED_SOON alarms are shown at their alarm time,
+         * STATE_SCHEDULED_DISTANT alarms are also rescheduled when their reminder period begins.
+         */
+        protected void addScheduledTimeouts(Context context, @NonNull AlarmClockItem item)
+        {
+            if (item.type == AlarmClockItem.AlarmType.ALARM && (item.state == null || item.state.getState() != AlarmState.STATE_SCHEDULED_SOON))
+            {
+                long reminderWithin = item.getFlag(AlarmClockItem.FLAG_REMINDER_WITHIN, AlarmSettings.loadPrefAlarmUpcoming(context));
+                long transitionAt = item.alarmtime - reminderWithin + 1000;
+                addAlarmTimeout(context, ACTION_SCHEDULE, item.getUri(), transitionAt);
+            }
+            addAlarmTimeout(context, ACTION_SHOW, item.getUri(), item.alarmtime);
+        }
+
+        /**
+         * Dismisses the notification of a scheduled item, and shows the upcoming reminder (STATE_SCHEDULED_SOON alarms).
+         */
+        protected void updateScheduledNotification(Context context, @NonNull AlarmClockItem item)
+        {
+            notifications.dismissNotification(context, (int)item.rowID);
+            if (item.type == AlarmClockItem.AlarmType.ALARM && item.state != null && item.state.getState() == AlarmState.STATE_SCHEDULED_SOON
+                    && item.getFlag(AlarmClockItem.FLAG_REMINDER_WITHIN, AlarmSettings.loadPrefAlarmUpcoming(context)) > 0) {
+                notifications.showNotification(context, item, true);             // show upcoming reminder
+            }
+        }
+
         private AlarmDatabaseAdapter.AlarmItemTaskListener onScheduledNotification(final Context context, final int startId, @Nullable final AlarmDatabaseAdapter.AlarmItemTaskListener chained)
         {
             return new AlarmDatabaseAdapter.AlarmItemTaskListener()
@@ -2046,10 +2059,10 @@ public class AlarmNotifications extends BroadcastReceiver
                             || item.type == AlarmClockItem.AlarmType.NOTIFICATION2)
                     {
                         Log.d(TAG, "State Saved (onScheduledNotification)");
-                        addAlarmTimeout(context, ACTION_SHOW, item.getUri(), item.alarmtime);
+                        addScheduledTimeouts(context, item);
                         context.sendBroadcast(getFullscreenBroadcast(item.getUri()));
                     }
-                    notifications.dismissNotification(context, (int)item.rowID);
+                    updateScheduledNotification(context, item);
                     if (chained != null) {
                         chained.onFinished(true, item);
                     } else notifications.stopSelf(startId);
@@ -2067,10 +2080,7 @@ public class AlarmNotifications extends BroadcastReceiver
                     if (item.type == AlarmClockItem.AlarmType.ALARM)
                     {
                         Log.d(TAG, "State Saved (onScheduledDistant)");
-                        long reminderWithin = item.getFlag(AlarmClockItem.FLAG_REMINDER_WITHIN, AlarmSettings.loadPrefAlarmUpcoming(context));
-                        long transitionAt = item.alarmtime - reminderWithin + 1000;
-                        addAlarmTimeout(context, ACTION_SCHEDULE, item.getUri(), transitionAt);
-                        addAlarmTimeout(context, ACTION_SHOW, item.getUri(), item.alarmtime);
+                        addScheduledTimeouts(context, item);
                         //context.startActivity(getAlarmListIntent(context, item.rowID));   // open the alarm list
                         context.sendBroadcast(getFullscreenBroadcast(item.getUri()));
 
@@ -2078,7 +2088,7 @@ public class AlarmNotifications extends BroadcastReceiver
                             @Override
                             public void onItemsLoaded(Long[] ids)
                             {
-                                notifications.dismissNotification(context, (int)item.rowID);
+                                updateScheduledNotification(context, item);
                                 if (chained != null) {
                                     chained.onFinished(true, item);
                                 } else notifications.stopSelf(startId);
@@ -2104,7 +2114,7 @@ public class AlarmNotifications extends BroadcastReceiver
                     if (item.type == AlarmClockItem.AlarmType.ALARM)
                     {
                         Log.d(TAG, "State Saved (onScheduledSoon)");
-                        addAlarmTimeout(context, ACTION_SHOW, item.getUri(), item.alarmtime);
+                        addScheduledTimeouts(context, item);
 
                         context.sendBroadcast(getFullscreenBroadcast(item.getUri()));
 
@@ -2112,12 +2122,7 @@ public class AlarmNotifications extends BroadcastReceiver
                             @Override
                             public void onItemsLoaded(Long[] ids)
                             {
-                                boolean showReminder = (item.getFlag(AlarmClockItem.FLAG_REMINDER_WITHIN, AlarmSettings.loadPrefAlarmUpcoming(context)) > 0);
-                                notifications.dismissNotification(context, (int)item.rowID);
-                                if (showReminder) {
-                                    notifications.showNotification(context, item, true);             // show upcoming reminder
-                                }
-
+                                updateScheduledNotification(context, item);
                                 if (chained != null) {
                                     chained.onFinished(true, item);
                                 } else notifications.stopSelf(startId);
@@ -2145,26 +2150,64 @@ public class AlarmNotifications extends BroadcastReceiver
     public static boolean updateAlarmTime(Context context, final AlarmClockItem item) {
         return updateAlarmTime(context, item, Calendar.getInstance(), true);
     }
-    public static boolean updateAlarmTime(Context context, final AlarmClockItem item, Calendar now, boolean modifyItem)
+    public static boolean updateAlarmTime(Context context, final AlarmClockItem item, Calendar now, boolean modifyItem) {
+        return updateAlarmTime(item, findAlarmEventTime(context, item, now), modifyItem);
+    }
+
+    /**
+     * Updates the alarm time of an item that is being scheduled (ACTION_SCHEDULE, ACTION_RESCHEDULE, and AlarmRescheduleTask).
+     * @param eventTime the next event time (see findAlarmEventTime)
+     * @return true item was updated (hour, minute, timestamp, alarmtime), false failed to update item (eventTime is null; the item should be disabled)
+     */
+    public static boolean updateScheduledAlarmTime(@NonNull AlarmClockItem item, @Nullable Calendar eventTime)
+    {
+        if (updateAlarmTime(item, eventTime, true))
+        {
+            item.alarmtime = item.timestamp + item.offset;     // scheduled sounding time (-before/+after eventTime by some offset)
+            return true;
+        } else return false;
+    }
+
+    /**
+     * @return the state an item that is being scheduled should transition to; STATE_SCHEDULED_SOON (alarms within their reminder period), or STATE_SCHEDULED_DISTANT
+     */
+    public static int nextScheduledState(Context context, @NonNull AlarmClockItem item, long now)
+    {
+        if (item.type == AlarmClockItem.AlarmType.ALARM)
+        {
+            long reminderWithin = item.getFlag(AlarmClockItem.FLAG_REMINDER_WITHIN, AlarmSettings.loadPrefAlarmUpcoming(context));
+            boolean verySoon = (((item.alarmtime - now) < reminderWithin) || reminderWithin <= 0);
+            return (verySoon ? AlarmState.STATE_SCHEDULED_SOON : AlarmState.STATE_SCHEDULED_DISTANT);
+        } else return AlarmState.STATE_SCHEDULED_DISTANT;
+    }
+
+    /**
+     * @return the next event time (from `now`) for the given item, or null if it couldn't be calculated
+     */
+    @Nullable
+    public static Calendar findAlarmEventTime(Context context, @NonNull AlarmClockItem item, Calendar now)
     {
-        Calendar eventTime = null;
-        boolean modifyHourMinute = true;
         String eventID = item.getEvent();
         SolarEvents event = SolarEvents.valueOf(eventID, null);
         ArrayList<Integer> repeatingDays = (item.repeatingDays != null ? item.repeatingDays : AlarmClockItem.everyday());
 
-        if (item.location != null && event != null)
-        {
-            eventTime = updateAlarmTime_solarEvent(context, event, item.location, item.offset, item.repeating, repeatingDays, now);
+        if (item.location != null && event != null) {
+            return updateAlarmTime_solarEvent(context, event, item.location, item.offset, item.repeating, repeatingDays, now);
 
         } else if (eventID != null) {
-            eventTime = updateAlarmTime_addonEvent(context.getContentResolver(), eventID, item.location, item.offset, item.repeating, repeatingDays, now);
+            return updateAlarmTime_addonEvent(context.getContentResolver(), eventID, item.location, item.offset, item.repeating, repeatingDays, now);
 
         } else {
-            modifyHourMinute = false;    // "clock time" alarms should leave "hour" and "minute" values untouched
-            eventTime = updateAlarmTime_clockTime(item.hour, item.minute, item.timezone, item.location, item.offset, item.repeating, repeatingDays, now);
+            return updateAlarmTime_clockTime(item.hour, item.minute, item.timezone, item.location, item.offset, item.repeating, repeatingDays, now);
         }
+    }
 
+    /**
+     * @param eventTime the next event time (see findAlarmEventTime)
+     * @return true item was updated, false failed to update item (eventTime is null)
+     */
+    public static boolean updateAlarmTime(@NonNull AlarmClockItem item, @Nullable Calendar eventTime, boolean modifyItem)
+    {
         if (eventTime == null) {
             Log.e(TAG, "updateAlarmTime: failed to update " + item + " :: " + item.getEvent() + "@" + item.location);
             return false;
@@ -2172,6 +2215,7 @@ public class AlarmNotifications extends BroadcastReceiver
 
         if (modifyItem)
         {
+            boolean modifyHourMinute = (item.getEvent() != null);    // "clock time" alarms should leave "hour" and "minute" values untouched
             if (modifyHourMinute) {
                 item.hour = eventTime.get(Calendar.HOUR_OF_DAY);
                 item.minute = eventTime.get(Calendar.MINUTE);
@@ -2232,20 +2276,23 @@ public class AlarmNotifications extends BroadcastReceiver
         }
 
         int c = 0;
-        Set<Long> timestamps = new HashSet<>();
+        double latitude = location.getLatitudeAsDouble();
+        double margin = SunElevationDaySearch.margin(location);
+        Double angle = SunElevationDaySearch.angle(event.toTimeMode());
         while (now.after(alarmTime)
                 || eventTime == null
                 || (repeating && !repeatingDays.contains(eventTime.get(Calendar.DAY_OF_WEEK))))
         {
-            if (!timestamps.add(alarmTime.getTimeInMillis()) && c > 365) {
-                Log.e(TAG, "updateAlarmTime: encountered same timestamp twice! (breaking loop)");
+            day.add(Calendar.DAY_OF_YEAR, 1);
+            int skipped = SunElevationDaySearch.advanceToCandidate(day, sunData.timezone(), latitude, angle, margin, (repeating ? repeatingDays : null), SunElevationDaySearch.MAX_SEARCH_DAYS - c);
+            if (skipped < 0) {
+                Log.e(TAG, "updateAlarmTime: sunEvent not reached within " + SunElevationDaySearch.MAX_SEARCH_DAYS + " days! (breaking loop)");
                 t_updateAlarmTime_brokenLoop = true;
                 t_updateAlarmTime_runningLoop = false;
                 return null;
             }
+            c += skipped + 1;
 
-            Log.w("AlarmReceiverItem", "updateAlarmTime: sunEvent advancing by 1 day..");
-            day.add(Calendar.DAY_OF_YEAR, 1);
             sunData.setTodayIs(day);
             sunData.calculate();
             eventTime = (event.isRising() ? sunData.sunriseCalendarToday() : sunData.sunsetCalendarToday());
@@ -2254,7 +2301,6 @@ public class AlarmNotifications extends BroadcastReceiver
                 eventTime.set(Calendar.SECOND, 0);
                 alarmTime.setTimeInMillis(eventTime.getTimeInMillis() + offset);
             }
-            c++;
         }
         t_updateAlarmTime_runningLoop = false;
         return eventTime;
@@ -0,0 +1,225 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.alarmclock;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.os.AsyncTask;
+import android.os.SystemClock;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.forrestguice.suntimeswidget.calculator.core.Location;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * AlarmRescheduleTask
+ * Reschedules all enabled alarms at once (e.g. after boot, or a time zone change).
+ *
+ * Alarms are loaded with a single query (and their state with a second), grouped by calculation (alarms that
+ * share the same event, location, offset, and repeat days share a single calculation), and then written back
+ * within a single transaction. Registering the scheduled alarms (AlarmManager) is left to the listener (see
+ * AlarmNotifications.NotificationService), which runs on the main thread.
+ */
+public class AlarmRescheduleTask extends AsyncTask<Void, Void, AlarmRescheduleTask.AlarmRescheduleResult>
+{
+    public static final String TAG = "AlarmReschedule";
+
+    protected final Context context;
+    protected AlarmDatabaseAdapter db;
+
+    public AlarmRescheduleTask(@NonNull Context context)
+    {
+        this.context = context.getApplicationContext();
+        db = new AlarmDatabaseAdapter(this.context);
+    }
+
+    private boolean param_clockTimeOnly = false;    // reschedule "clock time" alarms only (e.g. time zone change)
+    public void setParam_clockTimeOnly( boolean value ) {
+        param_clockTimeOnly = value;
+    }
+
+    @Override
+    protected AlarmRescheduleResult doInBackground(Void... voids)
+    {
+        long startTime = SystemClock.elapsedRealtime();
+
+        db.open();
+        AlarmRescheduleResult result = reschedule(context, loadEnabledAlarms(context, db), Calendar.getInstance(), param_clockTimeOnly);
+        if (!result.scheduled.isEmpty() && !db.updateAlarms(result.scheduled.toArray(new AlarmClockItem[0]), true)) {
+            Log.w(TAG, "reschedule: failed to update some items!");
+        }
+        db.close();
+
+        result.duration = SystemClock.elapsedRealtime() - startTime;
+        Log.d(TAG, "reschedule: " + result);
+        return result;
+    }
+
+    /**
+     * Reschedules the given items (modifying them); alarms that share a calculation (see calculationKey) share a single event time.
+     * Each item is scheduled the same as ACTION_SCHEDULE (see AlarmNotifications.updateScheduledAlarmTime, nextScheduledState).
+     * @param items enabled alarms (with state); sorted by calculation
+     * @param now the time to schedule from
+     * @param clockTimeOnly true reschedule "clock time" alarms only (other alarms are skipped)
+     * @return the result (scheduled items have not been saved)
+     */
+    public static AlarmRescheduleResult reschedule(Context context, List<AlarmClockItem> items, Calendar now, boolean clockTimeOnly)
+    {
+        AlarmRescheduleResult result = new AlarmRescheduleResult();
+        Collections.sort(items, new Comparator<AlarmClockItem>() {
+            @Override
+            public int compare(AlarmClockItem o1, AlarmClockItem o2) {
+                return calculationKey(o1).compareTo(calculationKey(o2));    // grouped by calculation
+            }
+        });
+
+        HashMap<String, Calendar> calculated = new HashMap<>();
+        for (AlarmClockItem item : items)
+        {
+            int state = (item.state != null ? item.state.getState() : AlarmState.STATE_NONE);
+            if (clockTimeOnly && (item.getEvent() != null || state == AlarmState.STATE_SOUNDING || state == AlarmState.STATE_SNOOZING)) {
+                result.skipped.add(item);
+                continue;
+            }
+            if (!AlarmState.transitionState(item.state, AlarmState.STATE_NONE)) {
+                result.skipped.add(item);
+                continue;
+            }
+
+            String key = calculationKey(item);
+            Calendar eventTime;
+            if (calculated.containsKey(key)) {
+                eventTime = calculated.get(key);
+            } else {
+                eventTime = AlarmNotifications.findAlarmEventTime(context, item, now);
+                calculated.put(key, eventTime);
+            }
+
+            if (!AlarmNotifications.updateScheduledAlarmTime(item, eventTime)) {    // failed to schedule; this alarm needs to be disabled
+                result.failed.add(item);
+                continue;
+            }
+
+            int nextState = AlarmNotifications.nextScheduledState(context, item, now.getTimeInMillis());
+            if (AlarmState.transitionState(item.state, nextState)) {
+                result.scheduled.add(item);
+            } else result.skipped.add(item);
+        }
+        result.numCalculations = calculated.size();
+        return result;
+    }
+
+    @Override
+    protected void onPostExecute(AlarmRescheduleResult result)
+    {
+        if (listener != null) {
+            listener.onFinished(result);
+        }
+    }
+
+    /**
+     * @return enabled alarms (with state)
+     */
+    protected static List<AlarmClockItem> loadEnabledAlarms(Context context, AlarmDatabaseAdapter db)
+    {
+        HashMap<Long, AlarmState> states = new HashMap<>();
+        Cursor cursor1 = db.getAllAlarmStates();
+        if (cursor1 != null)
+        {
+            while (!cursor1.isAfterLast())
+            {
+                ContentValues stateValues = new ContentValues();
+                DatabaseUtils.cursorRowToContentValues(cursor1, stateValues);
+                AlarmState state = new AlarmState(stateValues);
+                states.put(state.getAlarmID(), state);
+                cursor1.moveToNext();
+            }
+            cursor1.close();
+        }
+
+        List<AlarmClockItem> items = new ArrayList<>();
+        Cursor cursor0 = db.getAllAlarms(0, true, true);
+        if (cursor0 != null)
+        {
+            while (!cursor0.isAfterLast())
+            {
+                ContentValues itemValues = new ContentValues();
+                DatabaseUtils.cursorRowToContentValues(cursor0, itemValues);
+                AlarmClockItem item = new AlarmClockItem(context, itemValues);
+                item.state = states.get(item.rowID);
+                items.add(item);
+                cursor0.moveToNext();
+            }
+            cursor0.close();
+        }
+        return items;
+    }
+
+    /**
+     * @return a key identifying the calculation used by an alarm; alarms with the same key have the same event time
+     */
+    public static String calculationKey(@NonNull AlarmClockItem item)
+    {
+        Location location = item.location;
+        return item.getEvent() + "@" + (location != null ? location.getLatitude() + "," + location.getLongitude() + "," + location.getAltitudeAsDouble() : null)
+                + "|" + item.timezone + "|" + (item.getEvent() == null ? item.hour + ":" + item.minute : "")
+                + "|" + item.offset + "|" + item.repeating + "|" + item.repeatingDays;
+    }
+
+    /**
+     * AlarmRescheduleResult
+     */
+    public static class AlarmRescheduleResult
+    {
+        public final List<AlarmClockItem> scheduled = new ArrayList<>();    // rescheduled (and saved); needs to be registered
+        public final List<AlarmClockItem> failed = new ArrayList<>();       // failed to calculate; needs to be disabled
+        public final List<AlarmClockItem> skipped = new ArrayList<>();      // left unchanged
+        public int numCalculations = 0;
+        public long duration = 0;
+
+        public int size() {
+            return scheduled.size() + failed.size() + skipped.size();
+        }
+
+        @Override
+        public String toString() {
+            return scheduled.size() + " scheduled, " + failed.size() + " failed, " + skipped.size() + " skipped (" + numCalculations + " calculations, " + duration + "ms)";
+        }
+    }
+
+    private AlarmRescheduleTaskListener listener = null;
+    public void setTaskListener( @Nullable AlarmRescheduleTaskListener l ) {
+        listener = l;
+    }
+
+    public static abstract class AlarmRescheduleTaskListener
+    {
+        public void onFinished(AlarmRescheduleResult result) {}
+    }
+}
@@ -0,0 +1,149 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.alarmclock;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.forrestguice.suntimeswidget.calculator.core.Location;
+import com.forrestguice.suntimeswidget.settings.WidgetSettings;
+
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * SunElevationDaySearch
+ * Predicts which days the sun reaches a given elevation (using the solar declination), so that alarms can
+ * skip ahead to the next day that may have an event (and that matches the alarm's repeating days) instead
+ * of calculating every day in between (e.g. polar night and midnight sun, where an elevation may be out of
+ * reach for months at a time).
+ *
+ * The sun's highest elevation on a given day is 90 - |latitude - declination|, and its lowest elevation is
+ * |latitude + declination| - 90; an elevation is crossed only if it falls between the two. The prediction is
+ * conservative (allowing a MARGIN for refraction, horizon dip, the change in declination over a day, and the
+ * differences between calculators); a predicted day may still turn out not to have an event.
+ */
+public class SunElevationDaySearch
+{
+    public static final int MAX_SEARCH_DAYS = 366 + 7;
+    public static final double MARGIN = 1.0;                     // degrees
+    public static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    /**
+     * @param millis time
+     * @return solar declination (degrees); low precision (~0.01 degrees)
+     */
+    public static double declination(long millis)
+    {
+        double n = (millis / (double) DAY_MILLIS) - 10957.5;    // days since J2000.0
+        double meanLongitude = 280.460 + (0.9856474 * n);
+        double meanAnomaly = Math.toRadians(357.528 + (0.9856003 * n));
+        double eclipticLongitude = Math.toRadians(meanLongitude + (1.915 * Math.sin(meanAnomaly)) + (0.020 * Math.sin(2 * meanAnomaly)));
+        double obliquity = Math.toRadians(23.439 - (0.0000004 * n));
+        return Math.toDegrees(Math.asin(Math.sin(obliquity) * Math.sin(eclipticLongitude)));
+    }
+
+    public static double maxElevation(double latitude, double declination) {
+        return 90 - Math.abs(latitude - declination);
+    }
+
+    public static double minElevation(double latitude, double declination) {
+        return Math.abs(latitude + declination) - 90;
+    }
+
+    /**
+     * @return true if `angle` may be crossed on the day of `millis`
+     */
+    public static boolean isReachable(double latitude, double angle, long millis, double margin)
+    {
+        double declination = declination(millis);
+        return (angle > minElevation(latitude, declination) - margin)
+                && (angle < maxElevation(latitude, declination) + margin);
+    }
+
+    /**
+     * @return the elevation (degrees) of a TimeMode's events, or null (noon; every day has one)
+     */
+    @Nullable
+    public static Double angle(@Nullable WidgetSettings.TimeMode mode)
+    {
+        if (mode == null) {
+            return null;
+        }
+        switch (mode)
+        {
+            case NOON: return null;
+            case OFFICIAL: return -0.833;
+            default: return mode.angle();
+        }
+    }
+
+    /**
+     * @return MARGIN (degrees), plus the horizon dip (when the location uses altitude)
+     */
+    public static double margin(@NonNull Location location)
+    {
+        double altitude = location.getAltitudeAsDouble();
+        return MARGIN + (altitude > 0 ? 0.0293 * Math.sqrt(altitude) : 0);
+    }
+
+    /**
+     * Advances `day` (by whole days) to the first day (starting with `day` itself) that may have an event and
+     * that may match `repeatingDays`. An event (plus its offset) may fall on a neighboring day (e.g. an offset
+     * that crosses midnight, or a polar sunset after midnight), so days next to a repeating day also qualify;
+     * callers should still check the day of the week of the event itself.
+     *
+     * @param day the day to start from; this calendar is modified
+     * @param timezone the timezone the event's day of the week is determined in
+     * @param latitude latitude (degrees)
+     * @param angle elevation (degrees), or null (an event that occurs every day; e.g. noon)
+     * @param margin degrees (see margin(Location))
+     * @param repeatingDays days of the week (Calendar.DAY_OF_WEEK), or null (any day)
+     * @param maxDays the maximum number of days to advance
+     * @return the number of days advanced, or -1 if no day qualifies within maxDays (`day` is left at maxDays)
+     */
+    public static int advanceToCandidate(@NonNull Calendar day, @NonNull TimeZone timezone, double latitude, @Nullable Double angle, double margin, @Nullable List<Integer> repeatingDays, int maxDays)
+    {
+        Calendar local = Calendar.getInstance(timezone);
+        for (int i = 0; i <= maxDays; i++)
+        {
+            if (i > 0) {
+                day.add(Calendar.DAY_OF_YEAR, 1);
+            }
+            local.setTimeInMillis(day.getTimeInMillis());
+            if ((repeatingDays == null || isNearRepeatingDay(local, repeatingDays))
+                    && (angle == null || isReachable(latitude, angle, day.getTimeInMillis(), margin))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return true if the day of `local`, or the day before or after it, is one of `repeatingDays`
+     */
+    public static boolean isNearRepeatingDay(@NonNull Calendar local, @NonNull List<Integer> repeatingDays)
+    {
+        int dayOfWeek = local.get(Calendar.DAY_OF_WEEK);
+        int before = (dayOfWeek == Calendar.SUNDAY ? Calendar.SATURDAY : dayOfWeek - 1);
+        int after = (dayOfWeek == Calendar.SATURDAY ? Calendar.SUNDAY : dayOfWeek + 1);
+        return repeatingDays.contains(dayOfWeek) || repeatingDays.contains(before) || repeatingDays.contains(after);
+    }
+}
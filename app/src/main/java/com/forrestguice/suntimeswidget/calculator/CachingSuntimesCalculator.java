@@ -0,0 +1,604 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.calculator;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+
+import com.forrestguice.suntimeswidget.calculator.core.Location;
+import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator;
+import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator2;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * A SuntimesCalculator decorator that memoizes per-day (and per-year) event results in the
+ * process-wide SuntimesEventCache. Results are keyed by calculator name, rounded location, timezone,
+ * and local date; methods that depend on the time of day (position, illumination, etc) are passed
+ * through to the wrapped calculator.
+ *
+ * Cached Calendars are never handed out directly; callers receive a clone of the cached value.
+ */
+public class CachingSuntimesCalculator implements SuntimesCalculator, SuntimesCalculator2
+{
+    protected static final int EVENT_SUNRISE_ASTRO = 0, EVENT_SUNRISE_NAUTICAL = 1, EVENT_SUNRISE_CIVIL = 2, EVENT_SUNRISE = 3, EVENT_NOON = 4,
+            EVENT_SUNSET = 5, EVENT_SUNSET_CIVIL = 6, EVENT_SUNSET_NAUTICAL = 7, EVENT_SUNSET_ASTRO = 8,
+            EVENT_BLUE_MORNING = 9, EVENT_BLUE_EVENING = 10, EVENT_GOLDEN_MORNING = 11, EVENT_GOLDEN_EVENING = 12,
+            EVENT_SUNRISE_ANGLE = 13, EVENT_SUNSET_ANGLE = 14, EVENT_MOONTIMES = 15,
+            EVENT_EQUINOX_SPRING = 16, EVENT_SOLSTICE_SUMMER = 17, EVENT_EQUINOX_AUTUMN = 18, EVENT_SOLSTICE_WINTER = 19;
+
+    public static final double LATLON_PRECISION = Location.COORDINATE_KEY_PRECISION;    // rounded to 4 decimal places (~11m)
+
+    protected final SuntimesCalculator calculator;
+    protected final SuntimesCalculator2 calculator2;
+    protected final SuntimesEventCache cache;
+    protected String calculatorKey;
+
+    public CachingSuntimesCalculator(@NonNull SuntimesCalculator calculator) {
+        this(calculator, SuntimesEventCache.getInstance());
+    }
+
+    public CachingSuntimesCalculator(@NonNull SuntimesCalculator calculator, @NonNull SuntimesEventCache cache)
+    {
+        this.calculator = calculator;
+        this.calculator2 = SuntimesCalculator2Adapter.of(calculator);
+        this.cache = cache;
+        this.calculatorKey = createKey(calculator);
+    }
+
+    /**
+     * @return the wrapped calculator
+     */
+    public SuntimesCalculator getCalculator() {
+        return calculator;
+    }
+
+    /**
+     * @return a key identifying the calculator by name, rounded lat/lon/alt, and timezone
+     */
+    public static String createKey(SuntimesCalculator calculator)
+    {
+        Location location = calculator.getLocation();
+        TimeZone timezone = calculator.getTimeZone();
+        StringBuilder key = new StringBuilder(calculator.name());
+        if (location != null)
+        {
+            try {
+                key.append("|").append(location.getCoordinateKey());
+
+            } catch (NumberFormatException e) {
+                key.append("|").append(location.toString()).append(",").append(location.getAltitude());
+            }
+        }
+        if (timezone != null) {
+            key.append("|").append(timezone.getID()).append(",").append(timezone.getRawOffset());
+        }
+        return key.toString();
+    }
+
+    protected static long localDay(long millis, TimeZone timezone) {
+        return (long) Math.floor((millis + timezone.getOffset(millis)) / (double) SuntimesData.DAY_MILLIS);
+    }
+
+    protected SuntimesEventCache.Key createKey(int event, Calendar date, long param)
+    {
+        long millis = date.getTimeInMillis();
+        TimeZone dateZone = date.getTimeZone();
+        TimeZone zone = calculator.getTimeZone();
+        long day0 = localDay(millis, (zone != null ? zone : dateZone));
+        long day1 = localDay(millis, dateZone);
+        return new SuntimesEventCache.Key(calculatorKey, dateZone.getID(), event, day0, day1, param);
+    }
+
+    /**
+     * @return a key for the day containing `millis` (in the calculator's timezone); the same key as
+     * createKey(event, date, param) given a date in that timezone.
+     */
+    protected SuntimesEventCache.Key createKey(int event, long millis, long param)
+    {
+        TimeZone zone = calculator.getTimeZone();
+        if (zone == null) {
+            zone = TimeZone.getDefault();
+        }
+        long day = localDay(millis, zone);
+        return new SuntimesEventCache.Key(calculatorKey, zone.getID(), event, day, day, param);
+    }
+
+    protected SuntimesEventCache.Key createYearKey(int event, Calendar date) {
+        return new SuntimesEventCache.Key(calculatorKey, date.getTimeZone().getID(), event, date.get(Calendar.YEAR), 0, 0);
+    }
+
+    protected static Calendar copy(Calendar calendar) {
+        return (calendar != null ? (Calendar) calendar.clone() : null);
+    }
+
+    protected static Calendar[] copy(Calendar[] calendars)
+    {
+        Calendar[] retValue = new Calendar[calendars.length];
+        for (int i=0; i<calendars.length; i++) {
+            retValue[i] = copy(calendars[i]);
+        }
+        return retValue;
+    }
+
+    /**
+     * Single
+     */
+    protected abstract static class Single {
+        public abstract Calendar calculate();
+    }
+    protected Calendar getCached(SuntimesEventCache.Key key, Single task)
+    {
+        Calendar[] cached = cache.get(key);
+        if (cached == null) {
+            cache.put(key, (cached = new Calendar[] { copy(task.calculate()) }));
+        }
+        return copy(cached[0]);
+    }
+
+    /**
+     * Multiple
+     */
+    protected abstract static class Multiple {
+        public abstract Calendar[] calculate();
+    }
+    protected Calendar[] getCached(SuntimesEventCache.Key key, Multiple task)
+    {
+        Calendar[] cached = cache.get(key);
+        if (cached == null)
+        {
+            Calendar[] result = task.calculate();
+            if (result == null) {
+                return null;
+            }
+            cache.put(key, (cached = copy(result)));
+        }
+        return copy(cached);
+    }
+
+    @Override
+    public String name() {
+        return calculator.name();
+    }
+
+    @Override
+    public int[] getSupportedFeatures() {
+        return calculator.getSupportedFeatures();
+    }
+
+    @Override
+    public void init(Location location, String timezone) {
+        init(location, TimeZone.getTimeZone(timezone));
+    }
+
+    @Override
+    public void init(Location location, TimeZone timezone) {
+        init(location, timezone, null);
+    }
+
+    @Override
+    public void init(Location location, TimeZone timezone, Context context)
+    {
+        calculator.init(location, timezone, context);
+        calculatorKey = createKey(calculator);
+    }
+
+    @Override
+    public Calendar getAstronomicalSunriseCalendarForDate(final Calendar date)
+    {
+        return getCached(createKey(EVENT_SUNRISE_ASTRO, date, 0), new Single() {
+            public Calendar calculate() {
+                return calculator.getAstronomicalSunriseCalendarForDate(date);
+            }
+        });
+    }
+
+    @Override
+    public Calendar getNauticalSunriseCalendarForDate(final Calendar date)
+    {
+        return getCached(createKey(EVENT_SUNRISE_NAUTICAL, date, 0), new Single() {
+            public Calendar calculate() {
+                return calculator.getNauticalSunriseCalendarForDate(date);
+            }
+        });
+    }
+
+    @Override
+    public Calendar getCivilSunriseCalendarForDate(final Calendar date)
+    {
+        return getCached(createKey(EVENT_SUNRISE_CIVIL, date, 0), new Single() {
+            public Calendar calculate() {
+                return calculator.getCivilSunriseCalendarForDate(date);
+            }
+        });
+    }
+
+    @Override
+    public Calendar getOfficialSunriseCalendarForDate(final Calendar date)
+    {
+        return getCached(createKey(EVENT_SUNRISE, date, 0), new Single() {
+            public Calendar calculate() {
+                return calculator.getOfficialSunriseCalendarForDate(date);
+            }
+        });
+    }
+
+    @Override
+    public Calendar getSolarNoonCalendarForDate(final Calendar date)
+    {
+        return getCached(createKey(EVENT_NOON, date, 0), new Single() {
+            public Calendar calculate() {
+                return calculator.getSolarNoonCalendarForDate(date);
+            }
+        });
+    }
+
+    @Override
+    public Calendar getOfficialSunsetCalendarForDate(final Calendar date)
+    {
+        return getCached(createKey(EVENT_SUNSET, date, 0), new Single() {
+            public Calendar calculate() {
+                return calculator.getOfficialSunsetCalendarForDate(date);
+            }
+        });
+    }
+
+    @Override
+    public Calendar getCivilSunsetCalendarForDate(final Calendar date)
+    {
+        return getCached(createKey(EVENT_SUNSET_CIVIL, date, 0), new Single() {
+            public Calendar calculate() {
+                return calculator.getCivilSunsetCalendarForDate(date);
+            }
+        });
+    }
+
+    @Override
+    public Calendar getNauticalSunsetCalendarForDate(final Calendar date)
+    {
+        return getCached(createKey(EVENT_SUNSET_NAUTICAL, date, 0), new Single() {
+            public Calendar calculate() {
+                return calculator.getNauticalSunsetCalendarForDate(date);
+            }
+        });
+    }
+
+    @Override
+    public Calendar getAstronomicalSunsetCalendarForDate(final Calendar date)
+    {
+        return getCached(createKey(EVENT_SUNSET_ASTRO, date, 0), new Single() {
+            public Calendar calculate() {
+                return calculator.getAstronomicalSunsetCalendarForDate(date);
+            }
+        });
+    }
+
+    @Override
+    public Calendar getSunriseCalendarForDate(final Calendar date, final double angle)
+    {
+        return getCached(createKey(EVENT_SUNRISE_ANGLE, date, Double.doubleToLongBits(angle)), new Single() {
+            public Calendar calculate() {
+                return calculator.getSunriseCalendarForDate(date, angle);
+            }
+        });
+    }
+
+    @Override
+    public Calendar getSunsetCalendarForDate(final Calendar date, final double angle)
+    {
+        return getCached(createKey(EVENT_SUNSET_ANGLE, date, Double.doubleToLongBits(angle)), new Single() {
+            public Calendar calculate() {
+                return calculator.getSunsetCalendarForDate(date, angle);
+            }
+        });
+    }
+
+    @Override
+    public Calendar[] getMorningBlueHourForDate(final Calendar date)
+    {
+        return getCached(createKey(EVENT_BLUE_MORNING, date, 0), new Multiple() {
+            public Calendar[] calculate() {
+                return calculator.getMorningBlueHourForDate(date);
+            }
+        });
+    }
+
+    @Override
+    public Calendar[] getEveningBlueHourForDate(final Calendar date)
+    {
+        return getCached(createKey(EVENT_BLUE_EVENING, date, 0), new Multiple() {
+            public Calendar[] calculate() {
+                return calculator.getEveningBlueHourForDate(date);
+            }
+        });
+    }
+
+    @Override
+    public Calendar getMorningGoldenHourForDate(final Calendar date)
+    {
+        return getCached(createKey(EVENT_GOLDEN_MORNING, date, 0), new Single() {
+            public Calendar calculate() {
+                return calculator.getMorningGoldenHourForDate(date);
+            }
+        });
+    }
+
+    @Override
+    public Calendar getEveningGoldenHourForDate(final Calendar date)
+    {
+        return getCached(createKey(EVENT_GOLDEN_EVENING, date, 0), new Single() {
+            public Calendar calculate() {
+                return calculator.getEveningGoldenHourForDate(date);
+            }
+        });
+    }
+
+    @Override
+    @Deprecated
+    public Calendar getVernalEquinoxForYear(Calendar date) {
+        return getSpringEquinoxForYear(date);
+    }
+
+    @Override
+    public Calendar getSpringEquinoxForYear(final Calendar date)
+    {
+        return getCached(createYearKey(EVENT_EQUINOX_SPRING, date), new Single() {
+            public Calendar calculate() {
+                return calculator.getSpringEquinoxForYear(date);
+            }
+        });
+    }
+
+    @Override
+    public Calendar getSummerSolsticeForYear(final Calendar date)
+    {
+        return getCached(createYearKey(EVENT_SOLSTICE_SUMMER, date), new Single() {
+            public Calendar calculate() {
+                return calculator.getSummerSolsticeForYear(date);
+            }
+        });
+    }
+
+    @Override
+    public Calendar getAutumnalEquinoxForYear(final Calendar date)
+    {
+        return getCached(createYearKey(EVENT_EQUINOX_AUTUMN, date), new Single() {
+            public Calendar calculate() {
+                return calculator.getAutumnalEquinoxForYear(date);
+            }
+        });
+    }
+
+    @Override
+    public Calendar getWinterSolsticeForYear(final Calendar date)
+    {
+        return getCached(createYearKey(EVENT_SOLSTICE_WINTER, date), new Single() {
+            public Calendar calculate() {
+                return calculator.getWinterSolsticeForYear(date);
+            }
+        });
+    }
+
+    @Override
+    public MoonTimes getMoonTimesForDate(final Calendar date)
+    {
+        Calendar[] times = getCached(createKey(EVENT_MOONTIMES, date, 0), new Multiple()
+        {
+            public Calendar[] calculate()
+            {
+                MoonTimes moonTimes = calculator.getMoonTimesForDate(date);
+                return (moonTimes != null ? new Calendar[] { moonTimes.riseTime, moonTimes.setTime } : null);
+            }
+        });
+
+        if (times != null)
+        {
+            MoonTimes result = new MoonTimes();
+            result.riseTime = times[0];
+            result.setTime = times[1];
+            return result;
+        } else return null;
+    }
+
+    @Override
+    public boolean isDay(Calendar dateTime) {
+        return calculator.isDay(dateTime);
+    }
+
+    @Override
+    public double getMoonIlluminationForDate(Calendar dateTime) {
+        return calculator.getMoonIlluminationForDate(dateTime);
+    }
+
+    @Override
+    public Calendar getMoonPhaseNextDate(MoonPhase phase, Calendar date) {
+        return calculator.getMoonPhaseNextDate(phase, date);
+    }
+
+    @Override
+    public SunPosition getSunPosition(Calendar dateTime) {
+        return calculator.getSunPosition(dateTime);
+    }
+
+    @Override
+    public MoonPosition getMoonPosition(Calendar dateTime) {
+        return calculator.getMoonPosition(dateTime);
+    }
+
+    @Override
+    public double getShadowLength(double objHeight, Calendar dateTime) {
+        return calculator.getShadowLength(objHeight, dateTime);
+    }
+
+    @Override
+    public double equationOfTime(Calendar dateTime) {
+        return calculator.equationOfTime(dateTime);
+    }
+
+    @Override
+    public Calendar getMoonPerigeeNextDate(Calendar date) {
+        return calculator.getMoonPerigeeNextDate(date);
+    }
+
+    @Override
+    public Calendar getMoonApogeeNextDate(Calendar date) {
+        return calculator.getMoonApogeeNextDate(date);
+    }
+
+    @Override
+    public Location getLocation() {
+        return calculator.getLocation();
+    }
+
+    @Override
+    public TimeZone getTimeZone() {
+        return calculator.getTimeZone();
+    }
+
+    @Override
+    public long getTropicalYearLength(Calendar date) {
+        return calculator.getTropicalYearLength(date);
+    }
+
+    /**
+     * SuntimesCalculator2; daily events share cache entries with the Calendar methods.
+     */
+    protected long getCachedMillis(SuntimesEventCache.Key key, long dayMillis, int event) {
+        return getCachedMillis(key, 0, dayMillis, event, -1);
+    }
+    protected long getCachedMillis(SuntimesEventCache.Key key, int i, long dayMillis, int event0, int event1)
+    {
+        Calendar[] cached = cache.get(key);
+        if (cached == null)
+        {
+            TimeZone zone = calculator.getTimeZone();
+            Calendar calendar0 = SuntimesDailyEvents.toCalendar(calculator2.sunEventMillis(dayMillis, event0), zone);
+            cached = (event1 >= 0 ? new Calendar[] { calendar0, SuntimesDailyEvents.toCalendar(calculator2.sunEventMillis(dayMillis, event1), zone) }
+                                  : new Calendar[] { calendar0 });
+            cache.put(key, cached);
+        }
+        return (i < cached.length ? SuntimesDailyEvents.toMillis(cached[i]) : NONE);
+    }
+
+    @Override
+    public long sunEventMillis(long dayMillis, int event)
+    {
+        switch (event)
+        {
+            case SUN_ACTUAL_RISE: return getCachedMillis(createKey(EVENT_SUNRISE, dayMillis, 0), dayMillis, event);
+            case SUN_ACTUAL_SET: return getCachedMillis(createKey(EVENT_SUNSET, dayMillis, 0), dayMillis, event);
+            case SUN_CIVIL_RISE: return getCachedMillis(createKey(EVENT_SUNRISE_CIVIL, dayMillis, 0), dayMillis, event);
+            case SUN_CIVIL_SET: return getCachedMillis(createKey(EVENT_SUNSET_CIVIL, dayMillis, 0), dayMillis, event);
+            case SUN_NAUTICAL_RISE: return getCachedMillis(createKey(EVENT_SUNRISE_NAUTICAL, dayMillis, 0), dayMillis, event);
+            case SUN_NAUTICAL_SET: return getCachedMillis(createKey(EVENT_SUNSET_NAUTICAL, dayMillis, 0), dayMillis, event);
+            case SUN_ASTRO_RISE: return getCachedMillis(createKey(EVENT_SUNRISE_ASTRO, dayMillis, 0), dayMillis, event);
+            case SUN_ASTRO_SET: return getCachedMillis(createKey(EVENT_SUNSET_ASTRO, dayMillis, 0), dayMillis, event);
+            case SUN_NOON: return getCachedMillis(createKey(EVENT_NOON, dayMillis, 0), dayMillis, event);
+            case SUN_GOLDEN_MORNING: return getCachedMillis(createKey(EVENT_GOLDEN_MORNING, dayMillis, 0), dayMillis, event);
+            case SUN_GOLDEN_EVENING: return getCachedMillis(createKey(EVENT_GOLDEN_EVENING, dayMillis, 0), dayMillis, event);
+            case SUN_BLUE8_RISE: return getCachedMillis(createKey(EVENT_BLUE_MORNING, dayMillis, 0), 0, dayMillis, SUN_BLUE8_RISE, SUN_BLUE4_RISE);
+            case SUN_BLUE4_RISE: return getCachedMillis(createKey(EVENT_BLUE_MORNING, dayMillis, 0), 1, dayMillis, SUN_BLUE8_RISE, SUN_BLUE4_RISE);
+            case SUN_BLUE4_SET: return getCachedMillis(createKey(EVENT_BLUE_EVENING, dayMillis, 0), 0, dayMillis, SUN_BLUE4_SET, SUN_BLUE8_SET);
+            case SUN_BLUE8_SET: return getCachedMillis(createKey(EVENT_BLUE_EVENING, dayMillis, 0), 1, dayMillis, SUN_BLUE4_SET, SUN_BLUE8_SET);
+            default: return NONE;
+        }
+    }
+
+    @Override
+    public long sunriseMillis(long dayMillis, double angle)
+    {
+        SuntimesEventCache.Key key = createKey(EVENT_SUNRISE_ANGLE, dayMillis, Double.doubleToLongBits(angle));
+        Calendar[] cached = cache.get(key);
+        if (cached == null) {
+            cache.put(key, (cached = new Calendar[] { SuntimesDailyEvents.toCalendar(calculator2.sunriseMillis(dayMillis, angle), calculator.getTimeZone()) }));
+        }
+        return SuntimesDailyEvents.toMillis(cached[0]);
+    }
+
+    @Override
+    public long sunsetMillis(long dayMillis, double angle)
+    {
+        SuntimesEventCache.Key key = createKey(EVENT_SUNSET_ANGLE, dayMillis, Double.doubleToLongBits(angle));
+        Calendar[] cached = cache.get(key);
+        if (cached == null) {
+            cache.put(key, (cached = new Calendar[] { SuntimesDailyEvents.toCalendar(calculator2.sunsetMillis(dayMillis, angle), calculator.getTimeZone()) }));
+        }
+        return SuntimesDailyEvents.toMillis(cached[0]);
+    }
+
+    @Override
+    public boolean moonTimes(long dayMillis, long[] out)
+    {
+        SuntimesEventCache.Key key = createKey(EVENT_MOONTIMES, dayMillis, 0);
+        Calendar[] cached = cache.get(key);
+        if (cached == null)
+        {
+            if (!calculator2.moonTimes(dayMillis, out)) {
+                return false;
+            }
+            TimeZone zone = calculator.getTimeZone();
+            cache.put(key, new Calendar[] { SuntimesDailyEvents.toCalendar(out[MOON_RISE], zone), SuntimesDailyEvents.toCalendar(out[MOON_SET], zone) });
+            return true;
+        }
+        out[MOON_RISE] = SuntimesDailyEvents.toMillis(cached[0]);
+        out[MOON_SET] = SuntimesDailyEvents.toMillis(cached[1]);
+        return true;
+    }
+
+    @Override
+    public boolean isDay(long millis) {
+        return calculator2.isDay(millis);
+    }
+
+    @Override
+    public boolean sunPosition(long millis, double[] out) {
+        return calculator2.sunPosition(millis, out);
+    }
+
+    @Override
+    public boolean moonPosition(long millis, double[] out) {
+        return calculator2.moonPosition(millis, out);
+    }
+
+    @Override
+    public boolean sunPositions(long[] times, double[] azimuth, double[] elevation, double[] rightAscension, double[] declination) {
+        return calculator2.sunPositions(times, azimuth, elevation, rightAscension, declination);
+    }
+
+    @Override
+    public boolean moonPositions(long[] times, double[] azimuth, double[] elevation, double[] rightAscension, double[] declination, double[] distance) {
+        return calculator2.moonPositions(times, azimuth, elevation, rightAscension, declination, distance);
+    }
+
+    @Override
+    public double moonIllumination(long millis) {
+        return calculator2.moonIllumination(millis);
+    }
+
+    @Override
+    public long moonPhaseNextMillis(MoonPhase phase, long millis) {
+        return calculator2.moonPhaseNextMillis(phase, millis);
+    }
+
+    @Override
+    public double equationOfTime(long millis) {
+        return calculator2.equationOfTime(millis);
+    }
+}
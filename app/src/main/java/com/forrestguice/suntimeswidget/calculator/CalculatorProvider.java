@@ -48,6 +48,7 @@ import com.forrestguice.suntimeswidget.settings.AppSettings;
 import com.forrestguice.suntimeswidget.settings.WidgetSettings;
 
 import static com.forrestguice.suntimeswidget.calculator.core.CalculatorProviderContract.*;
+import static com.forrestguice.suntimeswidget.calculator.SuntimesDailyEvents.*;
 
 /**
  * CalculatorProvider
@@ -168,33 +169,33 @@ public class CalculatorProvider extends ContentProvider
 
             case URIMATCH_SEASONS:
                 //Log.d("CalculatorProvider", "URIMATCH_SEASONS");
-                retValue = querySeasons(new long[] {now, now}, uri, projection, selectionMap, sortOrder);
+                retValue = querySeasons(new long[] {now, now}, false, uri, projection, selectionMap, sortOrder);
                 break;
             case URIMATCH_SEASONS_FOR_YEAR:
                 //Log.d("CalculatorProvider", "URIMATCH_SEASONS_FOR_YEAR");
                 Calendar dateTime = now(selectionMap);
                 dateTime.set(Calendar.YEAR, (int)parseDate(uri, Calendar.getInstance().get(Calendar.YEAR)));
-                retValue = querySeasons(new long[] { dateTime.getTimeInMillis(), dateTime.getTimeInMillis() }, uri, projection, selectionMap, sortOrder);
+                retValue = querySeasons(new long[] { dateTime.getTimeInMillis(), dateTime.getTimeInMillis() }, false, uri, projection, selectionMap, sortOrder);
                 break;
             case URIMATCH_SEASONS_FOR_RANGE:
                 //Log.d("CalculatorProvider", "URIMATCH_SEASONS_FOR_RANGE");
                 range = parseYearRange(uri.getLastPathSegment());
-                retValue = querySeasons(range, uri, projection, selectionMap, sortOrder);
+                retValue = querySeasons(range, true, uri, projection, selectionMap, sortOrder);
                 break;
 
             case URIMATCH_SUN:
                 //Log.d("CalculatorProvider", "URIMATCH_SUN");
-                retValue = querySun(new long[] {now, now}, uri, projection, selectionMap, sortOrder);
+                retValue = querySun(new long[] {now, now}, false, uri, projection, selectionMap, sortOrder);
                 break;
             case URIMATCH_SUN_FOR_DATE:
                 //Log.d("CalculatorProvider", "URIMATCH_SUN_FOR_DATE");
                 date = parseDate(uri);
-                retValue = querySun(new long[] {date, date}, uri, projection, selectionMap, sortOrder);
+                retValue = querySun(new long[] {date, date}, false, uri, projection, selectionMap, sortOrder);
                 break;
             case URIMATCH_SUN_FOR_RANGE:
                 //Log.d("CalculatorProvider", "URIMATCH_SUN_FOR_RANGE");
                 range = parseDateRange(uri.getLastPathSegment());
-                retValue = querySun(range, uri, projection, selectionMap, sortOrder);
+                retValue = querySun(range, true, uri, projection, selectionMap, sortOrder);
                 break;
 
             case URIMATCH_SUNPOS:
@@ -209,17 +210,17 @@ public class CalculatorProvider extends ContentProvider
 
             case URIMATCH_MOON:
                 //Log.d("CalculatorProvider", "URIMATCH_MOON");
-                retValue = queryMoon(new long[] {now, now}, uri, projection, selectionMap, sortOrder);
+                retValue = queryMoon(new long[] {now, now}, false, uri, projection, selectionMap, sortOrder);
                 break;
             case URIMATCH_MOON_FOR_DATE:
                 //Log.d("CalculatorProvider", "URIMATCH_MOON_FOR_DATE");
                 date = parseDate(uri);
-                retValue = queryMoon(new long[] {date, date}, uri, projection, selectionMap, sortOrder);
+                retValue = queryMoon(new long[] {date, date}, false, uri, projection, selectionMap, sortOrder);
                 break;
             case URIMATCH_MOON_FOR_RANGE:
                 //Log.d("CalculatorProvider", "URIMATCH_MOON_FOR_RANGE");
                 range = parseDateRange(uri.getLastPathSegment());
-                retValue = queryMoon(range, uri, projection, selectionMap, sortOrder);
+                retValue = queryMoon(range, true, uri, projection, selectionMap, sortOrder);
                 break;
 
             case URIMATCH_MOONPOS:
@@ -429,12 +430,12 @@ public class CalculatorProvider extends ContentProvider
 
     /**
      * querySun
+     * @param windowed true returns a WindowedRangeCursor (rows computed on demand), false a fully materialized MatrixCursor
      */
-    private Cursor querySun(long[] range, @NonNull Uri uri, @Nullable String[] projection, HashMap<String, String> selection, @Nullable String sortOrder)
+    private Cursor querySun(long[] range, boolean windowed, @NonNull Uri uri, @Nullable String[] projection, HashMap<String, String> selection, @Nullable String sortOrder)
     {
-        String[] columns = (projection != null ? projection : QUERY_SUN_PROJECTION);
-        MatrixCursor retValue = new MatrixCursor(columns);
-        SuntimesCalculator calculator = initSunCalculator(getContext(), selection);
+        final String[] columns = (projection != null ? projection : QUERY_SUN_PROJECTION);
+        final SuntimesCalculator calculator = initSunCalculator(getContext(), selection);
         if (calculator != null)
         {
             Calendar day = Calendar.getInstance(calculator.getTimeZone());
@@ -443,187 +444,181 @@ public class CalculatorProvider extends ContentProvider
             Calendar endDay = Calendar.getInstance(calculator.getTimeZone());
             endDay.setTimeInMillis(range[1] + 1000);      // +1000ms (make range[1] inclusive)
 
-            do {
-                Map<String,SuntimesCalculator.SunPosition> positions = new HashMap<>();
-                SuntimesCalculator.SunPosition position;
-
-                Calendar calendar;
-                Calendar[] morningBlueHour = null, eveningBlueHour = null;
-                Object[] row = new Object[columns.length];
-                for (int i=0; i<columns.length; i++)
+            return createCursor(columns, windowed, new RangeRowSource(day, endDay, Calendar.DAY_OF_YEAR)
+            {
+                @Override
+                protected void computeRange(Calendar first, Calendar last, final WindowedRangeCursor.RowConsumer consumer)
                 {
-                    switch (columns[i])
+                    SuntimesDailyEvents.sunEventsForRange(calculator, first, last, new SuntimesDailyEvents.RangeCallback()
                     {
-                        case COLUMN_SUN_ACTUAL_RISE:
-                            calendar = calculator.getOfficialSunriseCalendarForDate(day);
-                            row[i] = (calendar != null) ? calendar.getTimeInMillis() : null;
-                            break;
-                        case COLUMN_SUN_ACTUAL_SET:
-                            calendar = calculator.getOfficialSunsetCalendarForDate(day);
-                            row[i] = (calendar != null) ? calendar.getTimeInMillis() : null;
-                            break;
-
-                        case COLUMN_SUN_CIVIL_RISE:
-                            calendar = calculator.getCivilSunriseCalendarForDate(day);
-                            row[i] = (calendar != null) ? calendar.getTimeInMillis() : null;
-                            break;
-                        case COLUMN_SUN_CIVIL_SET:
-                            calendar = calculator.getCivilSunsetCalendarForDate(day);
-                            row[i] = (calendar != null) ? calendar.getTimeInMillis() : null;
-                            break;
-
-                        case COLUMN_SUN_NAUTICAL_RISE:
-                            calendar = calculator.getNauticalSunriseCalendarForDate(day);
-                            row[i] = (calendar != null) ? calendar.getTimeInMillis() : null;
-                            break;
-                        case COLUMN_SUN_NAUTICAL_SET:
-                            calendar = calculator.getNauticalSunsetCalendarForDate(day);
-                            row[i] = (calendar != null) ? calendar.getTimeInMillis() : null;
-                            break;
-
-                        case COLUMN_SUN_ASTRO_RISE:
-                            calendar = calculator.getAstronomicalSunriseCalendarForDate(day);
-                            row[i] = (calendar != null) ? calendar.getTimeInMillis() : null;
-                            break;
-                        case COLUMN_SUN_ASTRO_SET:
-                            calendar = calculator.getAstronomicalSunsetCalendarForDate(day);
-                            row[i] = (calendar != null) ? calendar.getTimeInMillis() : null;
-                            break;
-
-                        case COLUMN_SUN_NOON:
-                            calendar = calculator.getSolarNoonCalendarForDate(day);
-                            row[i] = (calendar != null) ? calendar.getTimeInMillis() : null;
-                            break;
-
-                        case COLUMN_SUN_GOLDEN_EVENING:
-                            calendar = calculator.getEveningGoldenHourForDate(day);
-                            row[i] = (calendar != null) ? calendar.getTimeInMillis() : null;
-                            break;
-                        case COLUMN_SUN_GOLDEN_MORNING:
-                            calendar =  calculator.getMorningGoldenHourForDate(day);
-                            row[i] = (calendar != null) ? calendar.getTimeInMillis() : null;
-                            break;
-
-                        case COLUMN_SUN_BLUE8_RISE:
-                            if (morningBlueHour == null) {
-                                morningBlueHour = calculator.getMorningBlueHourForDate(day);
-                            }
-                            row[i] = (morningBlueHour[0] != null) ? morningBlueHour[0].getTimeInMillis() : null;
-                            break;
-                        case COLUMN_SUN_BLUE4_RISE:
-                            if (morningBlueHour == null) {
-                                morningBlueHour = calculator.getMorningBlueHourForDate(day);
-                            }
-                            row[i] = (morningBlueHour[1] != null) ? morningBlueHour[1].getTimeInMillis() : null;
-                            break;
-
-                        case COLUMN_SUN_BLUE4_SET:
-                            if (eveningBlueHour == null) {
-                                eveningBlueHour = calculator.getEveningBlueHourForDate(day);
-                            }
-                            row[i] = (eveningBlueHour[0] != null) ? eveningBlueHour[0].getTimeInMillis() : null;
-                            break;
-                        case COLUMN_SUN_BLUE8_SET:
-                            if (eveningBlueHour == null) {
-                                eveningBlueHour = calculator.getEveningBlueHourForDate(day);
-                            }
-                            row[i] = (eveningBlueHour[1] != null) ? eveningBlueHour[1].getTimeInMillis() : null;
-                            break;
-
-                        case COLUMN_SUN_NOON_AZ: case COLUMN_SUN_NOON_ALT:
-                        case COLUMN_SUN_NOON_RA: case COLUMN_SUN_NOON_DEC:
-                            calendar = calculator.getSolarNoonCalendarForDate(day);
-                            row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_NOON, columns[i], positions);
-                            break;
-
-                        case COLUMN_SUN_ACTUAL_RISE_AZ: case COLUMN_SUN_ACTUAL_RISE_ALT:
-                        case COLUMN_SUN_ACTUAL_RISE_RA: case COLUMN_SUN_ACTUAL_RISE_DEC:
-                            calendar = calculator.getOfficialSunriseCalendarForDate(day);
-                            row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_ACTUAL_RISE, columns[i], positions);
-                            break;
-                        case COLUMN_SUN_ACTUAL_SET_AZ: case COLUMN_SUN_ACTUAL_SET_ALT:
-                        case COLUMN_SUN_ACTUAL_SET_RA: case COLUMN_SUN_ACTUAL_SET_DEC:
-                            calendar = calculator.getOfficialSunsetCalendarForDate(day);
-                            row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_ACTUAL_SET, columns[i], positions);
-                            break;
-
-                        case COLUMN_SUN_CIVIL_RISE_AZ: case COLUMN_SUN_CIVIL_RISE_ALT:
-                        case COLUMN_SUN_CIVIL_RISE_RA: case COLUMN_SUN_CIVIL_RISE_DEC:
-                            calendar = calculator.getCivilSunriseCalendarForDate(day);
-                            row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_CIVIL_RISE, columns[i], positions);
-                            break;
-                        case COLUMN_SUN_CIVIL_SET_AZ: case COLUMN_SUN_CIVIL_SET_ALT:
-                        case COLUMN_SUN_CIVIL_SET_RA: case COLUMN_SUN_CIVIL_SET_DEC:
-                            calendar = calculator.getCivilSunsetCalendarForDate(day);
-                            row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_CIVIL_SET, columns[i], positions);
-                            break;
-
-                        case COLUMN_SUN_NAUTICAL_RISE_AZ: case COLUMN_SUN_NAUTICAL_RISE_ALT:
-                        case COLUMN_SUN_NAUTICAL_RISE_RA: case COLUMN_SUN_NAUTICAL_RISE_DEC:
-                            calendar = calculator.getNauticalSunriseCalendarForDate(day);
-                            row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_NAUTICAL_RISE, columns[i], positions);
-                            break;
-                        case COLUMN_SUN_NAUTICAL_SET_AZ: case COLUMN_SUN_NAUTICAL_SET_ALT:
-                        case COLUMN_SUN_NAUTICAL_SET_RA: case COLUMN_SUN_NAUTICAL_SET_DEC:
-                            calendar = calculator.getNauticalSunsetCalendarForDate(day);
-                            row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_NAUTICAL_SET, columns[i], positions);
-                            break;
-
-                        case COLUMN_SUN_ASTRO_RISE_AZ: case COLUMN_SUN_ASTRO_RISE_ALT:
-                        case COLUMN_SUN_ASTRO_RISE_RA: case COLUMN_SUN_ASTRO_RISE_DEC:
-                            calendar = calculator.getAstronomicalSunriseCalendarForDate(day);
-                            row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_ASTRO_RISE, columns[i], positions);
-                            break;
-                        case COLUMN_SUN_ASTRO_SET_AZ: case COLUMN_SUN_ASTRO_SET_ALT:
-                        case COLUMN_SUN_ASTRO_SET_RA: case COLUMN_SUN_ASTRO_SET_DEC:
-                            calendar = calculator.getAstronomicalSunsetCalendarForDate(day);
-                            row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_ASTRO_SET, columns[i], positions);
-                            break;
-
-                        case COLUMN_SUN_GOLDEN_MORNING_AZ: case COLUMN_SUN_GOLDEN_MORNING_ALT:
-                        case COLUMN_SUN_GOLDEN_MORNING_RA: case COLUMN_SUN_GOLDEN_MORNING_DEC:
-                            calendar = calculator.getMorningGoldenHourForDate(day);
-                            row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_GOLDEN_MORNING, columns[i], positions);
-                            break;
-                        case COLUMN_SUN_GOLDEN_EVENING_AZ: case COLUMN_SUN_GOLDEN_EVENING_ALT:
-                        case COLUMN_SUN_GOLDEN_EVENING_RA: case COLUMN_SUN_GOLDEN_EVENING_DEC:
-                            calendar = calculator.getEveningGoldenHourForDate(day);
-                            row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_GOLDEN_EVENING, columns[i], positions);
-                            break;
-
-                        case COLUMN_SUN_BLUE8_RISE_AZ: case COLUMN_SUN_BLUE8_RISE_ALT:
-                        case COLUMN_SUN_BLUE8_RISE_RA: case COLUMN_SUN_BLUE8_RISE_DEC:
-                            calendar = calculator.getMorningBlueHourForDate(day)[0];
-                            row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_BLUE8_RISE, columns[i], positions);
-                            break;
-                        case COLUMN_SUN_BLUE8_SET_AZ: case COLUMN_SUN_BLUE8_SET_ALT:
-                        case COLUMN_SUN_BLUE8_SET_RA: case COLUMN_SUN_BLUE8_SET_DEC:
-                            calendar = calculator.getEveningBlueHourForDate(day)[1];
-                            row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_BLUE8_SET, columns[i], positions);
-                            break;
-
-                        case COLUMN_SUN_BLUE4_RISE_AZ: case COLUMN_SUN_BLUE4_RISE_ALT:
-                        case COLUMN_SUN_BLUE4_RISE_RA: case COLUMN_SUN_BLUE4_RISE_DEC:
-                            calendar = calculator.getMorningBlueHourForDate(day)[1];
-                            row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_BLUE4_RISE, columns[i], positions);
-                            break;
-                        case COLUMN_SUN_BLUE4_SET_AZ: case COLUMN_SUN_BLUE4_SET_ALT:
-                        case COLUMN_SUN_BLUE4_SET_RA: case COLUMN_SUN_BLUE4_SET_DEC:
-                            calendar = calculator.getEveningBlueHourForDate(day)[0];
-                            row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_BLUE4_SET, columns[i], positions);
-                            break;
-
-                        default:
-                            row[i] = null;
-                            break;
-                    }
+                        @Override
+                        public boolean onRow(Calendar rowDay, long[] events) {
+                            return consumer.onRow(createSunRow(columns, calculator, events));
+                        }
+                    });
                 }
-                retValue.addRow(row);
-                day.add(Calendar.DAY_OF_YEAR, 1);
-            } while (day.before(endDay));
+            });
 
         } else Log.w("CalculatorProvider", "querySun: sunSource is null!");
-        return retValue;
+        return new MatrixCursor(columns);
+    }
+
+    /**
+     * createSunRow
+     * @param events sun events for the row's day (@see SuntimesDailyEvents.sunEventsForRange)
+     */
+    protected static Object[] createSunRow(String[] columns, @NonNull SuntimesCalculator calculator, long[] events)
+    {
+        TimeZone timezone = calculator.getTimeZone();
+        Map<String,SuntimesCalculator.SunPosition> positions = new HashMap<>();
+        Calendar calendar;
+        Object[] row = new Object[columns.length];
+        for (int i=0; i<columns.length; i++)
+        {
+            switch (columns[i])
+            {
+                case COLUMN_SUN_ACTUAL_RISE:
+                    row[i] = toValue(events[SUN_ACTUAL_RISE]);
+                    break;
+                case COLUMN_SUN_ACTUAL_SET:
+                    row[i] = toValue(events[SUN_ACTUAL_SET]);
+                    break;
+
+                case COLUMN_SUN_CIVIL_RISE:
+                    row[i] = toValue(events[SUN_CIVIL_RISE]);
+                    break;
+                case COLUMN_SUN_CIVIL_SET:
+                    row[i] = toValue(events[SUN_CIVIL_SET]);
+                    break;
+
+                case COLUMN_SUN_NAUTICAL_RISE:
+                    row[i] = toValue(events[SUN_NAUTICAL_RISE]);
+                    break;
+                case COLUMN_SUN_NAUTICAL_SET:
+                    row[i] = toValue(events[SUN_NAUTICAL_SET]);
+                    break;
+
+                case COLUMN_SUN_ASTRO_RISE:
+                    row[i] = toValue(events[SUN_ASTRO_RISE]);
+                    break;
+                case COLUMN_SUN_ASTRO_SET:
+                    row[i] = toValue(events[SUN_ASTRO_SET]);
+                    break;
+
+                case COLUMN_SUN_NOON:
+                    row[i] = toValue(events[SUN_NOON]);
+                    break;
+
+                case COLUMN_SUN_GOLDEN_EVENING:
+                    row[i] = toValue(events[SUN_GOLDEN_EVENING]);
+                    break;
+                case COLUMN_SUN_GOLDEN_MORNING:
+                    row[i] = toValue(events[SUN_GOLDEN_MORNING]);
+                    break;
+
+                case COLUMN_SUN_BLUE8_RISE:
+                    row[i] = toValue(events[SUN_BLUE8_RISE]);
+                    break;
+                case COLUMN_SUN_BLUE4_RISE:
+                    row[i] = toValue(events[SUN_BLUE4_RISE]);
+                    break;
+
+                case COLUMN_SUN_BLUE4_SET:
+                    row[i] = toValue(events[SUN_BLUE4_SET]);
+                    break;
+                case COLUMN_SUN_BLUE8_SET:
+                    row[i] = toValue(events[SUN_BLUE8_SET]);
+                    break;
+
+                case COLUMN_SUN_NOON_AZ: case COLUMN_SUN_NOON_ALT:
+                case COLUMN_SUN_NOON_RA: case COLUMN_SUN_NOON_DEC:
+                    calendar = toCalendar(events[SUN_NOON], timezone);
+                    row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_NOON, columns[i], positions);
+                    break;
+
+                case COLUMN_SUN_ACTUAL_RISE_AZ: case COLUMN_SUN_ACTUAL_RISE_ALT:
+                case COLUMN_SUN_ACTUAL_RISE_RA: case COLUMN_SUN_ACTUAL_RISE_DEC:
+                    calendar = toCalendar(events[SUN_ACTUAL_RISE], timezone);
+                    row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_ACTUAL_RISE, columns[i], positions);
+                    break;
+                case COLUMN_SUN_ACTUAL_SET_AZ: case COLUMN_SUN_ACTUAL_SET_ALT:
+                case COLUMN_SUN_ACTUAL_SET_RA: case COLUMN_SUN_ACTUAL_SET_DEC:
+                    calendar = toCalendar(events[SUN_ACTUAL_SET], timezone);
+                    row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_ACTUAL_SET, columns[i], positions);
+                    break;
+
+                case COLUMN_SUN_CIVIL_RISE_AZ: case COLUMN_SUN_CIVIL_RISE_ALT:
+                case COLUMN_SUN_CIVIL_RISE_RA: case COLUMN_SUN_CIVIL_RISE_DEC:
+                    calendar = toCalendar(events[SUN_CIVIL_RISE], timezone);
+                    row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_CIVIL_RISE, columns[i], positions);
+                    break;
+                case COLUMN_SUN_CIVIL_SET_AZ: case COLUMN_SUN_CIVIL_SET_ALT:
+                case COLUMN_SUN_CIVIL_SET_RA: case COLUMN_SUN_CIVIL_SET_DEC:
+                    calendar = toCalendar(events[SUN_CIVIL_SET], timezone);
+                    row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_CIVIL_SET, columns[i], positions);
+                    break;
+
+                case COLUMN_SUN_NAUTICAL_RISE_AZ: case COLUMN_SUN_NAUTICAL_RISE_ALT:
+                case COLUMN_SUN_NAUTICAL_RISE_RA: case COLUMN_SUN_NAUTICAL_RISE_DEC:
+                    calendar = toCalendar(events[SUN_NAUTICAL_RISE], timezone);
+                    row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_NAUTICAL_RISE, columns[i], positions);
+                    break;
+                case COLUMN_SUN_NAUTICAL_SET_AZ: case COLUMN_SUN_NAUTICAL_SET_ALT:
+                case COLUMN_SUN_NAUTICAL_SET_RA: case COLUMN_SUN_NAUTICAL_SET_DEC:
+                    calendar = toCalendar(events[SUN_NAUTICAL_SET], timezone);
+                    row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_NAUTICAL_SET, columns[i], positions);
+                    break;
+
+                case COLUMN_SUN_ASTRO_RISE_AZ: case COLUMN_SUN_ASTRO_RISE_ALT:
+                case COLUMN_SUN_ASTRO_RISE_RA: case COLUMN_SUN_ASTRO_RISE_DEC:
+                    calendar = toCalendar(events[SUN_ASTRO_RISE], timezone);
+                    row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_ASTRO_RISE, columns[i], positions);
+                    break;
+                case COLUMN_SUN_ASTRO_SET_AZ: case COLUMN_SUN_ASTRO_SET_ALT:
+                case COLUMN_SUN_ASTRO_SET_RA: case COLUMN_SUN_ASTRO_SET_DEC:
+                    calendar = toCalendar(events[SUN_ASTRO_SET], timezone);
+                    row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_ASTRO_SET, columns[i], positions);
+                    break;
+
+                case COLUMN_SUN_GOLDEN_MORNING_AZ: case COLUMN_SUN_GOLDEN_MORNING_ALT:
+                case COLUMN_SUN_GOLDEN_MORNING_RA: case COLUMN_SUN_GOLDEN_MORNING_DEC:
+                    calendar = toCalendar(events[SUN_GOLDEN_MORNING], timezone);
+                    row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_GOLDEN_MORNING, columns[i], positions);
+                    break;
+                case COLUMN_SUN_GOLDEN_EVENING_AZ: case COLUMN_SUN_GOLDEN_EVENING_ALT:
+                case COLUMN_SUN_GOLDEN_EVENING_RA: case COLUMN_SUN_GOLDEN_EVENING_DEC:
+                    calendar = toCalendar(events[SUN_GOLDEN_EVENING], timezone);
+                    row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_GOLDEN_EVENING, columns[i], positions);
+                    break;
+
+                case COLUMN_SUN_BLUE8_RISE_AZ: case COLUMN_SUN_BLUE8_RISE_ALT:
+                case COLUMN_SUN_BLUE8_RISE_RA: case COLUMN_SUN_BLUE8_RISE_DEC:
+                    calendar = toCalendar(events[SUN_BLUE8_RISE], timezone);
+                    row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_BLUE8_RISE, columns[i], positions);
+                    break;
+                case COLUMN_SUN_BLUE8_SET_AZ: case COLUMN_SUN_BLUE8_SET_ALT:
+                case COLUMN_SUN_BLUE8_SET_RA: case COLUMN_SUN_BLUE8_SET_DEC:
+                    calendar = toCalendar(events[SUN_BLUE8_SET], timezone);
+                    row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_BLUE8_SET, columns[i], positions);
+                    break;
+
+                case COLUMN_SUN_BLUE4_RISE_AZ: case COLUMN_SUN_BLUE4_RISE_ALT:
+                case COLUMN_SUN_BLUE4_RISE_RA: case COLUMN_SUN_BLUE4_RISE_DEC:
+                    calendar = toCalendar(events[SUN_BLUE4_RISE], timezone);
+                    row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_BLUE4_RISE, columns[i], positions);
+                    break;
+                case COLUMN_SUN_BLUE4_SET_AZ: case COLUMN_SUN_BLUE4_SET_ALT:
+                case COLUMN_SUN_BLUE4_SET_RA: case COLUMN_SUN_BLUE4_SET_DEC:
+                    calendar = toCalendar(events[SUN_BLUE4_SET], timezone);
+                    row[i] = getPositionValueForSunKey(calculator, calendar, COLUMN_SUN_BLUE4_SET, columns[i], positions);
+                    break;
+
+                default:
+                    row[i] = null;
+                    break;
+            }
+        }
+        return row;
     }
 
     protected static Double getPositionValueForSunKey(@NonNull SuntimesCalculator calculator, @Nullable Calendar calendar, String rootKey, String fullKey, Map<String, SuntimesCalculator.SunPosition> positions)
@@ -794,12 +789,12 @@ public class CalculatorProvider extends ContentProvider
 
     /**
      * queryMoon
+     * @param windowed true returns a WindowedRangeCursor (rows computed on demand), false a fully materialized MatrixCursor
      */
-    private Cursor queryMoon(long[] range, @NonNull Uri uri, @Nullable String[] projection, HashMap<String, String> selection, @Nullable String sortOrder)
+    private Cursor queryMoon(long[] range, boolean windowed, @NonNull Uri uri, @Nullable String[] projection, HashMap<String, String> selection, @Nullable String sortOrder)
     {
-        String[] columns = (projection != null ? projection : QUERY_MOON_PROJECTION);
-        MatrixCursor retValue = new MatrixCursor(columns);
-        SuntimesCalculator calculator = initMoonCalculator(getContext(), selection);
+        final String[] columns = (projection != null ? projection : QUERY_MOON_PROJECTION);
+        final SuntimesCalculator calculator = initMoonCalculator(getContext(), selection);
         if (calculator != null)
         {
             Calendar day = Calendar.getInstance(calculator.getTimeZone());
@@ -808,73 +803,89 @@ public class CalculatorProvider extends ContentProvider
             Calendar endDay = Calendar.getInstance(calculator.getTimeZone());
             endDay.setTimeInMillis(range[1] + 1000);    // +1000ms (make range[1] inclusive)
 
-            do {
-                SuntimesCalculator.MoonTimes moontimes = null;
-                SuntimesCalculator.MoonPosition position_rising = null, position_setting = null;
-                Object[] row = new Object[columns.length];
-                for (int i=0; i<columns.length; i++)
+            return createCursor(columns, windowed, new RangeRowSource(day, endDay, Calendar.DAY_OF_YEAR)
+            {
+                @Override
+                protected void computeRange(Calendar first, Calendar last, final WindowedRangeCursor.RowConsumer consumer)
                 {
-                    switch (columns[i])
+                    SuntimesDailyEvents.moonEventsForRange(calculator, first, last, new SuntimesDailyEvents.RangeCallback()
                     {
-                        case COLUMN_MOON_RISE:
-                            moontimes = (moontimes == null ? calculator.getMoonTimesForDate(day) : moontimes);
-                            row[i] = (moontimes.riseTime) != null ? moontimes.riseTime.getTimeInMillis() : null;
-                            break;
-                        case COLUMN_MOON_SET:
-                            moontimes = (moontimes == null ? calculator.getMoonTimesForDate(day) : moontimes);
-                            row[i] = (moontimes.setTime) != null ? moontimes.setTime.getTimeInMillis() : null;
-                            break;
-
-                        case COLUMN_MOON_RISE_AZ: case COLUMN_MOON_RISE_ALT:
-                        case COLUMN_MOON_RISE_RA: case COLUMN_MOON_RISE_DEC:
-                        case COLUMN_MOON_RISE_DISTANCE:
-                            moontimes = (moontimes == null ? calculator.getMoonTimesForDate(day) : moontimes);
-                            position_rising = (position_rising == null && moontimes.riseTime != null) ? calculator.getMoonPosition(moontimes.riseTime) : position_rising;
-                            switch (columns[i])
-                            {
-                                case COLUMN_MOON_RISE_AZ: row[i] = (position_rising != null ? position_rising.azimuth : null); break;
-                                case COLUMN_MOON_RISE_ALT: row[i] = (position_rising != null ? position_rising.elevation : null); break;
-                                case COLUMN_MOON_RISE_RA: row[i] = (position_rising != null ? position_rising.rightAscension : null); break;
-                                case COLUMN_MOON_RISE_DEC: row[i] = (position_rising != null ? position_rising.declination : null); break;
-                                case COLUMN_MOON_RISE_DISTANCE: row[i] = (position_rising != null ? position_rising.distance : null); break;
-                            }
-                            break;
+                        @Override
+                        public boolean onRow(Calendar rowDay, long[] events) {
+                            return consumer.onRow(createMoonRow(columns, calculator, events));
+                        }
+                    });
+                }
+            });
 
-                        case COLUMN_MOON_SET_AZ: case COLUMN_MOON_SET_ALT:
-                        case COLUMN_MOON_SET_RA: case COLUMN_MOON_SET_DEC:
-                        case COLUMN_MOON_SET_DISTANCE:
-                            moontimes = (moontimes == null ? calculator.getMoonTimesForDate(day) : moontimes);
-                            position_setting = (position_setting == null && moontimes.setTime != null) ? calculator.getMoonPosition(moontimes.setTime) : position_setting;
-                            switch (columns[i])
-                            {
-                                case COLUMN_MOON_SET_AZ: row[i] = (position_setting != null ? position_setting.azimuth : null); break;
-                                case COLUMN_MOON_SET_ALT: row[i] = (position_setting != null ? position_setting.elevation : null); break;
-                                case COLUMN_MOON_SET_RA: row[i] = (position_setting != null ? position_setting.rightAscension : null); break;
-                                case COLUMN_MOON_SET_DEC: row[i] = (position_setting != null ? position_setting.declination : null); break;
-                                case COLUMN_MOON_SET_DISTANCE: row[i] = (position_setting != null ? position_setting.distance : null); break;
-                            }
-                            break;
+        } else Log.w("CalculatorProvider", "queryMoon: moonSource is null!");
+        return new MatrixCursor(columns);
+    }
 
-                        case COLUMN_MOON_RISE_ILLUM:
-                            moontimes = (moontimes == null ? calculator.getMoonTimesForDate(day) : moontimes);
-                            row[i] = (moontimes.riseTime) != null ? calculator.getMoonIlluminationForDate(moontimes.riseTime) : null;
-                            break;
-                        case COLUMN_MOON_SET_ILLUM:
-                            moontimes = (moontimes == null ? calculator.getMoonTimesForDate(day) : moontimes);
-                            row[i] = (moontimes.setTime) != null ? calculator.getMoonIlluminationForDate(moontimes.setTime) : null;
-                            break;
+    /**
+     * createMoonRow
+     * @param events moon events for the row's day (@see SuntimesDailyEvents.moonEventsForRange)
+     */
+    protected static Object[] createMoonRow(String[] columns, @NonNull SuntimesCalculator calculator, long[] events)
+    {
+        SuntimesCalculator.MoonTimes moontimes = new SuntimesCalculator.MoonTimes();
+        moontimes.riseTime = toCalendar(events[MOON_RISE], calculator.getTimeZone());
+        moontimes.setTime = toCalendar(events[MOON_SET], calculator.getTimeZone());
 
-                        default:
-                            row[i] = null;
-                            break;
+        SuntimesCalculator.MoonPosition position_rising = null, position_setting = null;
+        Object[] row = new Object[columns.length];
+        for (int i=0; i<columns.length; i++)
+        {
+            switch (columns[i])
+            {
+                case COLUMN_MOON_RISE:
+                    row[i] = (moontimes.riseTime) != null ? moontimes.riseTime.getTimeInMillis() : null;
+                    break;
+                case COLUMN_MOON_SET:
+                    row[i] = (moontimes.setTime) != null ? moontimes.setTime.getTimeInMillis() : null;
+                    break;
+
+                case COLUMN_MOON_RISE_AZ: case COLUMN_MOON_RISE_ALT:
+                case COLUMN_MOON_RISE_RA: case COLUMN_MOON_RISE_DEC:
+                case COLUMN_MOON_RISE_DISTANCE:
+                    position_rising = (position_rising == null && moontimes.riseTime != null) ? calculator.getMoonPosition(moontimes.riseTime) : position_rising;
+                    switch (columns[i])
+                    {
+                        case COLUMN_MOON_RISE_AZ: row[i] = (position_rising != null ? position_rising.azimuth : null); break;
+                        case COLUMN_MOON_RISE_ALT: row[i] = (position_rising != null ? position_rising.elevation : null); break;
+                        case COLUMN_MOON_RISE_RA: row[i] = (position_rising != null ? position_rising.rightAscension : null); break;
+                        case COLUMN_MOON_RISE_DEC: row[i] = (position_rising != null ? position_rising.declination : null); break;
+                        case COLUMN_MOON_RISE_DISTANCE: row[i] = (position_rising != null ? position_rising.distance : null); break;
                     }
-                }
-                retValue.addRow(row);
-                day.add(Calendar.DAY_OF_YEAR, 1);
-            } while (day.before(endDay));
+                    break;
 
-        } else Log.w("CalculatorProvider", "queryMoon: moonSource is null!");
-        return retValue;
+                case COLUMN_MOON_SET_AZ: case COLUMN_MOON_SET_ALT:
+                case COLUMN_MOON_SET_RA: case COLUMN_MOON_SET_DEC:
+                case COLUMN_MOON_SET_DISTANCE:
+                    position_setting = (position_setting == null && moontimes.setTime != null) ? calculator.getMoonPosition(moontimes.setTime) : position_setting;
+                    switch (columns[i])
+                    {
+                        case COLUMN_MOON_SET_AZ: row[i] = (position_setting != null ? position_setting.azimuth : null); break;
+                        case COLUMN_MOON_SET_ALT: row[i] = (position_setting != null ? position_setting.elevation : null); break;
+                        case COLUMN_MOON_SET_RA: row[i] = (position_setting != null ? position_setting.rightAscension : null); break;
+                        case COLUMN_MOON_SET_DEC: row[i] = (position_setting != null ? position_setting.declination : null); break;
+                        case COLUMN_MOON_SET_DISTANCE: row[i] = (position_setting != null ? position_setting.distance : null); break;
+                    }
+                    break;
+
+                case COLUMN_MOON_RISE_ILLUM:
+                    row[i] = (moontimes.riseTime) != null ? calculator.getMoonIlluminationForDate(moontimes.riseTime) : null;
+                    break;
+                case COLUMN_MOON_SET_ILLUM:
+                    row[i] = (moontimes.setTime) != null ? calculator.getMoonIlluminationForDate(moontimes.setTime) : null;
+                    break;
+
+                default:
+                    row[i] = null;
+                    break;
+            }
+        }
+        return row;
     }
 
     public static final String COLUMN_MOON_RISE_AZ = COLUMN_MOON_RISE + _POSITION_AZ;
@@ -1058,97 +1069,184 @@ public class CalculatorProvider extends ContentProvider
 
     /**
      * querySeasons
+     * @param windowed true returns a WindowedRangeCursor (rows computed on demand), false a fully materialized MatrixCursor
      */
-    private Cursor querySeasons(long[] range, @NonNull Uri uri, @Nullable String[] projection, HashMap<String, String> selection, @Nullable String sortOrder)
+    private Cursor querySeasons(long[] range, boolean windowed, @NonNull Uri uri, @Nullable String[] projection, HashMap<String, String> selection, @Nullable String sortOrder)
     {
-        String[] columns = (projection != null ? projection : QUERY_SEASONS_PROJECTION);
-        MatrixCursor retValue = new MatrixCursor(columns);
-        SuntimesCalculator calculator = initSunCalculator(getContext(), selection);
+        final String[] columns = (projection != null ? projection : QUERY_SEASONS_PROJECTION);
+        final SuntimesCalculator calculator = initSunCalculator(getContext(), selection);
         if (calculator != null)
         {
             Calendar year = Calendar.getInstance(calculator.getTimeZone());
             year.setTimeInMillis(range[0]);
 
-            Calendar year0 = Calendar.getInstance(calculator.getTimeZone());
-            year0.setTimeInMillis(year.getTimeInMillis());
-            year0.add(Calendar.YEAR, -1);
-
             Calendar endYear = Calendar.getInstance(calculator.getTimeZone());
             endYear.setTimeInMillis(range[1]);
             endYear.add(Calendar.YEAR, 1);                   // +1 year (make range[1] inclusive)
 
-            do {
-                Object[] row = new Object[columns.length];
-                for (int i=0; i<columns.length; i++)
+            final boolean northward = (calculator.getLocation().getLatitudeAsDouble() >= 0);
+            return createCursor(columns, windowed, new RangeRowSource(year, endYear, Calendar.YEAR)
+            {
+                @Override
+                protected void computeRange(Calendar first, Calendar last, final WindowedRangeCursor.RowConsumer consumer)
                 {
-                    Calendar event;
-                    switch (columns[i])
+                    SuntimesDailyEvents.seasonsForRange(calculator, first, last, new SuntimesDailyEvents.RangeCallback()
                     {
-                        case COLUMN_SEASON_YEAR:
-                            row[i] = year.get(Calendar.YEAR);
-                            break;
+                        @Override
+                        public boolean onRow(Calendar rowYear, long[] events) {
+                            return consumer.onRow(createSeasonsRow(columns, northward, rowYear, events));
+                        }
+                    });
+                }
+            });
 
-                        case COLUMN_SEASON_TROPICAL_YEAR_LENGTH:
-                            row[i] = calculator.getTropicalYearLength(year);
-                            break;
+        } else Log.w("CalculatorProvider", "querySeasons: sunSource is null!");
+        return new MatrixCursor(columns);
+    }
 
-                        case COLUMN_SEASON_CROSS_SPRING:
-                            event = SuntimesData.midpoint(calculator.getSpringEquinoxForYear(year), calculator.getSummerSolsticeForYear(year));
-                            row[i] = (event != null ? event.getTimeInMillis() : null);
-                            break;
+    /**
+     * createSeasonsRow
+     * @param events seasons for the row's year (@see SuntimesDailyEvents.seasonsForRange)
+     */
+    protected static Object[] createSeasonsRow(String[] columns, boolean northward, Calendar year, long[] events)
+    {
+        Object[] row = new Object[columns.length];
+        for (int i=0; i<columns.length; i++)
+        {
+            switch (columns[i])
+            {
+                case COLUMN_SEASON_YEAR:
+                    row[i] = year.get(Calendar.YEAR);
+                    break;
+
+                case COLUMN_SEASON_TROPICAL_YEAR_LENGTH:
+                    row[i] = events[SEASON_TROPICAL_YEAR_LENGTH];
+                    break;
+
+                case COLUMN_SEASON_CROSS_SPRING:
+                    row[i] = toValue(midpoint(events[SEASON_SPRING], events[SEASON_SUMMER]));
+                    break;
+
+                case COLUMN_SEASON_CROSS_AUTUMN:
+                    row[i] = toValue(midpoint(events[SEASON_AUTUMN], events[SEASON_WINTER]));
+                    break;
+
+                case COLUMN_SEASON_CROSS_SUMMER:
+                    row[i] = toValue(northward ? midpoint(events[SEASON_SUMMER], events[SEASON_AUTUMN])
+                                               : midpoint(events[SEASON_SUMMER_PREVIOUS], events[SEASON_AUTUMN]));
+                    break;
+
+                case COLUMN_SEASON_CROSS_WINTER:
+                    row[i] = toValue(northward ? midpoint(events[SEASON_WINTER_PREVIOUS], events[SEASON_SPRING])
+                                               : midpoint(events[SEASON_WINTER], events[SEASON_SPRING]));
+                    break;
+
+                case COLUMN_SEASON_VERNAL:
+                case COLUMN_SEASON_SPRING:
+                    row[i] = toValue(events[SEASON_SPRING]);
+                    break;
+
+                case COLUMN_SEASON_SUMMER:
+                    row[i] = toValue(events[SEASON_SUMMER]);
+                    break;
+
+                case COLUMN_SEASON_AUTUMN:
+                    row[i] = toValue(events[SEASON_AUTUMN]);
+                    break;
+
+                case COLUMN_SEASON_WINTER:
+                    row[i] = toValue(events[SEASON_WINTER]);
+                    break;
+
+                default:
+                    row[i] = null;
+                    break;
+            }
+        }
+        return row;
+    }
 
-                        case COLUMN_SEASON_CROSS_AUTUMN:
-                            event = SuntimesData.midpoint(calculator.getAutumnalEquinoxForYear(year), calculator.getWinterSolsticeForYear(year));
-                            row[i] = (event != null ? event.getTimeInMillis() : null);
-                            break;
+    /**
+     * createCursor
+     * @param windowed true returns a WindowedRangeCursor (rows are computed as the client moves through the cursor),
+     *                 false returns a MatrixCursor (all rows computed up front)
+     */
+    protected static Cursor createCursor(String[] columns, boolean windowed, WindowedRangeCursor.RowSource source)
+    {
+        if (windowed) {
+            return new WindowedRangeCursor(columns, source);
 
-                        case COLUMN_SEASON_CROSS_SUMMER:
-                            event = (calculator.getLocation().getLatitudeAsDouble() >= 0)
-                                    ? SuntimesData.midpoint(calculator.getSummerSolsticeForYear(year), calculator.getAutumnalEquinoxForYear(year))
-                                    : SuntimesData.midpoint(calculator.getSummerSolsticeForYear(year0), calculator.getAutumnalEquinoxForYear(year));
-                            row[i] = (event != null ? event.getTimeInMillis() : null);
-                            break;
+        } else {
+            final MatrixCursor cursor = new MatrixCursor(columns);
+            source.computeRows(0, source.getCount(), new WindowedRangeCursor.RowConsumer()
+            {
+                @Override
+                public boolean onRow(Object[] row) {
+                    cursor.addRow(row);
+                    return true;
+                }
+            });
+            return cursor;
+        }
+    }
 
-                        case COLUMN_SEASON_CROSS_WINTER:
-                            event = (calculator.getLocation().getLatitudeAsDouble() >= 0)
-                                    ? SuntimesData.midpoint(calculator.getWinterSolsticeForYear(year0), calculator.getSpringEquinoxForYear(year))
-                                    : SuntimesData.midpoint(calculator.getWinterSolsticeForYear(year), calculator.getSpringEquinoxForYear(year));
-                            row[i] = (event != null ? event.getTimeInMillis() : null);
-                            break;
+    /**
+     * RangeRowSource
+     * One row per day (Calendar.DAY_OF_YEAR) or per year (Calendar.YEAR) in [start, end).
+     */
+    protected static abstract class RangeRowSource implements WindowedRangeCursor.RowSource
+    {
+        protected final Calendar start, end;
+        protected final int field;
+        protected final int count;
 
-                        case COLUMN_SEASON_VERNAL:
-                        case COLUMN_SEASON_SPRING:
-                            event = calculator.getSpringEquinoxForYear(year);
-                            row[i] = (event != null ? event.getTimeInMillis() : null);
-                            break;
+        public RangeRowSource(Calendar start, Calendar end, int field)
+        {
+            this.start = start;
+            this.end = end;
+            this.field = field;
+            this.count = countRows(start, end, field);
+        }
 
-                        case COLUMN_SEASON_SUMMER:
-                            event = calculator.getSummerSolsticeForYear(year);
-                            row[i] = (event != null ? event.getTimeInMillis() : null);
-                            break;
+        protected static int countRows(Calendar start, Calendar end, int field)
+        {
+            Calendar calendar = (Calendar) start.clone();
+            int n = 0;
+            do {
+                n++;
+                calendar.add(field, 1);
+            } while (calendar.before(end));
+            return n;
+        }
 
-                        case COLUMN_SEASON_AUTUMN:
-                            event = calculator.getAutumnalEquinoxForYear(year);
-                            row[i] = (event != null ? event.getTimeInMillis() : null);
-                            break;
+        @Override
+        public int getCount() {
+            return count;
+        }
 
-                        case COLUMN_SEASON_WINTER:
-                            event = calculator.getWinterSolsticeForYear(year);
-                            row[i] = (event != null ? event.getTimeInMillis() : null);
-                            break;
+        @Override
+        public void computeRows(int position, final int numRows, @NonNull final WindowedRangeCursor.RowConsumer consumer)
+        {
+            Calendar first = (Calendar) start.clone();
+            first.add(field, position);
 
-                        default:
-                            row[i] = null;
-                            break;
-                    }
+            Calendar last = (Calendar) first.clone();
+            last.add(field, numRows);
+            if (last.after(end)) {
+                last = end;
+            }
+
+            final int[] n = new int[] { 0 };
+            computeRange(first, last, new WindowedRangeCursor.RowConsumer()
+            {
+                @Override
+                public boolean onRow(Object[] row) {
+                    return consumer.onRow(row) && (++n[0] < numRows);
                 }
-                retValue.addRow(row);
-                year.add(Calendar.YEAR, 1);
-                year0.add(Calendar.YEAR, 1);
-            } while (year.before(endYear));
+            });
+        }
 
-        } else Log.w("CalculatorProvider", "querySeasons: sunSource is null!");
-        return retValue;
+        protected abstract void computeRange(Calendar first, Calendar last, WindowedRangeCursor.RowConsumer consumer);
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////////
@@ -1251,6 +1349,7 @@ public class CalculatorProvider extends ContentProvider
     {
         sunSource.remove(appWidgetID);
         moonSource.remove(appWidgetID);
+        SuntimesCalculatorPool.getInstance().invalidate();
     }
 
     ///////////////////////////////////////////////////////////////////////////////////////////////
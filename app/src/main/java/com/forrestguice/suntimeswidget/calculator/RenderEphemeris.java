@@ -0,0 +1,282 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.calculator;
+
+/**
+ * RenderEphemeris
+ * A fast, low precision ephemeris for drawing (graphs, maps); not for computing events or alarms.
+ *
+ * The sun uses the low precision formulas of the Astronomical Almanac. The moon uses the largest terms of
+ * the ELP-2000/82 series (Meeus, "Astronomical Algorithms", ch. 47), corrected for parallax (topocentric
+ * azimuth and elevation). Elevations include refraction (Saemundsson, standard conditions). Nutation,
+ * aberration, and delta-T are ignored.
+ *
+ * Maximum angular error (vs Time4A, 1950 to 2050, elevations above ELEVATION_MIN):
+ *   sun: MAX_ERROR_SUN degrees, moon: MAX_ERROR_MOON degrees (and MAX_ERROR_MOON_DISTANCE km).
+ * Nearer the horizon the error in elevation is dominated by the refraction model (MAX_ERROR_HORIZON).
+ *
+ * Angles are degrees; azimuth is measured clockwise from north. Right ascension and declination are
+ * geocentric.
+ */
+public final class RenderEphemeris
+{
+    public static final double MAX_ERROR_SUN = 0.05;              // degrees
+    public static final double MAX_ERROR_MOON = 0.25;             // degrees
+    public static final double MAX_ERROR_MOON_DISTANCE = 1000;    // km
+    public static final double MAX_ERROR_HORIZON = 1;             // degrees
+    public static final double ELEVATION_MIN = 15;                // degrees
+
+    public static final double EARTH_RADIUS = 6378.14;            // km
+
+    public static final int RIGHT_ASCENSION = 0, DECLINATION = 1, DISTANCE = 2;
+
+    private static final double J2000 = 2451545.0;
+    private static final double UNIX_EPOCH_JD = 2440587.5;
+    private static final double MILLIS_IN_DAY = 24 * 60 * 60 * 1000d;
+    private static final double DAYS_IN_CENTURY = 36525d;
+
+    private RenderEphemeris() {}
+
+    /**
+     * @return julian day (UT)
+     */
+    public static double julianDay(long millis) {
+        return UNIX_EPOCH_JD + (millis / MILLIS_IN_DAY);
+    }
+
+    /**
+     * @return mean obliquity of the ecliptic (radians)
+     */
+    public static double obliquity(double jd)
+    {
+        double t = (jd - J2000) / DAYS_IN_CENTURY;
+        return Math.toRadians(23.439291 - 0.0130042 * t);
+    }
+
+    /**
+     * @return greenwich mean sidereal time (degrees) [0, 360)
+     */
+    public static double siderealTime(double jd)
+    {
+        double d = jd - J2000;
+        double t = d / DAYS_IN_CENTURY;
+        return normalize(280.46061837 + 360.98564736629 * d + t * t * (0.000387933 - t / 38710000d));
+    }
+
+    /**
+     * Sun (Astronomical Almanac; ~0.01 degrees from 1950 to 2050).
+     * @param jd julian day
+     * @param obliquity (radians) see obliquity(jd)
+     * @param out an array of (at least) 3; right ascension, declination (degrees), distance (km)
+     */
+    public static void sunEquatorial(double jd, double obliquity, double[] out)
+    {
+        double n = jd - J2000;
+        double l = 280.460 + 0.9856474 * n;
+        double g = Math.toRadians(357.528 + 0.9856003 * n);
+        double lambda = Math.toRadians(l + 1.915 * Math.sin(g) + 0.020 * Math.sin(2 * g));
+
+        double sinLambda = Math.sin(lambda);
+        out[RIGHT_ASCENSION] = normalize(Math.toDegrees(Math.atan2(Math.cos(obliquity) * sinLambda, Math.cos(lambda))));
+        out[DECLINATION] = Math.toDegrees(Math.asin(Math.sin(obliquity) * sinLambda));
+        out[DISTANCE] = (1.00014 - 0.01671 * Math.cos(g) - 0.00014 * Math.cos(2 * g)) * AU;
+    }
+    private static final double AU = 149597870.7;    // km
+
+    /**
+     * Moon (the largest terms of Meeus ch. 47).
+     * @param jd julian day
+     * @param obliquity (radians) see obliquity(jd)
+     * @param out an array of (at least) 3; right ascension, declination (degrees), distance (km)
+     */
+    public static void moonEquatorial(double jd, double obliquity, double[] out)
+    {
+        double t = (jd - J2000) / DAYS_IN_CENTURY;
+        double t2 = t * t;
+        double lp = 218.3164477 + 481267.88123421 * t - 0.0015786 * t2;         // mean longitude
+        double d = Math.toRadians(297.8501921 + 445267.1114034 * t - 0.0018819 * t2);    // mean elongation
+        double m = Math.toRadians(357.5291092 + 35999.0502909 * t - 0.0001536 * t2);     // sun's mean anomaly
+        double mp = Math.toRadians(134.9633964 + 477198.8675055 * t + 0.0087414 * t2);   // moon's mean anomaly
+        double f = Math.toRadians(93.2720950 + 483202.0175233 * t - 0.0036539 * t2);     // argument of latitude
+        double e = 1 - 0.002516 * t - 0.0000074 * t2;
+        double a1 = Math.toRadians(119.75 + 131.849 * t);
+        double a2 = Math.toRadians(53.09 + 479264.290 * t);
+        double a3 = Math.toRadians(313.45 + 481266.484 * t);
+        double lpRad = Math.toRadians(lp);
+
+        double sumL = 0, sumR = 0;
+        for (int i=0; i<MOON_LR.length; i += 6)
+        {
+            double arg = MOON_LR[i] * d + MOON_LR[i+1] * m + MOON_LR[i+2] * mp + MOON_LR[i+3] * f;
+            double factor = eccentricityFactor(MOON_LR[i+1], e);
+            sumL += factor * MOON_LR[i+4] * Math.sin(arg);
+            sumR += factor * MOON_LR[i+5] * Math.cos(arg);
+        }
+        sumL += 3958 * Math.sin(a1) + 1962 * Math.sin(lpRad - f) + 318 * Math.sin(a2);
+
+        double sumB = 0;
+        for (int i=0; i<MOON_B.length; i += 5)
+        {
+            double arg = MOON_B[i] * d + MOON_B[i+1] * m + MOON_B[i+2] * mp + MOON_B[i+3] * f;
+            sumB += eccentricityFactor(MOON_B[i+1], e) * MOON_B[i+4] * Math.sin(arg);
+        }
+        sumB += -2235 * Math.sin(lpRad) + 382 * Math.sin(a3) + 175 * Math.sin(a1 - f) + 175 * Math.sin(a1 + f) + 127 * Math.sin(lpRad - mp) - 115 * Math.sin(lpRad + mp);
+
+        double lambda = Math.toRadians(lp + sumL / 1000000d);
+        double beta = Math.toRadians(sumB / 1000000d);
+        double sinE = Math.sin(obliquity), cosE = Math.cos(obliquity);
+        double sinLambda = Math.sin(lambda), cosBeta = Math.cos(beta), sinBeta = Math.sin(beta);
+        out[RIGHT_ASCENSION] = normalize(Math.toDegrees(Math.atan2(sinLambda * cosE - Math.tan(beta) * sinE, Math.cos(lambda))));
+        out[DECLINATION] = Math.toDegrees(Math.asin(sinBeta * cosE + cosBeta * sinE * sinLambda));
+        out[DISTANCE] = 385000.56 + sumR / 1000d;
+    }
+
+    private static double eccentricityFactor(double m, double e)
+    {
+        if (m == 0) {
+            return 1;
+        } else return (Math.abs(m) == 1 ? e : e * e);
+    }
+
+    /**
+     * Moon longitude and distance terms; D, M, M', F, longitude (1e-6 degrees), distance (1e-3 km)
+     */
+    private static final double[] MOON_LR = new double[] {
+            0, 0, 1, 0, 6288774, -20905355,
+            2, 0, -1, 0, 1274027, -3699111,
+            2, 0, 0, 0, 658314, -2955968,
+            0, 0, 2, 0, 213618, -569925,
+            0, 1, 0, 0, -185116, 48888,
+            0, 0, 0, 2, -114332, -3149,
+            2, 0, -2, 0, 58793, 246158,
+            2, -1, -1, 0, 57066, -152138,
+            2, 0, 1, 0, 53322, -170733,
+            2, -1, 0, 0, 45758, -204586,
+            0, 1, -1, 0, -40923, -129620,
+            1, 0, 0, 0, -34720, 108743,
+            0, 1, 1, 0, -30383, 104755,
+            2, 0, 0, -2, 15327, 10321,
+            0, 0, 1, 2, -12528, 0,
+            0, 0, 1, -2, 10980, 79661,
+            4, 0, -1, 0, 10675, -34782,
+            0, 0, 3, 0, 10034, -23210,
+            4, 0, -2, 0, 8548, -21636,
+            2, 1, -1, 0, -7888, 24208,
+            2, 1, 0, 0, -6766, 30824,
+            1, 0, -1, 0, -5163, -8379,
+            1, 1, 0, 0, 4987, -16675,
+            2, -1, 1, 0, 4036, -12831,
+            2, 0, 2, 0, 3994, -10445,
+            4, 0, 0, 0, 3861, -11650,
+            2, 0, -3, 0, 3665, 14403,
+            0, 1, -2, 0, -2689, -7003,
+            2, 0, -1, 2, -2602, 0,
+            2, -1, -2, 0, 2390, 10056,
+            1, 0, 1, 0, -2348, 6322,
+            2, -2, 0, 0, 2236, -9884,
+            0, 1, 2, 0, -2120, 5751,
+            0, 2, 0, 0, -2069, 0,
+    };
+
+    /**
+     * Moon latitude terms; D, M, M', F, latitude (1e-6 degrees)
+     */
+    private static final double[] MOON_B = new double[] {
+            0, 0, 0, 1, 5128122,
+            0, 0, 1, 1, 280602,
+            0, 0, 1, -1, 277693,
+            2, 0, 0, -1, 173237,
+            2, 0, -1, 1, 55413,
+            2, 0, -1, -1, 46271,
+            2, 0, 0, 1, 32573,
+            0, 0, 2, 1, 17198,
+            2, 0, 1, -1, 9266,
+            0, 0, 2, -1, 8822,
+            2, -1, 0, -1, 8216,
+            2, 0, -2, -1, 4324,
+            2, 0, 1, 1, 4200,
+            2, 1, 0, -1, -3359,
+            2, -1, -1, 1, 2463,
+            2, -1, 0, 1, 2211,
+            2, -1, -1, -1, 2065,
+            0, 1, -1, -1, -1870,
+            4, 0, -1, -1, 1828,
+            0, 1, 0, 1, -1794,
+    };
+
+    /**
+     * Converts equatorial coordinates to horizontal coordinates (azimuth and elevation).
+     * @param hourAngle local hour angle (degrees)
+     * @param declination declination (degrees)
+     * @param sinLatitude sine of the observer's latitude
+     * @param cosLatitude cosine of the observer's latitude
+     * @param parallax horizontal parallax (radians), or 0
+     * @param out an array of (at least) 2; azimuth, elevation (degrees)
+     */
+    public static void horizontal(double hourAngle, double declination, double sinLatitude, double cosLatitude, double parallax, double[] out)
+    {
+        double h = Math.toRadians(hourAngle);
+        double dec = Math.toRadians(declination);
+        double sinDec = Math.sin(dec), cosDec = Math.cos(dec);
+        double cosH = Math.cos(h), sinH = Math.sin(h);
+
+        if (parallax != 0)    // topocentric (Meeus ch. 40)
+        {
+            double sinP = Math.sin(parallax);
+            double x = cosDec - cosLatitude * sinP * cosH;
+            double y = -cosLatitude * sinP * sinH;
+            double z = sinDec - sinLatitude * sinP;
+            double deltaRA = Math.atan2(y, x);
+            double h1 = h - deltaRA;
+            dec = Math.atan2(z * Math.cos(deltaRA), x);
+            sinDec = Math.sin(dec);
+            cosDec = Math.cos(dec);
+            cosH = Math.cos(h1);
+            sinH = Math.sin(h1);
+        }
+
+        double elevation = Math.toDegrees(Math.asin(sinLatitude * sinDec + cosLatitude * cosDec * cosH));
+        double azimuth = Math.toDegrees(Math.atan2(sinH, cosH * sinLatitude - (sinDec / cosDec) * cosLatitude)) + 180;
+        out[0] = normalize(azimuth);
+        out[1] = elevation + refraction(elevation);
+    }
+
+    /**
+     * Saemundsson's formula (standard pressure and temperature); zero below ~-5 degrees.
+     * @param elevation true elevation (degrees)
+     * @return refraction (degrees)
+     */
+    public static double refraction(double elevation)
+    {
+        if (elevation <= -5 || elevation >= 90) {
+            return 0;
+        }
+        double arg = elevation + 10.3 / (elevation + 5.11);
+        return (arg < 90 ? 1.02 / Math.tan(Math.toRadians(arg)) / 60d : 0);
+    }
+
+    /**
+     * @return angle [0, 360)
+     */
+    public static double normalize(double degrees)
+    {
+        double value = degrees % 360;
+        return (value < 0 ? value + 360 : value);
+    }
+}
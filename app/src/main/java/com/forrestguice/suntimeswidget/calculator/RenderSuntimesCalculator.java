@@ -0,0 +1,210 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.calculator;
+
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import com.forrestguice.suntimeswidget.calculator.core.Location;
+import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator;
+import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator2;
+
+/**
+ * RenderSuntimesCalculator
+ * A "render" mode for a calculator; sun and moon positions come from the (fast, low precision) RenderEphemeris,
+ * everything else (events, moon phases, etc) from the wrapped calculator.
+ *
+ * Intended for drawing (graphs and maps) where many positions are needed but pixel accuracy suffices
+ * (see RenderEphemeris for error bounds); alarms and displayed values should use the calculator directly.
+ */
+public class RenderSuntimesCalculator implements SuntimesCalculator2
+{
+    /**
+     * @return a render calculator, or (if the calculator doesn't support FEATURE_POSITION) the calculator itself
+     */
+    public static SuntimesCalculator2 of(@NonNull SuntimesCalculator calculator)
+    {
+        SuntimesCalculator2 calculator2 = SuntimesCalculator2Adapter.of(calculator);
+        Location location = calculator.getLocation();
+        if (location == null || !supportsPosition(calculator)) {
+            return calculator2;
+        }
+
+        try {
+            return new RenderSuntimesCalculator(calculator2, location.getLatitudeAsDouble(), location.getLongitudeAsDouble());
+
+        } catch (NumberFormatException e) {
+            Log.w("RenderSuntimesCalculator", "of: invalid location; using calculator positions: " + e);
+            return calculator2;
+        }
+    }
+
+    protected static boolean supportsPosition(@NonNull SuntimesCalculator calculator)
+    {
+        int[] features = calculator.getSupportedFeatures();
+        if (features != null)
+        {
+            for (int feature : features) {
+                if (feature == SuntimesCalculator.FEATURE_POSITION) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    protected final SuntimesCalculator2 calculator;
+    protected final double longitude;
+    protected final double sinLatitude, cosLatitude;
+    private final double[] equatorial = new double[3];
+    private final double[] horizontal = new double[2];
+
+    /**
+     * @param calculator provides everything except positions
+     * @param latitude observer latitude (degrees)
+     * @param longitude observer longitude (degrees)
+     */
+    public RenderSuntimesCalculator(@NonNull SuntimesCalculator2 calculator, double latitude, double longitude)
+    {
+        this.calculator = calculator;
+        this.longitude = longitude;
+        this.sinLatitude = Math.sin(Math.toRadians(latitude));
+        this.cosLatitude = Math.cos(Math.toRadians(latitude));
+    }
+
+    @Override
+    public synchronized boolean sunPosition(long millis, double[] out)
+    {
+        double jd = RenderEphemeris.julianDay(millis);
+        sunPosition(jd, RenderEphemeris.obliquity(jd));
+        out[POSITION_AZIMUTH] = horizontal[0];
+        out[POSITION_ELEVATION] = horizontal[1];
+        out[POSITION_RIGHT_ASCENSION] = equatorial[RenderEphemeris.RIGHT_ASCENSION];
+        out[POSITION_DECLINATION] = equatorial[RenderEphemeris.DECLINATION];
+        return true;
+    }
+
+    @Override
+    public synchronized boolean moonPosition(long millis, double[] out)
+    {
+        double jd = RenderEphemeris.julianDay(millis);
+        moonPosition(jd, RenderEphemeris.obliquity(jd));
+        out[POSITION_AZIMUTH] = horizontal[0];
+        out[POSITION_ELEVATION] = horizontal[1];
+        out[POSITION_RIGHT_ASCENSION] = equatorial[RenderEphemeris.RIGHT_ASCENSION];
+        out[POSITION_DECLINATION] = equatorial[RenderEphemeris.DECLINATION];
+        out[POSITION_DISTANCE] = equatorial[RenderEphemeris.DISTANCE];
+        return true;
+    }
+
+    /**
+     * The obliquity is computed once per batch (it changes by ~0.013 degrees per century).
+     */
+    @Override
+    public synchronized boolean sunPositions(long[] times, double[] azimuth, double[] elevation, double[] rightAscension, double[] declination)
+    {
+        if (times.length == 0) {
+            return true;
+        }
+        double obliquity = RenderEphemeris.obliquity(RenderEphemeris.julianDay(times[0]));
+        for (int i=0; i<times.length; i++)
+        {
+            sunPosition(RenderEphemeris.julianDay(times[i]), obliquity);
+            SuntimesCalculator2Adapter.setValue(azimuth, i, horizontal[0]);
+            SuntimesCalculator2Adapter.setValue(elevation, i, horizontal[1]);
+            SuntimesCalculator2Adapter.setValue(rightAscension, i, equatorial[RenderEphemeris.RIGHT_ASCENSION]);
+            SuntimesCalculator2Adapter.setValue(declination, i, equatorial[RenderEphemeris.DECLINATION]);
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized boolean moonPositions(long[] times, double[] azimuth, double[] elevation, double[] rightAscension, double[] declination, double[] distance)
+    {
+        if (times.length == 0) {
+            return true;
+        }
+        double obliquity = RenderEphemeris.obliquity(RenderEphemeris.julianDay(times[0]));
+        for (int i=0; i<times.length; i++)
+        {
+            moonPosition(RenderEphemeris.julianDay(times[i]), obliquity);
+            SuntimesCalculator2Adapter.setValue(azimuth, i, horizontal[0]);
+            SuntimesCalculator2Adapter.setValue(elevation, i, horizontal[1]);
+            SuntimesCalculator2Adapter.setValue(rightAscension, i, equatorial[RenderEphemeris.RIGHT_ASCENSION]);
+            SuntimesCalculator2Adapter.setValue(declination, i, equatorial[RenderEphemeris.DECLINATION]);
+            SuntimesCalculator2Adapter.setValue(distance, i, equatorial[RenderEphemeris.DISTANCE]);
+        }
+        return true;
+    }
+
+    private void sunPosition(double jd, double obliquity)
+    {
+        RenderEphemeris.sunEquatorial(jd, obliquity, equatorial);
+        double hourAngle = RenderEphemeris.siderealTime(jd) + longitude - equatorial[RenderEphemeris.RIGHT_ASCENSION];
+        RenderEphemeris.horizontal(hourAngle, equatorial[RenderEphemeris.DECLINATION], sinLatitude, cosLatitude, 0, horizontal);
+    }
+
+    private void moonPosition(double jd, double obliquity)
+    {
+        RenderEphemeris.moonEquatorial(jd, obliquity, equatorial);
+        double hourAngle = RenderEphemeris.siderealTime(jd) + longitude - equatorial[RenderEphemeris.RIGHT_ASCENSION];
+        double parallax = Math.asin(RenderEphemeris.EARTH_RADIUS / equatorial[RenderEphemeris.DISTANCE]);
+        RenderEphemeris.horizontal(hourAngle, equatorial[RenderEphemeris.DECLINATION], sinLatitude, cosLatitude, parallax, horizontal);
+    }
+
+    @Override
+    public long sunEventMillis(long dayMillis, int event) {
+        return calculator.sunEventMillis(dayMillis, event);
+    }
+
+    @Override
+    public long sunriseMillis(long dayMillis, double angle) {
+        return calculator.sunriseMillis(dayMillis, angle);
+    }
+
+    @Override
+    public long sunsetMillis(long dayMillis, double angle) {
+        return calculator.sunsetMillis(dayMillis, angle);
+    }
+
+    @Override
+    public boolean isDay(long millis) {
+        return calculator.isDay(millis);
+    }
+
+    @Override
+    public boolean moonTimes(long dayMillis, long[] out) {
+        return calculator.moonTimes(dayMillis, out);
+    }
+
+    @Override
+    public double moonIllumination(long millis) {
+        return calculator.moonIllumination(millis);
+    }
+
+    @Override
+    public long moonPhaseNextMillis(SuntimesCalculator.MoonPhase phase, long millis) {
+        return calculator.moonPhaseNextMillis(phase, millis);
+    }
+
+    @Override
+    public double equationOfTime(long millis) {
+        return calculator.equationOfTime(millis);
+    }
+}
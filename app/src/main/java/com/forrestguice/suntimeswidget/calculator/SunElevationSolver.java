@@ -0,0 +1,459 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.calculator;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator;
+import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator2;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * SunElevationSolver
+ * Finds the times the sun (or any elevation curve) crosses a given elevation.
+ *
+ * The curve is swept in steps (every `stepMillis`); each step that brackets a crossing is then solved with
+ * Brent's method (to within `toleranceMillis`). Local extrema between steps (e.g. an elevation that is only
+ * just reached near noon, or at polar latitudes) are located by Brent's minimization (stopping as soon as the
+ * elevation is crossed), so that crossings that don't change sign at the sampled steps are also found. All times
+ * are epoch milliseconds.
+ *
+ * Crossings are solved on the curve itself (e.g. the sun's position, as drawn by the graph). The calculator's
+ * angle events (sunriseMillis, sunsetMillis) also apply refraction and the altitude (horizon dip), so `findEvent`
+ * refines a crossing with the calculator's own root; the times that are displayed, seeked to (the light map), and
+ * that alarms are set for then agree.
+ */
+public class SunElevationSolver
+{
+    public static final long DEFAULT_TOLERANCE_MILLIS = 1000;          // 1s
+    public static final long DEFAULT_STEP_MILLIS = 3 * 60 * 60 * 1000;   // 3hr
+    public static final int MAX_ITERATIONS = 100;
+
+    /**
+     * ElevationFunction
+     */
+    public interface ElevationFunction
+    {
+        double elevation(long millis);    // degrees
+    }
+
+    /**
+     * @return the sun's elevation (using `calculator`), or NaN if the calculator doesn't support FEATURE_POSITION
+     */
+    public static ElevationFunction sunElevation(@NonNull SuntimesCalculator calculator)
+    {
+        final SuntimesCalculator2 calculator2 = SuntimesCalculator2Adapter.of(calculator);
+        final double[] position = new double[SuntimesCalculator2.NUM_POSITION_VALUES];
+        return new ElevationFunction()
+        {
+            @Override
+            public double elevation(long millis)
+            {
+                return (calculator2.sunPosition(millis, position) ? position[SuntimesCalculator2.POSITION_ELEVATION] : Double.NaN);
+            }
+        };
+    }
+
+    /**
+     * EventFunction
+     */
+    public interface EventFunction
+    {
+        long event(long dayMillis, double degrees, boolean rising);    // epoch millis, or SuntimesCalculator2.NONE
+    }
+
+    /**
+     * @return the calculator's angle events (sunriseMillis, sunsetMillis) on the day containing `dayMillis`
+     */
+    public static EventFunction sunEvents(@NonNull SuntimesCalculator calculator)
+    {
+        final SuntimesCalculator2 calculator2 = SuntimesCalculator2Adapter.of(calculator);
+        return new EventFunction()
+        {
+            @Override
+            public long event(long dayMillis, double degrees, boolean rising) {
+                return (rising ? calculator2.sunriseMillis(dayMillis, degrees) : calculator2.sunsetMillis(dayMillis, degrees));
+            }
+        };
+    }
+
+    /**
+     * Crossing
+     */
+    public static final class Crossing
+    {
+        public final long millis;
+        public final boolean rising;
+
+        public Crossing(long millis, boolean rising)
+        {
+            this.millis = millis;
+            this.rising = rising;
+        }
+
+        @Override
+        public String toString() {
+            return (rising ? "rising @ " : "setting @ ") + millis;
+        }
+    }
+
+    protected final ElevationFunction f;
+    protected final long toleranceMillis;
+    protected final long stepMillis;
+    protected int evaluations = 0;
+
+    private long lastMillis = Long.MIN_VALUE;
+    private double lastElevation = Double.NaN;
+
+    private long sampleStart = Long.MIN_VALUE, sampleEnd = Long.MIN_VALUE;
+    private long[] sampleTimes = null;
+    private double[] sampleElevations = null;
+
+    public SunElevationSolver(@NonNull ElevationFunction f) {
+        this(f, DEFAULT_TOLERANCE_MILLIS, DEFAULT_STEP_MILLIS);
+    }
+
+    /**
+     * @param f the elevation curve
+     * @param toleranceMillis crossings are found to within this tolerance
+     * @param stepMillis the sweep step; should be small enough that the curve has at most one extremum per step
+     */
+    public SunElevationSolver(@NonNull ElevationFunction f, long toleranceMillis, long stepMillis)
+    {
+        this.f = f;
+        this.toleranceMillis = Math.max(1, toleranceMillis);
+        this.stepMillis = Math.max(this.toleranceMillis, stepMillis);
+    }
+
+    /**
+     * @return the number of times the elevation function was evaluated (since construction)
+     */
+    public int getEvaluations() {
+        return evaluations;
+    }
+
+    protected double elevation(long millis)
+    {
+        if (millis != lastMillis)
+        {
+            evaluations++;
+            lastMillis = millis;
+            lastElevation = f.elevation(millis);
+        }
+        return lastElevation;
+    }
+
+    protected double g(long millis, double degrees) {
+        return elevation(millis) - degrees;
+    }
+
+    /**
+     * Samples [startMillis, endMillis] every step (extending a step beyond either end; extrema near the ends).
+     * The samples don't depend on the elevation being searched for, so they are kept and reused when finding
+     * other elevations within the same range (e.g. the graph's points).
+     */
+    protected void sample(long startMillis, long endMillis)
+    {
+        if (sampleTimes != null && startMillis == sampleStart && endMillis == sampleEnd) {
+            return;
+        }
+        int n = (int) Math.ceil((endMillis - startMillis) / (double) stepMillis) + 1;
+        sampleTimes = new long[n + 2];
+        sampleElevations = new double[n + 2];
+        for (int i = 0; i < sampleTimes.length; i++)
+        {
+            sampleTimes[i] = (i == 0) ? startMillis - stepMillis
+                           : (i == sampleTimes.length - 1) ? endMillis + stepMillis
+                           : Math.min(endMillis, startMillis + ((i - 1) * stepMillis));
+            sampleElevations[i] = elevation(sampleTimes[i]);
+        }
+        sampleStart = startMillis;
+        sampleEnd = endMillis;
+    }
+
+    /**
+     * @param degrees the elevation to find
+     * @param startMillis start of the search (inclusive)
+     * @param endMillis end of the search (inclusive)
+     * @param rising true finds a rising crossing, false a setting crossing, null either
+     * @return the first crossing in [startMillis, endMillis], or null if the elevation isn't crossed
+     */
+    @Nullable
+    public Long findCrossing(double degrees, long startMillis, long endMillis, @Nullable Boolean rising)
+    {
+        for (Crossing crossing : findCrossings(degrees, startMillis, endMillis))
+        {
+            if (rising == null || crossing.rising == rising) {
+                return crossing.millis;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds a crossing (see findCrossing), then refines it with the event's own root (e.g. the calculator's angle
+     * event, which also applies refraction and the horizon dip). The crossing is kept if there is no root within
+     * [startMillis, endMillis]; the root is used if the curve itself doesn't quite reach `degrees`.
+     * @param events the events that are displayed (e.g. sunEvents)
+     * @param degrees the elevation to find
+     * @param startMillis start of the search (inclusive); e.g. the start of the day
+     * @param endMillis end of the search (inclusive); e.g. the end of the day
+     * @param rising true finds a rising event, false a setting event
+     * @return the event in [startMillis, endMillis], or null if the elevation isn't reached
+     */
+    @Nullable
+    public Long findEvent(@NonNull EventFunction events, double degrees, long startMillis, long endMillis, boolean rising)
+    {
+        Long crossing = findCrossing(degrees, startMillis, endMillis, rising);
+        long root = events.event((crossing != null ? crossing : startMillis), degrees, rising);
+        if (root != SuntimesCalculator2.NONE && root >= startMillis && root <= endMillis) {
+            return root;
+        }
+        return crossing;
+    }
+
+    /**
+     * Finds every crossing of `degrees` in [startMillis, endMillis] (in one sweep).
+     * @return crossings (sorted by time)
+     */
+    @NonNull
+    public List<Crossing> findCrossings(double degrees, long startMillis, long endMillis)
+    {
+        List<Crossing> crossings = new ArrayList<>();
+        if (endMillis < startMillis) {
+            return crossings;
+        }
+
+        sample(startMillis, endMillis);
+        long[] t = sampleTimes;
+        double[] g = new double[t.length];
+        for (int i = 0; i < t.length; i++)
+        {
+            if (Double.isNaN(sampleElevations[i])) {
+                return crossings;    // unsupported (e.g. a calculator without FEATURE_POSITION)
+            }
+            g[i] = sampleElevations[i] - degrees;
+        }
+
+        for (int i = 1; i < t.length - 2; i++)    // (the steps beyond either end are only used to find extrema)
+        {
+            if (t[i + 1] <= t[i]) {
+                continue;
+            }
+            if ((g[i] < 0) != (g[i + 1] < 0)) {
+                crossings.add(new Crossing(solve(degrees, t[i], g[i], t[i + 1], g[i + 1]), g[i + 1] >= 0));
+            }
+        }
+
+        for (int i = 1; i < t.length - 1; i++)
+        {
+            boolean isMax = (g[i] >= g[i - 1] && g[i] >= g[i + 1]);
+            boolean isMin = (g[i] <= g[i - 1] && g[i] <= g[i + 1]);
+            boolean sameSign = ((g[i - 1] < 0) == (g[i] < 0)) && ((g[i] < 0) == (g[i + 1] < 0));
+            if ((isMax && g[i] < 0) || (isMin && g[i] >= 0))
+            {
+                if (sameSign && t[i - 1] < t[i] && t[i] < t[i + 1])
+                {
+                    long x = findExtremum(degrees, t[i - 1], g[i - 1], t[i], g[i], t[i + 1], g[i + 1], isMax);    // peak (or trough) between steps
+                    double gx = g(x, degrees);
+                    if ((gx < 0) != (g[i] < 0))
+                    {
+                        crossings.add(new Crossing(solve(degrees, t[i - 1], g[i - 1], x, gx), isMax));
+                        crossings.add(new Crossing(solve(degrees, x, gx, t[i + 1], g[i + 1]), !isMax));
+                    }
+                }
+            }
+        }
+
+        Collections.sort(crossings, new Comparator<Crossing>() {
+            @Override
+            public int compare(Crossing c1, Crossing c2) {
+                return (c1.millis < c2.millis) ? -1 : ((c1.millis == c2.millis) ? 0 : 1);
+            }
+        });
+
+        List<Crossing> results = new ArrayList<>(crossings.size());
+        for (Crossing crossing : crossings)
+        {
+            if (crossing.millis >= startMillis && crossing.millis <= endMillis
+                    && (results.isEmpty() || crossing.millis - results.get(results.size() - 1).millis > toleranceMillis)) {
+                results.add(crossing);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Brent's method; `g0` and `g1` must bracket the crossing (opposite signs).
+     * @return the time of the crossing (to within toleranceMillis)
+     */
+    public long solve(double degrees, long t0, double g0, long t1, double g1)
+    {
+        final double eps = 1e-15;
+        double a = 0, b = (t1 - t0), c = b;    // relative to t0
+        double fa = g0, fb = g1, fc = fb;
+        double d = b - a, e = d;
+
+        for (int i = 0; i < MAX_ITERATIONS; i++)
+        {
+            if ((fb > 0 && fc > 0) || (fb < 0 && fc < 0))
+            {
+                c = a;
+                fc = fa;
+                e = d = b - a;
+            }
+            if (Math.abs(fc) < Math.abs(fb))
+            {
+                a = b;  b = c;  c = a;
+                fa = fb;  fb = fc;  fc = fa;
+            }
+
+            double tol = (2 * eps * Math.abs(b)) + (0.5 * toleranceMillis);
+            double xm = 0.5 * (c - b);
+            if (Math.abs(xm) <= tol || fb == 0) {
+                break;
+            }
+
+            if (Math.abs(e) >= tol && Math.abs(fa) > Math.abs(fb))
+            {
+                double p, q, r, s = fb / fa;
+                if (a == c) {
+                    p = 2 * xm * s;                                                  // secant
+                    q = 1 - s;
+                } else {
+                    q = fa / fc;                                                     // inverse quadratic interpolation
+                    r = fb / fc;
+                    p = s * ((2 * xm * q * (q - r)) - ((b - a) * (r - 1)));
+                    q = (q - 1) * (r - 1) * (s - 1);
+                }
+                if (p > 0) {
+                    q = -q;
+                }
+                p = Math.abs(p);
+
+                if ((2 * p) < Math.min((3 * xm * q) - Math.abs(tol * q), Math.abs(e * q)))
+                {
+                    e = d;
+                    d = p / q;
+                } else {
+                    d = xm;    // bisection
+                    e = d;
+                }
+            } else {
+                d = xm;
+                e = d;
+            }
+
+            a = b;
+            fa = fb;
+            b += (Math.abs(d) > tol) ? d : (xm > 0 ? tol : -tol);
+            fb = g(t0 + Math.round(b), degrees);
+        }
+        return t0 + Math.round(b);
+    }
+
+    /**
+     * Brent's method (golden-section search with parabolic interpolation) for the maximum (or minimum) in [t0, t2],
+     * starting from the sampled extremum at t1. The search ends early if it finds a point on the other side of
+     * `degrees` (the crossings are then bracketed).
+     */
+    protected long findExtremum(double degrees, long t0, double g0, long t1, double g1, long t2, double g2, boolean maximum)
+    {
+        final double c = (3 - Math.sqrt(5)) / 2;
+        final double s = (maximum ? -1 : 1);          // minimizes s * g
+        final boolean below = (g1 < 0);
+
+        double a = t0, b = t2;
+        double x = t1, w = t0, v = t2;
+        double fx = s * g1, fw = s * g0, fv = s * g2;
+        double d = 0, e = (b - a);
+
+        double tol = Math.max(toleranceMillis, 60 * 1000) / 2d;
+        for (int i = 0; i < MAX_ITERATIONS; i++)
+        {
+            double xm = 0.5 * (a + b);
+            if (Math.abs(x - xm) <= (2 * tol) - (0.5 * (b - a))) {
+                break;
+            }
+
+            boolean golden = true;
+            if (Math.abs(e) > tol)
+            {
+                double r = (x - w) * (fx - fv);
+                double q = (x - v) * (fx - fw);
+                double p = ((x - v) * q) - ((x - w) * r);
+                q = 2 * (q - r);
+                if (q > 0) {
+                    p = -p;
+                }
+                q = Math.abs(q);
+                double e0 = e;
+                e = d;
+                if (Math.abs(p) < Math.abs(0.5 * q * e0) && p > q * (a - x) && p < q * (b - x))
+                {
+                    d = p / q;                                                 // parabolic interpolation
+                    double u = x + d;
+                    if ((u - a) < (2 * tol) || (b - u) < (2 * tol)) {
+                        d = (xm >= x ? tol : -tol);
+                    }
+                    golden = false;
+                }
+            }
+            if (golden)
+            {
+                e = (x >= xm ? a - x : b - x);
+                d = c * e;
+            }
+
+            double u = x + (Math.abs(d) >= tol ? d : (d > 0 ? tol : -tol));
+            double gu = g(Math.round(u), degrees);
+            if ((gu < 0) != below) {
+                return Math.round(u);    // crossed
+            }
+
+            double fu = s * gu;
+            if (fu <= fx)
+            {
+                if (u >= x) {
+                    a = x;
+                } else b = x;
+                v = w;  fv = fw;
+                w = x;  fw = fx;
+                x = u;  fx = fu;
+
+            } else {
+                if (u < x) {
+                    a = u;
+                } else b = u;
+                if (fu <= fw || w == x) {
+                    v = w;  fv = fw;
+                    w = u;  fw = fu;
+                } else if (fu <= fv || v == x || v == w) {
+                    v = u;  fv = fu;
+                }
+            }
+        }
+        return Math.round(x);
+    }
+}
@@ -0,0 +1,207 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.calculator;
+
+import android.support.annotation.NonNull;
+
+import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator;
+import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator2;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Implements SuntimesCalculator2 on top of a calculator that only implements SuntimesCalculator
+ * (e.g. one provided by an addon); each call converts to (and from) Calendar.
+ */
+public class SuntimesCalculator2Adapter implements SuntimesCalculator2
+{
+    /**
+     * @return the calculator itself if it implements SuntimesCalculator2, or an adapter
+     */
+    public static SuntimesCalculator2 of(@NonNull SuntimesCalculator calculator)
+    {
+        if (calculator instanceof SuntimesCalculator2) {
+            return (SuntimesCalculator2) calculator;
+        } else return new SuntimesCalculator2Adapter(calculator);
+    }
+
+    protected final SuntimesCalculator calculator;
+
+    public SuntimesCalculator2Adapter(@NonNull SuntimesCalculator calculator) {
+        this.calculator = calculator;
+    }
+
+    protected Calendar calendar(long millis)
+    {
+        TimeZone timezone = calculator.getTimeZone();
+        Calendar calendar = (timezone != null ? Calendar.getInstance(timezone) : Calendar.getInstance());
+        calendar.setTimeInMillis(millis);
+        return calendar;
+    }
+
+    @Override
+    public long sunEventMillis(long dayMillis, int event)
+    {
+        Calendar day = calendar(dayMillis);
+        switch (event)
+        {
+            case SUN_ACTUAL_RISE: return SuntimesDailyEvents.toMillis(calculator.getOfficialSunriseCalendarForDate(day));
+            case SUN_ACTUAL_SET: return SuntimesDailyEvents.toMillis(calculator.getOfficialSunsetCalendarForDate(day));
+            case SUN_CIVIL_RISE: return SuntimesDailyEvents.toMillis(calculator.getCivilSunriseCalendarForDate(day));
+            case SUN_CIVIL_SET: return SuntimesDailyEvents.toMillis(calculator.getCivilSunsetCalendarForDate(day));
+            case SUN_NAUTICAL_RISE: return SuntimesDailyEvents.toMillis(calculator.getNauticalSunriseCalendarForDate(day));
+            case SUN_NAUTICAL_SET: return SuntimesDailyEvents.toMillis(calculator.getNauticalSunsetCalendarForDate(day));
+            case SUN_ASTRO_RISE: return SuntimesDailyEvents.toMillis(calculator.getAstronomicalSunriseCalendarForDate(day));
+            case SUN_ASTRO_SET: return SuntimesDailyEvents.toMillis(calculator.getAstronomicalSunsetCalendarForDate(day));
+            case SUN_NOON: return SuntimesDailyEvents.toMillis(calculator.getSolarNoonCalendarForDate(day));
+            case SUN_GOLDEN_MORNING: return SuntimesDailyEvents.toMillis(calculator.getMorningGoldenHourForDate(day));
+            case SUN_GOLDEN_EVENING: return SuntimesDailyEvents.toMillis(calculator.getEveningGoldenHourForDate(day));
+            case SUN_BLUE8_RISE: return toMillis(calculator.getMorningBlueHourForDate(day), 0);
+            case SUN_BLUE4_RISE: return toMillis(calculator.getMorningBlueHourForDate(day), 1);
+            case SUN_BLUE4_SET: return toMillis(calculator.getEveningBlueHourForDate(day), 0);
+            case SUN_BLUE8_SET: return toMillis(calculator.getEveningBlueHourForDate(day), 1);
+            default: return NONE;
+        }
+    }
+
+    protected static long toMillis(Calendar[] calendars, int i) {
+        return (calendars != null && i < calendars.length ? SuntimesDailyEvents.toMillis(calendars[i]) : NONE);
+    }
+
+    @Override
+    public long sunriseMillis(long dayMillis, double angle) {
+        return SuntimesDailyEvents.toMillis(calculator.getSunriseCalendarForDate(calendar(dayMillis), angle));
+    }
+
+    @Override
+    public long sunsetMillis(long dayMillis, double angle) {
+        return SuntimesDailyEvents.toMillis(calculator.getSunsetCalendarForDate(calendar(dayMillis), angle));
+    }
+
+    @Override
+    public boolean isDay(long millis) {
+        return calculator.isDay(calendar(millis));
+    }
+
+    @Override
+    public boolean sunPosition(long millis, double[] out)
+    {
+        SuntimesCalculator.SunPosition position = calculator.getSunPosition(calendar(millis));
+        if (position != null)
+        {
+            out[POSITION_AZIMUTH] = position.azimuth;
+            out[POSITION_ELEVATION] = position.elevation;
+            out[POSITION_RIGHT_ASCENSION] = position.rightAscension;
+            out[POSITION_DECLINATION] = position.declination;
+            return true;
+        } else return false;
+    }
+
+    @Override
+    public boolean moonPosition(long millis, double[] out)
+    {
+        SuntimesCalculator.MoonPosition position = calculator.getMoonPosition(calendar(millis));
+        if (position != null)
+        {
+            out[POSITION_AZIMUTH] = position.azimuth;
+            out[POSITION_ELEVATION] = position.elevation;
+            out[POSITION_RIGHT_ASCENSION] = position.rightAscension;
+            out[POSITION_DECLINATION] = position.declination;
+            out[POSITION_DISTANCE] = position.distance;
+            return true;
+        } else return false;
+    }
+
+    @Override
+    public boolean sunPositions(long[] times, double[] azimuth, double[] elevation, double[] rightAscension, double[] declination)
+    {
+        Calendar calendar = calendar(0);    // reused for each instant
+        for (int i=0; i<times.length; i++)
+        {
+            calendar.setTimeInMillis(times[i]);
+            SuntimesCalculator.SunPosition position = calculator.getSunPosition(calendar);
+            if (position == null) {
+                return false;
+            }
+            setValue(azimuth, i, position.azimuth);
+            setValue(elevation, i, position.elevation);
+            setValue(rightAscension, i, position.rightAscension);
+            setValue(declination, i, position.declination);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean moonPositions(long[] times, double[] azimuth, double[] elevation, double[] rightAscension, double[] declination, double[] distance)
+    {
+        Calendar calendar = calendar(0);
+        for (int i=0; i<times.length; i++)
+        {
+            calendar.setTimeInMillis(times[i]);
+            SuntimesCalculator.MoonPosition position = calculator.getMoonPosition(calendar);
+            if (position == null) {
+                return false;
+            }
+            setValue(azimuth, i, position.azimuth);
+            setValue(elevation, i, position.elevation);
+            setValue(rightAscension, i, position.rightAscension);
+            setValue(declination, i, position.declination);
+            setValue(distance, i, position.distance);
+        }
+        return true;
+    }
+
+    /**
+     * Sets array[i] (if the array isn't null).
+     */
+    protected static void setValue(double[] array, int i, double value)
+    {
+        if (array != null) {
+            array[i] = value;
+        }
+    }
+
+    @Override
+    public boolean moonTimes(long dayMillis, long[] out)
+    {
+        SuntimesCalculator.MoonTimes moonTimes = calculator.getMoonTimesForDate(calendar(dayMillis));
+        if (moonTimes != null)
+        {
+            out[MOON_RISE] = SuntimesDailyEvents.toMillis(moonTimes.riseTime);
+            out[MOON_SET] = SuntimesDailyEvents.toMillis(moonTimes.setTime);
+            return true;
+        } else return false;
+    }
+
+    @Override
+    public double moonIllumination(long millis) {
+        return calculator.getMoonIlluminationForDate(calendar(millis));
+    }
+
+    @Override
+    public long moonPhaseNextMillis(SuntimesCalculator.MoonPhase phase, long millis) {
+        return SuntimesDailyEvents.toMillis(calculator.getMoonPhaseNextDate(phase, calendar(millis)));
+    }
+
+    @Override
+    public double equationOfTime(long millis) {
+        return calculator.equationOfTime(calendar(millis));
+    }
+}
@@ -30,6 +30,7 @@ import android.util.Log;
 import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator;
 import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculatorInfo;
 import com.forrestguice.suntimeswidget.settings.AppSettings;
+import com.forrestguice.suntimeswidget.settings.WidgetSettingsSnapshot;
 
 import java.security.InvalidParameterException;
 import java.util.ArrayList;
@@ -123,6 +124,8 @@ public class SuntimesCalculatorDescriptor implements Comparable, SuntimesCalcula
     public static void reinitCalculators(@Nullable Context context)
     {
         calculators.clear();
+        SuntimesCalculatorPool.getInstance().clear();
+        WidgetSettingsSnapshot.invalidateAll();    // snapshots hold descriptors
         initCalculators(context);
     }
 
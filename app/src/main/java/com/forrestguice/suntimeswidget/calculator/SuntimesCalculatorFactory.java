@@ -83,7 +83,9 @@ public class SuntimesCalculatorFactory
 
     /**
      * Create a calculator for a given location and timezone using the calculator descriptor that was
-     * passed to the factory when it was created.
+     * passed to the factory when it was created. Calculators are reused from SuntimesCalculatorPool
+     * when one has already been initialized with the same descriptor, location, and timezone, and
+     * are wrapped by CachingSuntimesCalculator (per-day results are memoized in SuntimesEventCache).
      * @param location a SuntimesWidgetSettings.Location specifying latitude and longitude
      * @param timezone a timezone string
      * @return a calculator object that implements SuntimesCalculator
@@ -91,20 +93,37 @@ public class SuntimesCalculatorFactory
     public SuntimesCalculator createCalculator(Location location, TimeZone timezone)
     {
         //long bench_start = System.nanoTime();
+        SuntimesCalculatorPool pool = SuntimesCalculatorPool.getInstance();
+        String key = ((location != null && timezone != null) ? SuntimesCalculatorPool.createKey(current, location, timezone) : null);
+        if (key != null)
+        {
+            SuntimesCalculator pooled = pool.get(key);
+            if (pooled != null) {
+                return pooled;
+            }
+        }
+
         SuntimesCalculator calculator;
+        boolean isFallback = false;
         try {
             //Log.d("createCalculator", "trying .oO( " + current.getReference() + " )");
-            Class calculatorClass = Class.forName(current.getReference());  // may fail if using proguard without exempting key classes
+            Class<?> calculatorClass = pool.findClass(current.getReference());  // may fail if using proguard without exempting key classes
             //Log.d("createCalculator", "found class " + calculatorClass.getName());
             calculator = (SuntimesCalculator)calculatorClass.newInstance();
             //Log.d("createCalculator", "using .oO( " + calculator.name() + " ): " + timezone);
 
         } catch (Exception e1) {
             calculator = fallbackCalculator();
+            isFallback = true;
             signalCreatedFallback(fallbackCalculatorDescriptor());
             Log.e("createCalculator", "fail! .oO( " + current.getReference() + "), so instantiating default: " + calculator.getClass().getName() + " :: " + timezone);
         }
         calculator.init(location, timezone, contextRef.get());
+        calculator = new CachingSuntimesCalculator(calculator);    // per-day results are shared through SuntimesEventCache
+
+        if (key != null && !isFallback) {
+            pool.put(key, calculator);    // fallbacks aren't pooled (so that listeners are signaled each time)
+        }
 
         //long bench_end = System.nanoTime();
         //Log.d("DEBUG", "created " + calculator.name() + " :: " + ((bench_end - bench_start) / 1000000.0) + " ms");
@@ -0,0 +1,160 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.calculator;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.forrestguice.suntimeswidget.calculator.core.Location;
+import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * A process-wide pool of initialized SuntimesCalculator instances.
+ *
+ * Calculators are keyed by (descriptor, location, timezone); a calculator is only handed out again
+ * when all three match, so changing the location or timezone settings results in a new key (and a
+ * newly initialized calculator). Stale entries are evicted by least-recent-use once the pool is full.
+ * Resolved calculator classes are also cached so that createCalculator doesn't repeat Class.forName.
+ *
+ * Pooled calculators are shared between callers; implementations are expected to treat their
+ * state as read-only after init.
+ */
+public class SuntimesCalculatorPool
+{
+    public static final int MAX_SIZE = 32;
+
+    private static final SuntimesCalculatorPool instance = new SuntimesCalculatorPool(MAX_SIZE);
+    public static SuntimesCalculatorPool getInstance() {
+        return instance;
+    }
+
+    private final HashMap<String, Class<?>> classes = new HashMap<>();
+    private final LinkedHashMap<String, SuntimesCalculator> calculators;
+
+    private long hitCount = 0, missCount = 0, evictionCount = 0;
+
+    public SuntimesCalculatorPool(final int maxSize)
+    {
+        calculators = new LinkedHashMap<String, SuntimesCalculator>(maxSize, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SuntimesCalculator> eldest)
+            {
+                boolean evict = (size() > maxSize);
+                if (evict) {
+                    evictionCount++;
+                }
+                return evict;
+            }
+        };
+    }
+
+    /**
+     * @param reference fully qualified class name (@see SuntimesCalculatorDescriptor.getReference)
+     * @return the resolved class (cached after the first lookup)
+     * @throws ClassNotFoundException if the class cannot be found
+     */
+    public Class<?> findClass(String reference) throws ClassNotFoundException
+    {
+        synchronized (classes)
+        {
+            Class<?> calculatorClass = classes.get(reference);
+            if (calculatorClass == null) {
+                classes.put(reference, (calculatorClass = Class.forName(reference)));   // may fail if using proguard without exempting key classes
+            }
+            return calculatorClass;
+        }
+    }
+
+    /**
+     * @param key @see createKey
+     * @return a previously initialized calculator, or null if the pool doesn't contain one
+     */
+    @Nullable
+    public synchronized SuntimesCalculator get(String key)
+    {
+        SuntimesCalculator calculator = calculators.get(key);
+        if (calculator != null) {
+            hitCount++;
+        } else missCount++;
+        return calculator;
+    }
+
+    public synchronized void put(String key, SuntimesCalculator calculator) {
+        calculators.put(key, calculator);
+    }
+
+    /**
+     * Removes all pooled calculators (e.g. after location or timezone settings have changed).
+     * Cached classes are retained.
+     */
+    public synchronized void invalidate() {
+        calculators.clear();
+    }
+
+    /**
+     * Removes all pooled calculators and cached classes (e.g. after the list of installed calculators has changed).
+     */
+    public void clear()
+    {
+        invalidate();
+        synchronized (classes) {
+            classes.clear();
+        }
+    }
+
+    public synchronized int size() {
+        return calculators.size();
+    }
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+    public synchronized void resetCounts() {
+        hitCount = missCount = evictionCount = 0;
+    }
+
+    @Override
+    public synchronized String toString()
+    {
+        long total = hitCount + missCount;
+        int hitPercent = (total > 0 ? (int)((100 * hitCount) / total) : 0);
+        return "CalculatorPool [size: " + calculators.size() + ", hits: " + hitCount + ", misses: " + missCount + " (" + hitPercent + "%), evictions: " + evictionCount + "]";
+    }
+
+    /**
+     * @return a key identifying a calculator initialized with the given descriptor, location, and timezone
+     */
+    public static String createKey(@NonNull SuntimesCalculatorDescriptor descriptor, @NonNull Location location, @NonNull TimeZone timezone)
+    {
+        return descriptor.getName() + ":" + descriptor.getReference()
+                + "|" + location.getLatitude() + "," + location.getLongitude() + "," + location.getAltitude() + "," + location.useAltitude()
+                + "|" + timezone.getID() + "," + timezone.getRawOffset() + "," + timezone.getClass().getName();
+    }
+}
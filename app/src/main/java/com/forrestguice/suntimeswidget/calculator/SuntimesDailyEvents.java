@@ -0,0 +1,220 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.calculator;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator;
+import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator2;
+
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.TimeZone;
+
+/**
+ * A bulk engine that computes the standard daily events (sun, moon) or yearly events (seasons)
+ * for a contiguous range, one row per day (or year). Rows are streamed to a RangeCallback as
+ * primitive millis (or NONE), so no Calendar objects are allocated per event.
+ *
+ * Calculators that implement RangeCalculator compute the range natively (sharing per-range work
+ * between days); other calculators fall back to calling SuntimesCalculator once per event.
+ */
+public class SuntimesDailyEvents
+{
+    public static final long NONE = SuntimesCalculator2.NONE;
+
+    public static final int SUN_ACTUAL_RISE = SuntimesCalculator2.SUN_ACTUAL_RISE, SUN_ACTUAL_SET = SuntimesCalculator2.SUN_ACTUAL_SET,
+                            SUN_CIVIL_RISE = SuntimesCalculator2.SUN_CIVIL_RISE, SUN_CIVIL_SET = SuntimesCalculator2.SUN_CIVIL_SET,
+                            SUN_NAUTICAL_RISE = SuntimesCalculator2.SUN_NAUTICAL_RISE, SUN_NAUTICAL_SET = SuntimesCalculator2.SUN_NAUTICAL_SET,
+                            SUN_ASTRO_RISE = SuntimesCalculator2.SUN_ASTRO_RISE, SUN_ASTRO_SET = SuntimesCalculator2.SUN_ASTRO_SET,
+                            SUN_NOON = SuntimesCalculator2.SUN_NOON,
+                            SUN_GOLDEN_MORNING = SuntimesCalculator2.SUN_GOLDEN_MORNING, SUN_GOLDEN_EVENING = SuntimesCalculator2.SUN_GOLDEN_EVENING,
+                            SUN_BLUE8_RISE = SuntimesCalculator2.SUN_BLUE8_RISE, SUN_BLUE4_RISE = SuntimesCalculator2.SUN_BLUE4_RISE,
+                            SUN_BLUE4_SET = SuntimesCalculator2.SUN_BLUE4_SET, SUN_BLUE8_SET = SuntimesCalculator2.SUN_BLUE8_SET;
+    public static final int NUM_SUN_EVENTS = SuntimesCalculator2.NUM_SUN_EVENTS;
+
+    public static final int MOON_RISE = SuntimesCalculator2.MOON_RISE, MOON_SET = SuntimesCalculator2.MOON_SET;
+    public static final int NUM_MOON_EVENTS = SuntimesCalculator2.NUM_MOON_EVENTS;
+
+    public static final int SEASON_SPRING = 0, SEASON_SUMMER = 1, SEASON_AUTUMN = 2, SEASON_WINTER = 3,
+                            SEASON_SUMMER_PREVIOUS = 4, SEASON_WINTER_PREVIOUS = 5, SEASON_TROPICAL_YEAR_LENGTH = 6;
+    public static final int NUM_SEASON_EVENTS = 7;
+
+    /**
+     * RangeCallback
+     */
+    public interface RangeCallback
+    {
+        /**
+         * @param day the day (or year) of this row; the calendar is reused between rows
+         * @param values event millis (or NONE); the array is reused between rows
+         * @return true to continue, false to stop early
+         */
+        boolean onRow(Calendar day, long[] values);
+    }
+
+    /**
+     * RangeCalculator
+     * Implemented by calculators that can compute a range of days natively.
+     */
+    public interface RangeCalculator
+    {
+        void getSunEventsForRange(Calendar startDay, Calendar endDay, RangeCallback callback);
+        void getMoonEventsForRange(Calendar startDay, Calendar endDay, RangeCallback callback);
+    }
+
+    /**
+     * Computes sun events for days in [startDay, endDay).
+     */
+    public static void sunEventsForRange(@NonNull SuntimesCalculator calculator, @NonNull Calendar startDay, @NonNull Calendar endDay, @NonNull RangeCallback callback)
+    {
+        SuntimesCalculator c = unwrap(calculator);
+        if (c instanceof RangeCalculator) {
+            ((RangeCalculator) c).getSunEventsForRange(startDay, endDay, callback);
+            return;
+        }
+
+        Calendar day = (Calendar) startDay.clone();
+        long[] values = new long[NUM_SUN_EVENTS];
+        do {
+            sunEventsForDate(calculator, day, values);
+            if (!callback.onRow(day, values)) {
+                break;
+            }
+            day.add(Calendar.DAY_OF_YEAR, 1);
+        } while (day.before(endDay));
+    }
+
+    /**
+     * Computes moon events (rise, set) for days in [startDay, endDay).
+     */
+    public static void moonEventsForRange(@NonNull SuntimesCalculator calculator, @NonNull Calendar startDay, @NonNull Calendar endDay, @NonNull RangeCallback callback)
+    {
+        SuntimesCalculator c = unwrap(calculator);
+        if (c instanceof RangeCalculator) {
+            ((RangeCalculator) c).getMoonEventsForRange(startDay, endDay, callback);
+            return;
+        }
+
+        Calendar day = (Calendar) startDay.clone();
+        long[] values = new long[NUM_MOON_EVENTS];
+        do {
+            SuntimesCalculator.MoonTimes moonTimes = calculator.getMoonTimesForDate(day);
+            values[MOON_RISE] = (moonTimes != null ? toMillis(moonTimes.riseTime) : NONE);
+            values[MOON_SET] = (moonTimes != null ? toMillis(moonTimes.setTime) : NONE);
+            if (!callback.onRow(day, values)) {
+                break;
+            }
+            day.add(Calendar.DAY_OF_YEAR, 1);
+        } while (day.before(endDay));
+    }
+
+    /**
+     * Computes seasons for years in [startYear, endYear); each year's solstices are carried over to
+     * the next row (as the previous summer/winter), so every season is only computed once.
+     */
+    public static void seasonsForRange(@NonNull SuntimesCalculator calculator, @NonNull Calendar startYear, @NonNull Calendar endYear, @NonNull RangeCallback callback)
+    {
+        Calendar year = (Calendar) startYear.clone();
+        Calendar year0 = (Calendar) startYear.clone();
+        year0.add(Calendar.YEAR, -1);
+
+        long[] values = new long[NUM_SEASON_EVENTS];
+        values[SEASON_SUMMER_PREVIOUS] = toMillis(calculator.getSummerSolsticeForYear(year0));
+        values[SEASON_WINTER_PREVIOUS] = toMillis(calculator.getWinterSolsticeForYear(year0));
+        do {
+            values[SEASON_SPRING] = toMillis(calculator.getSpringEquinoxForYear(year));
+            values[SEASON_SUMMER] = toMillis(calculator.getSummerSolsticeForYear(year));
+            values[SEASON_AUTUMN] = toMillis(calculator.getAutumnalEquinoxForYear(year));
+            values[SEASON_WINTER] = toMillis(calculator.getWinterSolsticeForYear(year));
+            values[SEASON_TROPICAL_YEAR_LENGTH] = calculator.getTropicalYearLength(year);
+            if (!callback.onRow(year, values)) {
+                break;
+            }
+            values[SEASON_SUMMER_PREVIOUS] = values[SEASON_SUMMER];
+            values[SEASON_WINTER_PREVIOUS] = values[SEASON_WINTER];
+            year.add(Calendar.YEAR, 1);
+        } while (year.before(endYear));
+    }
+
+    /**
+     * Computes sun events for a single day (one event per calculator call).
+     */
+    public static void sunEventsForDate(@NonNull SuntimesCalculator calculator, @NonNull Calendar day, @NonNull long[] values)
+    {
+        values[SUN_ACTUAL_RISE] = toMillis(calculator.getOfficialSunriseCalendarForDate(day));
+        values[SUN_ACTUAL_SET] = toMillis(calculator.getOfficialSunsetCalendarForDate(day));
+        values[SUN_CIVIL_RISE] = toMillis(calculator.getCivilSunriseCalendarForDate(day));
+        values[SUN_CIVIL_SET] = toMillis(calculator.getCivilSunsetCalendarForDate(day));
+        values[SUN_NAUTICAL_RISE] = toMillis(calculator.getNauticalSunriseCalendarForDate(day));
+        values[SUN_NAUTICAL_SET] = toMillis(calculator.getNauticalSunsetCalendarForDate(day));
+        values[SUN_ASTRO_RISE] = toMillis(calculator.getAstronomicalSunriseCalendarForDate(day));
+        values[SUN_ASTRO_SET] = toMillis(calculator.getAstronomicalSunsetCalendarForDate(day));
+        values[SUN_NOON] = toMillis(calculator.getSolarNoonCalendarForDate(day));
+
+        values[SUN_GOLDEN_MORNING] = toMillis(calculator.getMorningGoldenHourForDate(day));
+        values[SUN_GOLDEN_EVENING] = toMillis(calculator.getEveningGoldenHourForDate(day));
+
+        Calendar[] morningBlue = calculator.getMorningBlueHourForDate(day);
+        Calendar[] eveningBlue = calculator.getEveningBlueHourForDate(day);
+        values[SUN_BLUE8_RISE] = (morningBlue != null ? toMillis(morningBlue[0]) : NONE);
+        values[SUN_BLUE4_RISE] = (morningBlue != null ? toMillis(morningBlue[1]) : NONE);
+        values[SUN_BLUE4_SET] = (eveningBlue != null ? toMillis(eveningBlue[0]) : NONE);
+        values[SUN_BLUE8_SET] = (eveningBlue != null ? toMillis(eveningBlue[1]) : NONE);
+    }
+
+    public static SuntimesCalculator unwrap(SuntimesCalculator calculator)
+    {
+        while (calculator instanceof CachingSuntimesCalculator) {
+            calculator = ((CachingSuntimesCalculator) calculator).getCalculator();
+        }
+        return calculator;
+    }
+
+    public static long toMillis(@Nullable Calendar calendar) {
+        return (calendar != null ? calendar.getTimeInMillis() : NONE);
+    }
+
+    /**
+     * @return the midpoint between two events; c1 if c2 is NONE, or NONE if c1 is NONE (@see SuntimesData.midpoint)
+     */
+    public static long midpoint(long c1, long c2)
+    {
+        if (c1 != NONE) {
+            return (c2 != NONE ? c1 + ((c2 - c1) / 2L) : c1);
+        } else return NONE;
+    }
+
+    @Nullable
+    public static Long toValue(long millis) {
+        return (millis != NONE ? millis : null);
+    }
+
+    @Nullable
+    public static Calendar toCalendar(long millis, TimeZone timezone)
+    {
+        if (millis != NONE)
+        {
+            Calendar calendar = new GregorianCalendar(timezone);
+            calendar.setTimeInMillis(millis);
+            return calendar;
+        } else return null;
+    }
+}
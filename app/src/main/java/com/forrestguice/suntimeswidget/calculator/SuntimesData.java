@@ -25,6 +25,7 @@ import android.util.Log;
 import com.forrestguice.suntimeswidget.calculator.core.Location;
 import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator;
 import com.forrestguice.suntimeswidget.settings.WidgetSettings;
+import com.forrestguice.suntimeswidget.settings.WidgetSettingsSnapshot;
 import com.forrestguice.suntimeswidget.settings.WidgetTimezones;
 
 import java.util.Calendar;
@@ -199,25 +200,26 @@ public class SuntimesData
     {
         this.appWidgetID = appWidgetId;
         calculated = false;
+        WidgetSettingsSnapshot settings = WidgetSettingsSnapshot.get(context, appWidgetId);
 
         // from general settings
-        calculatorMode = WidgetSettings.loadCalculatorModePref(context, appWidgetId, calculatorName);
+        calculatorMode = (calculatorName.isEmpty() ? settings.calculatorMode : WidgetSettings.loadCalculatorModePref(context, appWidgetId, calculatorName));
 
         // from location settings
-        location = WidgetSettings.loadLocationPref(context, appWidgetId);
-        locationMode = WidgetSettings.loadLocationModePref(context, appWidgetId);
+        location = settings.location();
+        locationMode = settings.locationMode;
 
         // from timezone settings
-        timezone = TimeZone.getTimeZone(WidgetSettings.loadTimezonePref(context, appWidgetId));
-        timezoneMode = WidgetSettings.loadTimezoneModePref(context, appWidgetId);
+        timezone = TimeZone.getTimeZone(settings.timezone);
+        timezoneMode = settings.timezoneMode;
         initTimezone(context);
 
         // from date settings
-        WidgetSettings.DateMode dateMode = WidgetSettings.loadDateModePref(context, appWidgetId);
+        WidgetSettings.DateMode dateMode = settings.dateMode;
         if (dateMode == WidgetSettings.DateMode.CUSTOM_DATE)
         {
             Calendar customDate = Calendar.getInstance(timezone);
-            WidgetSettings.DateInfo dateInfo = WidgetSettings.loadDatePref(context, appWidgetId);
+            WidgetSettings.DateInfo dateInfo = settings.dateInfo;
             if (dateInfo.isSet())
             {
                 customDate.set(dateInfo.getYear(), dateInfo.getMonth(), dateInfo.getDay());
@@ -234,11 +236,12 @@ public class SuntimesData
     public void initTimezone(Context context)
     {
         int widgetID = appWidgetID;
-        if (appWidgetID != 0 && WidgetSettings.loadTimeZoneFromAppPref(context, appWidgetID))
+        if (appWidgetID != 0 && WidgetSettingsSnapshot.get(context, appWidgetID).timezoneFromApp)
         {
             widgetID = 0;
-            timezone = TimeZone.getTimeZone(WidgetSettings.loadTimezonePref(context, 0));
-            timezoneMode = WidgetSettings.loadTimezoneModePref(context, 0);
+            WidgetSettingsSnapshot appSettings = WidgetSettingsSnapshot.get(context, 0);
+            timezone = TimeZone.getTimeZone(appSettings.timezone);
+            timezoneMode = appSettings.timezoneMode;
         }
 
         switch (timezoneMode)
@@ -252,7 +255,7 @@ public class SuntimesData
                 break;
 
             case SOLAR_TIME:
-                WidgetSettings.SolarTimeMode solarMode = WidgetSettings.loadSolarTimeModePref(context, widgetID);
+                WidgetSettings.SolarTimeMode solarMode = WidgetSettingsSnapshot.get(context, widgetID).solarTimeMode;
                 switch (solarMode)
                 {
                     case APPARENT_SOLAR_TIME:
@@ -0,0 +1,180 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.calculator;
+
+import android.support.annotation.Nullable;
+
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A process-wide, size-bounded (least-recently-used) cache of per-day event results.
+ * @see CachingSuntimesCalculator
+ */
+public class SuntimesEventCache
+{
+    public static final int DEF_MAX_SIZE = 2048;
+
+    private static final SuntimesEventCache instance = new SuntimesEventCache(DEF_MAX_SIZE);
+    public static SuntimesEventCache getInstance() {
+        return instance;
+    }
+
+    private int maxSize;
+    private final LinkedHashMap<Key, Calendar[]> entries;
+    private long hitCount = 0, missCount = 0, evictionCount = 0;
+
+    public SuntimesEventCache(int maxSize)
+    {
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<Key, Calendar[]>(64, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Calendar[]> eldest)
+            {
+                boolean evict = (size() > SuntimesEventCache.this.maxSize);
+                if (evict) {
+                    evictionCount++;
+                }
+                return evict;
+            }
+        };
+    }
+
+    /**
+     * @param key cache key
+     * @return a cached result (that may contain null elements), or null if the key isn't cached
+     */
+    @Nullable
+    public synchronized Calendar[] get(Key key)
+    {
+        Calendar[] value = entries.get(key);
+        if (value != null) {
+            hitCount++;
+        } else missCount++;
+        return value;
+    }
+
+    public synchronized void put(Key key, Calendar[] value) {
+        entries.put(key, value);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized void setMaxSize(int value)
+    {
+        maxSize = value;
+        while (entries.size() > maxSize) {
+            Key eldest = entries.keySet().iterator().next();
+            entries.remove(eldest);
+            evictionCount++;
+        }
+    }
+    public synchronized int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+    public synchronized double getHitRate()
+    {
+        long total = hitCount + missCount;
+        return (total > 0 ? (hitCount / (double) total) : 0);
+    }
+    public synchronized void resetCounts() {
+        hitCount = missCount = evictionCount = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "EventCache [size: " + entries.size() + "/" + maxSize + ", hits: " + hitCount + ", misses: " + missCount + " (" + (int)(100 * getHitRate()) + "%), evictions: " + evictionCount + "]";
+    }
+
+    /**
+     * Key
+     * Identifies an event (and its parameter) for a given calculator (descriptor, rounded location, timezone) and local date.
+     */
+    public static final class Key
+    {
+        private final String calculator;
+        private final String zone;
+        private final int event;
+        private final long day0, day1;
+        private final long param;
+        private final int hash;
+
+        /**
+         * @param calculator calculator key (descriptor, rounded lat/lon/alt, and timezone)
+         * @param zone the timezone of the requested date
+         * @param event event identifier
+         * @param day0 the local date (days since epoch) in the calculator's timezone
+         * @param day1 the local date (days since epoch) in the timezone of the requested date
+         * @param param an additional event parameter (e.g. angle bits), or 0
+         */
+        public Key(String calculator, String zone, int event, long day0, long day1, long param)
+        {
+            this.calculator = calculator;
+            this.zone = zone;
+            this.event = event;
+            this.day0 = day0;
+            this.day1 = day1;
+            this.param = param;
+
+            int h = calculator.hashCode();
+            h = 31 * h + zone.hashCode();
+            h = 31 * h + event;
+            h = 31 * h + (int)(day0 ^ (day0 >>> 32));
+            h = 31 * h + (int)(day1 ^ (day1 >>> 32));
+            h = 31 * h + (int)(param ^ (param >>> 32));
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && event == other.event && day0 == other.day0 && day1 == other.day1 && param == other.param
+                    && calculator.equals(other.calculator) && zone.equals(other.zone);
+        }
+    }
+}
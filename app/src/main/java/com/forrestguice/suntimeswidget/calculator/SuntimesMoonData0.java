@@ -71,28 +71,40 @@ public class SuntimesMoonData0 extends SuntimesData
     }
 
     /**
-     * @return the date and position (Pair) of the upcoming lunar apogee.
+     * @return the date and position (Pair) of the upcoming lunar apogee (calculated once, until the next calculate()).
      */
     public Pair<Calendar, SuntimesCalculator.MoonPosition> getMoonApogee()
     {
-        Calendar apogeeDate = calculator.getMoonApogeeNextDate(todaysCalendar);
-        if (apogeeDate != null) {
-            SuntimesCalculator.MoonPosition apogeePosition = calculator.getMoonPosition(apogeeDate);
-            return new Pair<>(apogeeDate, apogeePosition);
-        } else return null;
+        Pair<Calendar, SuntimesCalculator.MoonPosition> apogee = this.apogee;
+        if (apogee == null)
+        {
+            Calendar apogeeDate = calculator.getMoonApogeeNextDate(todaysCalendar);
+            if (apogeeDate != null) {
+                SuntimesCalculator.MoonPosition apogeePosition = calculator.getMoonPosition(apogeeDate);
+                this.apogee = apogee = new Pair<>(apogeeDate, apogeePosition);
+            }
+        }
+        return apogee;
     }
+    private Pair<Calendar, SuntimesCalculator.MoonPosition> apogee = null;
 
     /**
-     * @return the date and position (Pair) of the upcoming lunar perigee.
+     * @return the date and position (Pair) of the upcoming lunar perigee (calculated once, until the next calculate()).
      */
     public Pair<Calendar, SuntimesCalculator.MoonPosition> getMoonPerigee()
     {
-        Calendar perigeeDate = calculator.getMoonPerigeeNextDate(todaysCalendar);
-        if (perigeeDate != null) {
-            SuntimesCalculator.MoonPosition perigeePosition = calculator.getMoonPosition(perigeeDate);
-            return new Pair<>(perigeeDate, perigeePosition);
-        } else return null;
+        Pair<Calendar, SuntimesCalculator.MoonPosition> perigee = this.perigee;
+        if (perigee == null)
+        {
+            Calendar perigeeDate = calculator.getMoonPerigeeNextDate(todaysCalendar);
+            if (perigeeDate != null) {
+                SuntimesCalculator.MoonPosition perigeePosition = calculator.getMoonPosition(perigeeDate);
+                this.perigee = perigee = new Pair<>(perigeeDate, perigeePosition);
+            }
+        }
+        return perigee;
     }
+    private Pair<Calendar, SuntimesCalculator.MoonPosition> perigee = null;
 
     /**
      * calculate
@@ -112,6 +124,7 @@ public class SuntimesMoonData0 extends SuntimesData
         }
         date = todaysCalendar.getTime();
         dateOther = otherCalendar.getTime();
+        apogee = perigee = null;
 
         super.calculate();
     }
@@ -26,6 +26,7 @@ import com.forrestguice.suntimeswidget.R;
 import com.forrestguice.suntimeswidget.alarmclock.AlarmEventProvider;
 import com.forrestguice.suntimeswidget.events.EventSettings;
 import com.forrestguice.suntimeswidget.settings.WidgetSettings;
+import com.forrestguice.suntimeswidget.settings.WidgetSettingsSnapshot;
 
 import java.util.Calendar;
 
@@ -285,8 +286,9 @@ public class SuntimesRiseSetData extends SuntimesData
     protected void initFromSettings(Context context, int appWidgetId, String calculatorName)
     {
         super.initFromSettings(context, appWidgetId, calculatorName);
-        setDataMode(WidgetSettings.loadTimeModePref(context, appWidgetId));
-        this.compareMode = WidgetSettings.loadCompareModePref(context, appWidgetId);
+        WidgetSettingsSnapshot settings = WidgetSettingsSnapshot.get(context, appWidgetId);
+        setDataMode(settings.timeMode);
+        this.compareMode = settings.compareMode;
     }
 
     public boolean isDay()
@@ -0,0 +1,171 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.calculator;
+
+import android.database.AbstractWindowedCursor;
+import android.database.CursorWindow;
+import android.os.Build;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+/**
+ * A lazy Cursor over a range of rows (e.g. one row per day) that computes rows on demand as the
+ * client moves through it. At most `windowSize` rows are materialized at any time (in the cursor's
+ * CursorWindow), so memory stays flat regardless of the size of the range.
+ */
+public class WindowedRangeCursor extends AbstractWindowedCursor
+{
+    public static final int DEF_WINDOW_SIZE = 64;
+
+    /**
+     * RowSource
+     */
+    public interface RowSource
+    {
+        /**
+         * @return the total number of rows (cheap to determine; no calculation)
+         */
+        int getCount();
+
+        /**
+         * Computes rows [position, position + numRows) in order, passing each row to the consumer.
+         */
+        void computeRows(int position, int numRows, @NonNull RowConsumer consumer);
+    }
+
+    /**
+     * RowConsumer
+     */
+    public interface RowConsumer
+    {
+        /**
+         * @param row column values (Long, Integer, Double, String, or null)
+         * @return true to continue, false to stop
+         */
+        boolean onRow(Object[] row);
+    }
+
+    protected final String[] columns;
+    protected final RowSource source;
+    protected final int count;
+    protected final int windowSize;
+
+    public WindowedRangeCursor(@NonNull String[] columns, @NonNull RowSource source) {
+        this(columns, source, DEF_WINDOW_SIZE);
+    }
+
+    public WindowedRangeCursor(@NonNull String[] columns, @NonNull RowSource source, int windowSize)
+    {
+        this.columns = columns;
+        this.source = source;
+        this.count = source.getCount();
+        this.windowSize = Math.max(1, windowSize);
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return columns;
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public boolean onMove(int oldPosition, int newPosition)
+    {
+        if (mWindow != null)
+        {
+            int start = mWindow.getStartPosition();
+            if (newPosition >= start && newPosition < start + mWindow.getNumRows()) {
+                return true;    // already materialized
+            }
+        }
+
+        int start = (newPosition < oldPosition) ? Math.max(0, newPosition - windowSize + 1) : newPosition;    // moving backward; window ends at newPosition
+        fillWindow(start);
+        return (mWindow != null && newPosition < mWindow.getStartPosition() + mWindow.getNumRows());
+    }
+
+    protected void fillWindow(int start)
+    {
+        if (mWindow == null) {
+            setWindow(createWindow());
+        }
+
+        final CursorWindow window = mWindow;
+        window.clear();
+        window.setStartPosition(start);
+        window.setNumColumns(columns.length);
+
+        int numRows = Math.min(windowSize, count - start);
+        source.computeRows(start, numRows, new RowConsumer()
+        {
+            @Override
+            public boolean onRow(Object[] row)
+            {
+                if (!window.allocRow()) {
+                    Log.w("WindowedRangeCursor", "fillWindow: window is full!");
+                    return false;
+                }
+
+                int position = window.getStartPosition() + window.getNumRows() - 1;
+                for (int i=0; i<columns.length; i++)
+                {
+                    if (!putValue(window, row[i], position, i)) {
+                        window.freeLastRow();
+                        return false;
+                    }
+                }
+                return true;
+            }
+        });
+    }
+
+    protected static boolean putValue(CursorWindow window, Object value, int position, int column)
+    {
+        if (value == null) {
+            return window.putNull(position, column);
+
+        } else if (value instanceof Double || value instanceof Float) {
+            return window.putDouble(((Number) value).doubleValue(), position, column);
+
+        } else if (value instanceof Number) {
+            return window.putLong(((Number) value).longValue(), position, column);
+
+        } else if (value instanceof Boolean) {
+            return window.putLong(((Boolean) value) ? 1 : 0, position, column);
+
+        } else if (value instanceof byte[]) {
+            return window.putBlob((byte[]) value, position, column);
+
+        } else {
+            return window.putString(value.toString(), position, column);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    protected static CursorWindow createWindow()
+    {
+        if (Build.VERSION.SDK_INT >= 15) {
+            return new CursorWindow("WindowedRangeCursor");
+        } else return new CursorWindow(false);
+    }
+}
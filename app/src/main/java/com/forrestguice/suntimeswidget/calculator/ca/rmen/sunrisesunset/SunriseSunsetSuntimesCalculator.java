@@ -21,6 +21,7 @@ package com.forrestguice.suntimeswidget.calculator.ca.rmen.sunrisesunset;
 import android.content.Context;
 import com.forrestguice.suntimeswidget.R;
 import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator;
+import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator2;
 import com.forrestguice.suntimeswidget.calculator.SuntimesCalculatorDescriptor;
 import com.forrestguice.suntimeswidget.calculator.core.Location;
 
@@ -29,7 +30,7 @@ import java.util.TimeZone;
 
 import ca.rmen.sunrisesunset.SunriseSunset;
 
-public class SunriseSunsetSuntimesCalculator implements SuntimesCalculator
+public class SunriseSunsetSuntimesCalculator implements SuntimesCalculator, SuntimesCalculator2
 {
     public static final String NAME = "ca.rmen.sunrisesunset";
     public static final String REF = "com.forrestguice.suntimeswidget.calculator.ca.rmen.sunrisesunset.SunriseSunsetSuntimesCalculator";
@@ -325,5 +326,103 @@ public class SunriseSunsetSuntimesCalculator implements SuntimesCalculator
         return null;   // TODO: supported by this lib?
     }
 
+    /**
+     * SuntimesCalculator2; the library only accepts (and returns) Calendar, so the day is converted once per call.
+     */
+    protected Calendar calendar(long millis)
+    {
+        Calendar calendar = Calendar.getInstance(timezone);
+        calendar.setTimeInMillis(millis);
+        return calendar;
+    }
+
+    protected static long toMillis(Calendar[] calendars, int i) {
+        return (calendars != null && calendars[i] != null ? calendars[i].getTimeInMillis() : NONE);
+    }
+
+    @Override
+    public long sunEventMillis(long dayMillis, int event)
+    {
+        Calendar day = calendar(dayMillis);
+        double latitude = location.getLatitudeAsDouble();
+        double longitude = location.getLongitudeAsDouble();
+        switch (event)
+        {
+            case SUN_ACTUAL_RISE: return toMillis(SunriseSunset.getSunriseSunset(day, latitude, longitude), 0);
+            case SUN_ACTUAL_SET: return toMillis(SunriseSunset.getSunriseSunset(day, latitude, longitude), 1);
+            case SUN_CIVIL_RISE: return toMillis(SunriseSunset.getCivilTwilight(day, latitude, longitude), 0);
+            case SUN_CIVIL_SET: return toMillis(SunriseSunset.getCivilTwilight(day, latitude, longitude), 1);
+            case SUN_NAUTICAL_RISE: return toMillis(SunriseSunset.getNauticalTwilight(day, latitude, longitude), 0);
+            case SUN_NAUTICAL_SET: return toMillis(SunriseSunset.getNauticalTwilight(day, latitude, longitude), 1);
+            case SUN_ASTRO_RISE: return toMillis(SunriseSunset.getAstronomicalTwilight(day, latitude, longitude), 0);
+            case SUN_ASTRO_SET: return toMillis(SunriseSunset.getAstronomicalTwilight(day, latitude, longitude), 1);
+            case SUN_GOLDEN_MORNING: return toMillis(SunriseSunset.getSunriseSunset(day, latitude, longitude, SUN_ALTITUDE_GOLDEN), 0);
+            case SUN_GOLDEN_EVENING: return toMillis(SunriseSunset.getSunriseSunset(day, latitude, longitude, SUN_ALTITUDE_GOLDEN), 1);
+            case SUN_BLUE8_RISE: return toMillis(SunriseSunset.getSunriseSunset(day, latitude, longitude, SUN_ALTITUDE_BLUE_HIGH), 0);
+            case SUN_BLUE4_RISE: return toMillis(SunriseSunset.getSunriseSunset(day, latitude, longitude, SUN_ALTITUDE_BLUE_LOW), 0);
+            case SUN_BLUE4_SET: return toMillis(SunriseSunset.getSunriseSunset(day, latitude, longitude, SUN_ALTITUDE_BLUE_LOW), 1);
+            case SUN_BLUE8_SET: return toMillis(SunriseSunset.getSunriseSunset(day, latitude, longitude, SUN_ALTITUDE_BLUE_HIGH), 1);
+            case SUN_NOON:
+                Calendar noon = SunriseSunset.getSolarNoon(day, latitude, longitude);
+                return (noon != null ? noon.getTimeInMillis() : NONE);
+            default: return NONE;
+        }
+    }
+
+    @Override
+    public long sunriseMillis(long dayMillis, double angle) {
+        return NONE;
+    }
+
+    @Override
+    public long sunsetMillis(long dayMillis, double angle) {
+        return NONE;
+    }
+
+    @Override
+    public boolean isDay(long millis) {
+        return SunriseSunset.isDay(calendar(millis), location.getLatitudeAsDouble(), location.getLongitudeAsDouble());
+    }
+
+    @Override
+    public boolean sunPosition(long millis, double[] out) {
+        return false;
+    }
+
+    @Override
+    public boolean moonPosition(long millis, double[] out) {
+        return false;
+    }
+
+    @Override
+    public boolean sunPositions(long[] times, double[] azimuth, double[] elevation, double[] rightAscension, double[] declination) {
+        return false;
+    }
+
+    @Override
+    public boolean moonPositions(long[] times, double[] azimuth, double[] elevation, double[] rightAscension, double[] declination, double[] distance) {
+        return false;
+    }
+
+    @Override
+    public boolean moonTimes(long dayMillis, long[] out) {
+        return false;
+    }
+
+    @Override
+    public double moonIllumination(long millis) {
+        return -1;
+    }
+
+    @Override
+    public long moonPhaseNextMillis(MoonPhase phase, long millis) {
+        return NONE;
+    }
+
+    @Override
+    public double equationOfTime(long millis) {
+        return Double.POSITIVE_INFINITY;
+    }
+
 }
 
@@ -42,6 +42,10 @@ public class Location implements Parcelable
     private String altitude;   // meters above the WGS 84 reference ellipsoid
     private boolean useAltitude = true;
 
+    private double latitudeValue = Double.NaN;    // parsed (and range adjusted) when constructed; NaN if unparsable
+    private double longitudeValue = Double.NaN;
+    private double altitudeValue = 0;
+
     /**
      * @param latitude decimal degrees (DD) string
      * @param longitude decimal degrees (DD) string
@@ -91,6 +95,7 @@ public class Location implements Parcelable
         } else {
             this.altitude = altitude;
         }
+        parseValues();
     }
 
     /**
@@ -109,6 +114,7 @@ public class Location implements Parcelable
         this.latitude = formatter.format(rawLatitude);
         this.longitude = formatter.format(rawLongitude);
         this.altitude = rawAltitude + "";
+        parseValues();
     }
 
     /**
@@ -121,6 +127,61 @@ public class Location implements Parcelable
         this.longitude = other.longitude;
         this.altitude = other.altitude;
         this.useAltitude = other.useAltitude;
+        this.latitudeValue = other.latitudeValue;
+        this.longitudeValue = other.longitudeValue;
+        this.altitudeValue = other.altitudeValue;
+    }
+
+    /**
+     * Parses the latitude, longitude, and altitude strings (once) so that the getters don't have to.
+     * Values that can't be parsed are left NaN; the getters then fall back to parsing the string (and throw).
+     */
+    private void parseValues()
+    {
+        try {
+            latitudeValue = adjustLatitude(Double.parseDouble(latitude));
+        } catch (NumberFormatException | NullPointerException e) {
+            latitudeValue = Double.NaN;
+        }
+
+        try {
+            longitudeValue = adjustLongitude(Double.parseDouble(longitude));
+        } catch (NumberFormatException | NullPointerException e) {
+            longitudeValue = Double.NaN;
+        }
+
+        try {
+            altitudeValue = (altitude == null || altitude.isEmpty()) ? 0 : Double.parseDouble(altitude);
+        } catch (NumberFormatException e) {
+            altitudeValue = 0;
+        }
+    }
+
+    private static double adjustLatitude(double latitudeDouble)
+    {
+        if (latitudeDouble > 90 || latitudeDouble < -90)
+        {
+            double s = Math.signum(latitudeDouble);
+            double adjusted = (s * 90) - (latitudeDouble % (s * 90));
+            Log.w("Location", "latitude is out of range! adjusting.. " + latitudeDouble + " -> " + adjusted);
+            latitudeDouble = adjusted;
+        }
+        return latitudeDouble;
+    }
+
+    private static double adjustLongitude(double longitudeDouble)
+    {
+        if (longitudeDouble > 180 || longitudeDouble < -180)
+        {
+            double s = Math.signum(longitudeDouble);
+            double adjusted = (longitudeDouble % (s * 180)) - (s * 180);
+            Log.w("Location", "longitude is out of range! adjusting.. " + longitudeDouble + " -> " + adjusted);
+            longitudeDouble = adjusted;
+        }
+        if (longitudeDouble == 180d) {
+            longitudeDouble = -180d;
+        }
+        return longitudeDouble;
     }
 
     /**
@@ -139,17 +200,16 @@ public class Location implements Parcelable
         return latitude;
     }
 
-    public Double getLatitudeAsDouble()
+    /**
+     * @return latitude in decimal degrees (DD), adjusted to range [-90, 90]
+     * @throws NumberFormatException if the latitude string can't be parsed
+     */
+    public double getLatitudeAsDouble()
     {
-        double latitudeDouble = Double.parseDouble(latitude);
-        if (latitudeDouble > 90 || latitudeDouble < -90)
-        {
-            double s = Math.signum(latitudeDouble);
-            double adjusted = (s * 90) - (latitudeDouble % (s * 90));
-            Log.w("Location", "latitude is out of range! adjusting.. " + latitudeDouble + " -> " + adjusted);
-            latitudeDouble = adjusted;
+        if (Double.isNaN(latitudeValue)) {
+            return adjustLatitude(Double.parseDouble(latitude));
         }
-        return latitudeDouble;
+        return latitudeValue;
     }
 
     /**
@@ -160,20 +220,16 @@ public class Location implements Parcelable
         return longitude;
     }
 
-    public Double getLongitudeAsDouble()
+    /**
+     * @return longitude in decimal degrees (DD), adjusted to range [-180, 180)
+     * @throws NumberFormatException if the longitude string can't be parsed
+     */
+    public double getLongitudeAsDouble()
     {
-        Double longitudeDouble = Double.parseDouble(longitude);
-        if (longitudeDouble > 180 || longitudeDouble < -180)
-        {
-            double s = Math.signum(longitudeDouble);
-            double adjusted = (longitudeDouble % (s * 180)) - (s * 180);
-            Log.w("Location", "longitude is out of range! adjusting.. " + longitudeDouble + " -> " + adjusted);
-            longitudeDouble = adjusted;
-        }
-        if (longitudeDouble == 180d) {
-            longitudeDouble = -180d;
+        if (Double.isNaN(longitudeValue)) {
+            return adjustLongitude(Double.parseDouble(longitude));
         }
-        return longitudeDouble;
+        return longitudeValue;
     }
 
     /**
@@ -184,23 +240,16 @@ public class Location implements Parcelable
         return altitude;
     }
 
-    public Double getAltitudeAsDouble()
+    /**
+     * @return altitude in meters (or 0 if altitude is disabled)
+     */
+    public double getAltitudeAsDouble()
     {
-        if (!useAltitude || altitude.isEmpty())
-            return 0.0;
-        else {
-            try {
-                return Double.parseDouble(altitude);
-            } catch (NumberFormatException e) {
-                return 0.0;
-            }
-        }
+        return (useAltitude ? altitudeValue : 0);
     }
-    public Integer getAltitudeAsInteger()
+    public int getAltitudeAsInteger()
     {
-        if (!useAltitude || altitude.isEmpty())
-            return 0;
-        else return getAltitudeAsDouble().intValue();
+        return (int) getAltitudeAsDouble();
     }
     public void setUseAltitude( boolean enabled )
     {
@@ -249,6 +298,32 @@ public class Location implements Parcelable
         }
     }
 
+    @Override
+    public int hashCode()
+    {
+        int hash = (label != null ? label.hashCode() : 0);
+        hash = 31 * hash + (latitude != null ? latitude.hashCode() : 0);
+        hash = 31 * hash + (longitude != null ? longitude.hashCode() : 0);
+        hash = 31 * hash + (altitude != null ? altitude.hashCode() : 0);
+        return hash;
+    }
+
+    /**
+     * A key for caching values that depend on position (but not label); lat/lon are rounded to 4 decimal
+     * places (~11m), and altitude to whole meters (0 if altitude is disabled).
+     * @return latitude (21 bits), longitude (22 bits), and altitude (21 bits) packed into a long
+     * @throws NumberFormatException if the latitude or longitude can't be parsed
+     */
+    public long getCoordinateKey()
+    {
+        long lat = Math.round(getLatitudeAsDouble() * COORDINATE_KEY_PRECISION) + 900000L;      // [0, 1800000]
+        long lon = Math.round(getLongitudeAsDouble() * COORDINATE_KEY_PRECISION) + 1800000L;    // [0, 3600000]
+        long alt = Math.max(-ALTITUDE_KEY_LIMIT, Math.min(ALTITUDE_KEY_LIMIT, Math.round(getAltitudeAsDouble()))) + ALTITUDE_KEY_LIMIT;
+        return (lat << 43) | (lon << 21) | alt;
+    }
+    public static final double COORDINATE_KEY_PRECISION = 10000d;
+    private static final long ALTITUDE_KEY_LIMIT = (1L << 20) - 1;
+
     public static DecimalFormat decimalDegreesFormatter()
     {
         DecimalFormat formatter = (DecimalFormat)(NumberFormat.getNumberInstance(Locale.US));
@@ -270,6 +345,7 @@ public class Location implements Parcelable
         this.longitude = in.readString();
         this.altitude = in.readString();
         this.useAltitude = (in.readInt() == 1);
+        parseValues();
     }
 
     @Override
@@ -0,0 +1,132 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.calculator.core;
+
+/**
+ * SuntimesCalculator2
+ * A companion to SuntimesCalculator that takes and returns primitives; times are epoch millis (or NONE),
+ * and positions are written into a caller supplied array, so no Calendar (or Position) objects are
+ * allocated per call.
+ *
+ * Methods that take a `dayMillis` compute the event for the day containing that instant (the day is
+ * determined using the calculator's timezone).
+ */
+public interface SuntimesCalculator2
+{
+    long NONE = Long.MIN_VALUE;    // no event (or unsupported)
+
+    int SUN_ACTUAL_RISE = 0, SUN_ACTUAL_SET = 1,
+        SUN_CIVIL_RISE = 2, SUN_CIVIL_SET = 3,
+        SUN_NAUTICAL_RISE = 4, SUN_NAUTICAL_SET = 5,
+        SUN_ASTRO_RISE = 6, SUN_ASTRO_SET = 7,
+        SUN_NOON = 8,
+        SUN_GOLDEN_MORNING = 9, SUN_GOLDEN_EVENING = 10,
+        SUN_BLUE8_RISE = 11, SUN_BLUE4_RISE = 12, SUN_BLUE4_SET = 13, SUN_BLUE8_SET = 14;
+    int NUM_SUN_EVENTS = 15;
+
+    int MOON_RISE = 0, MOON_SET = 1;
+    int NUM_MOON_EVENTS = 2;
+
+    int POSITION_AZIMUTH = 0, POSITION_ELEVATION = 1, POSITION_RIGHT_ASCENSION = 2, POSITION_DECLINATION = 3, POSITION_DISTANCE = 4;
+    int NUM_POSITION_VALUES = 5;
+
+    /**
+     * @param dayMillis an instant within the day
+     * @param event SUN_ACTUAL_RISE, SUN_ACTUAL_SET, .., SUN_BLUE8_SET
+     * @return event millis, or NONE
+     */
+    long sunEventMillis(long dayMillis, int event);
+
+    /**
+     * @param dayMillis an instant within the day
+     * @param angle sun elevation (degrees)
+     * @return millis when the rising sun reaches `angle`, or NONE
+     */
+    long sunriseMillis(long dayMillis, double angle);
+
+    /**
+     * @param dayMillis an instant within the day
+     * @param angle sun elevation (degrees)
+     * @return millis when the setting sun reaches `angle`, or NONE
+     */
+    long sunsetMillis(long dayMillis, double angle);
+
+    boolean isDay(long millis);
+
+    /**
+     * @param millis the instant
+     * @param out an array of (at least) NUM_POSITION_VALUES; azimuth, elevation, right ascension, declination
+     * @return true if `out` was filled, false if unsupported
+     */
+    boolean sunPosition(long millis, double[] out);
+
+    /**
+     * @param millis the instant
+     * @param out an array of (at least) NUM_POSITION_VALUES; azimuth, elevation, right ascension, declination, distance
+     * @return true if `out` was filled, false if unsupported
+     */
+    boolean moonPosition(long millis, double[] out);
+
+    /**
+     * Computes sun positions for several instants in one call (e.g. when sampling a path); the same values
+     * as calling sunPosition for each instant.
+     * @param times instants (millis)
+     * @param azimuth an array of (at least) times.length, or null (not computed)
+     * @param elevation an array of (at least) times.length, or null (not computed)
+     * @param rightAscension an array of (at least) times.length, or null (not computed)
+     * @param declination an array of (at least) times.length, or null (not computed)
+     * @return true if the arrays were filled, false if unsupported
+     */
+    boolean sunPositions(long[] times, double[] azimuth, double[] elevation, double[] rightAscension, double[] declination);
+
+    /**
+     * Computes moon positions for several instants in one call; the same values as calling moonPosition
+     * for each instant.
+     * @param times instants (millis)
+     * @param azimuth an array of (at least) times.length, or null (not computed)
+     * @param elevation an array of (at least) times.length, or null (not computed)
+     * @param rightAscension an array of (at least) times.length, or null (not computed)
+     * @param declination an array of (at least) times.length, or null (not computed)
+     * @param distance an array of (at least) times.length, or null (not computed)
+     * @return true if the arrays were filled, false if unsupported
+     */
+    boolean moonPositions(long[] times, double[] azimuth, double[] elevation, double[] rightAscension, double[] declination, double[] distance);
+
+    /**
+     * @param dayMillis an instant within the day
+     * @param out an array of (at least) NUM_MOON_EVENTS; moonrise and moonset millis (or NONE)
+     * @return true if `out` was filled, false if unsupported
+     */
+    boolean moonTimes(long dayMillis, long[] out);
+
+    /**
+     * @return illumination [0, 1], or -1 if unsupported
+     */
+    double moonIllumination(long millis);
+
+    /**
+     * @return millis of the next phase (after `millis`), or NONE
+     */
+    long moonPhaseNextMillis(SuntimesCalculator.MoonPhase phase, long millis);
+
+    /**
+     * @return equation of time (seconds), or Double.POSITIVE_INFINITY if unsupported
+     */
+    double equationOfTime(long millis);
+}
@@ -23,6 +23,7 @@ import android.util.Log;
 
 import com.forrestguice.suntimeswidget.R;
 import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator;
+import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator2;
 import com.forrestguice.suntimeswidget.calculator.SuntimesCalculatorDescriptor;
 import com.forrestguice.suntimeswidget.settings.WidgetSettings;
 import com.luckycatlabs.sunrisesunset.dto.Location;
@@ -35,7 +36,7 @@ import java.util.TimeZone;
  * A thin wrapper around a SunriseSunsetCalculator instance (from sunrisesunsetlib-java) that
  * implements the interface used by the widget.
  */
-public class SunriseSunsetSuntimesCalculator implements SuntimesCalculator
+public class SunriseSunsetSuntimesCalculator implements SuntimesCalculator, SuntimesCalculator2
 {
     public static final String NAME = "sunrisesunsetlib";
     public static final String REF = "com.forrestguice.suntimeswidget.calculator.sunrisesunset_java.SunriseSunsetSuntimesCalculator";
@@ -114,6 +115,20 @@ public class SunriseSunsetSuntimesCalculator implements SuntimesCalculator
 
     @Override
     public Calendar getSolarNoonCalendarForDate(Calendar date)
+    {
+        long noonTime = solarNoonMillis(date);
+        if (noonTime != NONE)
+        {
+            Calendar noonCalendar = Calendar.getInstance(param_timezone);
+            noonCalendar.setTimeInMillis(noonTime);
+            return noonCalendar;
+
+        } else {
+            return null;
+        }
+    }
+
+    protected long solarNoonMillis(Calendar date)
     {
         Calendar sunriseCal = getOfficialSunriseCalendarForDate(date);
         Calendar sunsetCal = getOfficialSunsetCalendarForDate(date);
@@ -124,13 +139,10 @@ public class SunriseSunsetSuntimesCalculator implements SuntimesCalculator
             if (sunsetTime < sunriseTime)
                 sunsetTime += (24 * 60 * 60 * 1000);  // bug workaround (sunset calendar set to wrong day; 24hrs off)
 
-            long noonTime = sunriseTime + ((sunsetTime - sunriseTime) / 2L);
-            Calendar noonCalendar = Calendar.getInstance(param_timezone);
-            noonCalendar.setTimeInMillis(noonTime);
-            return noonCalendar;
+            return sunriseTime + ((sunsetTime - sunriseTime) / 2L);
 
         } else {
-            return null;
+            return NONE;
         }
     }
 
@@ -312,5 +324,93 @@ public class SunriseSunsetSuntimesCalculator implements SuntimesCalculator
         return null;   // TODO: supported by this lib?
     }
 
+    /**
+     * SuntimesCalculator2; the library only accepts (and returns) Calendar, so the day is converted once per call.
+     */
+    protected Calendar calendar(long millis)
+    {
+        Calendar calendar = Calendar.getInstance(param_timezone);
+        calendar.setTimeInMillis(millis);
+        return calendar;
+    }
+
+    protected static long toMillis(Calendar calendar) {
+        return (calendar != null ? calendar.getTimeInMillis() : NONE);
+    }
+
+    @Override
+    public long sunEventMillis(long dayMillis, int event)
+    {
+        Calendar day = calendar(dayMillis);
+        switch (event)
+        {
+            case SUN_ACTUAL_RISE: return toMillis(calculator.getOfficialSunriseCalendarForDate(day));
+            case SUN_ACTUAL_SET: return toMillis(calculator.getOfficialSunsetCalendarForDate(day));
+            case SUN_CIVIL_RISE: return toMillis(calculator.getCivilSunriseCalendarForDate(day));
+            case SUN_CIVIL_SET: return toMillis(calculator.getCivilSunsetCalendarForDate(day));
+            case SUN_NAUTICAL_RISE: return toMillis(calculator.getNauticalSunriseCalendarForDate(day));
+            case SUN_NAUTICAL_SET: return toMillis(calculator.getNauticalSunsetCalendarForDate(day));
+            case SUN_ASTRO_RISE: return toMillis(calculator.getAstronomicalSunriseCalendarForDate(day));
+            case SUN_ASTRO_SET: return toMillis(calculator.getAstronomicalSunsetCalendarForDate(day));
+            case SUN_NOON: return solarNoonMillis(day);
+            default: return NONE;
+        }
+    }
+
+    @Override
+    public long sunriseMillis(long dayMillis, double angle) {
+        return NONE;
+    }
+
+    @Override
+    public long sunsetMillis(long dayMillis, double angle) {
+        return NONE;
+    }
+
+    @Override
+    public boolean isDay(long millis) {
+        return isDay(calendar(millis));
+    }
+
+    @Override
+    public boolean sunPosition(long millis, double[] out) {
+        return false;
+    }
+
+    @Override
+    public boolean moonPosition(long millis, double[] out) {
+        return false;
+    }
+
+    @Override
+    public boolean sunPositions(long[] times, double[] azimuth, double[] elevation, double[] rightAscension, double[] declination) {
+        return false;
+    }
+
+    @Override
+    public boolean moonPositions(long[] times, double[] azimuth, double[] elevation, double[] rightAscension, double[] declination, double[] distance) {
+        return false;
+    }
+
+    @Override
+    public boolean moonTimes(long dayMillis, long[] out) {
+        return false;
+    }
+
+    @Override
+    public double moonIllumination(long millis) {
+        return -1;
+    }
+
+    @Override
+    public long moonPhaseNextMillis(MoonPhase phase, long millis) {
+        return NONE;
+    }
+
+    @Override
+    public double equationOfTime(long millis) {
+        return Double.POSITIVE_INFINITY;
+    }
+
 }
 
@@ -21,7 +21,9 @@ package com.forrestguice.suntimeswidget.calculator.time4a;
 import android.content.Context;
 import android.util.Log;
 
+import com.forrestguice.suntimeswidget.calculator.SuntimesDailyEvents;
 import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator;
+import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator2;
 import com.forrestguice.suntimeswidget.calculator.core.Location;
 
 import net.time4j.Moment;
@@ -42,9 +44,11 @@ import net.time4j.tz.ZonalOffset;
 
 import java.util.Calendar;
 import java.util.GregorianCalendar;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.TimeZone;
 
-public abstract class Time4ASuntimesCalculator implements SuntimesCalculator
+public abstract class Time4ASuntimesCalculator implements SuntimesCalculator, SuntimesCalculator2, SuntimesDailyEvents.RangeCalculator
 {
     public static final int[] FEATURES = new int[] { FEATURE_RISESET, FEATURE_SOLSTICE, FEATURE_GOLDBLUE, FEATURE_POSITION, FEATURE_RISESET1 };
 
@@ -54,6 +58,17 @@ public abstract class Time4ASuntimesCalculator implements SuntimesCalculator
     protected TimeZone timezone;
     protected Location location;
 
+    protected double geodeticAngle;
+    protected ChronoFunction<CalendarDate, Moment>[] eventFunctions;    // indexed by SUN_ACTUAL_RISE .. SUN_NOON
+    private final LinkedHashMap<String, ZoneData> zoneData = new LinkedHashMap<String, ZoneData>(MAX_ZONES, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ZoneData> eldest) {
+            return (size() > MAX_ZONES);
+        }
+    };
+    public static final int MAX_ZONES = 4;    // per calculator
+
     @Override
     public int[] getSupportedFeatures()
     {
@@ -75,11 +90,68 @@ public abstract class Time4ASuntimesCalculator implements SuntimesCalculator
     @Override
     public void init(Location location, TimeZone timezone, Context context)
     {
-        this.solarTime = SolarTime.ofLocation(location.getLatitudeAsDouble(), location.getLongitudeAsDouble(), clampAltitude(location.getAltitudeAsInteger()), getCalculator());
+        double latitude = location.getLatitudeAsDouble();
+        double longitude = location.getLongitudeAsDouble();
+        int altitude = clampAltitude(location.getAltitudeAsInteger());
+        if (solarTime == null || solarTime.getLatitude() != latitude || solarTime.getLongitude() != longitude || solarTime.getAltitude() != altitude)
+        {    // (re)init with a new location; otherwise the SolarTime (and everything derived from it) is reused
+            this.solarTime = SolarTime.ofLocation(latitude, longitude, altitude, getCalculator());
+            this.geodeticAngle = solarTime.getCalculator().getGeodeticAngle(latitude, altitude);
+            this.eventFunctions = createEventFunctions(solarTime);
+            synchronized (zoneData) {
+                zoneData.clear();
+            }
+        }
         this.timezone = timezone;
         this.location = location;
     }
 
+    @SuppressWarnings("unchecked")
+    protected static ChronoFunction<CalendarDate, Moment>[] createEventFunctions(SolarTime solarTime)
+    {
+        ChronoFunction<CalendarDate, Moment>[] functions = new ChronoFunction[SUN_NOON + 1];
+        functions[SUN_ACTUAL_RISE] = solarTime.sunrise();
+        functions[SUN_ACTUAL_SET] = solarTime.sunset();
+        functions[SUN_CIVIL_RISE] = solarTime.sunrise(Twilight.CIVIL);
+        functions[SUN_CIVIL_SET] = solarTime.sunset(Twilight.CIVIL);
+        functions[SUN_NAUTICAL_RISE] = solarTime.sunrise(Twilight.NAUTICAL);
+        functions[SUN_NAUTICAL_SET] = solarTime.sunset(Twilight.NAUTICAL);
+        functions[SUN_ASTRO_RISE] = solarTime.sunrise(Twilight.ASTRONOMICAL);
+        functions[SUN_ASTRO_SET] = solarTime.sunset(Twilight.ASTRONOMICAL);
+        functions[SUN_NOON] = solarTime.transitAtNoon();
+        return functions;
+    }
+
+    /**
+     * ZoneData
+     * Time4J objects that depend on the timezone (created on first use, then reused).
+     */
+    protected static final class ZoneData
+    {
+        public final TZID tzid;
+        public final LunarTime lunarTime;
+        public final ChronoFunction<CalendarDate, SolarTime.Sunshine> sunshine;
+
+        public ZoneData(TZID tzid, SolarTime solarTime)
+        {
+            this.tzid = tzid;
+            this.lunarTime = LunarTime.ofLocation(tzid, solarTime.getLatitude(), solarTime.getLongitude(), solarTime.getAltitude());
+            this.sunshine = solarTime.sunshine(tzid);
+        }
+    }
+
+    protected ZoneData getZoneData(TimeZone zone)
+    {
+        synchronized (zoneData)
+        {
+            ZoneData data = zoneData.get(zone.getID());
+            if (data == null) {
+                zoneData.put(zone.getID(), (data = new ZoneData(toTimezone(zone).getID(), solarTime)));
+            }
+            return data;
+        }
+    }
+
     @Override
     public Location getLocation() {
         return location;
@@ -106,176 +178,136 @@ public abstract class Time4ASuntimesCalculator implements SuntimesCalculator
         return value;
     }
 
+    /**
+     * @return the angle (from zenith) for an event at sun elevation `angle`, corrected for the observer's altitude
+     */
+    protected double eventAngle(double angle) {
+        return 90 + geodeticAngle - angle;
+    }
+
     @Override
-    public Calendar getCivilSunriseCalendarForDate( Calendar date )
+    public long sunEventMillis(long dayMillis, int event)
     {
-        PlainDate localDate = calendarToPlainDate(date);
-        ChronoFunction<CalendarDate, Moment> civilRise = this.solarTime.sunrise(Twilight.CIVIL);
-        return momentToCalendar(localDate.get(civilRise));
+        PlainDate localDate = millisToPlainDate(dayMillis);
+        switch (event)
+        {
+            case SUN_ACTUAL_RISE: case SUN_ACTUAL_SET:
+            case SUN_CIVIL_RISE: case SUN_CIVIL_SET:
+            case SUN_NAUTICAL_RISE: case SUN_NAUTICAL_SET:
+            case SUN_ASTRO_RISE: case SUN_ASTRO_SET:
+            case SUN_NOON:
+                return momentToMillis(localDate.get(eventFunctions[event]));
+            case SUN_GOLDEN_MORNING: return sunriseMillis(localDate, SUN_ALTITUDE_GOLDEN);
+            case SUN_GOLDEN_EVENING: return sunsetMillis(localDate, SUN_ALTITUDE_GOLDEN);
+            case SUN_BLUE8_RISE: return sunriseMillis(localDate, -SUN_ALTITUDE_BLUE_HIGH);
+            case SUN_BLUE4_RISE: return sunriseMillis(localDate, -SUN_ALTITUDE_BLUE_LOW);
+            case SUN_BLUE4_SET: return sunsetMillis(localDate, -SUN_ALTITUDE_BLUE_LOW);
+            case SUN_BLUE8_SET: return sunsetMillis(localDate, -SUN_ALTITUDE_BLUE_HIGH);
+            default: return NONE;
+        }
     }
 
     @Override
-    public Calendar getNauticalSunriseCalendarForDate( Calendar date )
+    public long sunriseMillis(long dayMillis, double angle) {
+        return sunriseMillis(millisToPlainDate(dayMillis), angle);
+    }
+    protected long sunriseMillis(PlainDate localDate, double angle)
     {
-        PlainDate localDate = calendarToPlainDate(date);
-        ChronoFunction<CalendarDate, Moment> nauticalRise = this.solarTime.sunrise(Twilight.NAUTICAL);
-        return momentToCalendar(localDate.get(nauticalRise));
+        return momentToMillis(solarTime.getCalculator().sunrise(localDate, solarTime.getLatitude(), solarTime.getLongitude(), eventAngle(angle)));
     }
 
     @Override
-    public Calendar getAstronomicalSunriseCalendarForDate( Calendar date )
+    public long sunsetMillis(long dayMillis, double angle) {
+        return sunsetMillis(millisToPlainDate(dayMillis), angle);
+    }
+    protected long sunsetMillis(PlainDate localDate, double angle)
     {
-        PlainDate localDate = calendarToPlainDate(date);
-        ChronoFunction<CalendarDate, Moment> astroRise = this.solarTime.sunrise(Twilight.ASTRONOMICAL);
-        return momentToCalendar(localDate.get(astroRise));
+        return momentToMillis(solarTime.getCalculator().sunset(localDate, solarTime.getLatitude(), solarTime.getLongitude(), eventAngle(angle)));
     }
 
     @Override
-    public Calendar getOfficialSunriseCalendarForDate( Calendar date )
-    {
-        PlainDate localDate = calendarToPlainDate(date);
-        ChronoFunction<CalendarDate, Moment> sunrise = this.solarTime.sunrise();
-        return momentToCalendar(localDate.get(sunrise));
+    public Calendar getCivilSunriseCalendarForDate( Calendar date ) {
+        return millisToCalendar(sunEventMillis(date.getTimeInMillis(), SUN_CIVIL_RISE));
     }
 
     @Override
-    public Calendar getSolarNoonCalendarForDate(Calendar date)
-    {
-        PlainDate localDate = calendarToPlainDate(date);
-        ChronoFunction<CalendarDate, Moment> noon = this.solarTime.transitAtNoon();
-        return momentToCalendar(localDate.get(noon));
+    public Calendar getNauticalSunriseCalendarForDate( Calendar date ) {
+        return millisToCalendar(sunEventMillis(date.getTimeInMillis(), SUN_NAUTICAL_RISE));
     }
 
     @Override
-    public Calendar getCivilSunsetCalendarForDate( Calendar date )
-    {
-        PlainDate localDate = calendarToPlainDate(date);
-        ChronoFunction<CalendarDate, Moment> civilSet = this.solarTime.sunset(Twilight.CIVIL);
-        return momentToCalendar(localDate.get(civilSet));
+    public Calendar getAstronomicalSunriseCalendarForDate( Calendar date ) {
+        return millisToCalendar(sunEventMillis(date.getTimeInMillis(), SUN_ASTRO_RISE));
     }
 
     @Override
-    public Calendar getNauticalSunsetCalendarForDate( Calendar date )
-    {
-        PlainDate localDate = calendarToPlainDate(date);
-        ChronoFunction<CalendarDate, Moment> nauticalSet = this.solarTime.sunset(Twilight.NAUTICAL);
-        return momentToCalendar(localDate.get(nauticalSet));
+    public Calendar getOfficialSunriseCalendarForDate( Calendar date ) {
+        return millisToCalendar(sunEventMillis(date.getTimeInMillis(), SUN_ACTUAL_RISE));
     }
 
     @Override
-    public Calendar getAstronomicalSunsetCalendarForDate( Calendar date )
-    {
-        PlainDate localDate = calendarToPlainDate(date);
-        ChronoFunction<CalendarDate, Moment> astroSet = this.solarTime.sunset(Twilight.ASTRONOMICAL);
-        return momentToCalendar(localDate.get(astroSet));
+    public Calendar getSolarNoonCalendarForDate(Calendar date) {
+        return millisToCalendar(sunEventMillis(date.getTimeInMillis(), SUN_NOON));
     }
 
     @Override
-    public Calendar getSunriseCalendarForDate( Calendar date, double angle )
-    {
-        SolarTime.Calculator calculator = solarTime.getCalculator();
-        int altitude = clampAltitude(solarTime.getAltitude());
-        double latitude = solarTime.getLatitude();
-        double longitude = solarTime.getLongitude();
-        double geodeticAngle = calculator.getGeodeticAngle(latitude, altitude);
-        double eventAngle = 90 + geodeticAngle + (-1 * angle);
+    public Calendar getCivilSunsetCalendarForDate( Calendar date ) {
+        return millisToCalendar(sunEventMillis(date.getTimeInMillis(), SUN_CIVIL_SET));
+    }
 
-        PlainDate localDate = calendarToPlainDate(date);
-        Moment moment = calculator.sunrise(localDate, latitude, longitude, eventAngle);
-        return momentToCalendar(moment);
+    @Override
+    public Calendar getNauticalSunsetCalendarForDate( Calendar date ) {
+        return millisToCalendar(sunEventMillis(date.getTimeInMillis(), SUN_NAUTICAL_SET));
     }
 
     @Override
-    public Calendar getSunsetCalendarForDate( Calendar date, double angle )
-    {
-        SolarTime.Calculator calculator = solarTime.getCalculator();
-        int altitude = clampAltitude(solarTime.getAltitude());
-        double latitude = solarTime.getLatitude();
-        double longitude = solarTime.getLongitude();
-        double geodeticAngle = calculator.getGeodeticAngle(latitude, altitude);
-        double eventAngle = 90 + geodeticAngle + (-1 * angle);
+    public Calendar getAstronomicalSunsetCalendarForDate( Calendar date ) {
+        return millisToCalendar(sunEventMillis(date.getTimeInMillis(), SUN_ASTRO_SET));
+    }
 
-        PlainDate localDate = calendarToPlainDate(date);
-        Moment moment = calculator.sunset(localDate, latitude, longitude, eventAngle);
-        return momentToCalendar(moment);
+    @Override
+    public Calendar getOfficialSunsetCalendarForDate( Calendar date ) {
+        return millisToCalendar(sunEventMillis(date.getTimeInMillis(), SUN_ACTUAL_SET));
     }
 
     @Override
-    public Calendar[] getMorningBlueHourForDate(Calendar date)
-    {
-        SolarTime.Calculator calculator = solarTime.getCalculator();
-        int altitude = clampAltitude(solarTime.getAltitude());
-        double latitude = solarTime.getLatitude();
-        double longitude = solarTime.getLongitude();
-        double geodeticAngle = calculator.getGeodeticAngle(latitude, altitude);
-        double blueStartAngle = 90 + geodeticAngle + SUN_ALTITUDE_BLUE_HIGH;
-        double blueEndAngle = 90 + geodeticAngle + SUN_ALTITUDE_BLUE_LOW;
+    public Calendar getSunriseCalendarForDate( Calendar date, double angle ) {
+        return millisToCalendar(sunriseMillis(date.getTimeInMillis(), angle));
+    }
 
-        PlainDate localDate = calendarToPlainDate(date);
-        Moment blueMorningStart = calculator.sunrise(localDate, latitude, longitude, blueStartAngle);
-        Moment blueMorningEnd = calculator.sunrise(localDate, latitude, longitude, blueEndAngle);
-        return new Calendar[] { momentToCalendar(blueMorningStart), momentToCalendar(blueMorningEnd) };
+    @Override
+    public Calendar getSunsetCalendarForDate( Calendar date, double angle ) {
+        return millisToCalendar(sunsetMillis(date.getTimeInMillis(), angle));
     }
 
     @Override
-    public Calendar[] getEveningBlueHourForDate(Calendar date)
+    public Calendar[] getMorningBlueHourForDate(Calendar date)
     {
-        SolarTime.Calculator calculator = solarTime.getCalculator();
-        int altitude = clampAltitude(solarTime.getAltitude());
-        double latitude = solarTime.getLatitude();
-        double longitude = solarTime.getLongitude();
-        double geodeticAngle = calculator.getGeodeticAngle(latitude, altitude);
-        double blueStartAngle = 90 + geodeticAngle + SUN_ALTITUDE_BLUE_LOW;
-        double blueEndAngle = 90 + geodeticAngle + SUN_ALTITUDE_BLUE_HIGH;
-
         PlainDate localDate = calendarToPlainDate(date);
-        Moment blueEveningStart = calculator.sunset(localDate, latitude, longitude, blueStartAngle);
-        Moment blueEveningEnd = calculator.sunset(localDate, latitude, longitude, blueEndAngle);
-        return new Calendar[] { momentToCalendar(blueEveningStart), momentToCalendar(blueEveningEnd) };
+        return new Calendar[] { millisToCalendar(sunriseMillis(localDate, -SUN_ALTITUDE_BLUE_HIGH)), millisToCalendar(sunriseMillis(localDate, -SUN_ALTITUDE_BLUE_LOW)) };
     }
 
     @Override
-    public Calendar getMorningGoldenHourForDate(Calendar date)
+    public Calendar[] getEveningBlueHourForDate(Calendar date)
     {
-        SolarTime.Calculator calculator = solarTime.getCalculator();
-        int altitude = clampAltitude(solarTime.getAltitude());
-        double latitude = solarTime.getLatitude();
-        double longitude = solarTime.getLongitude();
-        double geodeticAngle = calculator.getGeodeticAngle(latitude, altitude);
-        double goldenAngle = 90 + geodeticAngle - SUN_ALTITUDE_GOLDEN;
-
         PlainDate localDate = calendarToPlainDate(date);
-        Moment goldMorningEnd = calculator.sunrise(localDate, latitude, longitude, goldenAngle);
-        return momentToCalendar(goldMorningEnd);
+        return new Calendar[] { millisToCalendar(sunsetMillis(localDate, -SUN_ALTITUDE_BLUE_LOW)), millisToCalendar(sunsetMillis(localDate, -SUN_ALTITUDE_BLUE_HIGH)) };
     }
 
     @Override
-    public Calendar getEveningGoldenHourForDate(Calendar date)
-    {
-        SolarTime.Calculator calculator = solarTime.getCalculator();
-        int altitude = clampAltitude(solarTime.getAltitude());
-        double latitude = solarTime.getLatitude();
-        double longitude = solarTime.getLongitude();
-        double geodeticAngle = calculator.getGeodeticAngle(latitude, altitude);
-        double goldenAngle = 90 + geodeticAngle - SUN_ALTITUDE_GOLDEN;
+    public Calendar getMorningGoldenHourForDate(Calendar date) {
+        return millisToCalendar(sunEventMillis(date.getTimeInMillis(), SUN_GOLDEN_MORNING));
+    }
 
-        PlainDate localDate = calendarToPlainDate(date);
-        Moment goldEveningStart = this.solarTime.getCalculator().sunset(localDate, latitude, longitude, goldenAngle);
-        return momentToCalendar(goldEveningStart);
+    @Override
+    public Calendar getEveningGoldenHourForDate(Calendar date) {
+        return millisToCalendar(sunEventMillis(date.getTimeInMillis(), SUN_GOLDEN_EVENING));
     }
 
     public static final double SUN_ALTITUDE_GOLDEN = 6.0;
     public static final double SUN_ALTITUDE_BLUE_HIGH = 8.0;
     public static final double SUN_ALTITUDE_BLUE_LOW = 4.0;
 
-    @Override
-    public Calendar getOfficialSunsetCalendarForDate( Calendar date )
-    {
-        PlainDate localDate = calendarToPlainDate(date);
-        ChronoFunction<CalendarDate, Moment> sunset = this.solarTime.sunset();
-        return momentToCalendar(localDate.get(sunset));
-    }
-
     @Override
     public Calendar getVernalEquinoxForYear(Calendar date)
     {
@@ -325,27 +357,66 @@ public abstract class Time4ASuntimesCalculator implements SuntimesCalculator
     }
 
     @Override
-    public boolean isDay(Calendar dateTime)
+    public boolean isDay(Calendar dateTime) {
+        return isDay(dateTime.getTimeInMillis(), dateTime.getTimeZone());
+    }
+
+    @Override
+    public boolean isDay(long millis) {
+        return isDay(millis, timezone);
+    }
+
+    protected boolean isDay(long millis, TimeZone zone)
     {
-        net.time4j.tz.Timezone tz = toTimezone(dateTime.getTimeZone());
-        PlainDate localDate = calendarToPlainDate(dateTime);
-        Moment moment = TemporalType.JAVA_UTIL_DATE.translate(dateTime.getTime());
-        SolarTime.Sunshine sunshine = localDate.get(this.solarTime.sunshine(tz.getID()));
+        PlainDate localDate = millisToPlainDate(millis);
+        Moment moment = TemporalType.MILLIS_SINCE_UNIX.translate(millis);
+        SolarTime.Sunshine sunshine = localDate.get(getZoneData(zone).sunshine);
         return sunshine.isPresent(moment);
     }
 
+    /**
+     * @return the Time4J timezone for a java.util.TimeZone (resolved once per timezone id, and shared by all calculators)
+     */
     protected net.time4j.tz.Timezone toTimezone( java.util.TimeZone input )
     {
-        String tzString = "java.util.TimeZone~" + input.getID();
-        TZID tzFallback = Timezone.ofPlatform().getID();  // ofSystem().getID();
-        return net.time4j.tz.Timezone.of(tzString, tzFallback);
+        String id = input.getID();
+        synchronized (timezones)
+        {
+            net.time4j.tz.Timezone tz = timezones.get(id);
+            if (tz == null)
+            {
+                String tzString = "java.util.TimeZone~" + id;
+                TZID tzFallback = Timezone.ofPlatform().getID();  // ofSystem().getID();
+                timezones.put(id, (tz = net.time4j.tz.Timezone.of(tzString, tzFallback)));
+            }
+            return tz;
+        }
     }
+    private static final LinkedHashMap<String, net.time4j.tz.Timezone> timezones = new LinkedHashMap<String, net.time4j.tz.Timezone>(MAX_TIMEZONES, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, net.time4j.tz.Timezone> eldest) {
+            return (size() > MAX_TIMEZONES);
+        }
+    };
+    public static final int MAX_TIMEZONES = 16;
 
-    protected PlainDate calendarToPlainDate(Calendar input)
+    public static void clearTimezoneCache()
     {
-        Moment moment = TemporalType.JAVA_UTIL_DATE.translate(input.getTime());
+        synchronized (timezones) {
+            timezones.clear();
+        }
+    }
+
+    protected PlainDate calendarToPlainDate(Calendar input) {
+        return millisToPlainDate(input.getTimeInMillis());
+    }
+
+    protected PlainDate millisToPlainDate(long millis)
+    {
+        Moment moment = TemporalType.MILLIS_SINCE_UNIX.translate(millis);
         //ZonalOffset offset = ZonalOffset.atLongitude(new BigDecimal(this.solarTime.getLongitude()));
-        ZonalOffset zonalOffset = ZonalOffset.ofTotalSeconds(timezone.getOffset(input.getTimeInMillis()) / 1000);
+        ZonalOffset zonalOffset = ZonalOffset.ofTotalSeconds(timezone.getOffset(millis) / 1000);
         return moment.toZonalTimestamp(zonalOffset).toDate();
     }
 
@@ -361,6 +432,10 @@ public abstract class Time4ASuntimesCalculator implements SuntimesCalculator
         return retValue;
     }
 
+    protected Calendar millisToCalendar(long millis) {
+        return SuntimesDailyEvents.toCalendar(millis, timezone);
+    }
+
     protected AstronomicalSeason adjustSeasonToHemisphere( AstronomicalSeason season )
     {
         boolean northernHemisphere = (this.solarTime.getLatitude() >= 0);
@@ -372,32 +447,54 @@ public abstract class Time4ASuntimesCalculator implements SuntimesCalculator
     @Override
     public MoonTimes getMoonTimesForDate(Calendar date)
     {
-        Moment moment = TemporalType.JAVA_UTIL_DATE.translate(date.getTime());
-        TZID tzid = toTimezone(date.getTimeZone()).getID();
-        PlainDate localDate = moment.toZonalTimestamp(tzid).toDate();
-
-        LunarTime lunarTime = LunarTime.ofLocation(tzid, this.solarTime.getLatitude(), this.solarTime.getLongitude(), this.solarTime.getAltitude());
-        LunarTime.Moonlight moonlight = lunarTime.on(localDate);
+        long[] values = new long[NUM_MOON_EVENTS];
+        moonTimes(date.getTimeInMillis(), date.getTimeZone(), values);
 
         MoonTimes result = new MoonTimes();
-        result.riseTime = momentToCalendar(moonlight.moonrise()); // might be null meaning there is no moonrise
-        result.setTime = momentToCalendar(moonlight.moonset()); // might be null meaning there is no moonset
+        result.riseTime = millisToCalendar(values[MOON_RISE]); // might be null meaning there is no moonrise
+        result.setTime = millisToCalendar(values[MOON_SET]); // might be null meaning there is no moonset
         return result;
     }
 
     @Override
-    public double getMoonIlluminationForDate(Calendar date)
+    public boolean moonTimes(long dayMillis, long[] out) {
+        return moonTimes(dayMillis, timezone, out);
+    }
+
+    protected boolean moonTimes(long dayMillis, TimeZone zone, long[] out)
     {
-        Moment moment = TemporalType.JAVA_UTIL_DATE.translate(date.getTime());
+        ZoneData data = getZoneData(zone);
+        Moment moment = TemporalType.MILLIS_SINCE_UNIX.translate(dayMillis);
+        PlainDate localDate = moment.toZonalTimestamp(data.tzid).toDate();
+
+        LunarTime.Moonlight moonlight = data.lunarTime.on(localDate);
+        out[MOON_RISE] = momentToMillis(moonlight.moonrise());
+        out[MOON_SET] = momentToMillis(moonlight.moonset());
+        return true;
+    }
+
+    @Override
+    public double getMoonIlluminationForDate(Calendar date) {
+        return moonIllumination(date.getTimeInMillis());
+    }
+
+    @Override
+    public double moonIllumination(long millis)
+    {
+        Moment moment = TemporalType.MILLIS_SINCE_UNIX.translate(millis);
         return net.time4j.calendar.astro.MoonPhase.getIllumination(moment, 1);
     }
 
     @Override
-    public Calendar getMoonPhaseNextDate(MoonPhase phase, Calendar date)
+    public Calendar getMoonPhaseNextDate(MoonPhase phase, Calendar date) {
+        return millisToCalendar(moonPhaseNextMillis(phase, date.getTimeInMillis()));
+    }
+
+    @Override
+    public long moonPhaseNextMillis(MoonPhase phase, long millis)
     {
         net.time4j.calendar.astro.MoonPhase moonPhase = toPhase(phase);
-        Moment phaseMoment = moonPhase.after(TemporalType.JAVA_UTIL_DATE.translate(date.getTime()));
-        return momentToCalendar(phaseMoment);
+        return momentToMillis(moonPhase.after(TemporalType.MILLIS_SINCE_UNIX.translate(millis)));
     }
 
     private net.time4j.calendar.astro.MoonPhase toPhase( MoonPhase input )
@@ -414,32 +511,106 @@ public abstract class Time4ASuntimesCalculator implements SuntimesCalculator
     @Override
     public SunPosition getSunPosition(Calendar dateTime)
     {
-        Moment moment = TemporalType.JAVA_UTIL_DATE.translate(dateTime.getTime());
-        net.time4j.calendar.astro.SunPosition position = net.time4j.calendar.astro.SunPosition.at(moment, solarTime);
+        double[] values = new double[NUM_POSITION_VALUES];
+        sunPosition(dateTime.getTimeInMillis(), values);
 
         SunPosition result = new SunPosition();
-        result.azimuth = position.getAzimuth();
-        result.elevation = position.getElevation();
-        result.rightAscension = position.getRightAscension();
-        result.declination = position.getDeclination();
+        result.azimuth = values[POSITION_AZIMUTH];
+        result.elevation = values[POSITION_ELEVATION];
+        result.rightAscension = values[POSITION_RIGHT_ASCENSION];
+        result.declination = values[POSITION_DECLINATION];
         return result;
     }
 
+    @Override
+    public boolean sunPosition(long millis, double[] out)
+    {
+        Moment moment = TemporalType.MILLIS_SINCE_UNIX.translate(millis);
+        net.time4j.calendar.astro.SunPosition position = net.time4j.calendar.astro.SunPosition.at(moment, solarTime);
+        out[POSITION_AZIMUTH] = position.getAzimuth();
+        out[POSITION_ELEVATION] = position.getElevation();
+        out[POSITION_RIGHT_ASCENSION] = position.getRightAscension();
+        out[POSITION_DECLINATION] = position.getDeclination();
+        return true;
+    }
+
     @Override
     public MoonPosition getMoonPosition(Calendar dateTime)
     {
-        Moment moment = TemporalType.JAVA_UTIL_DATE.translate(dateTime.getTime());
-        net.time4j.calendar.astro.MoonPosition position = net.time4j.calendar.astro.MoonPosition.at(moment, solarTime);
+        double[] values = new double[NUM_POSITION_VALUES];
+        moonPosition(dateTime.getTimeInMillis(), values);
 
         MoonPosition result = new MoonPosition();
-        result.azimuth = position.getAzimuth();
-        result.elevation = position.getElevation();
-        result.rightAscension = position.getRightAscension();
-        result.declination = position.getDeclination();
-        result.distance = position.getDistance();
+        result.azimuth = values[POSITION_AZIMUTH];
+        result.elevation = values[POSITION_ELEVATION];
+        result.rightAscension = values[POSITION_RIGHT_ASCENSION];
+        result.declination = values[POSITION_DECLINATION];
+        result.distance = values[POSITION_DISTANCE];
         return result;
     }
 
+    @Override
+    public boolean moonPosition(long millis, double[] out)
+    {
+        Moment moment = TemporalType.MILLIS_SINCE_UNIX.translate(millis);
+        net.time4j.calendar.astro.MoonPosition position = net.time4j.calendar.astro.MoonPosition.at(moment, solarTime);
+        out[POSITION_AZIMUTH] = position.getAzimuth();
+        out[POSITION_ELEVATION] = position.getElevation();
+        out[POSITION_RIGHT_ASCENSION] = position.getRightAscension();
+        out[POSITION_DECLINATION] = position.getDeclination();
+        out[POSITION_DISTANCE] = position.getDistance();
+        return true;
+    }
+
+    @Override
+    public boolean sunPositions(long[] times, double[] azimuth, double[] elevation, double[] rightAscension, double[] declination)
+    {
+        SolarTime location = solarTime;
+        for (int i=0; i<times.length; i++)
+        {
+            net.time4j.calendar.astro.SunPosition position = net.time4j.calendar.astro.SunPosition.at(TemporalType.MILLIS_SINCE_UNIX.translate(times[i]), location);
+            if (azimuth != null) {
+                azimuth[i] = position.getAzimuth();
+            }
+            if (elevation != null) {
+                elevation[i] = position.getElevation();
+            }
+            if (rightAscension != null) {
+                rightAscension[i] = position.getRightAscension();
+            }
+            if (declination != null) {
+                declination[i] = position.getDeclination();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean moonPositions(long[] times, double[] azimuth, double[] elevation, double[] rightAscension, double[] declination, double[] distance)
+    {
+        SolarTime location = solarTime;
+        for (int i=0; i<times.length; i++)
+        {
+            net.time4j.calendar.astro.MoonPosition position = net.time4j.calendar.astro.MoonPosition.at(TemporalType.MILLIS_SINCE_UNIX.translate(times[i]), location);
+            if (azimuth != null) {
+                azimuth[i] = position.getAzimuth();
+            }
+            if (elevation != null) {
+                elevation[i] = position.getElevation();
+            }
+            if (rightAscension != null) {
+                rightAscension[i] = position.getRightAscension();
+            }
+            if (declination != null) {
+                declination[i] = position.getDeclination();
+            }
+            if (distance != null) {
+                distance[i] = position.getDistance();
+            }
+        }
+        return true;
+    }
+
     @Override
     public double getShadowLength( double objHeight, Calendar dateTime )
     {
@@ -449,9 +620,14 @@ public abstract class Time4ASuntimesCalculator implements SuntimesCalculator
     }
 
     @Override
-    public double equationOfTime(Calendar dateTime)
+    public double equationOfTime(Calendar dateTime) {
+        return equationOfTime(dateTime.getTimeInMillis());
+    }
+
+    @Override
+    public double equationOfTime(long millis)
     {
-        Moment moment = TemporalType.JAVA_UTIL_DATE.translate(dateTime.getTime());
+        Moment moment = TemporalType.MILLIS_SINCE_UNIX.translate(millis);
         return SolarTime.equationOfTime(moment, solarTime.getCalculator().name());
     }
 
@@ -471,5 +647,77 @@ public abstract class Time4ASuntimesCalculator implements SuntimesCalculator
         return momentToCalendar(apogeeMoment);
     }
 
-}
+    /**
+     * Computes all standard sun events for each day in the range; the event functions, angles, and
+     * geodetic correction are resolved once per range (instead of once per event per day), and results
+     * are written as millis (no Calendar allocation).
+     */
+    @Override
+    public void getSunEventsForRange(Calendar startDay, Calendar endDay, SuntimesDailyEvents.RangeCallback callback)
+    {
+        SolarTime.Calculator calculator = solarTime.getCalculator();
+        double latitude = solarTime.getLatitude();
+        double longitude = solarTime.getLongitude();
+        double goldenAngle = 90 + geodeticAngle - SUN_ALTITUDE_GOLDEN;
+        double blueHighAngle = 90 + geodeticAngle + SUN_ALTITUDE_BLUE_HIGH;
+        double blueLowAngle = 90 + geodeticAngle + SUN_ALTITUDE_BLUE_LOW;
+
+        ChronoFunction<CalendarDate, Moment>[] functions = eventFunctions;
+
+        long[] values = new long[SuntimesDailyEvents.NUM_SUN_EVENTS];
+        Calendar day = (Calendar) startDay.clone();
+        do {
+            PlainDate localDate = calendarToPlainDate(day);
+            values[SuntimesDailyEvents.SUN_ACTUAL_RISE] = momentToMillis(localDate.get(functions[SUN_ACTUAL_RISE]));
+            values[SuntimesDailyEvents.SUN_ACTUAL_SET] = momentToMillis(localDate.get(functions[SUN_ACTUAL_SET]));
+            values[SuntimesDailyEvents.SUN_CIVIL_RISE] = momentToMillis(localDate.get(functions[SUN_CIVIL_RISE]));
+            values[SuntimesDailyEvents.SUN_CIVIL_SET] = momentToMillis(localDate.get(functions[SUN_CIVIL_SET]));
+            values[SuntimesDailyEvents.SUN_NAUTICAL_RISE] = momentToMillis(localDate.get(functions[SUN_NAUTICAL_RISE]));
+            values[SuntimesDailyEvents.SUN_NAUTICAL_SET] = momentToMillis(localDate.get(functions[SUN_NAUTICAL_SET]));
+            values[SuntimesDailyEvents.SUN_ASTRO_RISE] = momentToMillis(localDate.get(functions[SUN_ASTRO_RISE]));
+            values[SuntimesDailyEvents.SUN_ASTRO_SET] = momentToMillis(localDate.get(functions[SUN_ASTRO_SET]));
+            values[SuntimesDailyEvents.SUN_NOON] = momentToMillis(localDate.get(functions[SUN_NOON]));
+            values[SuntimesDailyEvents.SUN_GOLDEN_MORNING] = momentToMillis(calculator.sunrise(localDate, latitude, longitude, goldenAngle));
+            values[SuntimesDailyEvents.SUN_GOLDEN_EVENING] = momentToMillis(calculator.sunset(localDate, latitude, longitude, goldenAngle));
+            values[SuntimesDailyEvents.SUN_BLUE8_RISE] = momentToMillis(calculator.sunrise(localDate, latitude, longitude, blueHighAngle));
+            values[SuntimesDailyEvents.SUN_BLUE4_RISE] = momentToMillis(calculator.sunrise(localDate, latitude, longitude, blueLowAngle));
+            values[SuntimesDailyEvents.SUN_BLUE4_SET] = momentToMillis(calculator.sunset(localDate, latitude, longitude, blueLowAngle));
+            values[SuntimesDailyEvents.SUN_BLUE8_SET] = momentToMillis(calculator.sunset(localDate, latitude, longitude, blueHighAngle));
+
+            if (!callback.onRow(day, values)) {
+                break;
+            }
+            day.add(Calendar.DAY_OF_YEAR, 1);
+        } while (day.before(endDay));
+    }
+
+    /**
+     * Computes moonrise and moonset for each day in the range (see getZoneData).
+     */
+    @Override
+    public void getMoonEventsForRange(Calendar startDay, Calendar endDay, SuntimesDailyEvents.RangeCallback callback)
+    {
+        ZoneData data = getZoneData(startDay.getTimeZone());
+        TZID tzid = data.tzid;
+        LunarTime lunarTime = data.lunarTime;
+
+        long[] values = new long[SuntimesDailyEvents.NUM_MOON_EVENTS];
+        Calendar day = (Calendar) startDay.clone();
+        do {
+            Moment moment = TemporalType.JAVA_UTIL_DATE.translate(day.getTime());
+            LunarTime.Moonlight moonlight = lunarTime.on(moment.toZonalTimestamp(tzid).toDate());
+            values[SuntimesDailyEvents.MOON_RISE] = momentToMillis(moonlight.moonrise());
+            values[SuntimesDailyEvents.MOON_SET] = momentToMillis(moonlight.moonset());
+
+            if (!callback.onRow(day, values)) {
+                break;
+            }
+            day.add(Calendar.DAY_OF_YEAR, 1);
+        } while (day.before(endDay));
+    }
+
+    protected static long momentToMillis(Moment moment) {
+        return (moment != null ? TemporalType.MILLIS_SINCE_UNIX.from(moment) : SuntimesDailyEvents.NONE);
+    }
 
+}
@@ -18,7 +18,6 @@
 
 package com.forrestguice.suntimeswidget.cards;
 
-import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Color;
@@ -52,7 +51,8 @@ import com.forrestguice.suntimeswidget.views.ViewUtils;
 
 import java.lang.ref.WeakReference;
 import java.util.Calendar;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.TimeZone;
 
@@ -69,6 +69,7 @@ public class CardAdapter extends RecyclerView.Adapter<CardViewHolder>
         initTheme(context);
         SuntimesUtils.initDisplayStrings(context);
         CardViewHolder.utils = utils;
+        loader = new CardDataLoader<>(onDataLoaded);
     }
 
     private void initTheme(Context context)
@@ -87,8 +88,34 @@ public class CardAdapter extends RecyclerView.Adapter<CardViewHolder>
 
     public static final int MAX_POSITIONS = 400000;    // +-550 years (400000 / 365 / 2)
     public static final int TODAY_POSITION = (MAX_POSITIONS / 2);      // middle position is today
-    @SuppressLint("UseSparseArrays")
-    private HashMap<Integer, Pair<SuntimesRiseSetDataset, SuntimesMoonData>> data = new HashMap<>();
+
+    public static final int MAX_CACHED = 16;     // max number of days kept in memory (least recently used are discarded)
+    public static final int PREFETCH_COUNT = 3;  // number of days loaded ahead (in the scroll direction)
+
+    private final LinkedHashMap<Integer, Pair<SuntimesRiseSetDataset, SuntimesMoonData>> data = new LinkedHashMap<Integer, Pair<SuntimesRiseSetDataset, SuntimesMoonData>>(MAX_CACHED + 1, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Pair<SuntimesRiseSetDataset, SuntimesMoonData>> eldest) {
+            return size() > MAX_CACHED;
+        }
+    };
+
+    private final CardDataLoader<Pair<SuntimesRiseSetDataset, SuntimesMoonData>> loader;
+    private final CardDataLoader.LoadListener<Pair<SuntimesRiseSetDataset, SuntimesMoonData>> onDataLoaded = new CardDataLoader.LoadListener<Pair<SuntimesRiseSetDataset, SuntimesMoonData>>()
+    {
+        @Override
+        public void onLoaded(int position, Pair<SuntimesRiseSetDataset, SuntimesMoonData> result)
+        {
+            if (!invalidated && result != null)
+            {
+                data.put(position, result);
+                notifyItemChanged(position);
+            }
+        }
+    };
+
+    private RecyclerView recyclerView = null;
+    private int lastBoundPosition = RecyclerView.NO_POSITION;
 
     @Override
     public int getItemCount() {
@@ -102,6 +129,7 @@ public class CardAdapter extends RecyclerView.Adapter<CardViewHolder>
     public Pair<SuntimesRiseSetDataset, SuntimesMoonData> initData(Context context)
     {
         Pair<SuntimesRiseSetDataset, SuntimesMoonData> retValue;
+        loader.cancelAll();
         data.clear();
         invalidated = false;
         initOptions(context);
@@ -116,20 +144,76 @@ public class CardAdapter extends RecyclerView.Adapter<CardViewHolder>
     public Pair<SuntimesRiseSetDataset, SuntimesMoonData> initData(Context context, int position)
     {
         Pair<SuntimesRiseSetDataset, SuntimesMoonData> dataPair = data.get(position);
-        if (dataPair == null && !invalidated) {
-            data.put(position, dataPair = createData(context, position));   // data is removed in onViewRecycled
+        if (dataPair == null && !invalidated)
+        {
+            loader.cancel(position);    // computed now; discard any pending result
+            data.put(position, dataPair = createData(context, position));
         }
         return dataPair;
     }
 
-    protected Pair<SuntimesRiseSetDataset, SuntimesMoonData> createData(Context context, int position)
+    /**
+     * Loads the data for a position in the background (the card is updated when it arrives).
+     */
+    protected void requestData(Context context, int position)
+    {
+        if (loader.isPending(position)) {
+            return;
+        }
+        final Context appContext = context.getApplicationContext();
+        final Calendar date = dateForPosition(position);
+        final boolean showMoon = options.showMoon;
+        loader.request(position, new CardDataLoader.LoadTask<Pair<SuntimesRiseSetDataset, SuntimesMoonData>>()
+        {
+            @Override
+            public Pair<SuntimesRiseSetDataset, SuntimesMoonData> load() {
+                return createData(appContext, date, showMoon);
+            }
+        });
+    }
+
+    /**
+     * Loads the next PREFETCH_COUNT positions (in the scroll direction), and cancels pending loads that have scrolled away.
+     */
+    protected void prefetchData(Context context, int position)
+    {
+        RecyclerView.LayoutManager layoutManager = (recyclerView != null ? recyclerView.getLayoutManager() : null);
+        int direction = (layoutManager instanceof CardLayoutManager) ? ((CardLayoutManager) layoutManager).getScrollDirection()
+                      : (lastBoundPosition == RecyclerView.NO_POSITION) ? 0 : (int) Math.signum(position - lastBoundPosition);
+        lastBoundPosition = position;
+
+        loader.retain(position - PREFETCH_COUNT - 1, position + PREFETCH_COUNT + 1);
+        if (invalidated || direction == 0) {
+            return;
+        }
+        for (int i=1; i<=PREFETCH_COUNT; i++)
+        {
+            int p = position + (direction * i);
+            if (p >= 0 && p < MAX_POSITIONS && !data.containsKey(p)) {
+                requestData(context, p);
+            }
+        }
+    }
+
+    protected Calendar dateForPosition(int position)
     {
         Calendar date = Calendar.getInstance(options.timezone);
         if (options.dateMode != WidgetSettings.DateMode.CURRENT_DATE) {
             date.set(options.dateInfo.getYear(), options.dateInfo.getMonth(), options.dateInfo.getDay());
         }
         date.add(Calendar.DATE, position - TODAY_POSITION);
+        return date;
+    }
 
+    protected Pair<SuntimesRiseSetDataset, SuntimesMoonData> createData(Context context, int position) {
+        return createData(context, dateForPosition(position), options.showMoon);
+    }
+
+    /**
+     * Note: called from a background thread by requestData.
+     */
+    protected static Pair<SuntimesRiseSetDataset, SuntimesMoonData> createData(Context context, Calendar date, boolean showMoon)
+    {
         SuntimesRiseSetDataset sun = new SuntimesRiseSetDataset(context);
         Set<String> eventIDs = EventSettings.loadVisibleEvents(context, AlarmEventProvider.EventType.SUN_ELEVATION);
         for (String eventID : eventIDs)
@@ -142,7 +226,7 @@ public class CardAdapter extends RecyclerView.Adapter<CardViewHolder>
         sun.calculateData();
 
         SuntimesMoonData moon = null;
-        if (options.showMoon)
+        if (showMoon)
         {
             moon = new SuntimesMoonData(context, 0, "moon");
             moon.setTodayIs(date);
@@ -197,12 +281,27 @@ public class CardAdapter extends RecyclerView.Adapter<CardViewHolder>
     public void onViewRecycled(CardViewHolder holder)
     {
         detachClickListeners(holder);
-        if (holder.position >= 0 && (holder.position < TODAY_POSITION - 1 || holder.position > TODAY_POSITION + 2)) {
-            data.remove(holder.position);
+        if (holder.position >= 0 && Math.abs(holder.position - lastBoundPosition) > PREFETCH_COUNT + 1) {
+            loader.cancel(holder.position);    // data is discarded by the cache (least recently used)
         }
         holder.position = RecyclerView.NO_POSITION;
     }
 
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView)
+    {
+        super.onAttachedToRecyclerView(recyclerView);
+        this.recyclerView = recyclerView;
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView)
+    {
+        super.onDetachedFromRecyclerView(recyclerView);
+        this.recyclerView = null;
+        loader.cancelAll();
+    }
+
     /**
      * onCreateViewHolder
      * @param parent
@@ -234,8 +333,13 @@ public class CardAdapter extends RecyclerView.Adapter<CardViewHolder>
             Log.w("CardAdapter", "onBindViewHolder: null view holder!");
             return;
         }
-        holder.bindDataToPosition(context, position, initData(context, position), options);
+        Pair<SuntimesRiseSetDataset, SuntimesMoonData> dataPair = data.get(position);
+        if (dataPair == null && !invalidated) {
+            requestData(context, position);    // bound with placeholders until loaded
+        }
+        holder.bindDataToPosition(context, position, dataPair, options);
         attachClickListeners(holder, position);
+        prefetchData(context, position);
     }
 
     @Override
@@ -316,6 +420,7 @@ public class CardAdapter extends RecyclerView.Adapter<CardViewHolder>
     public void invalidateData()
     {
         invalidated = true;
+        loader.cancelAll();
         data.clear();
         notifyDataSetChanged();
     }
@@ -0,0 +1,206 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.cards;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * CardDataLoader
+ * Computes card data (by position) on a background thread and delivers the results with a callback executor
+ * (e.g. the main thread).
+ *
+ * Each position is loaded at most once at a time (see isPending); loads that are no longer needed can be
+ * cancelled (see cancel, retain), and results from loads started before cancelAll are discarded. All methods
+ * (and callbacks) are expected to be called from the same (e.g. main) thread.
+ */
+public class CardDataLoader<T>
+{
+    /**
+     * LoadTask
+     */
+    public interface LoadTask<T>
+    {
+        T load();    // called on a background thread
+    }
+
+    /**
+     * LoadListener
+     */
+    public interface LoadListener<T>
+    {
+        void onLoaded(int position, T data);    // called with the callback executor
+    }
+
+    private static ExecutorService executor = null;
+    protected static synchronized ExecutorService getExecutor()
+    {
+        if (executor == null)
+        {
+            executor = Executors.newSingleThreadExecutor(new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(@NonNull Runnable r)
+                {
+                    Thread thread = new Thread(r, "CardDataLoader");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * @return an executor that runs on the main thread
+     */
+    public static Executor mainThreadExecutor()
+    {
+        final Handler handler = new Handler(Looper.getMainLooper());
+        return new Executor()
+        {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                handler.post(command);
+            }
+        };
+    }
+
+    private final ExecutorService backgroundExecutor;
+    private final Executor callbackExecutor;
+    private final LoadListener<T> listener;
+    private final HashMap<Integer, Future<?>> pending = new HashMap<>();
+    private int generation = 0;
+
+    public CardDataLoader(@NonNull LoadListener<T> listener) {
+        this(getExecutor(), mainThreadExecutor(), listener);
+    }
+
+    public CardDataLoader(@NonNull ExecutorService backgroundExecutor, @NonNull Executor callbackExecutor, @NonNull LoadListener<T> listener)
+    {
+        this.backgroundExecutor = backgroundExecutor;
+        this.callbackExecutor = callbackExecutor;
+        this.listener = listener;
+    }
+
+    /**
+     * @return true if `position` is being loaded (or is waiting to be loaded)
+     */
+    public boolean isPending(int position) {
+        return pending.containsKey(position);
+    }
+
+    public int numPending() {
+        return pending.size();
+    }
+
+    /**
+     * Loads `position` in the background (unless it is already pending); loads run in the order requested.
+     */
+    public void request(final int position, @NonNull final LoadTask<T> task)
+    {
+        if (pending.containsKey(position)) {
+            return;
+        }
+
+        final int requestGeneration = generation;
+        Runnable runnable = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                final T data;
+                try {
+                    data = task.load();
+
+                } catch (RuntimeException e) {
+                    Log.w("CardDataLoader", "load: failed to load position " + position + ": " + e);
+                    callbackExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (requestGeneration == generation) {
+                                pending.remove(position);
+                            }
+                        }
+                    });
+                    return;
+                }
+
+                callbackExecutor.execute(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        if (requestGeneration == generation && pending.remove(position) != null) {
+                            listener.onLoaded(position, data);
+                        }
+                    }
+                });
+            }
+        };
+        pending.put(position, backgroundExecutor.submit(runnable));
+    }
+
+    /**
+     * Cancels a pending load (its result is discarded).
+     */
+    public void cancel(int position)
+    {
+        Future<?> future = pending.remove(position);
+        if (future != null) {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * Cancels pending loads outside of [minPosition, maxPosition].
+     */
+    public void retain(int minPosition, int maxPosition)
+    {
+        ArrayList<Integer> positions = new ArrayList<>(pending.keySet());
+        for (Integer position : positions) {
+            if (position < minPosition || position > maxPosition) {
+                cancel(position);
+            }
+        }
+    }
+
+    /**
+     * Cancels all pending loads; results of loads already running are discarded.
+     */
+    public void cancelAll()
+    {
+        generation++;
+        for (Future<?> future : pending.values()) {
+            future.cancel(false);
+        }
+        pending.clear();
+    }
+}
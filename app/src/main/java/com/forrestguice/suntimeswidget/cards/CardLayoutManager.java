@@ -19,7 +19,9 @@
 package com.forrestguice.suntimeswidget.cards;
 
 import android.content.Context;
+import android.support.v4.view.ViewCompat;
 import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
 import android.util.AttributeSet;
 
 public class CardLayoutManager extends LinearLayoutManager
@@ -46,6 +48,26 @@ public class CardLayoutManager extends LinearLayoutManager
         setItemPrefetchEnabled(true);
     }
 
+    /**
+     * @return the direction of the most recent scroll (in adapter positions); 1 (forward), -1 (backward), or 0 (not scrolled yet)
+     */
+    public int getScrollDirection() {
+        return scrollDirection;
+    }
+    private int scrollDirection = 0;
+
+    @Override
+    public int scrollHorizontallyBy(int dx, RecyclerView.Recycler recycler, RecyclerView.State state)
+    {
+        int scrolled = super.scrollHorizontallyBy(dx, recycler, state);
+        if (scrolled != 0)
+        {
+            boolean reversed = (getReverseLayout() != (getLayoutDirection() == ViewCompat.LAYOUT_DIRECTION_RTL));
+            scrollDirection = ((scrolled > 0) != reversed) ? 1 : -1;
+        }
+        return scrolled;
+    }
+
     /**@Override
     protected int getExtraLayoutSpace(RecyclerView.State state)
     {
@@ -0,0 +1,244 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.graph;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ElevationPathSampler
+ * Samples an elevation curve (e.g. the sun's or moon's elevation over two days) for drawing as a path.
+ *
+ * The curve is sampled coarsely (every COARSE_INTERVAL minutes) where it is smooth, and refined (down to the
+ * requested interval) where it bends (when the midpoint deviates from a straight line by more than TOLERANCE
+ * degrees), near extrema, and near horizon crossings. Timestamps are handled as primitive longs.
+ *
+ * Sampled paths are cached (per key; e.g. location, date, and interval) so that repeated frames and resizes
+ * can reuse them.
+ */
+public class ElevationPathSampler
+{
+    public static final int COARSE_INTERVAL = 60;      // minutes
+    public static final double TOLERANCE = 0.05;       // degrees
+    public static final int MAX_CACHED = 8;
+    public static final long MILLIS_IN_MINUTE = 60 * 1000L;
+
+    /**
+     * ElevationFunction
+     */
+    public interface ElevationFunction
+    {
+        double elevation(long millis);
+    }
+
+    /**
+     * ElevationBatchFunction
+     * An ElevationFunction that can also be evaluated for several instants in one call (used for the coarse samples).
+     */
+    public interface ElevationBatchFunction extends ElevationFunction
+    {
+        /**
+         * @param millis instants
+         * @param out an array of (at least) millis.length; filled with elevations
+         */
+        void elevations(long[] millis, double[] out);
+    }
+
+    /**
+     * ElevationPath
+     */
+    public static class ElevationPath
+    {
+        public final double[] minutes;       // minutes from start
+        public final double[] elevations;    // degrees
+        public final int count;
+
+        public ElevationPath(double[] minutes, double[] elevations, int count)
+        {
+            this.minutes = minutes;
+            this.elevations = elevations;
+            this.count = count;
+        }
+    }
+
+    private static final LinkedHashMap<String, ElevationPath> cache = new LinkedHashMap<String, ElevationPath>(MAX_CACHED, 0.75f, true)
+    {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ElevationPath> eldest) {
+            return (size() > MAX_CACHED);
+        }
+    };
+    private static long cacheHits = 0, cacheMisses = 0;
+
+    /**
+     * @param key identifies the curve (e.g. body, calculator, location, start, and interval), or null (not cached)
+     * @return a cached path, or a new path (that is added to the cache)
+     */
+    @NonNull
+    public static ElevationPath getPath(@Nullable String key, @NonNull ElevationFunction f, long startMillis, int widthMinutes, int intervalMinutes)
+    {
+        if (key != null)
+        {
+            synchronized (cache)
+            {
+                ElevationPath path = cache.get(key);
+                if (path != null) {
+                    cacheHits++;
+                    return path;
+                }
+                cacheMisses++;
+            }
+        }
+
+        ElevationPath path = samplePath(f, startMillis, widthMinutes, intervalMinutes);
+        if (key != null)
+        {
+            synchronized (cache) {
+                cache.put(key, path);
+            }
+        }
+        return path;
+    }
+
+    public static void clearCache()
+    {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+    public static long getCacheHits()
+    {
+        synchronized (cache) {
+            return cacheHits;
+        }
+    }
+    public static long getCacheMisses()
+    {
+        synchronized (cache) {
+            return cacheMisses;
+        }
+    }
+
+    /**
+     * @param f the elevation curve
+     * @param startMillis start time
+     * @param widthMinutes path width; samples are taken in [0, widthMinutes)
+     * @param intervalMinutes finest sampling interval (minutes); every sample falls on a multiple of this interval
+     * @return sampled path
+     */
+    @NonNull
+    public static ElevationPath samplePath(@NonNull ElevationFunction f, long startMillis, int widthMinutes, int intervalMinutes)
+    {
+        int interval = Math.max(1, intervalMinutes);
+        int coarse = Math.max(interval, (COARSE_INTERVAL / interval) * interval);
+        int last = ((widthMinutes - 1) / interval) * interval;    // last sample (the same as per-interval stepping)
+        Samples samples = new Samples(Math.max(16, (widthMinutes / coarse) * 4));
+        double[] coarseElevations = sampleCoarse(f, startMillis, coarse, last);
+
+        double e0 = coarseElevations[0];
+        samples.add(0, e0);
+        for (int m0 = 0, k = 1; m0 < last; m0 += coarse, k++)
+        {
+            int m1 = Math.min(last, m0 + coarse);
+            double e1 = coarseElevations[k];
+            refine(f, startMillis, interval, m0, e0, m1, e1, samples);
+            samples.add(m1, e1);
+            e0 = e1;
+        }
+        return new ElevationPath(samples.minutes, samples.elevations, samples.count);
+    }
+
+    /**
+     * @return elevations at minutes 0, coarse, 2 * coarse, .., last (in one call if `f` is an ElevationBatchFunction)
+     */
+    private static double[] sampleCoarse(ElevationFunction f, long startMillis, int coarse, int last)
+    {
+        int n = 1 + (last > 0 ? ((last + coarse - 1) / coarse) : 0);
+        long[] millis = new long[n];
+        for (int k=0; k<n; k++) {
+            millis[k] = startMillis + (Math.min(last, k * coarse) * MILLIS_IN_MINUTE);
+        }
+
+        double[] elevations = new double[n];
+        if (f instanceof ElevationBatchFunction) {
+            ((ElevationBatchFunction) f).elevations(millis, elevations);
+
+        } else {
+            for (int k=0; k<n; k++) {
+                elevations[k] = f.elevation(millis[k]);
+            }
+        }
+        return elevations;
+    }
+
+    /**
+     * Adds samples within (m0, m1) where the curve isn't well approximated by a line.
+     */
+    private static void refine(ElevationFunction f, long startMillis, int interval, int m0, double e0, int m1, double e1, Samples samples)
+    {
+        int steps = (m1 - m0) / interval;
+        if (steps < 2) {
+            return;
+        }
+
+        int m = m0 + ((steps / 2) * interval);
+        double e = f.elevation(startMillis + (m * MILLIS_IN_MINUTE));
+        double linear = e0 + ((e1 - e0) * ((m - m0) / (double)(m1 - m0)));
+
+        boolean crossesHorizon = ((e0 < 0) != (e1 < 0)) || ((e0 < 0) != (e < 0));
+        boolean isExtremum = (e > Math.max(e0, e1)) || (e < Math.min(e0, e1));
+        if (crossesHorizon || isExtremum || Math.abs(e - linear) > TOLERANCE)
+        {
+            refine(f, startMillis, interval, m0, e0, m, e, samples);
+            samples.add(m, e);
+            refine(f, startMillis, interval, m, e, m1, e1, samples);
+        }
+    }
+
+    /**
+     * Samples
+     */
+    private static final class Samples
+    {
+        public double[] minutes, elevations;
+        public int count = 0;
+
+        public Samples(int capacity)
+        {
+            minutes = new double[capacity];
+            elevations = new double[capacity];
+        }
+
+        public void add(double minute, double elevation)
+        {
+            if (count == minutes.length)
+            {
+                minutes = Arrays.copyOf(minutes, count * 2);
+                elevations = Arrays.copyOf(elevations, count * 2);
+            }
+            minutes[count] = minute;
+            elevations[count] = elevation;
+            count++;
+        }
+    }
+}
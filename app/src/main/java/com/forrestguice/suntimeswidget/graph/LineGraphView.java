@@ -38,13 +38,18 @@ import android.util.Log;
 import android.view.View;
 
 import com.forrestguice.suntimeswidget.R;
+import com.forrestguice.suntimeswidget.calculator.RenderSuntimesCalculator;
+import com.forrestguice.suntimeswidget.calculator.SunElevationSolver;
 import com.forrestguice.suntimeswidget.calculator.SuntimesData;
 import com.forrestguice.suntimeswidget.calculator.SuntimesRiseSetDataset;
 import com.forrestguice.suntimeswidget.calculator.core.Location;
 import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator;
+import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator2;
 import com.forrestguice.suntimeswidget.settings.WidgetSettings;
 import com.forrestguice.suntimeswidget.settings.WidgetTimezones;
 import com.forrestguice.suntimeswidget.themes.SuntimesTheme;
+import com.forrestguice.suntimeswidget.views.AnimationFrameScheduler;
+import com.forrestguice.suntimeswidget.views.FrameBuffers;
 
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -63,6 +68,7 @@ public class LineGraphView extends android.support.v7.widget.AppCompatImageView
     public static final int DEFAULT_MAX_UPDATE_RATE = 15 * 1000;  // ms value; once every 15s
 
     private LineGraphTask drawTask = null;
+    private final FrameBuffers frameBuffers = new FrameBuffers();    // the displayed frame is released to the pool when replaced
 
     private int maxUpdateRate = DEFAULT_MAX_UPDATE_RATE;
 
@@ -190,6 +196,8 @@ public class LineGraphView extends android.support.v7.widget.AppCompatImageView
 
         drawTask = new LineGraphTask();
         drawTask.setListener(drawTaskListener);
+        drawTask.setFrameBuffers(frameBuffers);
+        drawTask.setLowPowerMode(!hasWindowFocus());
 
         if (Build.VERSION.SDK_INT >= 11) {
             drawTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR, data, getWidth(), getHeight(), options, (animated ? 0 : 1), options.offsetMinutes);
@@ -220,6 +228,7 @@ public class LineGraphView extends android.support.v7.widget.AppCompatImageView
         public void onFrame(Bitmap frame, long offsetMinutes) {
             Log.d(LineGraphView.class.getSimpleName(), "LineGraphView.updateViews: onFrame: " + Integer.toHexString(LineGraphView.this.hashCode()));
             setImageBitmap(frame);
+            frameBuffers.swap(frame);
             if (graphListener != null) {
                 graphListener.onFrame(frame, offsetMinutes);
             }
@@ -234,6 +243,7 @@ public class LineGraphView extends android.support.v7.widget.AppCompatImageView
         public void onFinished(Bitmap frame) {
             //Log.d(LineGraphView.class.getSimpleName(), "LineGraphView.updateViews: onFinished: " + Integer.toHexString(LineGraphView.this.hashCode()));
             setImageBitmap(frame);
+            frameBuffers.swap(frame);
             if (graphListener != null) {
                 graphListener.onFinished(frame);
             }
@@ -320,6 +330,15 @@ public class LineGraphView extends android.support.v7.widget.AppCompatImageView
         }
     }
 
+    @Override
+    public void onWindowFocusChanged(boolean hasWindowFocus)
+    {
+        super.onWindowFocusChanged(hasWindowFocus);
+        if (drawTask != null) {
+            drawTask.setLowPowerMode(!hasWindowFocus);    // reduce the frame rate while unfocused
+        }
+    }
+
     @Override
     protected void onVisibilityChanged(@NonNull View view, int visibility)
     {
@@ -381,7 +400,6 @@ public class LineGraphView extends android.support.v7.widget.AppCompatImageView
         {
             int w, h;
             int numFrames = 1;
-            long frameDuration = 250000000;    // nanoseconds (250 ms)
             long initialOffset = 0;
             SuntimesRiseSetDataset data;
             try {
@@ -396,18 +414,19 @@ public class LineGraphView extends android.support.v7.widget.AppCompatImageView
                 if (params.length > 5) {
                     initialOffset = (long)params[5];
                 }
-                frameDuration = options.anim_frameLengthMs * 1000000;   // ms to ns
+                scheduler = new AnimationFrameScheduler(options.anim_frameLengthMs);
+                scheduler.setLowPowerMode(lowPower);
 
             } catch (ClassCastException e) {
                 Log.w(LineGraphTask.class.getSimpleName(), "Invalid params; using [null, 0, 0]");
                 return null;
             }
 
-            long time0 = System.nanoTime();
             Bitmap frame = null;
             options.offsetMinutes = initialOffset;
 
-            int i = 0;
+            int i = 0, lastAdvance = 1;
+            scheduler.start();
             while (i < numFrames || numFrames <= 0)
             {
                 //Log.d(getClass().getSimpleName(), "generating frame " + i + " | " + w + "," + h + " :: " + numFrames);
@@ -436,21 +455,26 @@ public class LineGraphView extends android.support.v7.widget.AppCompatImageView
 
                 frame = makeBitmap(data, w, h, options);
 
-                long time1 = System.nanoTime();
-                while ((time1 - time0) < frameDuration) {
-                    time1 = System.nanoTime();
+                int advance = scheduler.awaitNextFrame();
+                if (advance <= 0) {    // interrupted (cancelled)
+                    if (frameBuffers != null) {
+                        frameBuffers.discard(frame);    // never shown
+                    }
+                    frame = null;
+                    options.releaseDrawLock();
+                    break;
                 }
 
                 publishProgress(frame);
                 if (listener != null) {
                     listener.afterFrame(frame, options.offsetMinutes);
                 }
-                options.offsetMinutes += options.anim_frameOffsetMinutes;
-                time0 = System.nanoTime();
-                i++;
+                options.offsetMinutes += options.anim_frameOffsetMinutes * advance;    // skip ahead over dropped frames
+                lastAdvance = advance;
+                i += advance;
                 options.releaseDrawLock();
             }
-            options.offsetMinutes -= options.anim_frameOffsetMinutes;
+            options.offsetMinutes -= options.anim_frameOffsetMinutes * lastAdvance;
             return frame;
         }
 
@@ -467,9 +491,10 @@ public class LineGraphView extends android.support.v7.widget.AppCompatImageView
 
             this.options = options;
             Calendar now = graphTime(data, options);
-            Bitmap b = Bitmap.createBitmap(w, h, Bitmap.Config.RGB_565);
+            Bitmap b = FrameBuffers.acquire(frameBuffers, w, h, Bitmap.Config.RGB_565);
             b.setDensity(options.densityDpi);
-            Canvas c = new Canvas(b);
+            Canvas c = canvas;
+            c.setBitmap(b);
             initPaint();
 
             drawBackground(c, paintBackground, options);
@@ -524,6 +549,8 @@ public class LineGraphView extends android.support.v7.widget.AppCompatImageView
             }
         }
         private Paint p, paintBackground, paintText, paintPath;
+        private final Canvas canvas = new Canvas();
+        private static final DashPathEffect DASHED = new DashPathEffect(new float[] {4, 2}, 0);
 
         protected Calendar graphTime(@Nullable SuntimesRiseSetDataset data, @NonNull LineGraphOptions options)
         {
@@ -656,8 +683,7 @@ public class LineGraphView extends android.support.v7.widget.AppCompatImageView
 
                 switch (options.option_drawNow) {
                     case LineGraphOptions.DRAW_SUN2:
-                        DashPathEffect dashed = new DashPathEffect(new float[] {4, 2}, 0);
-                        drawPoint(now, calculator, pointRadius, pointStroke, c, p, Color.TRANSPARENT, options.colorPointStroke, dashed);
+                        drawPoint(now, calculator, pointRadius, pointStroke, c, p, Color.TRANSPARENT, options.colorPointStroke, DASHED);
                         break;
 
                     case LineGraphOptions.DRAW_SUN1:
@@ -673,9 +699,10 @@ public class LineGraphView extends android.support.v7.widget.AppCompatImageView
             if (options.sunPath_show_points && options.sunPath_points_elevations != null)
             {
                 double pointSize = Math.sqrt(c.getWidth() * c.getHeight()) / options.sunPath_points_width;
+                SunElevationSolver solver = new SunElevationSolver(SunElevationSolver.sunElevation(calculator), SOLVER_TOLERANCE_MILLIS, SunElevationSolver.DEFAULT_STEP_MILLIS);    // shares its samples between points
                 for (double degrees : options.sunPath_points_elevations)
                 {
-                    Integer[] minutes = findMinutes(now, degrees, calculator);
+                    Integer[] minutes = findMinutes(now, degrees, calculator, solver);
                     if (minutes != null) {
                         for (Integer m : minutes) {
                             drawPoint(m, degrees, (int)pointSize, 0, c, p, options.sunPath_points_color, options.sunPath_points_color, null);
@@ -685,54 +712,32 @@ public class LineGraphView extends android.support.v7.widget.AppCompatImageView
             }
         }
 
+        public static final long SOLVER_TOLERANCE_MILLIS = 30 * 1000;    // points are drawn to the minute
+
         @Nullable
-        protected Integer[] findMinutes(Calendar now, double degrees, SuntimesCalculator calculator)
+        protected Integer[] findMinutes(Calendar now, double degrees, SuntimesCalculator calculator) {
+            return findMinutes(now, degrees, calculator, new SunElevationSolver(SunElevationSolver.sunElevation(calculator), SOLVER_TOLERANCE_MILLIS, SunElevationSolver.DEFAULT_STEP_MILLIS));
+        }
+
+        @Nullable
+        protected Integer[] findMinutes(Calendar now, double degrees, SuntimesCalculator calculator, SunElevationSolver solver)
         {
             Calendar lmt = lmt(calculator.getLocation());
             lmt.setTimeInMillis(now.getTimeInMillis());
             lmt = toStartOfDay(lmt);
             long startMillis = lmt.getTimeInMillis();
-            lmt = toNoon(lmt);
-            long midMillis = lmt.getTimeInMillis();
             lmt = toEndOfDay(lmt);
             long endMillis = lmt.getTimeInMillis();
 
             ArrayList<Integer> results = new ArrayList<>();
-            Long[] millis = new Long[2];
-            millis[0] = findMillis(degrees, calculator, lmt, startMillis, midMillis-1, true);
-            millis[1] = findMillis(degrees, calculator, lmt, midMillis+1, endMillis, false);
-
-            for (Long time : millis) {
-                if (time != null) {
-                    lmt.setTimeInMillis(time);
-                    results.add((lmt.get(Calendar.HOUR_OF_DAY) * 60) + lmt.get(Calendar.MINUTE));
-                }
+            for (SunElevationSolver.Crossing crossing : solver.findCrossings(degrees, startMillis, endMillis))
+            {
+                lmt.setTimeInMillis(crossing.millis);
+                results.add((lmt.get(Calendar.HOUR_OF_DAY) * 60) + lmt.get(Calendar.MINUTE));
             }
             return ((results.size() > 0) ? results.toArray(new Integer[0]) : null);
         }
 
-        @Nullable
-        protected Long findMillis(double degrees, SuntimesCalculator calculator, Calendar lmt, long minMillis, long maxMillis, boolean ascending)
-        {
-            if (minMillis > maxMillis) {
-                return null;
-            }
-
-            lmt.setTimeInMillis(minMillis + ((maxMillis - minMillis) / 2));
-            SuntimesCalculator.SunPosition position = calculator.getSunPosition(lmt);
-
-            if (Math.abs(position.elevation - degrees) < 0.25) {
-                return lmt.getTimeInMillis();
-
-            } else if ((ascending && (degrees > position.elevation))
-                    || (!ascending && (degrees < position.elevation))) {
-                return findMillis(degrees, calculator, lmt, lmt.getTimeInMillis() + 1, maxMillis, ascending);
-
-            } else {
-                return findMillis(degrees, calculator, lmt, minMillis, lmt.getTimeInMillis() - 1, ascending);
-            }
-        }
-
         public static Calendar toStartOfDay(Calendar calendar)
         {
             calendar.set(Calendar.HOUR_OF_DAY, 0);
@@ -803,80 +808,37 @@ public class LineGraphView extends android.support.v7.widget.AppCompatImageView
                 }
             }
         }
-        protected HashMap<Path, Double> createMoonPath(Calendar now, SuntimesCalculator calculator, Canvas c, LineGraphOptions options, boolean closed, ArrayList<Path> paths, HashMap<Path,Double> elevations)
+        protected HashMap<Path, Double> createMoonPath(Calendar now, final SuntimesCalculator calculator, Canvas c, LineGraphOptions options, boolean closed, ArrayList<Path> paths, HashMap<Path,Double> elevations)
         {
-            int path_width = 2 * MINUTES_IN_DAY ; // options.graph_width;
-
-            paths.clear();
-            elevations.clear();
-
             Calendar lmt = lmt(calculator.getLocation());
             lmt.setTimeInMillis(now.getTimeInMillis());
             toStartOfDay(lmt);
+            long startMillis = lmt.getTimeInMillis();
 
-            SuntimesCalculator.MoonPosition position;
-            double elevation_prev = -90;   // sun elevation (previous iteration)
-            elevation_min = elevation_max = 0;
-            float x = 0, y = 0;
-
-            Path path = null;
-            int minute = 0;
-            while (minute < path_width)
+            final SuntimesCalculator2 calculator2 = RenderSuntimesCalculator.of(calculator);    // render ephemeris (fast, pixel accuracy)
+            final double[] position = new double[SuntimesCalculator2.NUM_POSITION_VALUES];
+            ElevationPathSampler.ElevationPath samples = ElevationPathSampler.getPath(pathKey("moon", calculator, startMillis, options.moonPath_interval), new ElevationPathSampler.ElevationBatchFunction()
             {
-                position = calculator.getMoonPosition(lmt);
-                if (position.elevation < elevation_min) {
-                    elevation_min = position.elevation;
-                } else if (position.elevation > elevation_max) {
-                    elevation_max = position.elevation;
-                }
-
-                int d = (int)(minute / MINUTES_IN_DAY);
-                double m = (d * MINUTES_IN_DAY) + (lmt.get(Calendar.HOUR_OF_DAY) * 60) + lmt.get(Calendar.MINUTE);
-                x = (float) minutesToBitmapCoords(c, m, options);
-                y = (float) degreesToBitmapCoords(c, position.elevation, options);
-
-                if (path != null
-                        && ((elevation_prev < 0 && position.elevation >= 0)
-                        || (elevation_prev >= 0 && position.elevation < 0))) {
-                    path.lineTo(x, y);
-                    if (closed) {
-                        path.close();
-                    }
-                    path = null;
+                @Override
+                public double elevation(long millis)
+                {
+                    calculator2.moonPosition(millis, position);
+                    return position[SuntimesCalculator2.POSITION_ELEVATION];
                 }
 
-                if (path == null)
+                @Override
+                public void elevations(long[] millis, double[] out)
                 {
-                    path = new Path();
-                    paths.add(path);
-                    elevations.put(path, position.elevation);
-
-                    if (closed) {
-                        path.moveTo(x, (float)degreesToBitmapCoords(c, 0, options));
-                        path.lineTo(x, y);
-                    } else {
-                        path.moveTo(x, y);
+                    if (!calculator2.moonPositions(millis, null, out, null, null, null)) {
+                        for (int i=0; i<millis.length; i++) {
+                            out[i] = elevation(millis[i]);
+                        }
                     }
-
-                } else {
-                    path.lineTo(x, y);
                 }
-
-                elevation_prev = position.elevation;
-                lmt.add(Calendar.MINUTE, options.moonPath_interval);
-                minute += options.moonPath_interval;
-            }
-
-            if (closed)
-            {
-                path = paths.get(paths.size()-1);
-                path.lineTo(x, (float)degreesToBitmapCoords(c, 0, options));
-                path.close();
-            }
-            return elevations;
+            }, startMillis, 2 * MINUTES_IN_DAY, options.moonPath_interval);
+            return createPath(samples, c, options, closed, paths, elevations);
         }
 
-
         protected void drawSunPath(Calendar now, SuntimesCalculator calculator, Canvas c, Paint p, LineGraphOptions options)
         {
             if (options.sunPath_show_fill)
@@ -909,41 +871,76 @@ public class LineGraphView extends android.support.v7.widget.AppCompatImageView
         }
 
         private double elevation_min = -90, elevation_max = 90;
-        protected HashMap<Path, Double> createSunPath(Calendar now, SuntimesCalculator calculator, Canvas c, LineGraphOptions options, boolean closed, ArrayList<Path> paths, HashMap<Path,Double> elevations)
+        protected HashMap<Path, Double> createSunPath(Calendar now, final SuntimesCalculator calculator, Canvas c, LineGraphOptions options, boolean closed, ArrayList<Path> paths, HashMap<Path,Double> elevations)
         {
-            int path_width = 2 * MINUTES_IN_DAY ; // options.graph_width;
-
-            paths.clear();
-            elevations.clear();
-
             Calendar lmt = lmt(calculator.getLocation());
             lmt.setTimeInMillis(now.getTimeInMillis());
             toStartOfDay(lmt);
+            long startMillis = lmt.getTimeInMillis();
+
+            final SuntimesCalculator2 calculator2 = RenderSuntimesCalculator.of(calculator);
+            final double[] position = new double[SuntimesCalculator2.NUM_POSITION_VALUES];
+            ElevationPathSampler.ElevationPath samples = ElevationPathSampler.getPath(pathKey("sun", calculator, startMillis, options.sunPath_interval), new ElevationPathSampler.ElevationBatchFunction()
+            {
+                @Override
+                public double elevation(long millis)
+                {
+                    calculator2.sunPosition(millis, position);
+                    return position[SuntimesCalculator2.POSITION_ELEVATION];
+                }
+
+                @Override
+                public void elevations(long[] millis, double[] out)
+                {
+                    if (!calculator2.sunPositions(millis, null, out, null, null)) {
+                        for (int i=0; i<millis.length; i++) {
+                            out[i] = elevation(millis[i]);
+                        }
+                    }
+                }
+            }, startMillis, 2 * MINUTES_IN_DAY, options.sunPath_interval);
+            return createPath(samples, c, options, closed, paths, elevations);
+        }
+
+        /**
+         * @return a key identifying a sampled path (see ElevationPathSampler)
+         */
+        protected static String pathKey(String body, SuntimesCalculator calculator, long startMillis, int interval)
+        {
+            Location location = calculator.getLocation();
+            return body + ":" + calculator.name() + ":" + location.getLatitude() + "," + location.getLongitude() + "," + (location.useAltitude() ? location.getAltitude() : "") + ":" + startMillis + ":" + interval;
+        }
+
+        /**
+         * Creates paths from sampled elevations (a new path is started at each horizon crossing).
+         * @return the paths (and the elevation at the start of each path)
+         */
+        protected HashMap<Path, Double> createPath(ElevationPathSampler.ElevationPath samples, Canvas c, LineGraphOptions options, boolean closed, ArrayList<Path> paths, HashMap<Path,Double> elevations)
+        {
+            recyclePaths(paths);
+            paths.clear();
+            elevations.clear();
 
-            SuntimesCalculator.SunPosition position;
-            double elevation_prev = -90;   // sun elevation (previous iteration)
+            double elevation, elevation_prev = -90;   // elevation (previous iteration)
             elevation_min = elevation_max = 0;
             float x = 0, y = 0;
 
             Path path = null;
-            int minute = 0;
-            while (minute < path_width)
+            for (int i=0; i<samples.count; i++)
             {
-                position = calculator.getSunPosition(lmt);
-                if (position.elevation < elevation_min) {
-                    elevation_min = position.elevation;
-                } else if (position.elevation > elevation_max) {
-                    elevation_max = position.elevation;
+                elevation = samples.elevations[i];
+                if (elevation < elevation_min) {
+                    elevation_min = elevation;
+                } else if (elevation > elevation_max) {
+                    elevation_max = elevation;
                 }
 
-                int d = (int)(minute / MINUTES_IN_DAY);
-                double m = (d * MINUTES_IN_DAY) + (lmt.get(Calendar.HOUR_OF_DAY) * 60) + lmt.get(Calendar.MINUTE);
-                x = (float) minutesToBitmapCoords(c, m, options);
-                y = (float) degreesToBitmapCoords(c, position.elevation, options);
+                x = (float) minutesToBitmapCoords(c, samples.minutes[i], options);
+                y = (float) degreesToBitmapCoords(c, elevation, options);
 
                 if (path != null
-                        && ((elevation_prev < 0 && position.elevation >= 0)
-                        || (elevation_prev >= 0 && position.elevation < 0))) {
+                        && ((elevation_prev < 0 && elevation >= 0)
+                        || (elevation_prev >= 0 && elevation < 0))) {
                     path.lineTo(x, y);
                     if (closed) {
                         path.close();
@@ -953,9 +950,9 @@ public class LineGraphView extends android.support.v7.widget.AppCompatImageView
 
                 if (path == null)
                 {
-                    path = new Path();
+                    path = obtainPath();
                     paths.add(path);
-                    elevations.put(path, position.elevation);
+                    elevations.put(path, elevation);
 
                     if (closed) {
                         path.moveTo(x, (float)degreesToBitmapCoords(c, 0, options));
@@ -967,13 +964,10 @@ public class LineGraphView extends android.support.v7.widget.AppCompatImageView
                 } else {
                     path.lineTo(x, y);
                 }
-
-                elevation_prev = position.elevation;
-                lmt.add(Calendar.MINUTE, options.sunPath_interval);
-                minute += options.sunPath_interval;
+                elevation_prev = elevation;
             }
 
-            if (closed)
+            if (closed && !paths.isEmpty())
             {
                 path = paths.get(paths.size()-1);
                 path.lineTo(x, (float)degreesToBitmapCoords(c, 0, options));
@@ -981,6 +975,24 @@ public class LineGraphView extends android.support.v7.widget.AppCompatImageView
             }
             return elevations;
         }
+        /**
+         * Paths are reused between frames; obtainPath returns a reset path from the recycled paths (or a new path).
+         */
+        protected Path obtainPath()
+        {
+            int n = path_pool.size();
+            if (n > 0)
+            {
+                Path path = path_pool.remove(n - 1);
+                path.reset();
+                return path;
+            } else return new Path();
+        }
+        protected void recyclePaths(List<Path> paths) {
+            path_pool.addAll(paths);
+        }
+        private final ArrayList<Path> path_pool = new ArrayList<>();
+
         protected void closePaths(List<Path> paths)
         {
             for (Path path : paths) {
@@ -1211,6 +1223,30 @@ public class LineGraphView extends android.support.v7.widget.AppCompatImageView
         {
             this.listener = listener;
         }
+
+        private FrameBuffers frameBuffers = null;
+        /**
+         * @param buffers the view's frame buffers (frames are acquired from its pool), or null to allocate each frame
+         */
+        public void setFrameBuffers(@Nullable FrameBuffers buffers) {
+            this.frameBuffers = buffers;
+        }
+
+        private volatile AnimationFrameScheduler scheduler = null;
+        public AnimationFrameScheduler getScheduler() {
+            return scheduler;
+        }
+
+        private volatile boolean lowPower = false;
+        public void setLowPowerMode(boolean value)
+        {
+            lowPower = value;
+            AnimationFrameScheduler s = scheduler;
+            if (s != null) {
+                s.setLowPowerMode(value);
+            }
+        }
+
         public void clearListener()
         {
             this.listener = null;
@@ -1219,6 +1255,8 @@ public class LineGraphView extends android.support.v7.widget.AppCompatImageView
 
     /**
      * LineGraphTaskListener
+     * Frames passed to a view's listener (onFrame, afterFrame, onFinished) come from the view's FrameBuffers; a frame
+     * is only valid during the callback (it is returned to the pool when the next frame is shown), so copy it to keep it.
      */
     @SuppressWarnings("EmptyMethod")
     public static abstract class LineGraphTaskListener
@@ -21,7 +21,6 @@ package com.forrestguice.suntimeswidget.map;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.DashPathEffect;
 import android.graphics.LightingColorFilter;
 import android.graphics.Matrix;
 import android.graphics.Paint;
@@ -38,8 +37,10 @@ import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator;
 import com.forrestguice.suntimeswidget.calculator.SuntimesRiseSetDataset;
 import com.forrestguice.suntimeswidget.calculator.core.Location;
 import com.forrestguice.suntimeswidget.settings.WidgetTimezones;
+import com.forrestguice.suntimeswidget.views.BitmapPool;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 
 /**
@@ -91,86 +92,54 @@ public class WorldMapEquiazimuthal extends WorldMapTask.WorldMapProjection
         return r;
     }
 
+    /**
+     * @return a cleared pixel array (reused between frames)
+     */
+    protected int[] pixelBuffer(int n) {
+        return pixelBuffer(n, true);
+    }
+
+    /**
+     * @param clear true clears the array, false leaves the previous frame's pixels
+     * @return a pixel array (reused between frames)
+     */
+    protected int[] pixelBuffer(int n, boolean clear)
+    {
+        if (pixels == null || pixels.length != n) {
+            pixels = new int[n];
+        } else if (clear) {
+            Arrays.fill(pixels, 0);
+        }
+        return pixels;
+    }
+    private int[] pixels = null;
+
+    /**
+     * Shades the previous frame's pixels incrementally (only tiles near the terminator are re-shaded between animation frames).
+     */
+    protected final WorldMapIncrementalShader pixelShader = new WorldMapIncrementalShader();
+
     protected int[] initPixels(int w, int h, double[] sunUp, double[] moonUp, WorldMapTask.WorldMapOptions options)
     {
-        int z = 0;
-        int j0, j1, j2;
-        double v0, v1, v2;
-        double sunIntensity, moonIntensity;
-        int[] pixels = new int[w * h];
-        double[] m = getMatrix();
-
-        if (options.showSunShadow && options.showMoonLight)
+        if (options.showSunShadow || options.showMoonLight)
         {
+            int[] pixels = pixelBuffer(w * h, false);
             int combinedColor = ColorUtils.compositeColors(options.moonLightColor, options.sunShadowColor);
-            for (int j = 0; j < h; j++)
-            {
-                j0 = (360 * j);
-                j1 = (360 * (360 + j));
-                j2 = (360 * (720 + j));
-
-                for (int i = 0; i < w; i++)
-                {
-                    v0 = m[i + j0];
-                    v1 = m[i + j1];
-                    v2 = m[i + j2];
-
-                    sunIntensity = (sunUp[0] * v0) + (sunUp[1] * v1) + (sunUp[2] * v2);
-                    moonIntensity = (moonUp[0] * v0) + (moonUp[1] * v1) + (moonUp[2] * v2);
-                    if (sunIntensity <= 0 && moonIntensity > 0) {
-                        pixels[z] = combinedColor;
-                    } else if (sunIntensity <= 0) {
-                        pixels[z] = options.sunShadowColor;
-                    } else if (moonIntensity > 0) {
-                        pixels[z] = options.moonLightColor;
-                    }
-                    z++;
-                }
-            }
-
-        } else if (options.showSunShadow) {
-            for (int j = 0; j < h; j++)
-            {
-                j0 = (360 * j);
-                j1 = (360 * (360 + j));
-                j2 = (360 * (720 + j));
-
-                for (int i = 0; i < w; i++)
-                {
-                    v0 = m[i + j0];
-                    v1 = m[i + j1];
-                    v2 = m[i + j2];
-
-                    sunIntensity = (sunUp[0] * v0) + (sunUp[1] * v1) + (sunUp[2] * v2);
-                    pixels[z] = (sunIntensity <= 0) ? options.sunShadowColor : Color.TRANSPARENT;
-                    z++;
-                }
-            }
+            int[] palette = WorldMapPixelShader.palette(Color.TRANSPARENT, options.showSunShadow, options.sunShadowColor, options.showMoonLight, options.moonLightColor, combinedColor);
+            pixelShader.shade(getMatrix(), w, h, sunUp, moonUp, palette, pixels);
+            return pixels;
 
-        } else if (options.showMoonLight) {
-            for (int j = 0; j < h; j++)
-            {
-                j0 = (360 * j);
-                j1 = (360 * (360 + j));
-                j2 = (360 * (720 + j));
-
-                for (int i = 0; i < w; i++)
-                {
-                    v0 = m[i + j0];
-                    v1 = m[i + j1];
-                    v2 = m[i + j2];
-
-                    moonIntensity = (moonUp[0] * v0) + (moonUp[1] * v1) + (moonUp[2] * v2);
-                    pixels[z] = (moonIntensity > 0) ? options.moonLightColor : Color.TRANSPARENT;
-                    z++;
-                }
-            }
+        } else {
+            pixelShader.reset();
+            return pixelBuffer(w * h);
         }
-        return pixels;
     }
 
     protected boolean paintInitialized = false;
     protected Paint paintScaled = null;
+    protected final Rect lightSrc = new Rect(), lightDst = new Rect();
+    protected final Matrix rotateMatrix = new Matrix();
+    protected final Paint paintRotate = new Paint(Paint.FILTER_BITMAP_FLAG);
     protected Paint paintBackground = null;
     protected Paint paintForeground = null;
     protected Paint paintLocation_fill = null, paintLocation_stroke;
@@ -247,14 +216,15 @@ public class WorldMapEquiazimuthal extends WorldMapTask.WorldMapProjection
         }
 
         if (matrix == null) {
-            matrix = initMatrix();
+            matrix = obtainMatrix();
         }
 
         double[] mid = new double[2];
         mid[0] = w/2d;
         mid[1] = h/2d;
 
-        Bitmap b = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+        Bitmap b = BitmapPool.getInstance().acquire(w, h, Bitmap.Config.ARGB_8888);
+        Bitmap b0 = b;    // pooled (released after masking)
         Canvas c = new Canvas(b);
 
         if (!paintInitialized) {
@@ -321,14 +291,14 @@ public class WorldMapEquiazimuthal extends WorldMapTask.WorldMapProjection
             if (options.showSunPosition || options.showMoonPosition)
             {
                 int[] size = matrixSize();
-                Bitmap lightBitmap = Bitmap.createBitmap(size[0], size[1], Bitmap.Config.ARGB_8888);
+                Bitmap lightBitmap = BitmapPool.getInstance().acquire(size[0], size[1], Bitmap.Config.ARGB_8888);
                 int[] pixels = initPixels(size[0], size[1], sunUp, moonUp, options);
                 lightBitmap.setPixels(pixels, 0, size[0], 0, 0, size[0], size[1]);
 
-                Rect src = new Rect(0,0,size[0]-1, size[1]-1);
-                Rect dst = new Rect(0,0,w-1, h-1);
-                c.drawBitmap(lightBitmap, src, dst, paintScaled);
-                lightBitmap.recycle();
+                lightSrc.set(0,0,size[0]-1, size[1]-1);
+                lightDst.set(0,0,w-1, h-1);
+                c.drawBitmap(lightBitmap, lightSrc, lightDst, paintScaled);
+                BitmapPool.getInstance().release(lightBitmap);
             }
 
             ////////////////
@@ -359,10 +329,7 @@ public class WorldMapEquiazimuthal extends WorldMapTask.WorldMapProjection
 
             if (options.translateToLocation)
             {
-                Matrix rotateMatrix = new Matrix();
-                rotateMatrix.postRotate(-1 * (float)sunLon);
-                b = Bitmap.createBitmap(b, 0, 0, b.getWidth(), b.getHeight(), rotateMatrix, true);
-                b = Bitmap.createBitmap(b, ((b.getWidth() - w) / 2), ((b.getHeight() - h) / 2), w, h);
+                b = rotateBitmap(b, mid, -1 * sunLon);
             }
         }
 
@@ -373,21 +340,38 @@ public class WorldMapEquiazimuthal extends WorldMapTask.WorldMapProjection
         }
 
         // mask final image to fit within a circle (fixes fuzzy edges from base maps)
-        Bitmap masked = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+        Bitmap masked = acquireFrame(w, h);
         Canvas maskedCanvas = new Canvas(masked);
         maskedCanvas.drawCircle((float)mid[0], (float)mid[1], (float)mid[0] - 2, paintMask_srcOver);
         maskedCanvas.drawBitmap(b, 0, 0, paintMask_srcIn);
-        b.recycle();
+        BitmapPool.getInstance().release(b);
+        if (b0 != b) {
+            BitmapPool.getInstance().release(b0);
+        }
 
         long bench_end = System.nanoTime();
         Log.d(WorldMapView.LOGTAG, "make equiazimuthal world map :: " + ((bench_end - bench_start) / 1000000.0) + " ms; " + w + ", " + h);
         return masked;
     }
 
-    private static double[] matrix = null;    // [x * y * v(3)]
+    /**
+     * Rotates the map about its center (the same as rotating then cropping to the original size).
+     * @param b the map (unchanged; the caller still releases it)
+     * @return a pooled bitmap (the same size as `b`) containing the rotated map
+     */
+    protected Bitmap rotateBitmap(Bitmap b, double[] mid, double degrees)
+    {
+        rotateMatrix.reset();
+        rotateMatrix.postRotate((float) degrees, (float) mid[0], (float) mid[1]);
+        Bitmap rotated = BitmapPool.getInstance().acquire(b.getWidth(), b.getHeight(), Bitmap.Config.ARGB_8888);
+        new Canvas(rotated).drawBitmap(b, rotateMatrix, paintRotate);
+        return rotated;
+    }
+
+    private static float[] matrix = null;    // [x * y * v(3)]
 
     @Override
-    public double[] getMatrix() {
+    public float[] getMatrix() {
         return matrix;
     }
 
@@ -403,14 +387,14 @@ public class WorldMapEquiazimuthal extends WorldMapTask.WorldMapProjection
     }
 
     @Override
-    public double[] initMatrix()
+    public float[] initMatrix()
     {
         long bench_start = System.nanoTime();
 
         int[] size = matrixSize();
         int w = size[0];
         int h = size[1];
-        double[] v = new double[w * h * 3];
+        float[] v = new float[w * h * 3];
 
         double radLon, cosLon, sinLon;
         double radLat, cosLat;
@@ -443,9 +427,9 @@ public class WorldMapEquiazimuthal extends WorldMapTask.WorldMapProjection
                 cosLat = Math.cos(radLat);
                 cosLon = Math.cos(radLon);
 
-                v[i + (360 * j)] = cosLon * cosLat;
-                v[i + (360 * (360 + j))] = sinLon * cosLat;
-                v[i + (360 * (720 + j))] = Math.sin(radLat);
+                v[i + (360 * j)] = (float) (cosLon * cosLat);
+                v[i + (360 * (360 + j))] = (float) (sinLon * cosLat);
+                v[i + (360 * (720 + j))] = (float) Math.sin(radLat);
             }
         }
 
@@ -475,7 +459,7 @@ public class WorldMapEquiazimuthal extends WorldMapTask.WorldMapProjection
         float strokeWidth = sunStroke(c, options) * options.latitudeLineScale;
         p.setStrokeWidth(strokeWidth);
         p.setColor(options.latitudeColors[0]);
-        p.setPathEffect((options.latitudeLinePatterns[0][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[0], 0) : null);
+        p.setPathEffect((options.latitudeLinePatterns[0][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[0]) : null);
 
         c.drawCircle((int)mid[0], (int)mid[1], (int)equator, p);
         c.drawLine((int)mid[0], (int)mid[1], (int)mid[0], h, p);
@@ -484,12 +468,12 @@ public class WorldMapEquiazimuthal extends WorldMapTask.WorldMapProjection
         c.drawLine(0, (int)mid[1], (int)mid[0], (int)mid[1], p);
 
         p.setColor(options.latitudeColors[1]);
-        p.setPathEffect((options.latitudeLinePatterns[1][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[1], 0) : null);
+        p.setPathEffect((options.latitudeLinePatterns[1][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[1]) : null);
         c.drawCircle((int)mid[0], (int)mid[1], (int)(equator + tropics), p);
         c.drawCircle((int)mid[0], (int)mid[1], (int)(equator - tropics), p);
 
         p.setColor(options.latitudeColors[2]);
-        p.setPathEffect((options.latitudeLinePatterns[2][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[2], 0) : null);
+        p.setPathEffect((options.latitudeLinePatterns[2][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[2]) : null);
         c.drawCircle((int)mid[0], (int)mid[1], (int)(equator + polar), p);
         c.drawCircle((int)mid[0], (int)mid[1], (int)(equator - polar), p);
     }
@@ -504,7 +488,7 @@ public class WorldMapEquiazimuthal extends WorldMapTask.WorldMapProjection
         Paint p = paintGrid;
         float strokeWidth = sunStroke(c, options) * options.latitudeLineScale;
         p.setStrokeWidth(strokeWidth);
-        p.setPathEffect((options.latitudeLinePatterns[0][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[0], 0) : null);
+        p.setPathEffect((options.latitudeLinePatterns[0][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[0]) : null);
 
         p.setColor(Color.BLACK);
         c.drawCircle((int)mid[0], (int)mid[1], (int)equator, p);
@@ -518,12 +502,12 @@ public class WorldMapEquiazimuthal extends WorldMapTask.WorldMapProjection
         c.drawLine(0, (int)mid[1], (int)mid[0], (int)mid[1], p);
 
         p.setColor(Color.WHITE);
-        p.setPathEffect((options.latitudeLinePatterns[1][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[1], 0) : null);
+        p.setPathEffect((options.latitudeLinePatterns[1][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[1]) : null);
         c.drawCircle((int)mid[0], (int)mid[1], (int)(equator + tropics), p);
         c.drawCircle((int)mid[0], (int)mid[1], (int)(equator - tropics), p);
 
         p.setColor(Color.GREEN);
-        p.setPathEffect((options.latitudeLinePatterns[2][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[2], 0) : null);
+        p.setPathEffect((options.latitudeLinePatterns[2][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[2]) : null);
         c.drawCircle((int)mid[0], (int)mid[1], (int)(equator + polar), p);
         p.setColor(Color.RED);
         c.drawCircle((int)mid[0], (int)mid[1], (int)(equator - polar), p);
@@ -558,13 +542,13 @@ public class WorldMapEquiazimuthal extends WorldMapTask.WorldMapProjection
 
         float strokeWidth = sunStroke(c, options) * options.latitudeLineScale;
         paintGrid.setStrokeWidth(strokeWidth);
-        paintGrid.setPathEffect((options.latitudeLinePatterns[0][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[0], 0) : null);
+        paintGrid.setPathEffect((options.latitudeLinePatterns[0][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[0]) : null);
         paintGrid.setColor(options.gridXColor);
         for (int i=0; i<grid_x.size(); i++) {
             drawConnectedLines(c, grid_x.get(i), paintGrid);
         }
 
-        paintGrid.setPathEffect((options.latitudeLinePatterns[1][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[1], 0) : null);
+        paintGrid.setPathEffect((options.latitudeLinePatterns[1][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[1]) : null);
         paintGrid.setColor(options.gridYColor);
         for (int i=0; i<grid_y.size(); i++) {
             drawConnectedLines(c, grid_y.get(i), paintGrid);
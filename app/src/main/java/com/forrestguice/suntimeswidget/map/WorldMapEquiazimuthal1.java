@@ -21,12 +21,9 @@ package com.forrestguice.suntimeswidget.map;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.DashPathEffect;
-import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.PorterDuff;
 import android.graphics.PorterDuffXfermode;
-import android.graphics.Rect;
 import android.support.annotation.Nullable;
 import android.support.v4.graphics.ColorUtils;
 import android.util.Log;
@@ -35,6 +32,7 @@ import com.forrestguice.suntimeswidget.calculator.SuntimesRiseSetDataset;
 import com.forrestguice.suntimeswidget.calculator.core.Location;
 import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator;
 import com.forrestguice.suntimeswidget.settings.WidgetTimezones;
+import com.forrestguice.suntimeswidget.views.BitmapPool;
 
 import java.util.Calendar;
 
@@ -56,10 +54,10 @@ public class WorldMapEquiazimuthal1 extends WorldMapEquiazimuthal
         return polar;
     }
 
-    private static double[] matrix = null;    // [x * y * v(3)]
+    private static float[] matrix = null;    // [x * y * v(3)]
 
     @Override
-    public double[] getMatrix() {
+    public float[] getMatrix() {
         return matrix;
     }
 
@@ -69,14 +67,14 @@ public class WorldMapEquiazimuthal1 extends WorldMapEquiazimuthal
     }
 
     @Override
-    public double[] initMatrix()
+    public float[] initMatrix()
     {
         long bench_start = System.nanoTime();
 
         int[] size = matrixSize();
         int w = size[0];
         int h = size[1];
-        double[] v = new double[w * h * 3];
+        float[] v = new float[w * h * 3];
 
         double squareR = (0.5 * w + 1) * (0.5 * w + 1);
         double negPiOver2 = -0.5 * Math.PI;
@@ -116,9 +114,9 @@ public class WorldMapEquiazimuthal1 extends WorldMapEquiazimuthal
                 cosLon = Math.cos(radLon);
                 sinLon = Math.sin(radLon);
 
-                v[i + (360 * j)] = cosLon * cosLat;
-                v[i + (360 * (360 + j))] = sinLon * cosLat;
-                v[i + (360 * (720 + j))] = Math.sin(radLat);
+                v[i + (360 * j)] = (float) (cosLon * cosLat);
+                v[i + (360 * (360 + j))] = (float) (sinLon * cosLat);
+                v[i + (360 * (720 + j))] = (float) Math.sin(radLat);
             }
         }
 
@@ -137,14 +135,15 @@ public class WorldMapEquiazimuthal1 extends WorldMapEquiazimuthal
         }
 
         if (matrix == null) {
-            matrix = initMatrix();
+            matrix = obtainMatrix();
         }
 
         double[] mid = new double[2];
         mid[0] = w/2d;
         mid[1] = h/2d;
 
-        Bitmap b = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+        Bitmap b = BitmapPool.getInstance().acquire(w, h, Bitmap.Config.ARGB_8888);
+        Bitmap b0 = b;    // pooled (released after masking)
         Canvas c = new Canvas(b);
 
         if (!paintInitialized) {
@@ -211,14 +210,14 @@ public class WorldMapEquiazimuthal1 extends WorldMapEquiazimuthal
             if (options.showSunPosition || options.showMoonPosition)
             {
                 int[] size = matrixSize();
-                Bitmap lightBitmap = Bitmap.createBitmap(size[0], size[1], Bitmap.Config.ARGB_8888);
+                Bitmap lightBitmap = BitmapPool.getInstance().acquire(size[0], size[1], Bitmap.Config.ARGB_8888);
                 int[] pixels = initPixels(size[0], size[1], sunUp, moonUp, options);
                 lightBitmap.setPixels(pixels, 0, size[0], 0, 0, size[0], size[1]);
 
-                Rect src = new Rect(0,0,size[0]-1, size[1]-1);
-                Rect dst = new Rect(0,0,w-1, h-1);
-                c.drawBitmap(lightBitmap, src, dst, paintScaled);
-                lightBitmap.recycle();
+                lightSrc.set(0,0,size[0]-1, size[1]-1);
+                lightDst.set(0,0,w-1, h-1);
+                c.drawBitmap(lightBitmap, lightSrc, lightDst, paintScaled);
+                BitmapPool.getInstance().release(lightBitmap);
             }
 
             ////////////////
@@ -249,10 +248,7 @@ public class WorldMapEquiazimuthal1 extends WorldMapEquiazimuthal
 
             if (options.translateToLocation)
             {
-                Matrix rotateMatrix = new Matrix();
-                rotateMatrix.postRotate(-1 * (float)sunLon);
-                b = Bitmap.createBitmap(b, 0, 0, b.getWidth(), b.getHeight(), rotateMatrix, true);
-                b = Bitmap.createBitmap(b, ((b.getWidth() - w) / 2), ((b.getHeight() - h) / 2), w, h);
+                b = rotateBitmap(b, mid, -1 * sunLon);
             }
         }
 
@@ -263,11 +259,14 @@ public class WorldMapEquiazimuthal1 extends WorldMapEquiazimuthal
         }
 
         // mask final image to fit within a circle (fixes fuzzy edges from base maps)
-        Bitmap masked = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+        Bitmap masked = acquireFrame(w, h);
         Canvas maskedCanvas = new Canvas(masked);
         maskedCanvas.drawCircle((float)mid[0], (float)mid[1], (float)mid[0] - 2, paintMask_srcOver);
         maskedCanvas.drawBitmap(b, 0, 0, paintMask_srcIn);
-        b.recycle();
+        BitmapPool.getInstance().release(b);
+        if (b0 != b) {
+            BitmapPool.getInstance().release(b0);
+        }
 
         long bench_end = System.nanoTime();
         Log.d(WorldMapView.LOGTAG, "make equiazimuthal world map :: " + ((bench_end - bench_start) / 1000000.0) + " ms; " + w + ", " + h);
@@ -284,7 +283,7 @@ public class WorldMapEquiazimuthal1 extends WorldMapEquiazimuthal
         Paint p = paintGrid;
         float strokeWidth = sunStroke(c, options) * options.latitudeLineScale;
         p.setStrokeWidth(strokeWidth);
-        p.setPathEffect((options.latitudeLinePatterns[0][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[0], 0) : null);
+        p.setPathEffect((options.latitudeLinePatterns[0][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[0]) : null);
 
         p.setColor(Color.BLACK);
         c.drawCircle((int)mid[0], (int)mid[1], (int)equator, p);
@@ -298,12 +297,12 @@ public class WorldMapEquiazimuthal1 extends WorldMapEquiazimuthal
         c.drawLine(0, (int)mid[1], (int)mid[0], (int)mid[1], p);
 
         p.setColor(Color.WHITE);
-        p.setPathEffect((options.latitudeLinePatterns[1][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[1], 0) : null);
+        p.setPathEffect((options.latitudeLinePatterns[1][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[1]) : null);
         c.drawCircle((int)mid[0], (int)mid[1], (int)(equator + tropics), p);
         c.drawCircle((int)mid[0], (int)mid[1], (int)(equator - tropics), p);
 
         p.setColor(Color.RED);
-        p.setPathEffect((options.latitudeLinePatterns[2][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[2], 0) : null);
+        p.setPathEffect((options.latitudeLinePatterns[2][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[2]) : null);
         c.drawCircle((int)mid[0], (int)mid[1], (int)(equator + polar), p);
         p.setColor(Color.GREEN);
         c.drawCircle((int)mid[0], (int)mid[1], (int)(equator - polar), p);
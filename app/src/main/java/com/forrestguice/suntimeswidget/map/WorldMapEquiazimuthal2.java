@@ -21,8 +21,6 @@ package com.forrestguice.suntimeswidget.map;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.DashPathEffect;
-import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.PathEffect;
 import android.graphics.PorterDuff;
@@ -35,6 +33,7 @@ import com.forrestguice.suntimeswidget.calculator.SuntimesRiseSetDataset;
 import com.forrestguice.suntimeswidget.calculator.core.Location;
 import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator;
 import com.forrestguice.suntimeswidget.settings.WidgetTimezones;
+import com.forrestguice.suntimeswidget.views.BitmapPool;
 
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -68,28 +67,40 @@ public class WorldMapEquiazimuthal2 extends WorldMapEquiazimuthal
     }
 
     @Override
-    public double[] getMatrix() {
+    public float[] getMatrix() {
         return matrix;
     }
-    private static double[] matrix = null;    // [x * y * v(3)]
+    private static float[] matrix = null;    // [x * y * v(3)]
 
     @Override
     public void resetMatrix() {
         matrix = null;
     }
 
-    @Override
-    public double[] initMatrix()
+    /**
+     * Initializes state that depends on the center (also needed when the matrix is taken from WorldMapMatrixCache).
+     */
+    protected void initCenter()
     {
-        long bench_start = System.nanoTime();
-
         int[] size = matrixSize();
         pixelSrc = new Rect(0,0,size[0]-1, size[1]-1);
         grid_mid = null;
 
+        double radLat1 = Math.toRadians(center[0]);
+        sinLat1 = Math.sin(radLat1);
+        cosLat1 = Math.cos(radLat1);
+    }
+
+    @Override
+    public float[] initMatrix()
+    {
+        long bench_start = System.nanoTime();
+        initCenter();
+
+        int[] size = matrixSize();
         int w = size[0];
         int h = size[1];
-        double[] v = new double[w * h * 3];
+        float[] v = new float[w * h * 3];
 
         double x, y;
         double c, sinC, cosC;
@@ -98,9 +109,6 @@ public class WorldMapEquiazimuthal2 extends WorldMapEquiazimuthal
         double squareR = Math.PI * Math.PI;
 
         double radLon1 = Math.toRadians(center[1]);
-        double radLat1 = Math.toRadians(center[0]);
-        sinLat1 = Math.sin(radLat1);
-        cosLat1 = Math.cos(radLat1);
 
         for (int i = 0; i < w; i++)
         {
@@ -140,9 +148,9 @@ public class WorldMapEquiazimuthal2 extends WorldMapEquiazimuthal
                 cosLon = Math.cos(radLon);
                 sinLon = Math.sin(radLon);
 
-                v[i + (360 * j)] = cosLon * cosLat;
-                v[i + (360 * (360 + j))] = sinLon * cosLat;
-                v[i + (360 * (720 + j))] = Math.sin(radLat);
+                v[i + (360 * j)] = (float) (cosLon * cosLat);
+                v[i + (360 * (360 + j))] = (float) (sinLon * cosLat);
+                v[i + (360 * (720 + j))] = (float) Math.sin(radLat);
             }
         }
 
@@ -225,14 +233,16 @@ public class WorldMapEquiazimuthal2 extends WorldMapEquiazimuthal
 
         boolean recenter = setCenterFromOptions(options);
         if (matrix == null || recenter) {
-            matrix = initMatrix();
+            initCenter();
+            matrix = obtainMatrix();
         }
 
         double[] mid = new double[2];
         mid[0] = w/2d;
         mid[1] = h/2d;
 
-        Bitmap b = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+        Bitmap b = BitmapPool.getInstance().acquire(w, h, Bitmap.Config.ARGB_8888);
+        Bitmap b0 = b;    // pooled (released after masking)
         Canvas c = new Canvas(b);
 
         if (!paintInitialized) {
@@ -299,14 +309,14 @@ public class WorldMapEquiazimuthal2 extends WorldMapEquiazimuthal
             if (options.showSunPosition || options.showMoonPosition)
             {
                 int[] size = matrixSize();
-                Bitmap lightBitmap = Bitmap.createBitmap(size[0], size[1], Bitmap.Config.ARGB_8888);
+                Bitmap lightBitmap = BitmapPool.getInstance().acquire(size[0], size[1], Bitmap.Config.ARGB_8888);
                 int[] pixels = initPixels(size[0], size[1], sunUp, moonUp, options);    // TODO: double buffer?
                 lightBitmap.setPixels(pixels, 0, size[0], 0, 0, size[0], size[1]);
 
                 //Rect pixelSrc = new Rect(0,0,size[0]-1, size[1]-1);    // set by initMatrix
                 pixelDst.set(0,0,w-1, h-1);
                 c.drawBitmap(lightBitmap, pixelSrc, pixelDst, paintScaled);
-                lightBitmap.recycle();
+                BitmapPool.getInstance().release(lightBitmap);
             }
 
             ////////////////
@@ -337,10 +347,7 @@ public class WorldMapEquiazimuthal2 extends WorldMapEquiazimuthal
 
             if (options.translateToLocation)
             {
-                Matrix rotateMatrix = new Matrix();
-                rotateMatrix.postRotate(-1 * (float)sunLon);
-                b = Bitmap.createBitmap(b, 0, 0, b.getWidth(), b.getHeight(), rotateMatrix, true);
-                b = Bitmap.createBitmap(b, ((b.getWidth() - w) / 2), ((b.getHeight() - h) / 2), w, h);
+                b = rotateBitmap(b, mid, -1 * sunLon);
             }
         }
 
@@ -351,11 +358,14 @@ public class WorldMapEquiazimuthal2 extends WorldMapEquiazimuthal
         }
 
         // mask final image to fit within a circle (fixes fuzzy edges from base maps)
-        Bitmap masked = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+        Bitmap masked = acquireFrame(w, h);
         Canvas maskedCanvas = new Canvas(masked);
         maskedCanvas.drawCircle((float)mid[0], (float)mid[1], (float)mid[0] - 2, paintMask_srcOver);
         maskedCanvas.drawBitmap(b, 0, 0, paintMask_srcIn);
-        b.recycle();
+        BitmapPool.getInstance().release(b);
+        if (b0 != b) {
+            BitmapPool.getInstance().release(b0);
+        }
 
         long bench_end = System.nanoTime();
         Log.d(WorldMapView.LOGTAG, "make equiazimuthal2 world map :: " + ((bench_end - bench_start) / 1000000.0) + " ms; " + w + ", " + h);
@@ -369,7 +379,7 @@ public class WorldMapEquiazimuthal2 extends WorldMapEquiazimuthal
         paintGrid.setStrokeWidth(strokeWidth);
 
         paintGrid.setColor(options.latitudeColors[0]);
-        paintGrid.setPathEffect((options.latitudeLinePatterns[0][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[0], 0) : null);
+        paintGrid.setPathEffect((options.latitudeLinePatterns[0][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[0]) : null);
         drawConnectedLines(c, createLatitudePath(mid, 0, -180, 0), paintGrid);
         drawConnectedLines(c, createLatitudePath(mid, 0, 0, 180), paintGrid);
 
@@ -379,12 +389,12 @@ public class WorldMapEquiazimuthal2 extends WorldMapEquiazimuthal
         drawConnectedLines(c, createLongitudePath(mid, -90), paintGrid);
 
         paintGrid.setColor(options.latitudeColors[1]);
-        paintGrid.setPathEffect((options.latitudeLinePatterns[1][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[1], 0) : null);
+        paintGrid.setPathEffect((options.latitudeLinePatterns[1][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[1]) : null);
         drawConnectedLines(c, createLatitudePath(mid, 23.439444), paintGrid);
         drawConnectedLines(c, createLatitudePath(mid, -23.439444), paintGrid);
 
         paintGrid.setColor(options.latitudeColors[2]);
-        paintGrid.setPathEffect((options.latitudeLinePatterns[2][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[2], 0) : null);
+        paintGrid.setPathEffect((options.latitudeLinePatterns[2][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[2]) : null);
         drawConnectedLines(c, createLatitudePath(mid, 66.560833), paintGrid);
         drawConnectedLines(c, createLatitudePath(mid, -66.560833), paintGrid);
     }
@@ -395,7 +405,7 @@ public class WorldMapEquiazimuthal2 extends WorldMapEquiazimuthal
         float strokeWidth = sunStroke(c, options) * options.latitudeLineScale;
         paintGrid.setStrokeWidth(strokeWidth);
 
-        paintGrid.setPathEffect((options.latitudeLinePatterns[0][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[0], 0) : null);
+        paintGrid.setPathEffect((options.latitudeLinePatterns[0][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[0]) : null);
         paintGrid.setColor(Color.GREEN);
         drawConnectedLines(c, createLatitudePath(mid, 0, -180, 0), paintGrid);
         paintGrid.setColor(Color.RED);
@@ -410,12 +420,12 @@ public class WorldMapEquiazimuthal2 extends WorldMapEquiazimuthal
         paintGrid.setColor(Color.GREEN);
         drawConnectedLines(c, createLongitudePath(mid, -90), paintGrid);
 
-        paintGrid.setPathEffect((options.latitudeLinePatterns[1][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[1], 0) : null);
+        paintGrid.setPathEffect((options.latitudeLinePatterns[1][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[1]) : null);
         paintGrid.setColor(Color.WHITE);
         drawConnectedLines(c, createLatitudePath(mid, 23.439444), paintGrid);
         drawConnectedLines(c, createLatitudePath(mid, -23.439444), paintGrid);
 
-        paintGrid.setPathEffect((options.latitudeLinePatterns[2][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[2], 0) : null);
+        paintGrid.setPathEffect((options.latitudeLinePatterns[2][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[2]) : null);
         paintGrid.setColor(Color.GREEN);
         drawConnectedLines(c, createLatitudePath(mid, -66.560833), paintGrid);
         paintGrid.setColor(Color.RED);
@@ -451,13 +461,13 @@ public class WorldMapEquiazimuthal2 extends WorldMapEquiazimuthal
 
         float strokeWidth = sunStroke(c, options) * options.latitudeLineScale;
         paintGrid.setStrokeWidth(strokeWidth);
-        paintGrid.setPathEffect((options.latitudeLinePatterns[0][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[0], 0) : null);
+        paintGrid.setPathEffect((options.latitudeLinePatterns[0][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[0]) : null);
         paintGrid.setColor(options.gridXColor);
         for (int i=0; i<grid_x.size(); i++) {
             drawConnectedLines(c, grid_x.get(i), paintGrid);
         }
 
-        paintGrid.setPathEffect((options.latitudeLinePatterns[1][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[1], 0) : null);
+        paintGrid.setPathEffect((options.latitudeLinePatterns[1][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[1]) : null);
         paintGrid.setColor(options.gridYColor);
         for (int i=0; i<grid_y.size(); i++) {
             drawConnectedLines(c, grid_y.get(i), paintGrid);
@@ -21,12 +21,12 @@ package com.forrestguice.suntimeswidget.map;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.DashPathEffect;
 import android.graphics.LightingColorFilter;
 import android.graphics.Paint;
 import android.graphics.PathEffect;
 import android.graphics.PorterDuff;
 import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
 import android.support.annotation.Nullable;
 import android.util.Log;
 
@@ -34,7 +34,9 @@ import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator;
 import com.forrestguice.suntimeswidget.calculator.SuntimesRiseSetDataset;
 import com.forrestguice.suntimeswidget.calculator.core.Location;
 import com.forrestguice.suntimeswidget.settings.WidgetTimezones;
+import com.forrestguice.suntimeswidget.views.BitmapPool;
 
+import java.util.Arrays;
 import java.util.Calendar;
 
 /**
@@ -59,6 +61,8 @@ public class WorldMapEquirectangular extends WorldMapTask.WorldMapProjection
     protected Paint paintLocation_fill = null, paintLocation_stroke = null;
     protected Paint paintMask_srcIn = null;
     protected Paint paintMask_srcOver = null;
+    protected Paint paintMask_scaled = null;
+    protected final Rect maskDst = new Rect();
     protected Paint paintMoon_fill = null;
     protected Paint paintMoon_stroke = null;
     protected Paint paintSun_fill = null;
@@ -83,6 +87,10 @@ public class WorldMapEquirectangular extends WorldMapTask.WorldMapProjection
         paintMask_srcIn.setColor(Color.WHITE);
         paintMask_srcIn.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC_IN));
 
+        paintMask_scaled = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);    // to scale a mask
+        paintMask_scaled.setColor(Color.WHITE);
+        paintMask_scaled.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC_OVER));
+
         paintSunshadow = new Paint(Paint.ANTI_ALIAS_FLAG);
         paintSunshadow.setColor(options.sunShadowColor);
         paintSunshadow.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC_IN));
@@ -133,14 +141,14 @@ public class WorldMapEquirectangular extends WorldMapTask.WorldMapProjection
         }
 
         if (matrix == null) {
-            matrix = initMatrix();
+            matrix = obtainMatrix();
         }
 
         double[] mid = new double[2];
         mid[0] = w/2d;
         mid[1] = h/2d;
 
-        Bitmap b = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+        Bitmap b = acquireFrame(w, h);
         Canvas c = new Canvas(b);
 
         if (!paintInitialized) {
@@ -213,8 +221,8 @@ public class WorldMapEquirectangular extends WorldMapTask.WorldMapProjection
                 int k0, k1, k2;
                 double v0, v1, v2;
                 double sunIntensity, moonIntensity;
-                int[] sun_pixels = new int[size[0] * size[1]];
-                int[] moon_pixels = new int[size[0] * size[1]];
+                int[] sun_pixels = sunPixels = pixelBuffer(sunPixels, size[0] * size[1]);      // reused between frames
+                int[] moon_pixels = moonPixels = pixelBuffer(moonPixels, size[0] * size[1]);
                 for (int j = 0; j < size[1]; j++)
                 {
                     k0 = size[0] * j;
@@ -249,39 +257,37 @@ public class WorldMapEquirectangular extends WorldMapTask.WorldMapProjection
                 moonMaskBitmap.setPixels(moon_pixels, 0, size[0], 0, 0, size[0], size[1]);
 
                 // draw sun shadow
-                Bitmap sunMask = Bitmap.createScaledBitmap(sunMaskBitmap, w, h, true);
-                Bitmap shadowBitmap = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+                BitmapPool pool = BitmapPool.getInstance();
+                maskDst.set(0, 0, w, h);
+                Bitmap shadowBitmap = pool.acquire(w, h, Bitmap.Config.ARGB_8888);
                 Canvas shadowCanvas = new Canvas(shadowBitmap);
-                shadowCanvas.drawBitmap(sunMask, 0, 0, paintMask_srcOver);
+                shadowCanvas.drawBitmap(sunMaskBitmap, null, maskDst, paintMask_scaled);    // scale the mask directly (rather than via createScaledBitmap)
 
                 if (options.map_night != null)
                 {
-                    Bitmap nightBitmap = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+                    Bitmap nightBitmap = pool.acquire(w, h, Bitmap.Config.ARGB_8888);
                     Canvas nightCanvas = new Canvas(nightBitmap);
                     options.map_night.setBounds(0, 0, nightCanvas.getWidth(), nightCanvas.getHeight());
                     options.map_night.draw(nightCanvas);
 
                     shadowCanvas.drawBitmap(nightBitmap, 0, 0, paintMask_srcIn);
-                    nightBitmap.recycle();
+                    pool.release(nightBitmap);
 
                 } else {
                     shadowCanvas.drawPaint(paintSunshadow);
                 }
 
                 c.drawBitmap(shadowBitmap, 0, 0, paintMask_srcOver);
-                shadowBitmap.recycle();
-                sunMask.recycle();
+                pool.release(shadowBitmap);
 
                 // draw moon light
-                Bitmap moonMask = Bitmap.createScaledBitmap(moonMaskBitmap, w, h, true);
-                Bitmap moonBitmap = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+                Bitmap moonBitmap = pool.acquire(w, h, Bitmap.Config.ARGB_8888);
                 Canvas moonCanvas = new Canvas(moonBitmap);
-                moonCanvas.drawBitmap(moonMask, 0, 0, paintMask_srcOver);
+                moonCanvas.drawBitmap(moonMaskBitmap, null, maskDst, paintMask_scaled);
                 moonCanvas.drawPaint(paintMoonlight);
 
                 c.drawBitmap(moonBitmap, 0, 0, paintMask_srcOver);
-                moonBitmap.recycle();
-                moonMask.recycle();
+                pool.release(moonBitmap);
             }
 
             ////////////////
@@ -318,7 +324,7 @@ public class WorldMapEquirectangular extends WorldMapTask.WorldMapProjection
         return b;
     }
 
-    private static double[] matrix = null;    // [x * y * v(3)]
+    private static float[] matrix = null;    // [x * y * v(3)]
 
     @Override
     public void resetMatrix() {
@@ -326,12 +332,12 @@ public class WorldMapEquirectangular extends WorldMapTask.WorldMapProjection
     }
 
     @Override
-    public double[] initMatrix()
+    public float[] initMatrix()
     {
         long bench_start = System.nanoTime();
 
         int[] size = matrixSize();
-        double[] v = new double[size[0] * size[1] * 3];
+        float[] v = new float[size[0] * size[1] * 3];
         double iw0 = (1d / size[0]) * 360d;
         double ih0 = (1d / size[1]) * 180d;
 
@@ -349,9 +355,9 @@ public class WorldMapEquirectangular extends WorldMapTask.WorldMapProjection
                 radLat = Math.toRadians(-1 * (((double) j * ih0) - 90d));      // j in [0,h] to [0,180] to [-90,90] (inverted to canvas)
                 cosLat = Math.cos(radLat);
 
-                v[i + (size[0] * j)] = cosLon * cosLat;
-                v[i + (size[0] * (size[1] + j))] = sinLon * cosLat;
-                v[i + (size[0] * ((size[1] * 2) + j))] = Math.sin(radLat);
+                v[i + (size[0] * j)] = (float) (cosLon * cosLat);
+                v[i + (size[0] * (size[1] + j))] = (float) (sinLon * cosLat);
+                v[i + (size[0] * ((size[1] * 2) + j))] = (float) Math.sin(radLat);
             }
         }
 
@@ -362,6 +368,19 @@ public class WorldMapEquirectangular extends WorldMapTask.WorldMapProjection
 
     private Bitmap sunMaskBitmap = null;
     private Bitmap moonMaskBitmap = null;
+    private int[] sunPixels = null, moonPixels = null;
+
+    /**
+     * @return a cleared pixel array (`pixels` if it can be reused)
+     */
+    private static int[] pixelBuffer(int[] pixels, int n)
+    {
+        if (pixels == null || pixels.length != n) {
+            return new int[n];
+        }
+        Arrays.fill(pixels, 0);
+        return pixels;
+    }
 
     private void initBitmap(int w, int h)
     {
@@ -376,7 +395,7 @@ public class WorldMapEquirectangular extends WorldMapTask.WorldMapProjection
     }
 
     @Override
-    public double[] getMatrix() {
+    public float[] getMatrix() {
         return matrix;
     }
 
@@ -393,7 +412,7 @@ public class WorldMapEquirectangular extends WorldMapTask.WorldMapProjection
         paintGrid.setStrokeWidth(strokeWidth);
 
         paintGrid.setColor(options.gridXColor);
-        paintGrid.setPathEffect((options.latitudeLinePatterns[0][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[0], 0) : null);
+        paintGrid.setPathEffect((options.latitudeLinePatterns[0][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[0]) : null);
         for (int i=0; i < 180; i = i + 15)
         {
             double offset = (i / 180d) * mid[0];
@@ -404,7 +423,7 @@ public class WorldMapEquirectangular extends WorldMapTask.WorldMapProjection
         }
 
         paintGrid.setColor(options.gridYColor);
-        paintGrid.setPathEffect((options.latitudeLinePatterns[0][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[1], 0) : null);
+        paintGrid.setPathEffect((options.latitudeLinePatterns[0][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[1]) : null);
         for (int i=0; i < 90; i = i + 15)
         {
             double offset = (i / 90d) * mid[1];
@@ -426,7 +445,7 @@ public class WorldMapEquirectangular extends WorldMapTask.WorldMapProjection
         p.setStrokeWidth(strokeWidth);
 
         p.setColor(options.latitudeColors[0]);                    // equator, prime meridian
-        p.setPathEffect((options.latitudeLinePatterns[0][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[0], 0) : null);
+        p.setPathEffect((options.latitudeLinePatterns[0][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[0]) : null);
         c.drawLine(0, (int)mid[1], w, (int)mid[1], p);
         c.drawLine((int)mid[0], 0, (int)mid[0], h, p);
 
@@ -438,7 +457,7 @@ public class WorldMapEquirectangular extends WorldMapTask.WorldMapProjection
         int tropicsY0 = (int)(mid[1] + tropics);
         int tropicsY1 = (int)(mid[1] - tropics);
         p.setColor(options.latitudeColors[1]);                    // tropics
-        p.setPathEffect((options.latitudeLinePatterns[1][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[1], 0) : null);
+        p.setPathEffect((options.latitudeLinePatterns[1][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[1]) : null);
         c.drawLine(0, tropicsY0, w, tropicsY0, p);
         c.drawLine(0, tropicsY1, w, tropicsY1, p);
 
@@ -446,7 +465,7 @@ public class WorldMapEquirectangular extends WorldMapTask.WorldMapProjection
         int polarY0 = (int)(mid[1] + polar);
         int polarY1 = (int)(mid[1] - polar);
         p.setColor(options.latitudeColors[2]);                    // polar
-        p.setPathEffect((options.latitudeLinePatterns[2][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[2], 0) : null);
+        p.setPathEffect((options.latitudeLinePatterns[2][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[2]) : null);
         c.drawLine(0, polarY0, w, polarY0, p);
         c.drawLine(0, polarY1, w, polarY1, p);
     }
@@ -458,7 +477,7 @@ public class WorldMapEquirectangular extends WorldMapTask.WorldMapProjection
         float strokeWidth = sunStroke(c, options) * options.latitudeLineScale;
         p.setStrokeWidth(strokeWidth);
 
-        p.setPathEffect((options.latitudeLinePatterns[0][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[0], 0) : null);
+        p.setPathEffect((options.latitudeLinePatterns[0][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[0]) : null);
         p.setColor(Color.GREEN);
         c.drawLine(0, (int)mid[1], (int)mid[0], (int)mid[1], p);
         p.setColor(Color.RED);
@@ -473,14 +492,14 @@ public class WorldMapEquirectangular extends WorldMapTask.WorldMapProjection
         double tropics = r_tropics * mid[1];
         int tropicsY0 = (int)(mid[1] + tropics);
         int tropicsY1 = (int)(mid[1] - tropics);
-        p.setPathEffect((options.latitudeLinePatterns[1][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[1], 0) : null);
+        p.setPathEffect((options.latitudeLinePatterns[1][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[1]) : null);
         p.setColor(Color.WHITE);                    // tropics
         c.drawLine(0, tropicsY0, w, tropicsY0, p);
         c.drawLine(0, tropicsY1, w, tropicsY1, p);
 
         double polar = r_polar * mid[1];
         int polarY0 = (int)(mid[1] + polar);
-        p.setPathEffect((options.latitudeLinePatterns[2][0] > 0) ? new DashPathEffect(options.latitudeLinePatterns[2], 0) : null);
+        p.setPathEffect((options.latitudeLinePatterns[2][0] > 0) ? dashPathEffect(options.latitudeLinePatterns[2]) : null);
         p.setColor(Color.GREEN);                  // polar
         c.drawLine(0, polarY0, w, polarY0, p);
 
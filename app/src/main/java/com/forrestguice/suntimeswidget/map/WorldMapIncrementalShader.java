@@ -0,0 +1,206 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.map;
+
+import java.util.Arrays;
+
+/**
+ * WorldMapIncrementalShader
+ * Re-shades only the pixels that may have changed since the previous frame (see WorldMapPixelShader).
+ *
+ * A full shade records, for each tile (TILE_SIZE x TILE_SIZE pixels), the smallest |intensity| of the sun
+ * and moon within that tile. Between frames the sun (or moon) vector moves by `drift`, and the intensity of
+ * any pixel changes by at most drift * |v|; a tile whose smallest |intensity| exceeds the largest drift since
+ * the full shade cannot have changed sign, so it keeps its previous pixels. Only tiles near the terminator are
+ * re-shaded. The output is identical to a full shade.
+ *
+ * A full shade is done on the first frame, when the matrix, size, palette, or pixel buffer changes, and when
+ * the drift exceeds MAX_DRIFT (e.g. seeking, or a date change).
+ */
+public class WorldMapIncrementalShader
+{
+    public static final int TILE_SIZE = 16;
+    public static final double MAX_DRIFT = 0.1;          // ~6 degrees (~23 minutes of sun movement)
+    public static final double DRIFT_EPSILON = 1e-9;     // margin for floating-point error
+    public static final double FLOAT_MARGIN = 1e-6;      // margin for storing bounds as float
+
+    private float[] matrix = null;
+    private int[] lastPixels = null;
+    private int w = -1, h = -1, tilesX = 0, tilesY = 0;
+    private final int[] palette = new int[4];
+    private boolean sunMatters, moonMatters;
+
+    private final double[] sunRef = new double[3], moonRef = new double[3];    // sun and moon vectors at the last full shade
+    private double sunDrift = 0, moonDrift = 0;                                 // largest drift since the last full shade
+
+    private float[] tileSun = null, tileMoon = null, tileNorm = null;          // per tile: min |sun intensity|, min |moon intensity|, max |v|
+    private long fullCount = 0, incrementalCount = 0, tilesShaded = 0;
+
+    /**
+     * @param m projection matrix (three w * h planes; see WorldMapProjection.initMatrix)
+     * @param w matrix width
+     * @param h matrix height
+     * @param sunUp unit vector toward the sun
+     * @param moonUp unit vector toward the moon
+     * @param palette colors (see WorldMapPixelShader.palette)
+     * @param pixels output (w * h); should be the same buffer (unmodified) that was passed for the previous frame
+     * @return true if the frame was fully shaded, false if only changed tiles were shaded
+     */
+    public boolean shade(float[] m, int w, int h, double[] sunUp, double[] moonUp, int[] palette, int[] pixels)
+    {
+        boolean full = (m != matrix || w != this.w || h != this.h || pixels != lastPixels || !Arrays.equals(palette, this.palette));
+        if (!full)
+        {
+            sunDrift = Math.max(sunDrift, distance(sunUp, sunRef));
+            moonDrift = Math.max(moonDrift, distance(moonUp, moonRef));
+            full = ((sunMatters && sunDrift > MAX_DRIFT) || (moonMatters && moonDrift > MAX_DRIFT));
+        }
+
+        if (full) {
+            shadeFull(m, w, h, sunUp, moonUp, palette, pixels);
+        } else shadeChanged(m, sunUp, moonUp, pixels);
+        return full;
+    }
+
+    /**
+     * Discards the previous frame; the next frame is fully shaded.
+     */
+    public void reset()
+    {
+        matrix = null;
+        lastPixels = null;
+    }
+
+    protected void shadeFull(float[] m, int w, int h, double[] sunUp, double[] moonUp, int[] palette, int[] pixels)
+    {
+        this.matrix = m;
+        this.lastPixels = pixels;
+        this.w = w;
+        this.h = h;
+        System.arraycopy(palette, 0, this.palette, 0, 4);
+        sunMatters = (palette[WorldMapPixelShader.INDEX_NONE] != palette[WorldMapPixelShader.INDEX_SUN_DOWN] || palette[WorldMapPixelShader.INDEX_MOON_UP] != palette[WorldMapPixelShader.INDEX_BOTH]);
+        moonMatters = (palette[WorldMapPixelShader.INDEX_NONE] != palette[WorldMapPixelShader.INDEX_MOON_UP] || palette[WorldMapPixelShader.INDEX_SUN_DOWN] != palette[WorldMapPixelShader.INDEX_BOTH]);
+        System.arraycopy(sunUp, 0, sunRef, 0, 3);
+        System.arraycopy(moonUp, 0, moonRef, 0, 3);
+        sunDrift = moonDrift = 0;
+
+        tilesX = (w + TILE_SIZE - 1) / TILE_SIZE;
+        tilesY = (h + TILE_SIZE - 1) / TILE_SIZE;
+        if (tileSun == null || tileSun.length != tilesX * tilesY)
+        {
+            tileSun = new float[tilesX * tilesY];
+            tileMoon = new float[tilesX * tilesY];
+            tileNorm = new float[tilesX * tilesY];
+        }
+
+        for (int ty = 0; ty < tilesY; ty++) {
+            for (int tx = 0; tx < tilesX; tx++) {
+                shadeTile(m, w, h, tx, ty, sunUp, moonUp, palette, pixels);
+            }
+        }
+        fullCount++;
+    }
+
+    /**
+     * Shades a tile and records its intensity bounds.
+     */
+    private void shadeTile(float[] m, int w, int h, int tx, int ty, double[] sunUp, double[] moonUp, int[] palette, int[] pixels)
+    {
+        final int i0 = tx * TILE_SIZE, i1 = Math.min(w, i0 + TILE_SIZE);
+        final int j0 = ty * TILE_SIZE, j1 = Math.min(h, j0 + TILE_SIZE);
+        WorldMapPixelShader.shadeRect(m, w, h, i0, i1, j0, j1, sunUp, moonUp, palette, pixels);
+
+        final double sun0 = sunUp[0], sun1 = sunUp[1], sun2 = sunUp[2];
+        final double moon0 = moonUp[0], moon1 = moonUp[1], moon2 = moonUp[2];
+        final int plane = w * h;
+
+        double minSun = Double.POSITIVE_INFINITY, minMoon = Double.POSITIVE_INFINITY, maxNorm = 0;
+        double v0, v1, v2;
+        for (int j = j0; j < j1; j++)
+        {
+            int z = (w * j) + i0;
+            int end = z + (i1 - i0);
+            for (; z < end; z++)
+            {
+                v0 = m[z];
+                v1 = m[z + plane];
+                v2 = m[z + plane + plane];
+                if (v0 == 0 && v1 == 0 && v2 == 0) {
+                    continue;    // outside the map; intensity is always 0 (never changes)
+                }
+                minSun = Math.min(minSun, Math.abs((sun0 * v0) + (sun1 * v1) + (sun2 * v2)));
+                minMoon = Math.min(minMoon, Math.abs((moon0 * v0) + (moon1 * v1) + (moon2 * v2)));
+                maxNorm = Math.max(maxNorm, (v0 * v0) + (v1 * v1) + (v2 * v2));
+            }
+        }
+
+        int t = tx + (tilesX * ty);
+        tileSun[t] = (float) Math.max(0, (minSun * (1 - FLOAT_MARGIN)) - DRIFT_EPSILON);    // rounded down (conservative)
+        tileMoon[t] = (float) Math.max(0, (minMoon * (1 - FLOAT_MARGIN)) - DRIFT_EPSILON);
+        tileNorm[t] = (float) (Math.sqrt(maxNorm) * (1 + FLOAT_MARGIN));                    // rounded up (conservative)
+    }
+
+    /**
+     * Shades the tiles that may have changed since the last full shade.
+     */
+    protected void shadeChanged(float[] m, double[] sunUp, double[] moonUp, int[] pixels)
+    {
+        double sunBound = sunDrift + DRIFT_EPSILON;
+        double moonBound = moonDrift + DRIFT_EPSILON;
+        for (int ty = 0; ty < tilesY; ty++)
+        {
+            for (int tx = 0; tx < tilesX; tx++)
+            {
+                int t = tx + (tilesX * ty);
+                double norm = tileNorm[t];
+                if ((sunMatters && tileSun[t] < sunBound * norm) || (moonMatters && tileMoon[t] < moonBound * norm))
+                {
+                    int i0 = tx * TILE_SIZE, j0 = ty * TILE_SIZE;
+                    WorldMapPixelShader.shadeRect(m, w, h, i0, Math.min(w, i0 + TILE_SIZE), j0, Math.min(h, j0 + TILE_SIZE), sunUp, moonUp, palette, pixels);
+                    tilesShaded++;
+                }
+            }
+        }
+        incrementalCount++;
+    }
+
+    private static double distance(double[] a, double[] b)
+    {
+        double d0 = a[0] - b[0], d1 = a[1] - b[1], d2 = a[2] - b[2];
+        return Math.sqrt((d0 * d0) + (d1 * d1) + (d2 * d2));
+    }
+
+    public long getFullCount() {
+        return fullCount;
+    }
+    public long getIncrementalCount() {
+        return incrementalCount;
+    }
+    public long getTilesShaded() {
+        return tilesShaded;
+    }
+    public int getTileCount() {
+        return tilesX * tilesY;
+    }
+
+    @Override
+    public String toString() {
+        return "WorldMapIncrementalShader [full: " + fullCount + ", incremental: " + incrementalCount + ", tiles: " + tilesShaded + " of " + (incrementalCount * getTileCount()) + "]";
+    }
+}
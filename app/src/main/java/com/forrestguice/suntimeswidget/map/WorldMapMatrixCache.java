@@ -0,0 +1,320 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.map;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * WorldMapMatrixCache
+ * A process-wide cache of projection matrices (see WorldMapProjection.initMatrix), keyed by projection
+ * type, matrix size, and center.
+ *
+ * Matrices are held in memory (the MAX_ENTRIES most recently used), and optionally persisted to disk
+ * (if a cache directory is set) so that they survive between processes. Persisted matrices are
+ * written and read using memory-mapped files (outside of the lock), and the directory is trimmed to
+ * the MAX_PERSISTED most recently used files (a disk hit touches its file).
+ */
+public class WorldMapMatrixCache
+{
+    public static final int MAX_ENTRIES = 4;
+    public static final int MAX_PERSISTED = 8;    // each ~1.5MB (360x360 equiazimuthal)
+    public static final int FILE_VERSION = 1;    // increment if initMatrix changes (invalidates persisted matrices)
+    public static final String FILE_EXT = ".matrix";
+    public static final String DIR_NAME = "worldmap";
+
+    private static final WorldMapMatrixCache instance = new WorldMapMatrixCache(MAX_ENTRIES, MAX_PERSISTED);
+    public static WorldMapMatrixCache getInstance() {
+        return instance;
+    }
+
+    private final LinkedHashMap<String, float[]> matrices;
+    private final int maxPersisted;
+    private File cacheDir = null;
+    private long hitCount = 0, diskHitCount = 0, missCount = 0;
+
+    public WorldMapMatrixCache(final int maxEntries) {
+        this(maxEntries, MAX_PERSISTED);
+    }
+
+    public WorldMapMatrixCache(final int maxEntries, int maxPersisted)
+    {
+        this.maxPersisted = maxPersisted;
+        this.matrices = new LinkedHashMap<String, float[]>(maxEntries, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+                return (size() > maxEntries);
+            }
+        };
+    }
+
+    /**
+     * @param projection projection type (e.g. class name)
+     * @param size matrix size [width, height]
+     * @param center projection center [latitude, longitude]
+     * @return a key that identifies the matrix
+     */
+    public static String key(@NonNull String projection, @NonNull int[] size, @Nullable double[] center)
+    {
+        double[] c = (center != null ? center : new double[] {0, 0});
+        return projection + "_" + size[0] + "x" + size[1] + "_" + c[0] + "_" + c[1];
+    }
+
+    /**
+     * Enables persisting matrices to the app's cache directory.
+     */
+    public void enablePersistence(@NonNull Context context) {
+        setCacheDir(new File(context.getCacheDir(), DIR_NAME));
+    }
+
+    /**
+     * @param dir directory for persisted matrices, or null to disable persistence
+     */
+    public synchronized void setCacheDir(@Nullable File dir) {
+        cacheDir = dir;
+    }
+    @Nullable
+    public synchronized File getCacheDir() {
+        return cacheDir;
+    }
+
+    /**
+     * @param key matrix key (see `key`)
+     * @param length expected matrix length (persisted matrices with some other length are ignored)
+     * @return the cached matrix (from memory, or from disk), or null if not cached
+     */
+    @Nullable
+    public float[] get(@NonNull String key, int length)
+    {
+        File dir;
+        synchronized (this)
+        {
+            float[] matrix = matrices.get(key);
+            if (matrix != null && matrix.length == length)
+            {
+                hitCount++;
+                return matrix;
+            }
+            dir = cacheDir;
+        }
+
+        float[] matrix = readMatrix(matrixFile(dir, key), length);
+        synchronized (this)
+        {
+            if (matrix != null)
+            {
+                diskHitCount++;
+                matrices.put(key, matrix);
+            } else missCount++;
+        }
+        return matrix;
+    }
+
+    /**
+     * Adds a matrix to the cache (and persists it if a cache directory is set).
+     */
+    public void put(@NonNull String key, @NonNull float[] matrix)
+    {
+        File dir;
+        synchronized (this)
+        {
+            matrices.put(key, matrix);
+            dir = cacheDir;
+        }
+        if (writeMatrix(matrixFile(dir, key), matrix)) {
+            trimPersisted(dir, maxPersisted);
+        }
+    }
+
+    /**
+     * Clears the in-memory cache (persisted matrices are kept).
+     */
+    public synchronized void clear() {
+        matrices.clear();
+    }
+
+    /**
+     * Deletes persisted matrices.
+     */
+    public void clearPersisted() {
+        trimPersisted(getCacheDir(), 0);
+    }
+
+    /**
+     * Deletes the least recently used persisted matrices (by last modified) so that at most maxFiles remain.
+     */
+    protected static void trimPersisted(@Nullable File dir, int maxFiles)
+    {
+        File[] files = (dir != null ? dir.listFiles() : null);
+        if (files == null) {
+            return;
+        }
+
+        int n = 0;
+        final long[] modified = new long[files.length];
+        File[] matrixFiles = new File[files.length];
+        for (File file : files)
+        {
+            if (file.getName().endsWith(FILE_EXT)) {
+                matrixFiles[n++] = file;
+            }
+        }
+        if (n <= maxFiles) {
+            return;
+        }
+
+        final File[] sorted = Arrays.copyOf(matrixFiles, n);
+        for (int i=0; i<n; i++) {
+            modified[i] = sorted[i].lastModified();    // read once (a concurrent touch must not break the sort)
+        }
+        Integer[] order = new Integer[n];
+        for (int i=0; i<n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>()
+        {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return (modified[o2] < modified[o1] ? -1 : (modified[o2] == modified[o1] ? 0 : 1));    // newest first
+            }
+        });
+
+        for (int i=maxFiles; i<n; i++)
+        {
+            File file = sorted[order[i]];
+            if (!file.delete() && file.exists()) {
+                Log.w("WorldMapMatrixCache", "trimPersisted: failed to delete " + file);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return matrices.size();
+    }
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+    public synchronized long getDiskHitCount() {
+        return diskHitCount;
+    }
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "WorldMapMatrixCache [size: " + matrices.size() + ", hits: " + hitCount + ", disk: " + diskHitCount + ", misses: " + missCount + "]";
+    }
+
+    @Nullable
+    protected static File matrixFile(@Nullable File dir, String key) {
+        return (dir != null ? new File(dir, key + "_v" + FILE_VERSION + FILE_EXT) : null);
+    }
+
+    @Nullable
+    protected static float[] readMatrix(@Nullable File file, int length)
+    {
+        if (file == null || !file.exists() || file.length() != (4L * length)) {
+            return null;
+        }
+
+        RandomAccessFile in = null;
+        try {
+            in = new RandomAccessFile(file, "r");
+            MappedByteBuffer buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, 4L * length);
+            FloatBuffer floats = buffer.order(ByteOrder.nativeOrder()).asFloatBuffer();
+            float[] matrix = new float[length];
+            floats.get(matrix);
+            if (!file.setLastModified(System.currentTimeMillis())) {    // recently used (see trimPersisted)
+                Log.w("WorldMapMatrixCache", "readMatrix: failed to touch " + file);
+            }
+            return matrix;
+
+        } catch (IOException | RuntimeException e) {
+            Log.w("WorldMapMatrixCache", "readMatrix: failed to read " + file + ": " + e);
+            return null;
+
+        } finally {
+            close(in);
+        }
+    }
+
+    protected static boolean writeMatrix(@Nullable File file, float[] matrix)
+    {
+        if (file == null) {
+            return false;
+        }
+
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            Log.w("WorldMapMatrixCache", "writeMatrix: failed to create " + dir);
+            return false;
+        }
+
+        File tmpFile = new File(file.getPath() + "." + Thread.currentThread().getId() + ".tmp");    // concurrent writers (same key) use separate files
+        RandomAccessFile out = null;
+        try {
+            out = new RandomAccessFile(tmpFile, "rw");
+            out.setLength(4L * matrix.length);
+            MappedByteBuffer buffer = out.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, 4L * matrix.length);
+            buffer.order(ByteOrder.nativeOrder()).asFloatBuffer().put(matrix);
+            buffer.force();
+            close(out);
+            out = null;
+            return tmpFile.renameTo(file);    // readers never see a partially written file
+
+        } catch (IOException | RuntimeException e) {
+            Log.w("WorldMapMatrixCache", "writeMatrix: failed to write " + file + ": " + e);
+            return false;
+
+        } finally {
+            close(out);
+            if (tmpFile.exists() && !tmpFile.delete()) {
+                Log.w("WorldMapMatrixCache", "writeMatrix: failed to delete " + tmpFile);
+            }
+        }
+    }
+
+    private static void close(@Nullable RandomAccessFile file)
+    {
+        if (file != null)
+        {
+            try {
+                file.close();
+            } catch (IOException e) {
+                Log.w("WorldMapMatrixCache", "close: " + e);
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.map;
+
+/**
+ * WorldMapPixelShader
+ * Shades the sunlight / moonlight overlay of a projection matrix (see WorldMapProjection.initMatrix).
+ *
+ * Each pixel is colored by palette[index], where index has bit 0 set if the sun is down (intensity <= 0)
+ * and bit 1 set if the moon is up (intensity > 0). The palette determines the drawing mode (see `palette`),
+ * so a single inner loop handles the sun shadow, moonlight, and combined modes.
+ */
+public class WorldMapPixelShader
+{
+    public static final int INDEX_NONE = 0;
+    public static final int INDEX_SUN_DOWN = 1;
+    public static final int INDEX_MOON_UP = 2;
+    public static final int INDEX_BOTH = 3;
+
+    /**
+     * @param transparent the "empty" color
+     * @param showSunShadow true shades where the sun is down
+     * @param sunShadowColor sun shadow color
+     * @param showMoonLight true shades where the moon is up
+     * @param moonLightColor moonlight color
+     * @param combinedColor color used where the sun is down and the moon is up (when both are shown)
+     * @return a palette with 4 entries (indexed by INDEX_NONE, INDEX_SUN_DOWN, INDEX_MOON_UP, INDEX_BOTH)
+     */
+    public static int[] palette(int transparent, boolean showSunShadow, int sunShadowColor, boolean showMoonLight, int moonLightColor, int combinedColor)
+    {
+        int[] palette = new int[4];
+        palette[INDEX_NONE] = transparent;
+        palette[INDEX_SUN_DOWN] = (showSunShadow ? sunShadowColor : transparent);
+        palette[INDEX_MOON_UP] = (showMoonLight ? moonLightColor : transparent);
+        palette[INDEX_BOTH] = (showSunShadow ? (showMoonLight ? combinedColor : sunShadowColor) : palette[INDEX_MOON_UP]);
+        return palette;
+    }
+
+    /**
+     * Shades rows [j0, j1).
+     * @param m projection matrix (three w * h planes; see WorldMapProjection.initMatrix)
+     * @param w matrix width
+     * @param h matrix height
+     * @param sunUp unit vector toward the sun
+     * @param moonUp unit vector toward the moon
+     * @param palette colors (see `palette`)
+     * @param pixels output (w * h)
+     */
+    public static void shadeRows(float[] m, int w, int h, int j0, int j1, double[] sunUp, double[] moonUp, int[] palette, int[] pixels) {
+        shadeRect(m, w, h, 0, w, j0, j1, sunUp, moonUp, palette, pixels);
+    }
+
+    /**
+     * Shades columns [i0, i1) of rows [j0, j1).
+     * @see #shadeRows
+     */
+    public static void shadeRect(float[] m, int w, int h, int i0, int i1, int j0, int j1, double[] sunUp, double[] moonUp, int[] palette, int[] pixels)
+    {
+        final double sun0 = sunUp[0], sun1 = sunUp[1], sun2 = sunUp[2];
+        final double moon0 = moonUp[0], moon1 = moonUp[1], moon2 = moonUp[2];
+        final int plane = w * h;
+
+        double v0, v1, v2;
+        double sunIntensity, moonIntensity;
+        for (int j = j0; j < j1; j++)
+        {
+            int z = (w * j) + i0;
+            int end = z + (i1 - i0);
+            for (; z < end; z++)
+            {
+                v0 = m[z];
+                v1 = m[z + plane];
+                v2 = m[z + plane + plane];
+
+                sunIntensity = (sun0 * v0) + (sun1 * v1) + (sun2 * v2);          // intensity = up.dotProduct(v)
+                moonIntensity = (moon0 * v0) + (moon1 * v1) + (moon2 * v2);
+                pixels[z] = palette[((sunIntensity <= 0 ? INDEX_SUN_DOWN : INDEX_NONE) | (moonIntensity > 0 ? INDEX_MOON_UP : INDEX_NONE)) & 3];
+            }
+        }
+    }
+
+    /**
+     * Shades all rows.
+     * @see #shadeRows
+     */
+    public static void shade(float[] m, int w, int h, double[] sunUp, double[] moonUp, int[] palette, int[] pixels) {
+        shadeRows(m, w, h, 0, h, sunUp, moonUp, palette, pixels);
+    }
+}
@@ -21,20 +21,25 @@ package com.forrestguice.suntimeswidget.map;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.DashPathEffect;
 import android.graphics.Paint;
 import android.graphics.Rect;
 import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.AsyncTask;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
 import android.util.Log;
 
 import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator;
 import com.forrestguice.suntimeswidget.calculator.SuntimesRiseSetDataset;
 import com.forrestguice.suntimeswidget.calculator.core.Location;
+import com.forrestguice.suntimeswidget.views.AnimationFrameScheduler;
+import com.forrestguice.suntimeswidget.views.FrameBuffers;
 
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.IdentityHashMap;
 
 /**
  * WorldMapTask
@@ -60,7 +65,6 @@ public class WorldMapTask extends AsyncTask<Object, Bitmap, Bitmap>
     {
         int w, h;
         int numFrames = 1;
-        long frameDuration = 250000000;    // nanoseconds (250 ms)
         long initialOffset = 0;
         SuntimesRiseSetDataset data;
         try {
@@ -79,18 +83,20 @@ public class WorldMapTask extends AsyncTask<Object, Bitmap, Bitmap>
             if (params.length > 6) {
                 initialOffset = (long)params[6];
             }
-            frameDuration = options.anim_frameLengthMs * 1000000;   // ms to ns
+            scheduler = new AnimationFrameScheduler(options.anim_frameLengthMs);
+            scheduler.setLowPowerMode(lowPower);
 
         } catch (ClassCastException e) {
             Log.w("WorldMapTask", "Invalid params; using [null, 0, 0]");
             return null;
         }
+        projection.setFrameBuffers(frameBuffers);
 
-        long time0 = System.nanoTime();
         Bitmap frame = null;
         options.offsetMinutes = initialOffset;
 
-        int i = 0;
+        int i = 0, lastAdvance = 1;
+        scheduler.start();
         while (i < numFrames || numFrames <= 0)
         {
             if (isCancelled()) {
@@ -98,20 +104,25 @@ public class WorldMapTask extends AsyncTask<Object, Bitmap, Bitmap>
             }
             frame = makeBitmap(data, w, h, options);
 
-            long time1 = System.nanoTime();
-            while ((time1 - time0) < frameDuration) {
-                time1 = System.nanoTime();
+            scheduler.setDropFrames(listener == null || listener.dropFrames());
+            int advance = scheduler.awaitNextFrame();
+            if (advance <= 0) {    // interrupted (cancelled)
+                if (frameBuffers != null) {
+                    frameBuffers.discard(frame);    // never shown
+                }
+                frame = null;
+                break;
             }
 
             publishProgress(frame);
             if (listener != null) {
                 listener.afterFrame(frame, options.offsetMinutes);
             }
-            options.offsetMinutes += options.anim_frameOffsetMinutes;
-            time0 = System.nanoTime();
-            i++;
+            options.offsetMinutes += options.anim_frameOffsetMinutes * advance;    // skip ahead over dropped frames
+            lastAdvance = advance;
+            i += advance;
         }
-        options.offsetMinutes -= options.anim_frameOffsetMinutes;
+        options.offsetMinutes -= options.anim_frameOffsetMinutes * lastAdvance;
         return frame;
     }
 
@@ -157,6 +168,29 @@ public class WorldMapTask extends AsyncTask<Object, Bitmap, Bitmap>
         this.listener = listener;
     }
 
+    private FrameBuffers frameBuffers = null;
+    /**
+     * @param buffers the view's frame buffers (frames are acquired from its pool), or null to allocate each frame
+     */
+    public void setFrameBuffers(@Nullable FrameBuffers buffers) {
+        this.frameBuffers = buffers;
+    }
+
+    private volatile AnimationFrameScheduler scheduler = null;
+    public AnimationFrameScheduler getScheduler() {
+        return scheduler;
+    }
+
+    private volatile boolean lowPower = false;
+    public void setLowPowerMode(boolean value)
+    {
+        lowPower = value;
+        AnimationFrameScheduler s = scheduler;
+        if (s != null) {
+            s.setLowPowerMode(value);
+        }
+    }
+
     /**
      * WorldMapOptions
      */
@@ -224,14 +258,48 @@ public class WorldMapTask extends AsyncTask<Object, Bitmap, Bitmap>
          */
         public abstract Bitmap makeBitmap(SuntimesRiseSetDataset data, int w, int h, WorldMapTask.WorldMapOptions options);
         public abstract void initPaint(WorldMapTask.WorldMapOptions options);
-        public abstract double[] initMatrix();            // creates flattened multi-dimensional array; [lon][lat][v(3)]
-        public abstract double[] getMatrix();
+        public abstract float[] initMatrix();             // creates flattened multi-dimensional array; [lon][lat][v(3)]
+        public abstract float[] getMatrix();
         public abstract void resetMatrix();
         public abstract int[] matrixSize();               // [width(lon), height(lat)]
         protected abstract int k(int x, int y, int z);    // returns index into flattened array
         public abstract int[] toBitmapCoords(int w, int h, double[] mid, double lat, double lon);
         public double[] getCenter() { return new double[] {0,0}; }
 
+        protected FrameBuffers frameBuffers = null;
+        public void setFrameBuffers(@Nullable FrameBuffers buffers) {
+            frameBuffers = buffers;
+        }
+
+        /**
+         * @return a bitmap for the output frame; from the view's frame buffers, or a new bitmap if there are none (e.g. widgets)
+         */
+        protected Bitmap acquireFrame(int w, int h) {
+            return FrameBuffers.acquire(frameBuffers, w, h, Bitmap.Config.ARGB_8888);
+        }
+
+        /**
+         * @return the projection matrix from WorldMapMatrixCache, or a new matrix (see initMatrix) that is added to the cache
+         */
+        protected float[] obtainMatrix()
+        {
+            long bench_start = System.nanoTime();
+            int[] size = matrixSize();
+            String key = WorldMapMatrixCache.key(getClass().getSimpleName(), size, getCenter());
+            WorldMapMatrixCache cache = WorldMapMatrixCache.getInstance();
+
+            float[] matrix = cache.get(key, size[0] * size[1] * 3);
+            if (matrix == null)
+            {
+                matrix = initMatrix();
+                cache.put(key, matrix);
+            }
+
+            long bench_end = System.nanoTime();
+            Log.d(WorldMapView.LOGTAG, "make world map :: initMatrix :: " + key + " :: " + ((bench_end - bench_start) / 1000000.0) + " ms; " + cache);
+            return matrix;
+        }
+
         protected Calendar mapTime(SuntimesRiseSetDataset data, WorldMapTask.WorldMapOptions options)
         {
             Calendar mapTime;
@@ -315,6 +383,22 @@ public class WorldMapTask extends AsyncTask<Object, Bitmap, Bitmap>
             return retValue;
         }
 
+        private final Rect mapSrc = new Rect(), mapDst = new Rect();
+
+        /**
+         * @param pattern {dash-on, dash-off}
+         * @return a DashPathEffect for the given pattern (created once and reused between frames)
+         */
+        protected DashPathEffect dashPathEffect(float[] pattern)
+        {
+            DashPathEffect effect = dashEffects.get(pattern);
+            if (effect == null) {
+                dashEffects.put(pattern, (effect = new DashPathEffect(pattern, 0)));
+            }
+            return effect;
+        }
+        private final IdentityHashMap<float[], DashPathEffect> dashEffects = new IdentityHashMap<>();
+
         protected void drawMap(Canvas c, int w, int h, @NonNull Paint paintForeground, WorldMapTask.WorldMapOptions options)
         {
             if (options.map != null)
@@ -322,9 +406,9 @@ public class WorldMapTask extends AsyncTask<Object, Bitmap, Bitmap>
                 if (options.foregroundColor != Color.TRANSPARENT)
                 {
                     Bitmap b = ((BitmapDrawable)options.map).getBitmap();
-                    Rect src = new Rect(0,0, b.getWidth(), b.getHeight());
-                    Rect dst = new Rect(0,0, w, h);
-                    c.drawBitmap(b, src, dst, paintForeground);
+                    mapSrc.set(0,0, b.getWidth(), b.getHeight());
+                    mapDst.set(0,0, w, h);
+                    c.drawBitmap(b, mapSrc, mapDst, paintForeground);
 
                 } else {
                     options.map.setBounds(0, 0, w, h);
@@ -413,6 +497,8 @@ public class WorldMapTask extends AsyncTask<Object, Bitmap, Bitmap>
 
     /**
      * WorldMapTaskListener
+     * Frames passed to a view's listener (onFrame, afterFrame, onFinished) come from the view's FrameBuffers; a frame
+     * is only valid during the callback (it is returned to the pool when the next frame is shown), so copy it to keep it.
      */
     @SuppressWarnings("EmptyMethod")
     public static abstract class WorldMapTaskListener
@@ -421,6 +507,7 @@ public class WorldMapTask extends AsyncTask<Object, Bitmap, Bitmap>
         public void onFrame(Bitmap frame, long offsetMinutes ) {}
         public void afterFrame(Bitmap frame, long offsetMinutes ) {}
         public void onFinished( Bitmap result ) {}
+        public boolean dropFrames() { return true; }    // false shows every frame (e.g. while recording)
     }
 
 }
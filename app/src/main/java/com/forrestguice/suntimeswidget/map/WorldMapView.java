@@ -41,6 +41,7 @@ import android.util.Log;
 import android.view.Display;
 import android.view.View;
 import android.view.WindowManager;
+import com.forrestguice.suntimeswidget.views.FrameBuffers;
 import com.forrestguice.suntimeswidget.views.Toast;
 
 import com.forrestguice.suntimeswidget.ExportTask;
@@ -60,6 +61,7 @@ public class WorldMapView extends android.support.v7.widget.AppCompatImageView
     public static final int DEFAULT_MAX_UPDATE_RATE = 1000;  // ms value; once a second
 
     private WorldMapTask drawTask;
+    private final FrameBuffers frameBuffers = new FrameBuffers();    // the displayed frame is released to the pool when replaced
     private WorldMapTask.WorldMapOptions options = new WorldMapTask.WorldMapOptions();
     private WorldMapWidgetSettings.WorldMapWidgetMode mode = WorldMapWidgetSettings.WorldMapWidgetMode.EQUIRECTANGULAR_SIMPLE;
 
@@ -104,6 +106,8 @@ public class WorldMapView extends android.support.v7.widget.AppCompatImageView
         {
             setBackgroundColor(Color.WHITE);
             setImageBitmap(Bitmap.createBitmap(256, 256, Bitmap.Config.ARGB_8888));
+        } else {
+            WorldMapMatrixCache.getInstance().enablePersistence(context);    // cold starts skip initMatrix
         }
         setMapMode(context, mode);
         themeViews(context);
@@ -408,6 +412,8 @@ public class WorldMapView extends android.support.v7.widget.AppCompatImageView
 
             drawTask = new WorldMapTask();
             drawTask.setListener(drawListener);
+            drawTask.setFrameBuffers(frameBuffers);
+            drawTask.setLowPowerMode(!hasWindowFocus());
 
             Log.w(LOGTAG, "updateViews: " + w + ", " + h );
             drawTask.execute(data, w, h, options, projection, (animated ? 0 : 1), options.offsetMinutes);
@@ -443,6 +449,7 @@ public class WorldMapView extends android.support.v7.widget.AppCompatImageView
             mapW = frame.getWidth();
             mapH = frame.getHeight();
             setImageBitmap(frame);
+            frameBuffers.swap(frame);
 
             if (mapListener != null) {
                 mapListener.onFrame(frame, offsetMinutes);
@@ -453,16 +460,22 @@ public class WorldMapView extends android.support.v7.widget.AppCompatImageView
         public void afterFrame(Bitmap frame, long offsetMinutes)
         {
             if (isRecording()) {
-                exportTask.addBitmap(frame);
+                exportTask.addBitmap(frame.copy(frame.getConfig(), false));    // frames are pooled (reused after the next swap)
             }
         }
 
+        @Override
+        public boolean dropFrames() {
+            return !isRecording();    // recordings keep every frame
+        }
+
         @Override
         public void onFinished(Bitmap frame)
         {
             mapW = frame.getWidth();
             mapH = frame.getHeight();
             setImageBitmap(frame);
+            frameBuffers.swap(frame);
 
             if (mapListener != null) {
                 mapListener.onFinished(frame);
@@ -549,7 +562,7 @@ public class WorldMapView extends android.support.v7.widget.AppCompatImageView
         {
             exportTask = new WorldMapExportTask(getContext(), "SuntimesWorldMap", true, true);
             exportTask.setTaskListener(exportListener);
-            exportTask.setBitmaps(new Bitmap[] { bitmap });
+            exportTask.setBitmaps(new Bitmap[] { bitmap.copy(bitmap.getConfig(), false) });
             exportTask.setWaitForFrames(animated);
             exportTask.setZippedOutput(animated);
             if (Build.VERSION.SDK_INT >= 11) {
@@ -658,6 +671,15 @@ public class WorldMapView extends android.support.v7.widget.AppCompatImageView
         }
     }
 
+    @Override
+    public void onWindowFocusChanged(boolean hasWindowFocus)
+    {
+        super.onWindowFocusChanged(hasWindowFocus);
+        if (drawTask != null) {
+            drawTask.setLowPowerMode(!hasWindowFocus);    // reduce the frame rate while unfocused
+        }
+    }
+
     @Override
     public void onVisibilityAggregated(boolean isVisible)    // TODO: only called for api 24+ ?
     {
@@ -44,7 +44,6 @@ import android.widget.TextView;
 import com.forrestguice.suntimeswidget.moon.MoonPhasesView1;
 import com.forrestguice.suntimeswidget.R;
 import com.forrestguice.suntimeswidget.SuntimesUtils;
-import com.forrestguice.suntimeswidget.calculator.SuntimesMoonData;
 import com.forrestguice.suntimeswidget.calculator.SuntimesMoonData0;
 import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator;
 import com.forrestguice.suntimeswidget.settings.WidgetSettings;
@@ -55,7 +54,6 @@ import com.github.rubensousa.gravitysnaphelper.GravitySnapHelper;
 
 import java.lang.ref.WeakReference;
 import java.util.Calendar;
-import java.util.HashMap;
 
 @SuppressWarnings("Convert2Diamond")
 public class MoonApsisView extends LinearLayout
@@ -287,8 +285,7 @@ public class MoonApsisView extends LinearLayout
         public static final int CENTER_POSITION = 100;
 
         private WeakReference<Context> contextRef;
-        @SuppressLint("UseSparseArrays")
-        private HashMap<Integer, SuntimesMoonData0> data = new HashMap<>();
+        private MoonDataStore.ApsisSeries series;
         private boolean isRising = false;
 
         private int colorNote, colorTitle, colorTime, colorText, colorDisabled, colorMoonrise, colorMoonset;
@@ -320,9 +317,6 @@ public class MoonApsisView extends LinearLayout
         public void onViewRecycled(MoonApsisField holder)
         {
             detachClickListeners(holder);
-            if (holder.position >= 0 && (holder.position < CENTER_POSITION - 1 || holder.position > CENTER_POSITION + 2)) {
-                data.remove(holder.position);
-            }
             holder.position = RecyclerView.NO_POSITION;
         }
 
@@ -340,6 +334,7 @@ public class MoonApsisView extends LinearLayout
             }
 
             SuntimesMoonData0 moon = initData(context, position);
+            series.prefetch(seriesIndex(position));
 
             int rawOffset = (position - CENTER_POSITION);
             boolean isAgo = rawOffset < 0;
@@ -352,14 +347,23 @@ public class MoonApsisView extends LinearLayout
             attachClickListeners(holder, position, holder.isRising);
         }
 
-        protected void initData( Context context ) {
-            SuntimesMoonData0 moon = initData(context, CENTER_POSITION);
+        protected void initData( Context context )
+        {
+            series = new MoonDataStore.ApsisSeries(context, MoonDataStore.getInstance());    // data is shared (and bounded) by the store
+            SuntimesMoonData0 moon = series.getCenter();
             Pair<Calendar, SuntimesCalculator.MoonPosition> perigee = moon.getMoonPerigee();
             Pair<Calendar, SuntimesCalculator.MoonPosition> apogee = moon.getMoonApogee();
             isRising = (perigee.first != null && !perigee.first.before(apogee.first));
         }
 
-        public SuntimesMoonData0 initData( Context context, int position )
+        public SuntimesMoonData0 initData( Context context, int position ) {
+            return series.get(seriesIndex(position));
+        }
+
+        /**
+         * @return series index (anomalistic month) for position; each month is 2 positions
+         */
+        protected int seriesIndex(int position)
         {
             int offset = (position - CENTER_POSITION) % 2;
             int firstPosition = position;
@@ -368,48 +372,7 @@ public class MoonApsisView extends LinearLayout
             } else if (offset < 0) {
                 firstPosition = position - (2 + (offset));
             }
-
-            SuntimesMoonData0 moon = data.get(firstPosition);
-            if (moon == null)
-            {
-                moon = createData(context, firstPosition);
-                for (int i=0; i<2; i++) {
-                    data.put(firstPosition + i, moon);
-                }
-            }
-            return moon;
-        }
-
-        protected SuntimesMoonData0 createData( Context context, int position )
-        {
-            SuntimesMoonData moon = new SuntimesMoonData(context, 0, "moon");
-            if (position != CENTER_POSITION)
-            {
-                SuntimesMoonData0 moon0 = initData(context, CENTER_POSITION);
-                Pair<Calendar, SuntimesCalculator.MoonPosition> perigee = moon0.getMoonPerigee();
-                Pair<Calendar, SuntimesCalculator.MoonPosition> apogee = moon0.getMoonApogee();
-                if (perigee.first != null && apogee.first != null)
-                {
-                    Calendar date = Calendar.getInstance(moon.timezone());
-                    date.setTimeInMillis(isRising ? apogee.first.getTimeInMillis() : perigee.first.getTimeInMillis());
-
-                    double anomalisticMinutes = 27.55455d * 24d * 60d;  // may be up to 2 to 3 days longer than actual
-                    date.add(Calendar.DATE, -7);                   // so offset 1 week
-
-                    int rawOffset = position - CENTER_POSITION;
-                    double minuteOffset = (rawOffset >> 1) * anomalisticMinutes;
-                    date.add(Calendar.MINUTE, (int)minuteOffset);
-                    moon.setTodayIs(date);
-
-                    // e.g. on 2019-9-7 there is a 36 hr difference from mean
-                    //double minuteOffset0 = (isRising ? perigee.first.getTimeInMillis() - apogee.first.getTimeInMillis()
-                    //                                : apogee.first.getTimeInMillis() - perigee.first.getTimeInMillis()) / 1000d / 60d;
-                    //double minuteOffset2 = 0.5d * 2 * 27.55455d * 24d * 60d;
-                    //Log.d("DEBUG", "minuteOffset: " + minuteOffset2 / 60d + " (" + minuteOffset0 / 60d + ", " + ((minuteOffset0 - minuteOffset2) / 60d) + ")");
-                }
-            }
-            moon.calculate();
-            return moon;
+            return (firstPosition - CENTER_POSITION) / 2;
         }
 
         public int getPositionForDate(Context context, long datetime)
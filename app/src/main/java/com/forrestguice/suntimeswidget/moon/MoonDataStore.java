@@ -0,0 +1,583 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.moon;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import android.util.Pair;
+
+import com.forrestguice.suntimeswidget.calculator.CachingSuntimesCalculator;
+import com.forrestguice.suntimeswidget.calculator.SuntimesData;
+import com.forrestguice.suntimeswidget.calculator.SuntimesMoonData;
+import com.forrestguice.suntimeswidget.calculator.SuntimesMoonData0;
+import com.forrestguice.suntimeswidget.calculator.SuntimesMoonData1;
+import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator;
+
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A process-wide, size-bounded (least-recently-used) store of moon data shared by the moon views
+ * (MoonPhasesView1, MoonRiseSetView1, MoonApsisView).
+ *
+ * Entries are keyed by calculator (name, location, and timezone), type, date, and index. Each view reads a
+ * Series; index 0 is the data for today (shared by every view created that day), other indices are calculated
+ * from the adjacent entry (towards index 0) when it is stored, or directly from index 0 (using the mean period)
+ * when it isn't (e.g. after a jump, or an eviction), and are loaded ahead in the background (see Series.prefetch).
+ */
+public class MoonDataStore
+{
+    public static final int TYPE_RISESET = 0, TYPE_PHASES = 1, TYPE_APSIS = 2;
+
+    public static final int DEF_MAX_SIZE = 128;
+    public static final int PREFETCH_COUNT = 2;    // entries loaded ahead (on either side of the requested index)
+
+    private static final MoonDataStore instance = new MoonDataStore(DEF_MAX_SIZE);
+    public static MoonDataStore getInstance() {
+        return instance;
+    }
+
+    private static ExecutorService executor = null;
+    protected static synchronized ExecutorService getExecutor()
+    {
+        if (executor == null)
+        {
+            executor = Executors.newSingleThreadExecutor(new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(@NonNull Runnable r)
+                {
+                    Thread thread = new Thread(r, "MoonDataStore");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    private final int maxSize;
+    private final LinkedHashMap<Key, SuntimesMoonData0> entries;
+    private final ExecutorService backgroundExecutor;
+
+    public MoonDataStore(int maxSize) {
+        this(maxSize, null);
+    }
+
+    /**
+     * @param maxSize max number of entries
+     * @param backgroundExecutor executor used by Series.prefetch (null uses a shared background thread)
+     */
+    public MoonDataStore(int maxSize, @Nullable ExecutorService backgroundExecutor)
+    {
+        this.maxSize = maxSize;
+        this.backgroundExecutor = backgroundExecutor;
+        this.entries = new LinkedHashMap<Key, SuntimesMoonData0>(64, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, SuntimesMoonData0> eldest) {
+                return size() > MoonDataStore.this.maxSize;
+            }
+        };
+    }
+
+    @Nullable
+    public synchronized SuntimesMoonData0 get(Key key) {
+        return entries.get(key);
+    }
+
+    /**
+     * @return the existing entry for key (if any), otherwise `data` (which is stored)
+     */
+    public synchronized SuntimesMoonData0 putIfAbsent(Key key, SuntimesMoonData0 data)
+    {
+        SuntimesMoonData0 existing = entries.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        entries.put(key, data);
+        return data;
+    }
+
+    public synchronized void put(Key key, SuntimesMoonData0 data) {
+        entries.put(key, data);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    protected ExecutorService getBackgroundExecutor() {
+        return (backgroundExecutor != null ? backgroundExecutor : getExecutor());
+    }
+
+    /**
+     * @return the local date (days since epoch) of `millis` in `timezone`
+     */
+    public static long localDay(long millis, TimeZone timezone) {
+        return (long) Math.floor((millis + timezone.getOffset(millis)) / (double) SuntimesData.DAY_MILLIS);
+    }
+
+    /**
+     * Key
+     */
+    public static final class Key
+    {
+        private final String calculator;
+        private final int type;
+        private final long date;
+        private final int index;
+        private final int hash;
+
+        /**
+         * @param calculator calculator key (name, rounded location, and timezone); @see CachingSuntimesCalculator.createKey
+         * @param type TYPE_RISESET, TYPE_PHASES, TYPE_APSIS
+         * @param date the local date (days since epoch) of index 0, or (index != 0) a date that identifies the series
+         * @param index series index
+         */
+        public Key(String calculator, int type, long date, int index)
+        {
+            this.calculator = calculator;
+            this.type = type;
+            this.date = date;
+            this.index = index;
+
+            int h = calculator.hashCode();
+            h = 31 * h + type;
+            h = 31 * h + (int)(date ^ (date >>> 32));
+            h = 31 * h + index;
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && type == other.type && date == other.date && index == other.index && calculator.equals(other.calculator);
+        }
+    }
+
+    /**
+     * Series
+     * A sequence of moon data (by index) starting from today (index 0).
+     */
+    public static abstract class Series<T extends SuntimesMoonData0>
+    {
+        protected final MoonDataStore store;
+        protected final Context context;
+        protected final int type;
+        protected final String calculatorKey;
+        protected final T center;
+        protected final long date;
+        private int lastPrefetch = Integer.MIN_VALUE;
+
+        public Series(@NonNull Context context, @NonNull MoonDataStore store, int type)
+        {
+            Context appContext = context.getApplicationContext();
+            this.context = (appContext != null ? appContext : context);
+            this.store = store;
+            this.type = type;
+
+            T data = createData(this.context);
+            data.initCalculator(this.context);
+            data.initTimezone(this.context);
+            calculatorKey = CachingSuntimesCalculator.createKey(data.calculator());
+
+            Key key = new Key(calculatorKey, type, localDay(System.currentTimeMillis(), data.timezone()), 0);
+            T cached = cast(store.get(key));
+            if (cached == null || !isCurrent(cached))
+            {
+                data.calculate();
+                store.put(key, data);
+                cached = data;
+            }
+            center = cached;
+            date = seriesDate(center);
+        }
+
+        /**
+         * @return a new (uncalculated) data object
+         */
+        protected abstract T createData(Context context);
+
+        /**
+         * @param center the data for index 0
+         * @return a new data object for index (calculated)
+         */
+        protected abstract T createData(int index, T center);
+
+        /**
+         * @return true if the data for today (index 0) is still valid
+         */
+        protected boolean isCurrent(T data) {
+            return true;
+        }
+
+        /**
+         * @return a date that identifies the series (from the data for index 0); by default the local date.
+         */
+        protected long seriesDate(T center) {
+            return localDay(center.calendar().getTimeInMillis(), center.timezone());
+        }
+
+        /**
+         * @param eventMillis the latest event of the adjacent period (forward), or the earliest (backward)
+         * @param adjacentMillis the start of the adjacent period
+         * @param forward true the next period, false the previous period
+         * @param periodDays the mean length of the period (days)
+         * @return the start of the next (or previous) period; the events of that period are the next events after it
+         */
+        public static long startMillis(long eventMillis, long adjacentMillis, boolean forward, double periodDays)
+        {
+            if (eventMillis == Long.MIN_VALUE || eventMillis == Long.MAX_VALUE) {    // no events (unsupported); offset by the mean period instead
+                return adjacentMillis + (forward ? 1 : -1) * (long)(periodDays * SuntimesData.DAY_MILLIS);
+            }
+            return (forward ? eventMillis + 60 * 1000
+                            : eventMillis - (long)((periodDays + 2) * SuntimesData.DAY_MILLIS));
+        }
+
+        /**
+         * @param eventMillis the earliest event of index 0
+         * @param centerMillis the start of index 0
+         * @param index series index
+         * @param periodDays the mean length of the period (days)
+         * @param eventsPerPeriod the number of (evenly spaced) events in a period
+         * @return the start of period `index`; half the mean spacing of events before its (estimated) earliest event,
+         * so it falls between the events of the previous period and the events of this one (the events vary from
+         * their mean times by much less than that)
+         */
+        public static long estimateStartMillis(long eventMillis, long centerMillis, int index, double periodDays, int eventsPerPeriod)
+        {
+            if (eventMillis == Long.MIN_VALUE || eventMillis == Long.MAX_VALUE) {    // no events (unsupported); offset by the mean period (@see startMillis)
+                return centerMillis + index * (long)(periodDays * SuntimesData.DAY_MILLIS);
+            }
+            return eventMillis + (long)((index * periodDays - (periodDays / eventsPerPeriod) / 2d) * SuntimesData.DAY_MILLIS);
+        }
+
+        protected Key key(int index) {
+            return new Key(calculatorKey, type, date, index);
+        }
+
+        @SuppressWarnings("unchecked")
+        protected T cast(SuntimesMoonData0 data) {
+            return (T) data;
+        }
+
+        public T getCenter() {
+            return center;
+        }
+
+        /**
+         * @return the data for index; calculated (and stored) if missing
+         */
+        public T get(int index)
+        {
+            if (index == 0) {
+                return center;
+            }
+
+            T data = cast(store.get(key(index)));
+            if (data != null) {
+                return data;
+            }
+            return cast(store.putIfAbsent(key(index), calculateData(index)));
+        }
+
+        /**
+         * @return a new data object for index (calculated); by default from index 0
+         */
+        protected T calculateData(int index) {
+            return createData(index, center);
+        }
+
+        /**
+         * Loads the entries around index (+- PREFETCH_COUNT) in the background.
+         */
+        public void prefetch(final int index)
+        {
+            if (index == lastPrefetch) {
+                return;
+            }
+            lastPrefetch = index;
+            store.getBackgroundExecutor().execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try {
+                        for (int i=1; i<=PREFETCH_COUNT; i++) {
+                            get(index + i);
+                            get(index - i);
+                        }
+                    } catch (RuntimeException e) {
+                        Log.w("MoonDataStore", "prefetch: failed to load " + index + ": " + e);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * IncrementalSeries
+     * A series whose entries are calculated from the adjacent entry (towards index 0) when it is stored, or
+     * estimated from index 0 (using the mean period) when it isn't (e.g. after a jump, or an eviction).
+     */
+    public static abstract class IncrementalSeries<T extends SuntimesMoonData0> extends Series<T>
+    {
+        public IncrementalSeries(@NonNull Context context, @NonNull MoonDataStore store, int type) {
+            super(context, store, type);
+        }
+
+        /**
+         * @param adjacent the data at index + 1 (index < 0), or index - 1 (index > 0)
+         * @return a new data object for index (calculated)
+         */
+        @Override
+        protected abstract T createData(int index, T adjacent);
+
+        /**
+         * @param center the data for index 0
+         * @return a new data object for index (calculated), estimated from index 0 using the mean period
+         */
+        protected abstract T estimateData(int index, T center);
+
+        @Override
+        protected T calculateData(int index)
+        {
+            int i = index - ((index > 0) ? 1 : -1);
+            T adjacent = (i == 0) ? center : cast(store.get(key(i)));
+            return (adjacent != null ? createData(index, adjacent) : estimateData(index, center));
+        }
+    }
+
+    /**
+     * RiseSetSeries
+     * Moonrise and moonset by day; index 0 is today, index n is n days from the moonrise (or moonset) today.
+     */
+    public static class RiseSetSeries extends Series<SuntimesMoonData>
+    {
+        public RiseSetSeries(@NonNull Context context, @NonNull MoonDataStore store) {
+            super(context, store, TYPE_RISESET);
+        }
+
+        @Override
+        protected SuntimesMoonData createData(Context context) {
+            return new SuntimesMoonData(context, 0, "moon");
+        }
+
+        @Override
+        protected SuntimesMoonData createData(int index, SuntimesMoonData d0)
+        {
+            Calendar rising = d0.moonriseCalendarToday();
+            Calendar setting = d0.moonsetCalendarToday();
+            boolean isRising = (rising != null && rising.before(setting));
+
+            SuntimesMoonData d = createData(context);
+            Calendar date = Calendar.getInstance(d.timezone());
+            if (isRising && rising != null) {
+                date.setTimeInMillis(rising.getTimeInMillis());
+            } else if (setting != null) {
+                date.setTimeInMillis(setting.getTimeInMillis());
+            } else if (rising != null) {
+                date.setTimeInMillis(rising.getTimeInMillis());
+            } else {
+                date.setTimeInMillis(d0.calendar().getTimeInMillis());
+            }
+
+            date.setTimeInMillis(date.getTimeInMillis() + (index * SuntimesData.DAY_MILLIS));
+            d.setTodayIs(date);
+            d.calculate();
+            return d;
+        }
+    }
+
+    /**
+     * PhaseSeries
+     * Major moon phases by lunation; index 0 is the next four phases, index n is the four phases n lunations later.
+     */
+    public static class PhaseSeries extends IncrementalSeries<SuntimesMoonData1>
+    {
+        public static final double SYNODIC_MONTH_DAYS = 29.53d;
+
+        public PhaseSeries(@NonNull Context context, @NonNull MoonDataStore store) {
+            super(context, store, TYPE_PHASES);
+        }
+
+        @Override
+        protected SuntimesMoonData1 createData(Context context) {
+            return new SuntimesMoonData1(context, 0, "moon");
+        }
+
+        @Override
+        protected boolean isCurrent(SuntimesMoonData1 data) {
+            return data.isCalculated() && System.currentTimeMillis() < phaseMillis(data, false);
+        }
+
+        @Override
+        protected long seriesDate(SuntimesMoonData1 center) {
+            return phaseMillis(center, false);
+        }
+
+        /**
+         * The next lunation follows the latest phase of the adjacent one; the previous lunation begins within a
+         * (synodic month + 2 days) of the earliest phase (the length of a lunation varies by less than a day).
+         */
+        @Override
+        protected SuntimesMoonData1 createData(int index, SuntimesMoonData1 adjacent)
+        {
+            SuntimesMoonData1 moon = createData(context);
+            Calendar date = Calendar.getInstance(moon.timezone());
+            date.setTimeInMillis(startMillis(phaseMillis(adjacent, (index > 0)), adjacent.calendar().getTimeInMillis(), (index > 0), SYNODIC_MONTH_DAYS));
+            moon.setTodayIs(date);
+            moon.calculate();
+            return moon;
+        }
+
+        @Override
+        protected SuntimesMoonData1 estimateData(int index, SuntimesMoonData1 center)
+        {
+            SuntimesMoonData1 moon = createData(context);
+            Calendar date = Calendar.getInstance(moon.timezone());
+            date.setTimeInMillis(estimateStartMillis(phaseMillis(center, false), center.calendar().getTimeInMillis(), index, SYNODIC_MONTH_DAYS, 4));
+            moon.setTodayIs(date);
+            moon.calculate();
+            return moon;
+        }
+
+        /**
+         * @param latest true the latest phase, false the earliest phase
+         */
+        protected static long phaseMillis(SuntimesMoonData1 data, boolean latest)
+        {
+            long retValue = (latest ? Long.MIN_VALUE : Long.MAX_VALUE);
+            for (SuntimesCalculator.MoonPhase phase : SuntimesCalculator.MoonPhase.values())
+            {
+                Calendar phaseDate = data.moonPhaseCalendar(phase);
+                if (phaseDate != null) {
+                    long millis = phaseDate.getTimeInMillis();
+                    retValue = (latest ? Math.max(retValue, millis) : Math.min(retValue, millis));
+                }
+            }
+            return retValue;
+        }
+    }
+
+    /**
+     * ApsisSeries
+     * Lunar apogee and perigee by anomalistic month; index 0 is the next apogee and perigee, index n is n months later.
+     */
+    public static class ApsisSeries extends IncrementalSeries<SuntimesMoonData0>
+    {
+        public static final double ANOMALISTIC_MONTH_DAYS = 27.55455d;
+
+        public ApsisSeries(@NonNull Context context, @NonNull MoonDataStore store) {
+            super(context, store, TYPE_APSIS);
+        }
+
+        @Override
+        protected SuntimesMoonData0 createData(Context context) {
+            return new SuntimesMoonData0(context, 0, "moon");
+        }
+
+        @Override
+        protected boolean isCurrent(SuntimesMoonData0 data) {
+            return data.isCalculated() && System.currentTimeMillis() < apsisMillis(data, false);
+        }
+
+        @Override
+        protected long seriesDate(SuntimesMoonData0 center) {
+            return apsisMillis(center, false);
+        }
+
+        /**
+         * The next month follows the latest apsis of the adjacent one; the previous month begins within an
+         * (anomalistic month + 2 days) of the earliest apsis (the length of the month varies by up to ~2 days).
+         */
+        @Override
+        protected SuntimesMoonData0 createData(int index, SuntimesMoonData0 adjacent)
+        {
+            SuntimesMoonData0 moon = createData(context);
+            Calendar date = Calendar.getInstance(moon.timezone());
+            date.setTimeInMillis(startMillis(apsisMillis(adjacent, (index > 0)), adjacent.calendar().getTimeInMillis(), (index > 0), ANOMALISTIC_MONTH_DAYS));
+            moon.setTodayIs(date);
+            moon.calculate();
+            moon.getMoonApogee();     // calculated now (rather than later on the main thread)
+            moon.getMoonPerigee();
+            return moon;
+        }
+
+        @Override
+        protected SuntimesMoonData0 estimateData(int index, SuntimesMoonData0 center)
+        {
+            SuntimesMoonData0 moon = createData(context);
+            Calendar date = Calendar.getInstance(moon.timezone());
+            date.setTimeInMillis(estimateStartMillis(apsisMillis(center, false), center.calendar().getTimeInMillis(), index, ANOMALISTIC_MONTH_DAYS, 2));
+            moon.setTodayIs(date);
+            moon.calculate();
+            moon.getMoonApogee();
+            moon.getMoonPerigee();
+            return moon;
+        }
+
+        /**
+         * @param latest true the later of apogee and perigee, false the earlier
+         */
+        protected static long apsisMillis(SuntimesMoonData0 data, boolean latest)
+        {
+            Pair<Calendar, SuntimesCalculator.MoonPosition> apogee = data.getMoonApogee();
+            Pair<Calendar, SuntimesCalculator.MoonPosition> perigee = data.getMoonPerigee();
+            long retValue = (latest ? Long.MIN_VALUE : Long.MAX_VALUE);
+            for (Calendar event : new Calendar[] { (apogee != null ? apogee.first : null), (perigee != null ? perigee.first : null) })
+            {
+                if (event != null) {
+                    long millis = event.getTimeInMillis();
+                    retValue = (latest ? Math.max(retValue, millis) : Math.min(retValue, millis));
+                }
+            }
+            return retValue;
+        }
+    }
+}
@@ -56,7 +56,6 @@ import com.github.rubensousa.gravitysnaphelper.GravitySnapHelper;
 
 import java.lang.ref.WeakReference;
 import java.util.Calendar;
-import java.util.HashMap;
 
 @SuppressWarnings("Convert2Diamond")
 public class MoonPhasesView1 extends LinearLayout
@@ -332,8 +331,7 @@ public class MoonPhasesView1 extends LinearLayout
         public static final int CENTER_POSITION = 100;
 
         private WeakReference<Context> contextRef;
-        @SuppressLint("UseSparseArrays")
-        private HashMap<Integer, SuntimesMoonData1> data = new HashMap<>();
+        private MoonDataStore.PhaseSeries series;
         private SuntimesCalculator.MoonPhase nextPhase = SuntimesCalculator.MoonPhase.FULL;
 
         private int colorNote, colorTitle, colorTime, colorText, colorWaxing, colorWaning, colorFull, colorNew, colorDisabled;
@@ -385,6 +383,7 @@ public class MoonPhasesView1 extends LinearLayout
             holder.phase = SuntimesCalculator.MoonPhase.values()[phaseOrdinal];
 
             SuntimesMoonData1 moon = initData(context, position);
+            series.prefetch(seriesIndex(position));
             Calendar phaseDate = moon.moonPhaseCalendar(holder.phase);
             boolean isAgo = moon.now().after(phaseDate);
             holder.northward = WidgetSettings.loadLocalizeHemispherePref(context, 0) && (moon.location().getLatitudeAsDouble() < 0);
@@ -398,9 +397,6 @@ public class MoonPhasesView1 extends LinearLayout
         public void onViewRecycled(PhaseField holder)
         {
             detachClickListeners(holder);
-            if (holder.position >= 0 && (holder.position < CENTER_POSITION - 1 || holder.position > CENTER_POSITION + 2)) {
-                data.remove(holder.position);
-            }
             holder.position = RecyclerView.NO_POSITION;
         }
 
@@ -409,12 +405,21 @@ public class MoonPhasesView1 extends LinearLayout
             return MAX_POSITIONS;
         }
 
-        protected void initData( Context context ) {
-            SuntimesMoonData1 moon = initData(context, CENTER_POSITION);
+        protected void initData( Context context )
+        {
+            series = new MoonDataStore.PhaseSeries(context, MoonDataStore.getInstance());    // data is shared (and bounded) by the store
+            SuntimesMoonData1 moon = series.getCenter();
             nextPhase = moon.nextPhase(moon.calendar());
         }
 
-        public SuntimesMoonData1 initData( Context context, int position )
+        public SuntimesMoonData1 initData( Context context, int position ) {
+            return series.get(seriesIndex(position));
+        }
+
+        /**
+         * @return series index (lunation) for position; each lunation is 4 positions
+         */
+        protected int seriesIndex(int position)
         {
             int offset = (position - CENTER_POSITION) % 4;
             int firstPosition = position;
@@ -423,35 +428,7 @@ public class MoonPhasesView1 extends LinearLayout
             } else if (offset < 0) {
                 firstPosition = position - (4 + (offset));
             }
-
-            SuntimesMoonData1 moon = data.get(firstPosition);
-            if (moon == null)
-            {
-                moon = createData(context, firstPosition);
-                for (int i=0; i<4; i++) {
-                    data.put(firstPosition + i, moon);
-                }
-            }
-            return moon;
-        }
-
-        protected SuntimesMoonData1 createData(Context context, int position )
-        {
-            SuntimesMoonData1 moon = new SuntimesMoonData1(context, 0, "moon");
-
-            if (position != CENTER_POSITION)
-            {
-                SuntimesMoonData1 moon0 = initData(context, CENTER_POSITION);
-
-                Calendar date = Calendar.getInstance(moon.timezone());
-                date.setTimeInMillis(moon0.moonPhaseCalendar(moon0.nextPhase(moon.now())).getTimeInMillis());
-                date.add(Calendar.HOUR, (int)(((position - CENTER_POSITION) / 4d) * 29.53d * 24d));   // avg length of synodic month (29.53) may vary ~ +-6 hr
-                date.add(Calendar.HOUR, (int)(-24 * 3.5));                                            // so offset several days to overcome potential drift
-                moon.setTodayIs(date);
-            }
-
-            moon.calculate();
-            return moon;
+            return (firstPosition - CENTER_POSITION) / 4;
         }
 
         public int getPositionForDate(Context context, long datetime)
@@ -64,7 +64,6 @@ import com.github.rubensousa.gravitysnaphelper.GravitySnapHelper;
 
 import java.lang.ref.WeakReference;
 import java.util.Calendar;
-import java.util.HashMap;
 
 @SuppressWarnings("Convert2Diamond")
 public class MoonRiseSetView1 extends LinearLayout
@@ -379,8 +378,7 @@ public class MoonRiseSetView1 extends LinearLayout
         public static final int MAX_POSITIONS = CENTER_POSITION * 2;
 
         private final WeakReference<Context> contextRef;
-        @SuppressLint("UseSparseArrays")
-        private final HashMap<Integer, SuntimesMoonData> data = new HashMap<>();
+        private MoonDataStore.RiseSetSeries series;
 
         public MoonRiseSetAdapter(Context context, boolean showLunarNoon) {
             contextRef = new WeakReference<>(context);
@@ -415,6 +413,7 @@ public class MoonRiseSetView1 extends LinearLayout
             }
 
             SuntimesMoonData d = initData(context, position);
+            series.prefetch(seriesIndex(position));
             holder.setShowPosition(showPosition);   // option must be set before binding data
             holder.onBindDataToPosition(context, d, position, getEventAt(d, position));
 
@@ -470,9 +469,6 @@ public class MoonRiseSetView1 extends LinearLayout
         public void onViewRecycled(MoonRiseSetField holder)
         {
             detachClickListeners(holder);
-            if (holder.position >= 0 && (holder.position < CENTER_POSITION - 1 || holder.position > CENTER_POSITION + 2)) {
-                data.remove(holder.position);
-            }
             holder.resizeField(itemWidth);
             holder.onRecycled();
         }
@@ -483,11 +479,18 @@ public class MoonRiseSetView1 extends LinearLayout
         }
 
         protected void initData( Context context ) {
-            SuntimesMoonData d = initData(context, CENTER_POSITION);
+            series = new MoonDataStore.RiseSetSeries(context, MoonDataStore.getInstance());    // data is shared (and bounded) by the store
         }
 
         @NonNull
-        public SuntimesMoonData initData( Context context, int position )
+        public SuntimesMoonData initData( Context context, int position ) {
+            return series.get(seriesIndex(position));
+        }
+
+        /**
+         * @return series index (days from today) for position; each day is getItemsPerDay() positions
+         */
+        protected int seriesIndex(int position)
         {
             int itemsPerDay = getItemsPerDay();
             int offset = (position - CENTER_POSITION) % itemsPerDay;
@@ -498,58 +501,7 @@ public class MoonRiseSetView1 extends LinearLayout
             } else if (offset < 0) {
                 position0 = position - (itemsPerDay + offset);
             }
-
-            SuntimesMoonData d = data.get(position0);
-            if (d == null) {
-                d = createData(context, position0);
-                for (int i=0; i<itemsPerDay; i++) {
-                    data.put(position0 + i, d);
-                }
-            }
-            return d;
-        }
-
-        @NonNull
-        public SuntimesMoonData createData( Context context, int position )
-        {
-            SuntimesMoonData d = new SuntimesMoonData(context, 0, "moon");
-            if (position != CENTER_POSITION)
-            {
-                SuntimesMoonData d0 = initData(context, CENTER_POSITION);
-                Calendar rising = d0.moonriseCalendarToday();
-                Calendar setting = d0.moonsetCalendarToday();
-                boolean isRising = (rising != null && rising.before(setting));
-
-                Calendar date = Calendar.getInstance(d.timezone());
-                if (isRising && rising != null) {
-                    date.setTimeInMillis(rising.getTimeInMillis());
-                } else if (setting != null) {
-                    date.setTimeInMillis(setting.getTimeInMillis());
-                } else if (rising != null) {
-                    date.setTimeInMillis(rising.getTimeInMillis());
-                } else {
-                    date.setTimeInMillis(d0.calendar().getTimeInMillis());
-                }
-
-                date.setTimeInMillis((long)(date.getTimeInMillis() + getOffsetMillis(position)));
-                d.setTodayIs(date);
-            }
-            d.calculate();
-            return d;
-        }
-
-        /*protected double getOffsetMillis(int position)
-        {
-            double dayMillis = 24d * 60d * 60d * 1000;
-            int rawOffset = position - CENTER_POSITION;
-            return (rawOffset >> 1) * dayMillis;
-        }*/
-
-        protected double getOffsetMillis(int position)
-        {
-            double dayMillis = 24d * 60d * 60d * 1000;
-            int rawOffset = position - CENTER_POSITION;
-            return ((rawOffset / (1d * getItemsPerDay())) * dayMillis);
+            return (position0 - CENTER_POSITION) / itemsPerDay;
         }
 
         public int getItemsPerDay() {
@@ -454,6 +454,7 @@ public class WidgetSettingsImportTask extends AsyncTask<Uri, ContentValues, Widg
             }
         }
         editor.apply();
+        WidgetSettingsSnapshot.invalidate(appWidgetId != null ? appWidgetId : 0);    // may be called from a background thread (listeners are notified later)
         return result;
     }
 
@@ -498,6 +499,7 @@ public class WidgetSettingsImportTask extends AsyncTask<Uri, ContentValues, Widg
             }
         }
         toPrefs.apply();
+        WidgetSettingsSnapshot.invalidate(toAppWidgetId);    // may be called from a background thread (listeners are notified later)
         return result;
     }
 
@@ -626,6 +628,7 @@ public class WidgetSettingsImportTask extends AsyncTask<Uri, ContentValues, Widg
             }
         }
         prefs.apply();
+        WidgetSettingsSnapshot.invalidate(appWidgetId != null ? appWidgetId.intValue() : 0);    // may be called from a background thread (listeners are notified later)
     }
 
     @Nullable
@@ -0,0 +1,209 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.settings;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import com.forrestguice.suntimeswidget.calculator.SuntimesCalculatorDescriptor;
+import com.forrestguice.suntimeswidget.calculator.core.Location;
+
+import java.util.HashMap;
+
+/**
+ * WidgetSettingsSnapshot
+ * An immutable copy of the settings a widget reads on every update (calculator, location, timezone, date,
+ * and display settings), loaded once and then cached until one of the widget's settings is changed.
+ *
+ * Snapshots are invalidated by a listener on PREFS_WIDGET; a change to a widget's settings invalidates that
+ * widget, and a change to the app's settings (appWidgetId 0) invalidates every widget (widgets may use the
+ * app's location or timezone). Values that change on every update (e.g. the next suggested update) are not
+ * part of the snapshot and don't invalidate it. The listener is notified on the main thread, so writers that
+ * run in the background (e.g. importing or restoring settings; @see WidgetSettingsImportTask) invalidate the
+ * snapshots they change directly.
+ */
+public final class WidgetSettingsSnapshot
+{
+    public final int appWidgetId;
+
+    public final SuntimesCalculatorDescriptor calculatorMode;
+    private final Location location;
+    public final WidgetSettings.LocationMode locationMode;
+    public final String timezone;
+    public final WidgetSettings.TimezoneMode timezoneMode;
+    public final boolean timezoneFromApp;
+    public final WidgetSettings.SolarTimeMode solarTimeMode;
+    public final WidgetSettings.DateMode dateMode;
+    public final WidgetSettings.DateInfo dateInfo;
+    public final WidgetSettings.RiseSetDataMode timeMode;
+    public final WidgetSettings.CompareMode compareMode;
+    public final WidgetSettings.RiseSetOrder riseSetOrder;
+
+    public final boolean showTitle;
+    public final String titleText;
+    public final boolean showNoon;
+    public final boolean showCompare;
+    public final boolean showSeconds;
+    public final boolean showLabels;
+    public final boolean scaleText;
+    public final boolean scaleBase;
+    public final int gravity;
+    public final WidgetSettings.TimeFormatMode timeFormatMode;
+    public final boolean allowResize;
+    public final String themeName;
+    public final WidgetSettings.ActionMode actionMode;
+
+    private WidgetSettingsSnapshot(Context context, int appWidgetId)
+    {
+        this.appWidgetId = appWidgetId;
+
+        calculatorMode = WidgetSettings.loadCalculatorModePref(context, appWidgetId);
+        location = WidgetSettings.loadLocationPref(context, appWidgetId);
+        locationMode = WidgetSettings.loadLocationModePref(context, appWidgetId);
+        timezone = WidgetSettings.loadTimezonePref(context, appWidgetId);
+        timezoneMode = WidgetSettings.loadTimezoneModePref(context, appWidgetId);
+        timezoneFromApp = WidgetSettings.loadTimeZoneFromAppPref(context, appWidgetId);
+        solarTimeMode = WidgetSettings.loadSolarTimeModePref(context, appWidgetId);
+        dateMode = WidgetSettings.loadDateModePref(context, appWidgetId);
+        dateInfo = WidgetSettings.loadDatePref(context, appWidgetId);
+        timeMode = WidgetSettings.loadTimeModePref(context, appWidgetId);
+        compareMode = WidgetSettings.loadCompareModePref(context, appWidgetId);
+        riseSetOrder = WidgetSettings.loadRiseSetOrderPref(context, appWidgetId);
+
+        showTitle = WidgetSettings.loadShowTitlePref(context, appWidgetId);
+        titleText = WidgetSettings.loadTitleTextPref(context, appWidgetId);
+        showNoon = WidgetSettings.loadShowNoonPref(context, appWidgetId);
+        showCompare = WidgetSettings.loadShowComparePref(context, appWidgetId);
+        showSeconds = WidgetSettings.loadShowSecondsPref(context, appWidgetId);
+        showLabels = WidgetSettings.loadShowLabelsPref(context, appWidgetId);
+        scaleText = WidgetSettings.loadScaleTextPref(context, appWidgetId);
+        scaleBase = WidgetSettings.loadScaleBasePref(context, appWidgetId);
+        gravity = WidgetSettings.loadWidgetGravityPref(context, appWidgetId);
+        timeFormatMode = WidgetSettings.loadTimeFormatModePref(context, appWidgetId);
+        allowResize = WidgetSettings.loadAllowResizePref(context, appWidgetId);
+        themeName = WidgetSettings.loadThemeName(context, appWidgetId);
+        actionMode = WidgetSettings.loadActionModePref(context, appWidgetId);
+    }
+
+    /**
+     * @return the location (a copy; Location is mutable)
+     */
+    public Location location() {
+        return new Location(location);
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////
+    ///////////////////////////////////////////////////////////////////////////////////////////////
+
+    private static final HashMap<Integer, WidgetSettingsSnapshot> snapshots = new HashMap<>();
+    private static long generation = 0;
+    private static SharedPreferences.OnSharedPreferenceChangeListener listener = null;    // strong reference (SharedPreferences only keeps a weak reference)
+
+    /**
+     * @param context context
+     * @param appWidgetId widget id (0 for app)
+     * @return the (cached) snapshot of a widget's settings
+     */
+    @NonNull
+    public static WidgetSettingsSnapshot get(@NonNull Context context, int appWidgetId)
+    {
+        long loadGeneration;
+        synchronized (snapshots)
+        {
+            if (listener == null) {
+                registerListener(context);
+            }
+            WidgetSettingsSnapshot snapshot = snapshots.get(appWidgetId);
+            if (snapshot != null) {
+                return snapshot;
+            }
+            loadGeneration = generation;
+        }
+
+        WidgetSettingsSnapshot snapshot = new WidgetSettingsSnapshot(context, appWidgetId);
+        synchronized (snapshots)
+        {
+            if (loadGeneration == generation) {    // discard snapshots that were invalidated while loading
+                snapshots.put(appWidgetId, snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Invalidates a widget's snapshot; the snapshot is invalidated automatically when its settings are changed,
+     * but the notification is delivered on the main thread, so threads that change a setting and then read it
+     * back should call this directly.
+     * @param appWidgetId widget id (0 invalidates every widget)
+     */
+    public static void invalidate(int appWidgetId)
+    {
+        synchronized (snapshots)
+        {
+            generation++;
+            if (appWidgetId == 0) {
+                snapshots.clear();
+            } else snapshots.remove(appWidgetId);
+        }
+    }
+
+    public static void invalidateAll() {
+        invalidate(0);
+    }
+
+    private static void registerListener(Context context)
+    {
+        listener = new SharedPreferences.OnSharedPreferenceChangeListener()
+        {
+            @Override
+            public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key)
+            {
+                if (key == null || !key.endsWith(WidgetSettings.PREF_KEY_NEXTUPDATE))
+                {
+                    Integer appWidgetId = widgetIdForKey(key);
+                    invalidate(appWidgetId != null ? appWidgetId : 0);
+                }
+            }
+        };
+        context.getApplicationContext().getSharedPreferences(WidgetSettings.PREFS_WIDGET, 0).registerOnSharedPreferenceChangeListener(listener);
+    }
+
+    /**
+     * @param key a key from PREFS_WIDGET (e.g. "appwidget_12_general_...")
+     * @return the appWidgetId of the key, or null if the key doesn't belong to a widget
+     */
+    @Nullable
+    public static Integer widgetIdForKey(@Nullable String key)
+    {
+        if (key == null || !key.startsWith(WidgetSettings.PREF_PREFIX_KEY)) {
+            return null;
+        }
+        int i0 = WidgetSettings.PREF_PREFIX_KEY.length();
+        int i = i0;
+        while (i < key.length() && Character.isDigit(key.charAt(i))) {
+            i++;
+        }
+        if (i == i0 || (i - i0) > 9) {
+            return null;
+        }
+        return Integer.parseInt(key.substring(i0, i));
+    }
+}
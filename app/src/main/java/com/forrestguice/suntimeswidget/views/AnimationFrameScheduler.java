@@ -0,0 +1,186 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.views;
+
+/**
+ * AnimationFrameScheduler
+ * Paces the frames of a background animation task (WorldMapTask, LightMapTask, LineGraphTask).
+ *
+ * Frames are scheduled against fixed deadlines (start + n * frameDuration). The calling thread sleeps
+ * until the next deadline (rather than spinning). When rendering falls behind, the frames that were
+ * missed are dropped; `awaitNextFrame` returns the number of frames the animation should advance so
+ * that it keeps pace with the wall clock.
+ *
+ * In low-power mode (e.g. the view doesn't have focus) only every nth frame is shown, so that the
+ * frame rate doesn't exceed LOW_POWER_MAX_FPS (the animation advances at the same speed).
+ */
+public class AnimationFrameScheduler
+{
+    public static final long NANOS_PER_MS = 1000000L;
+    public static final long NANOS_PER_SECOND = 1000000000L;
+
+    public static final int LOW_POWER_MAX_FPS = 2;
+    public static final double FPS_SMOOTHING = 0.2;    // weight given to the most recent frame
+
+    protected final long frameDuration;    // nanoseconds
+    protected volatile boolean lowPower = false;
+    protected volatile boolean dropFrames = true;
+
+    protected long deadline = -1;          // last frame deadline (nanoseconds)
+    protected long lastFrameTime = -1;     // last frame time (nanoseconds)
+    protected double actualFps = 0;
+    protected long frameCount = 0, droppedCount = 0;
+
+    /**
+     * @param frameDurationMs target frame length (milliseconds)
+     */
+    public AnimationFrameScheduler(long frameDurationMs) {
+        this.frameDuration = Math.max(1, frameDurationMs) * NANOS_PER_MS;
+    }
+
+    /**
+     * Starts the clock; the first frame is due one frame duration from now.
+     */
+    public synchronized void start()
+    {
+        deadline = lastFrameTime = nanoTime();
+        frameCount = droppedCount = 0;
+        actualFps = 0;
+    }
+
+    /**
+     * Waits until the next frame is due.
+     * @return the number of frames the animation should advance (>= 1; more than 1 if frames were dropped),
+     * or 0 if the thread was interrupted while waiting (e.g. the task was cancelled).
+     */
+    public int awaitNextFrame()
+    {
+        long next;
+        int stride;
+        synchronized (this)
+        {
+            if (deadline < 0) {
+                start();
+            }
+            stride = getFrameStride();
+            next = deadline + (stride * frameDuration);
+        }
+
+        long now = nanoTime();
+        if (now < next)
+        {
+            if (!sleepNanos(next - now)) {
+                return 0;
+            }
+            now = nanoTime();
+        }
+
+        synchronized (this)
+        {
+            int late = (int) ((now - next) / frameDuration);    // whole frames missed while rendering
+            if (dropFrames) {
+                deadline = next + (late * frameDuration);
+                droppedCount += late;
+
+            } else {
+                deadline = (late > 0 ? now : next);    // show every frame (falls behind the clock instead)
+                late = 0;
+            }
+            frameCount++;
+
+            long elapsed = now - lastFrameTime;
+            if (elapsed > 0)
+            {
+                double fps = NANOS_PER_SECOND / (double) elapsed;
+                actualFps = (frameCount == 1 ? fps : (FPS_SMOOTHING * fps) + ((1 - FPS_SMOOTHING) * actualFps));
+            }
+            lastFrameTime = now;
+            return stride + late;
+        }
+    }
+
+    /**
+     * @return the number of frames advanced by each shown frame (1, or more in low-power mode)
+     */
+    public int getFrameStride()
+    {
+        if (lowPower)
+        {
+            long minDuration = NANOS_PER_SECOND / LOW_POWER_MAX_FPS;
+            return (int) Math.max(1, (minDuration + frameDuration - 1) / frameDuration);
+        } else return 1;
+    }
+
+    public void setLowPowerMode(boolean value) {
+        lowPower = value;
+    }
+    public boolean isLowPowerMode() {
+        return lowPower;
+    }
+
+    /**
+     * @param value true (default) skips frames that were missed while rendering, false shows every frame (e.g. while recording)
+     */
+    public void setDropFrames(boolean value) {
+        dropFrames = value;
+    }
+    public boolean isDroppingFrames() {
+        return dropFrames;
+    }
+
+    public double getTargetFps() {
+        return NANOS_PER_SECOND / (double) (frameDuration * getFrameStride());
+    }
+    public synchronized double getActualFps() {
+        return actualFps;
+    }
+    public synchronized long getFrameCount() {
+        return frameCount;
+    }
+    public synchronized long getDroppedFrameCount() {
+        return droppedCount;
+    }
+    public long getFrameDuration() {
+        return frameDuration;
+    }
+
+    @Override
+    public String toString() {
+        return "AnimationFrameScheduler [target: " + String.format("%.1f", getTargetFps()) + " fps, actual: " + String.format("%.1f", getActualFps()) + " fps, frames: " + getFrameCount() + ", dropped: " + getDroppedFrameCount() + (lowPower ? ", low-power" : "") + "]";
+    }
+
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    /**
+     * @return true if the full duration was slept, false if interrupted
+     */
+    protected boolean sleepNanos(long nanos)
+    {
+        try {
+            Thread.sleep(nanos / NANOS_PER_MS, (int) (nanos % NANOS_PER_MS));
+            return true;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
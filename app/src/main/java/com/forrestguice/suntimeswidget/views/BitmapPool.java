@@ -0,0 +1,171 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.views;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A process-wide pool of reusable bitmaps, keyed by (width, height, config).
+ *
+ * Renderers `acquire` a bitmap (a recycled one if available, otherwise a new allocation) and `release`
+ * it once it is no longer displayed or needed. Released bitmaps must not be drawn or shown by anyone
+ * else afterward. The pool holds at most MAX_PER_KEY bitmaps for each of MAX_KEYS sizes (least-recently
+ * used sizes are dropped first); anything beyond that is left to the garbage collector.
+ * @see FrameBuffers
+ */
+public class BitmapPool
+{
+    public static final int MAX_KEYS = 6;
+    public static final int MAX_PER_KEY = 3;
+
+    private static final BitmapPool instance = new BitmapPool(MAX_KEYS, MAX_PER_KEY);
+    public static BitmapPool getInstance() {
+        return instance;
+    }
+
+    private final int maxPerKey;
+    private final LinkedHashMap<Key, ArrayDeque<Bitmap>> bitmaps;
+    private long allocationCount = 0, reuseCount = 0;
+
+    public BitmapPool(final int maxKeys, int maxPerKey)
+    {
+        this.maxPerKey = maxPerKey;
+        this.bitmaps = new LinkedHashMap<Key, ArrayDeque<Bitmap>>(maxKeys, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, ArrayDeque<Bitmap>> eldest) {
+                return (size() > maxKeys);
+            }
+        };
+    }
+
+    /**
+     * @return a cleared (transparent) bitmap with the given size and config; recycled if possible
+     */
+    @NonNull
+    public Bitmap acquire(int w, int h, @NonNull Bitmap.Config config)
+    {
+        synchronized (this)
+        {
+            ArrayDeque<Bitmap> available = bitmaps.get(new Key(w, h, config));
+            while (available != null && !available.isEmpty())
+            {
+                Bitmap bitmap = available.pop();
+                if (!bitmap.isRecycled())
+                {
+                    reuseCount++;
+                    bitmap.eraseColor(Color.TRANSPARENT);
+                    return bitmap;
+                }
+            }
+            allocationCount++;
+        }
+        return Bitmap.createBitmap(w, h, config);
+    }
+
+    /**
+     * Returns a bitmap to the pool.
+     * @param bitmap a bitmap that is no longer displayed or referenced (null is ignored)
+     */
+    public synchronized void release(@Nullable Bitmap bitmap)
+    {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable() || bitmap.getConfig() == null) {
+            return;
+        }
+
+        Key key = new Key(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+        ArrayDeque<Bitmap> available = bitmaps.get(key);
+        if (available == null) {
+            bitmaps.put(key, available = new ArrayDeque<>(maxPerKey));
+        }
+        for (Bitmap b : available) {
+            if (b == bitmap) {
+                return;    // already released
+            }
+        }
+        if (available.size() < maxPerKey) {
+            available.push(bitmap);
+        }
+    }
+
+    public synchronized void clear() {
+        bitmaps.clear();
+    }
+
+    public synchronized int size()
+    {
+        int n = 0;
+        for (ArrayDeque<Bitmap> available : bitmaps.values()) {
+            n += available.size();
+        }
+        return n;
+    }
+    public synchronized long getAllocationCount() {
+        return allocationCount;
+    }
+    public synchronized long getReuseCount() {
+        return reuseCount;
+    }
+    public synchronized void resetCounts() {
+        allocationCount = reuseCount = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "BitmapPool [size: " + size() + ", allocations: " + allocationCount + ", reused: " + reuseCount + "]";
+    }
+
+    /**
+     * Key
+     */
+    private static final class Key
+    {
+        private final int w, h;
+        private final Bitmap.Config config;
+
+        public Key(int w, int h, Bitmap.Config config)
+        {
+            this.w = w;
+            this.h = h;
+            this.config = config;
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * ((31 * w) + h)) + config.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return (w == other.w && h == other.h && config == other.config);
+        }
+    }
+}
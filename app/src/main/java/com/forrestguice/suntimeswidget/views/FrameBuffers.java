@@ -0,0 +1,98 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.views;
+
+import android.graphics.Bitmap;
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+
+/**
+ * FrameBuffers
+ * Double buffering for views that display animation frames.
+ *
+ * The renderer draws the next frame into a back buffer (acquired from the BitmapPool) while the view
+ * displays the front buffer. When the view shows a new frame (`swap`), the previous front buffer is
+ * released back to the pool, where it becomes the back buffer of a later frame. Once the animation
+ * reaches a steady state, no more bitmaps are allocated.
+ *
+ * Listeners that receive a displayed frame may only use it during the callback, and must copy it to keep
+ * it (e.g. exports). Renderers without FrameBuffers (e.g. widgets) allocate their bitmaps directly (see `acquire`).
+ */
+public class FrameBuffers
+{
+    protected final BitmapPool pool;
+    protected Bitmap front = null;
+
+    public FrameBuffers() {
+        this(BitmapPool.getInstance());
+    }
+
+    public FrameBuffers(@NonNull BitmapPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @return a bitmap to render the next frame into (called by the renderer)
+     */
+    @NonNull
+    public Bitmap acquireBackBuffer(int w, int h, @NonNull Bitmap.Config config) {
+        return pool.acquire(w, h, config);
+    }
+
+    /**
+     * @param buffers frame buffers (or null)
+     * @return a back buffer from `buffers`, or a new bitmap (owned by the caller) if `buffers` is null
+     */
+    @NonNull
+    public static Bitmap acquire(@Nullable FrameBuffers buffers, int w, int h, @NonNull Bitmap.Config config) {
+        return (buffers != null ? buffers.acquireBackBuffer(w, h, config) : Bitmap.createBitmap(w, h, config));
+    }
+
+    /**
+     * Makes `frame` the front buffer; the previous front buffer is released to the pool. Call this
+     * (from the UI thread) after the view has been set to display `frame`.
+     * @param frame the frame that is now displayed (or null)
+     */
+    public synchronized void swap(@Nullable Bitmap frame)
+    {
+        if (front != null && front != frame) {
+            pool.release(front);
+        }
+        front = frame;
+    }
+
+    /**
+     * Returns a back buffer that was never displayed (e.g. the task was cancelled) to the pool.
+     */
+    public void discard(@Nullable Bitmap frame)
+    {
+        if (frame != null && frame != getFrontBuffer()) {
+            pool.release(frame);
+        }
+    }
+
+    @Nullable
+    public synchronized Bitmap getFrontBuffer() {
+        return front;
+    }
+
+    public BitmapPool getPool() {
+        return pool;
+    }
+}
@@ -33,6 +33,7 @@ import com.forrestguice.suntimeswidget.R;
 import com.forrestguice.suntimeswidget.SuntimesUtils;
 import com.forrestguice.suntimeswidget.calculator.SuntimesRiseSetData;
 import com.forrestguice.suntimeswidget.settings.WidgetSettings;
+import com.forrestguice.suntimeswidget.settings.WidgetSettingsSnapshot;
 import com.forrestguice.suntimeswidget.themes.SuntimesTheme;
 
 /**
@@ -70,9 +71,9 @@ public class SunLayout_1x1_0 extends SunLayout
     public void prepareForUpdate(Context context, int appWidgetID, SuntimesRiseSetData data)
     {
         super.prepareForUpdate(context, appWidgetID, data);
-        order = WidgetSettings.loadRiseSetOrderPref(context, appWidgetID);
+        order = WidgetSettingsSnapshot.get(context, appWidgetID).riseSetOrder;
 
-        int position = scaleBase ? 0 : WidgetSettings.loadWidgetGravityPref(context, appWidgetID);
+        int position = scaleBase ? 0 : WidgetSettingsSnapshot.get(context, appWidgetID).gravity;
         this.layoutID = chooseLayout(position, data);
         //this.layoutID = (scaleBase
         //        ? chooseSunLayout(R.layout.layout_widget_1x1_0_align_fill, R.layout.layout_widget_1x1_01_align_fill, data, order)
@@ -99,14 +100,14 @@ public class SunLayout_1x1_0 extends SunLayout
     public void updateViews(Context context, int appWidgetId, RemoteViews views, SuntimesRiseSetData data)
     {
         super.updateViews(context, appWidgetId, views, data);
-        boolean showSeconds = WidgetSettings.loadShowSecondsPref(context, appWidgetId);
-        WidgetSettings.TimeFormatMode timeFormat = WidgetSettings.loadTimeFormatModePref(context, appWidgetId);
+        boolean showSeconds = WidgetSettingsSnapshot.get(context, appWidgetId).showSeconds;
+        WidgetSettings.TimeFormatMode timeFormat = WidgetSettingsSnapshot.get(context, appWidgetId).timeFormatMode;
 
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN)
         {
-            if (WidgetSettings.loadScaleTextPref(context, appWidgetId))
+            if (WidgetSettingsSnapshot.get(context, appWidgetId).scaleText)
             {
-                int showTitle = (WidgetSettings.loadShowTitlePref(context, appWidgetId) ? 1 : 0);
+                int showTitle = (WidgetSettingsSnapshot.get(context, appWidgetId).showTitle ? 1 : 0);
                 int[] maxDp = new int[] {maxDimensionsDp[0] - (2*(paddingDp[0] + paddingDp[2])), ((maxDimensionsDp[1] - (paddingDp[1] + paddingDp[3]) - ((int)titleSizeSp * showTitle)) / 2)};
                 float[] adjustedSizeSp = adjustTextSize(context, maxDp, new int[] {8,2}, "sans-serif", boldTime, (showSeconds ? "00:00:00" : "00:00"), timeSizeSp, SuntimesLayout.MAX_SP, "MM", suffixSizeSp, iconSizeDp);
                 if (adjustedSizeSp[0] > timeSizeSp)
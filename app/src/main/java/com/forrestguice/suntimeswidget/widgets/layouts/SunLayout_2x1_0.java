@@ -32,6 +32,7 @@ import com.forrestguice.suntimeswidget.R;
 import com.forrestguice.suntimeswidget.SuntimesUtils;
 import com.forrestguice.suntimeswidget.calculator.SuntimesRiseSetData;
 import com.forrestguice.suntimeswidget.settings.WidgetSettings;
+import com.forrestguice.suntimeswidget.settings.WidgetSettingsSnapshot;
 import com.forrestguice.suntimeswidget.themes.SuntimesTheme;
 import com.forrestguice.suntimeswidget.SuntimesUtils.TimeDisplayText;
 
@@ -49,9 +50,9 @@ public class SunLayout_2x1_0 extends SunLayout
     public void prepareForUpdate(Context context, int appWidgetID, SuntimesRiseSetData data)
     {
         super.prepareForUpdate(context, appWidgetID, data);
-        order = WidgetSettings.loadRiseSetOrderPref(context, appWidgetID);
+        order = WidgetSettingsSnapshot.get(context, appWidgetID).riseSetOrder;
 
-        int position = scaleBase ? 0 : WidgetSettings.loadWidgetGravityPref(context, appWidgetID);
+        int position = scaleBase ? 0 : WidgetSettingsSnapshot.get(context, appWidgetID).gravity;
         this.layoutID = chooseLayout(position, data);
         //this.layoutID = (scaleBase
         //        ? chooseSunLayout(R.layout.layout_widget_2x1_0_align_fill, R.layout.layout_widget_2x1_01_align_fill, data, order)
@@ -76,9 +77,9 @@ public class SunLayout_2x1_0 extends SunLayout
 
     protected float[] findAdjustedSize(Context context, int appWidgetId)
     {
-        boolean showSolarNoon = WidgetSettings.loadShowNoonPref(context, appWidgetId);
-        boolean showSeconds = WidgetSettings.loadShowSecondsPref(context, appWidgetId);
-        boolean showDayDelta = WidgetSettings.loadShowComparePref(context, appWidgetId);
+        boolean showSolarNoon = WidgetSettingsSnapshot.get(context, appWidgetId).showNoon;
+        boolean showSeconds = WidgetSettingsSnapshot.get(context, appWidgetId).showSeconds;
+        boolean showDayDelta = WidgetSettingsSnapshot.get(context, appWidgetId).showCompare;
         int numRows = 1, numCols = 2;
         numRows += showSolarNoon ? 1 : 0;
         numRows += showDayDelta ? 1 : 0;
@@ -150,14 +151,14 @@ public class SunLayout_2x1_0 extends SunLayout
     {
         super.updateViews(context, appWidgetId, views, data);
 
-        boolean showSolarNoon = WidgetSettings.loadShowNoonPref(context, appWidgetId);
-        boolean showSeconds = WidgetSettings.loadShowSecondsPref(context, appWidgetId);
-        boolean showDayDelta = WidgetSettings.loadShowComparePref(context, appWidgetId);
-        WidgetSettings.TimeFormatMode timeFormat = WidgetSettings.loadTimeFormatModePref(context, appWidgetId);
+        boolean showSolarNoon = WidgetSettingsSnapshot.get(context, appWidgetId).showNoon;
+        boolean showSeconds = WidgetSettingsSnapshot.get(context, appWidgetId).showSeconds;
+        boolean showDayDelta = WidgetSettingsSnapshot.get(context, appWidgetId).showCompare;
+        WidgetSettings.TimeFormatMode timeFormat = WidgetSettingsSnapshot.get(context, appWidgetId).timeFormatMode;
 
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN)
         {
-            if (WidgetSettings.loadScaleTextPref(context, appWidgetId)) {
+            if (WidgetSettingsSnapshot.get(context, appWidgetId).scaleText) {
                 scaleViews(context, appWidgetId, views, findAdjustedSize(context, appWidgetId));
             }
         }
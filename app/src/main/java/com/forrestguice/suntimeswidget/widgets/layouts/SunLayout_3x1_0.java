@@ -28,6 +28,7 @@ import com.forrestguice.suntimeswidget.R;
 import com.forrestguice.suntimeswidget.SuntimesUtils;
 import com.forrestguice.suntimeswidget.calculator.SuntimesRiseSetData;
 import com.forrestguice.suntimeswidget.settings.WidgetSettings;
+import com.forrestguice.suntimeswidget.settings.WidgetSettingsSnapshot;
 
 public class SunLayout_3x1_0 extends SunLayout_2x1_0
 {
@@ -56,9 +57,9 @@ public class SunLayout_3x1_0 extends SunLayout_2x1_0
     @Override
     protected float[] findAdjustedSize(Context context, int appWidgetId)
     {
-        boolean showSolarNoon = WidgetSettings.loadShowNoonPref(context, appWidgetId);
-        boolean showSeconds = WidgetSettings.loadShowSecondsPref(context, appWidgetId);
-        boolean showDayDelta = WidgetSettings.loadShowComparePref(context, appWidgetId);
+        boolean showSolarNoon = WidgetSettingsSnapshot.get(context, appWidgetId).showNoon;
+        boolean showSeconds = WidgetSettingsSnapshot.get(context, appWidgetId).showSeconds;
+        boolean showDayDelta = WidgetSettingsSnapshot.get(context, appWidgetId).showCompare;
         int numRows = 1, numCols = 2;
         numRows += showDayDelta ? 1 : 0;
         numRows += showSolarNoon ? 1 : 0;
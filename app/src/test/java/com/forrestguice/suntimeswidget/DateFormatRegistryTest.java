@@ -0,0 +1,250 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.SimpleTimeZone;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DateFormatRegistryTest
+{
+    public static final String[] PATTERNS = new String[] { "HH:mm", "HH:mm:ss", "h:mm", "h:mm:ss", "a", "h:mm a", "E", "EEEE", "yyyy", "MMM d", "MMMM d", "MMMM d, yyyy", "MMMM d, yyyy, h:mm:ss\u00A0a" };
+    public static final Locale[] LOCALES = new Locale[] { Locale.US, Locale.GERMANY, Locale.JAPAN, new Locale("nb", "NO"), new Locale("in", "ID") };
+
+    public static TimeZone[] timezones()
+    {
+        return new TimeZone[] { TimeZone.getTimeZone("UTC"), TimeZone.getTimeZone("America/New_York"), TimeZone.getTimeZone("Asia/Kolkata"),
+                TimeZone.getTimeZone("Australia/Lord_Howe"), TimeZone.getTimeZone("Pacific/Chatham"), TimeZone.getTimeZone("Pacific/Kiritimati"),
+                new SimpleTimeZone(-(7 * 60 * 60 * 1000) - (27 * 60 * 1000) - 45 * 1000, "LMT") };    // e.g. local mean time (offset in seconds)
+    }
+
+    public static long[] times()
+    {
+        Random random = new Random(1234);
+        long[] times = new long[500];
+        times[0] = 0;
+        times[1] = -1;
+        times[2] = 1710054000000L;    // DST transition (US)
+        times[3] = 1710053999999L;
+        for (int i=4; i<times.length; i++) {
+            times[i] = (long)((random.nextDouble() - 0.25) * 4000000000000L);    // ~1938 to ~2064
+        }
+        return times;
+    }
+
+    @Test
+    public void test_format24Hr()
+    {
+        for (TimeZone timezone : timezones())
+        {
+            SimpleDateFormat format0 = new SimpleDateFormat("HH:mm", Locale.US);
+            SimpleDateFormat format1 = new SimpleDateFormat("HH:mm:ss", Locale.US);
+            format0.setTimeZone(timezone);
+            format1.setTimeZone(timezone);
+
+            for (long millis : times())
+            {
+                Date date = new Date(millis);
+                assertEquals(timezone.getID() + " @ " + millis, format0.format(date), DateFormatRegistry.format24Hr(millis, timezone, false));
+                assertEquals(timezone.getID() + " @ " + millis, format1.format(date), DateFormatRegistry.format24Hr(millis, timezone, true));
+            }
+        }
+    }
+
+    @Test
+    public void test_format()
+    {
+        for (Locale locale : LOCALES)
+        {
+            for (TimeZone timezone : timezones())
+            {
+                for (String pattern : PATTERNS)
+                {
+                    SimpleDateFormat format = new SimpleDateFormat(pattern, locale);
+                    format.setTimeZone(timezone);
+                    for (long millis : times())
+                    {
+                        Date date = new Date(millis);
+                        assertEquals(pattern + " " + locale + " " + timezone.getID() + " @ " + millis, format.format(date), DateFormatRegistry.format(pattern, locale, timezone, date));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_getFormat()
+    {
+        TimeZone timezone0 = TimeZone.getTimeZone("America/New_York");
+        TimeZone timezone1 = TimeZone.getTimeZone("Asia/Kolkata");
+
+        SimpleDateFormat format0 = DateFormatRegistry.getFormat("MMMM d, yyyy", Locale.US, timezone0);
+        assertEquals(timezone0, format0.getTimeZone());
+        SimpleDateFormat format1 = DateFormatRegistry.getFormat("MMMM d, yyyy", Locale.US, timezone1);
+        assertSame(format0, format1);    // same thread, same pattern and locale
+        assertEquals(timezone1, format1.getTimeZone());    // timezone applied on use
+
+        assertNotSame(format0, DateFormatRegistry.getFormat("MMMM d, yyyy", Locale.GERMANY, timezone0));
+        assertNotSame(format0, DateFormatRegistry.getFormat("MMM d, yyyy", Locale.US, timezone0));
+
+        DateFormatRegistry.invalidate();
+        assertNotSame(format0, DateFormatRegistry.getFormat("MMMM d, yyyy", Locale.US, timezone0));
+    }
+
+    @Test
+    public void test_getFormat_threadConfined() throws InterruptedException
+    {
+        final SimpleDateFormat format0 = DateFormatRegistry.getFormat("MMMM d, yyyy", Locale.US, TimeZone.getDefault());
+        final List<SimpleDateFormat> formats = new ArrayList<>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                formats.add(DateFormatRegistry.getFormat("MMMM d, yyyy", Locale.US, TimeZone.getDefault()));
+            }
+        });
+        thread.start();
+        thread.join();
+        assertEquals(1, formats.size());
+        assertNotSame(format0, formats.get(0));
+    }
+
+    @Test
+    public void test_format_concurrent() throws InterruptedException
+    {
+        final TimeZone[] timezones = timezones();
+        final long[] times = times();
+        final List<String> failures = new ArrayList<>();
+
+        Thread[] threads = new Thread[4];
+        for (int t=0; t<threads.length; t++)
+        {
+            final TimeZone timezone = timezones[t];
+            threads[t] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    SimpleDateFormat expected = new SimpleDateFormat("MMMM d, yyyy, h:mm:ss a", Locale.US);
+                    expected.setTimeZone(timezone);
+                    for (int i=0; i<20; i++)
+                    {
+                        for (long millis : times)
+                        {
+                            Date date = new Date(millis);
+                            String value = DateFormatRegistry.format("MMMM d, yyyy, h:mm:ss a", Locale.US, timezone, date);
+                            if (!value.equals(expected.format(date))) {
+                                synchronized (failures) {
+                                    failures.add(timezone.getID() + " @ " + millis + ": " + value);
+                                }
+                            }
+                        }
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(failures.toString(), failures.isEmpty());
+    }
+
+    @Test
+    public void test_format_allocations()
+    {
+        DateFormatRegistry.invalidate();
+        TimeZone timezone = TimeZone.getTimeZone("America/New_York");
+        String[] patterns = new String[] { "h:mm", "a", "MMMM d", "EEEE" };
+
+        long count0 = DateFormatRegistry.getCreateCount();
+        for (int i=0; i<1000; i++)
+        {
+            Date date = new Date(i * 60 * 60 * 1000L);
+            for (String pattern : patterns) {
+                DateFormatRegistry.format(pattern, Locale.US, timezone, date);
+            }
+            DateFormatRegistry.format("HH:mm", Locale.US, timezone, date);    // fast path
+        }
+        assertEquals(patterns.length, DateFormatRegistry.getCreateCount() - count0);    // one per pattern (instead of one per call)
+    }
+
+    @Test
+    public void test_hasAsciiDigits()
+    {
+        assertTrue(DateFormatRegistry.hasAsciiDigits(Locale.US));
+        assertTrue(DateFormatRegistry.hasAsciiDigits(Locale.GERMANY));
+        assertFalse(DateFormatRegistry.hasAsciiDigits(Locale.forLanguageTag("th-TH-u-nu-thai")));
+    }
+
+    @Test
+    @Category(UnlistedTest.class)
+    public void test_format_benchmark()
+    {
+        TimeZone timezone = TimeZone.getTimeZone("America/New_York");
+        long[] times = times();
+        int n = 50;
+
+        long t0 = 0, t1 = 0, t2 = 0;
+        for (int i=0; i<n; i++)
+        {
+            for (long millis : times)
+            {
+                Date date = new Date(millis);
+                long bench_start = System.nanoTime();
+                SimpleDateFormat format = new SimpleDateFormat("HH:mm", Locale.US);    // previously (most formats)
+                format.setTimeZone(timezone);
+                String value0 = format.format(date);
+                t0 += System.nanoTime() - bench_start;
+
+                bench_start = System.nanoTime();
+                String value1 = DateFormatRegistry.getFormat("HH:mm", Locale.US, timezone).format(date);
+                t1 += System.nanoTime() - bench_start;
+
+                bench_start = System.nanoTime();
+                String value2 = DateFormatRegistry.format("HH:mm", Locale.US, timezone, date);
+                t2 += System.nanoTime() - bench_start;
+
+                assertEquals(value0, value1);
+                assertEquals(value0, value2);
+            }
+        }
+        int numFormatted = n * times.length;
+        System.out.println("new SimpleDateFormat: " + (t0 / numFormatted) + "ns");
+        System.out.println("cached SimpleDateFormat: " + (t1 / numFormatted) + "ns");
+        System.out.println("HH:mm: " + (t2 / numFormatted) + "ns");
+        assertTrue(t1 < t0);
+        assertTrue(t2 < t1);
+    }
+}
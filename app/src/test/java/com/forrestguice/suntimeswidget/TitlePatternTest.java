@@ -0,0 +1,282 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget;
+
+import com.forrestguice.suntimeswidget.settings.SolarEvents;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TitlePatternTest
+{
+    public static final String[] DATA_PATTERNS = new String[] { "%loc", "%lat", "%lon", "%lel", "%eot_m", "%eot", "%t", "%s", "%id", "%dt", "%dT", "%dd", "%dD", "%dY", "%dm", "%d", "%%" };
+    public static final String[] MODE_PATTERNS = new String[] { "%m", "%M", "%o", "%i" };
+    public static final SolarEvents[] RISESET_EVENTS = new SolarEvents[] { SolarEvents.SUNRISE, SolarEvents.NOON, SolarEvents.SUNSET };
+    public static final int[] KINDS = new int[] { TitlePattern.KIND_DATA, TitlePattern.KIND_RISESET, TitlePattern.KIND_MOON, TitlePattern.KIND_EQUINOX, TitlePattern.KIND_CLOCK, TitlePattern.KIND_DATASET };
+
+    /**
+     * @return a corpus of title patterns; every token, tokens that share a prefix, adjacent tokens, escapes, and unknown tokens
+     */
+    public static List<String> corpus()
+    {
+        List<String> corpus = new ArrayList<>();
+        corpus.add("");
+        corpus.add("plain text");
+        corpus.add("%");
+        corpus.add("100%");
+        corpus.add("%%");
+        corpus.add("%%%");
+        corpus.add("%%%%");
+        corpus.add("%x %q %e %l");
+        corpus.add("%loc [%lat, %lon] %lel m");
+        corpus.add("%eot_m %eot %eot_");
+        corpus.add("%t (%s) #%id");
+        corpus.add("%dt %dT %dd %dD %dY %dm %d");
+        corpus.add("%dYY %ddd %d%d %dday %d%%");
+        corpus.add("%%d %%loc %%M %%%m %%eot");
+        corpus.add("%M %m %o %i %id %ii");
+        corpus.add("%m%M%o%i%Mo");
+        corpus.add("%l%loc%lo%lon");
+        corpus.add("%s%sr %ss %t%tt");
+        corpus.add("%M @ %loc (%dD, %d) %%");
+
+        StringBuilder all = new StringBuilder();
+        for (String pattern : DATA_PATTERNS) {
+            all.append(pattern);
+        }
+        for (String pattern : MODE_PATTERNS) {
+            all.append(pattern);
+        }
+        corpus.add(all.toString());
+
+        StringBuilder events = new StringBuilder();
+        for (SolarEvents event : SuntimesUtils.getRiseSetDatasetEvents()) {
+            for (String pattern : eventPatterns(event)) {
+                events.append(pattern).append(" ");
+            }
+        }
+        corpus.add(events.toString());
+        corpus.add("%em@sr%et@ss%eT@sn%eA@sr%eZ@ss%eD@sn%eR@sr");
+        corpus.add("%et@sr - %et@ss (%eA@sn) %em@%et@ %eT@xx %%et@sr");
+        corpus.add("%et@b4r %et@b8s %et@gr %eA@cs %eZ@ar %eR@ns");
+        corpus.add(all.toString() + " " + events.toString());
+        return corpus;
+    }
+
+    @Test
+    public void test_compile_matchesReplaceAll()
+    {
+        for (int kind : KINDS)
+        {
+            for (boolean nullData : new boolean[] { false, true })
+            {
+                for (String pattern : corpus())
+                {
+                    String expected = legacyReplace(pattern, kind, nullData);
+                    String actual = TitlePattern.compile(pattern, kind, nullData).render(new TestResolver(nullData));
+                    assertEquals("kind " + kind + ", nullData " + nullData + ", pattern \"" + pattern + "\"", expected, actual);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_compile_tokens()
+    {
+        assertEquals(0, TitlePattern.compile("", TitlePattern.KIND_DATA, false).numTokens());
+        assertEquals(0, TitlePattern.compile("%%", TitlePattern.KIND_DATA, false).numTokens());    // literal %
+        assertEquals(1, TitlePattern.compile("%eot_m", TitlePattern.KIND_DATA, false).numTokens());
+        assertEquals(0, TitlePattern.compile("%eot_m", TitlePattern.KIND_DATA, true).numTokens());    // left as is (without data)
+        assertEquals(2, TitlePattern.compile("%dY%d", TitlePattern.KIND_DATA, false).numTokens());
+        assertEquals(0, TitlePattern.compile("%M%m%o", TitlePattern.KIND_DATA, false).numTokens());
+        assertEquals(3, TitlePattern.compile("%M%m%o", TitlePattern.KIND_RISESET, false).numTokens());
+        assertEquals(2, TitlePattern.compile("%M%m%o", TitlePattern.KIND_CLOCK, false).numTokens());
+        assertEquals(4, TitlePattern.compile("%M%m%o%i", TitlePattern.KIND_MOON, false).numTokens());
+        assertEquals(3, TitlePattern.compile("%et@sr %et@gr %et@ss", TitlePattern.KIND_DATASET, false).numTokens());
+        assertEquals(2, TitlePattern.compile("%et@sr %et@gr %et@ss", TitlePattern.KIND_RISESET, false).numTokens());
+    }
+
+    @Test
+    public void test_compile_cached()
+    {
+        TitlePattern.clearCache();
+        TitlePattern p0 = TitlePattern.compile("%M @ %loc", TitlePattern.KIND_RISESET, false);
+        assertSame(p0, TitlePattern.compile("%M @ %loc", TitlePattern.KIND_RISESET, false));
+        assertTrue(p0 != TitlePattern.compile("%M @ %loc", TitlePattern.KIND_RISESET, true));
+        assertTrue(p0 != TitlePattern.compile("%M @ %loc", TitlePattern.KIND_MOON, false));
+
+        for (int i=0; i<=TitlePattern.MAX_CACHE_SIZE; i++) {
+            TitlePattern.compile("%M @ %loc " + i, TitlePattern.KIND_RISESET, false);
+        }
+        assertTrue(p0 != TitlePattern.compile("%M @ %loc", TitlePattern.KIND_RISESET, false));    // evicted
+    }
+
+    @Test
+    @Category(UnlistedTest.class)
+    public void test_render_benchmark()
+    {
+        String[] patterns = new String[] { "%M @ %loc", "%loc (%dD, %d)", "%et@sr - %et@ss (%eA@sn) %%", "%m %o %t" };
+        TestResolver resolver = new TestResolver(false);
+        int n = 20000;
+
+        long t0 = 0, t1 = 0;
+        for (int i=0; i<n; i++)
+        {
+            for (String pattern : patterns)
+            {
+                long bench_start = System.nanoTime();
+                String value0 = legacyReplace(pattern, TitlePattern.KIND_RISESET, false);
+                t0 += System.nanoTime() - bench_start;
+
+                bench_start = System.nanoTime();
+                String value1 = TitlePattern.compile(pattern, TitlePattern.KIND_RISESET, false).render(resolver);
+                t1 += System.nanoTime() - bench_start;
+                assertEquals(value0, value1);
+            }
+        }
+        int numRendered = n * patterns.length;
+        System.out.println("replaceAll: " + (t0 / numRendered) + "ns per title");
+        System.out.println("compiled: " + (t1 / numRendered) + "ns per title");
+        assertTrue(t1 < t0);
+    }
+
+    /**
+     * Substitutes "<token>" for each token (or "" without data).
+     */
+    public static class TestResolver implements TitlePattern.Resolver
+    {
+        private final boolean nullData;
+        public TestResolver(boolean nullData) {
+            this.nullData = nullData;
+        }
+
+        @Override
+        public void append(StringBuilder out, TitlePattern.Token token)
+        {
+            if (!nullData) {
+                out.append(value(token.pattern));
+            }
+        }
+    }
+
+    public static String value(String pattern) {
+        return "<" + pattern.substring(1) + ">";
+    }
+
+    /**
+     * The substitutions previously made by SuntimesUtils.displayStringForTitlePattern (using String.replaceAll).
+     */
+    public static String legacyReplace(String titlePattern, int kind, boolean nullData)
+    {
+        String displayString = titlePattern;
+        switch (kind)
+        {
+            case TitlePattern.KIND_DATASET:
+                for (SolarEvents event : SuntimesUtils.getRiseSetDatasetEvents()) {
+                    displayString = legacyReplaceEvent(displayString, event, nullData);
+                }
+                return legacyReplace(displayString, TitlePattern.KIND_RISESET, nullData);
+
+            case TitlePattern.KIND_RISESET:
+                displayString = legacyReplaceData(displayString, nullData);
+                displayString = legacyReplaceModes(displayString, new String[] { "%m", "%M", "%o" }, nullData);
+                for (SolarEvents event : RISESET_EVENTS) {
+                    displayString = legacyReplaceEvent(displayString, event, nullData);
+                }
+                return displayString;
+
+            case TitlePattern.KIND_MOON:
+                return legacyReplaceModes(legacyReplaceData(displayString, nullData), new String[] { "%m", "%M", "%o", "%i" }, nullData);
+
+            case TitlePattern.KIND_EQUINOX:
+                return legacyReplaceModes(legacyReplaceData(displayString, nullData), new String[] { "%m", "%M", "%o" }, nullData);
+
+            case TitlePattern.KIND_CLOCK:
+                return legacyReplaceModes(legacyReplaceData(displayString, nullData), new String[] { "%m", "%M" }, nullData);
+
+            case TitlePattern.KIND_DATA:
+            default:
+                return legacyReplaceData(displayString, nullData);
+        }
+    }
+
+    private static String legacyReplaceData(String displayString, boolean nullData)
+    {
+        if (nullData)
+        {
+            String[] patterns = new String[] { "%loc", "%lat", "%lon", "%lel", "%t", "%s", "%id", "%dt", "%dT", "%dd", "%dD", "%dY", "%dm", "%d", "%%" };
+            for (String pattern : patterns) {
+                displayString = displayString.replaceAll(pattern, "");
+            }
+            return displayString;
+        }
+
+        displayString = displayString.replaceAll("%loc", value("%loc"));
+        displayString = displayString.replaceAll("%lat", value("%lat"));
+        displayString = displayString.replaceAll("%lon", value("%lon"));
+        if (displayString.contains("%lel")) {
+            displayString = displayString.replaceAll("%lel", value("%lel"));
+        }
+        if (displayString.contains("%eot") || displayString.contains("%eot_m")) {
+            displayString = displayString.replaceAll("%eot_m", value("%eot_m"));
+            displayString = displayString.replaceAll("%eot", value("%eot"));
+        }
+        displayString = displayString.replaceAll("%t", value("%t"));
+        displayString = displayString.replaceAll("%s", value("%s"));
+        displayString = displayString.replaceAll("%id", value("%id"));
+        if (displayString.contains("%d"))
+        {
+            String[] patterns = new String[] { "%dt", "%dT", "%dd", "%dD", "%dY", "%dm", "%d" };
+            for (String pattern : patterns) {
+                displayString = displayString.replaceAll(pattern, value(pattern));
+            }
+        }
+        return displayString.replaceAll("%%", "%");
+    }
+
+    private static String legacyReplaceModes(String displayString, String[] patterns, boolean nullData)
+    {
+        for (String pattern : patterns) {
+            displayString = displayString.replaceAll(pattern, (nullData ? "" : value(pattern)));
+        }
+        return displayString;
+    }
+
+    private static String legacyReplaceEvent(String displayString, SolarEvents event, boolean nullData)
+    {
+        for (String pattern : eventPatterns(event)) {
+            displayString = displayString.replaceAll(pattern, (nullData ? "" : value(pattern)));
+        }
+        return displayString;
+    }
+
+    private static String[] eventPatterns(SolarEvents event)
+    {
+        return new String[] { SuntimesUtils.getPatternForEvent_em(event), SuntimesUtils.getPatternForEvent_et(event), SuntimesUtils.getPatternForEvent_eT(event),
+                SuntimesUtils.getPatternForEvent_eA(event), SuntimesUtils.getPatternForEvent_eZ(event), SuntimesUtils.getPatternForEvent_eD(event),
+                SuntimesUtils.getPatternForEvent_eR(event) };
+    }
+}
@@ -0,0 +1,75 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.alarmclock;
+
+import com.forrestguice.suntimeswidget.calculator.core.Location;
+import com.forrestguice.suntimeswidget.settings.SolarEvents;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+
+public class AlarmRescheduleTaskTest0
+{
+    @Test
+    public void test_calculationKey()
+    {
+        AlarmClockItem item0 = createItem(SolarEvents.SUNRISE.name(), new Location("Tromso", "69.65", "18.96", "0"), 0);
+        AlarmClockItem item1 = createItem(SolarEvents.SUNRISE.name(), new Location("Tromso", "69.65", "18.96", "0"), 0);
+        item1.rowID = 2;
+        item1.label = "other";
+        assertEquals(AlarmRescheduleTask.calculationKey(item0), AlarmRescheduleTask.calculationKey(item1));    // shares a calculation
+
+        AlarmClockItem item2 = createItem(SolarEvents.SUNSET.name(), new Location("Tromso", "69.65", "18.96", "0"), 0);
+        AlarmClockItem item3 = createItem(SolarEvents.SUNRISE.name(), new Location("Phoenix", "33.45", "-111.94", "1263"), 0);
+        AlarmClockItem item4 = createItem(SolarEvents.SUNRISE.name(), new Location("Tromso", "69.65", "18.96", "0"), -5 * 60 * 1000);
+        AlarmClockItem item5 = createItem(SolarEvents.SUNRISE.name(), new Location("Tromso", "69.65", "18.96", "0"), 0);
+        item5.repeatingDays = new ArrayList<>(Arrays.asList(1, 7));
+        for (AlarmClockItem item : new AlarmClockItem[] { item2, item3, item4, item5 }) {
+            assertFalse(AlarmRescheduleTask.calculationKey(item0).equals(AlarmRescheduleTask.calculationKey(item)));
+        }
+
+        AlarmClockItem clock0 = createItem(null, null, 0);    // "clock time" alarms depend on hour and minute
+        AlarmClockItem clock1 = createItem(null, null, 0);
+        clock1.hour = 7;
+        assertFalse(AlarmRescheduleTask.calculationKey(clock0).equals(AlarmRescheduleTask.calculationKey(clock1)));
+        clock1.hour = clock0.hour;
+        assertEquals(AlarmRescheduleTask.calculationKey(clock0), AlarmRescheduleTask.calculationKey(clock1));
+    }
+
+    private static AlarmClockItem createItem(String event, Location location, long offset)
+    {
+        AlarmClockItem item = new AlarmClockItem();
+        item.rowID = 1;
+        item.type = AlarmClockItem.AlarmType.ALARM;
+        item.enabled = true;
+        item.repeating = true;
+        item.repeatingDays = AlarmClockItem.everyday();
+        item.location = location;
+        item.setEvent(event);
+        item.hour = 6;
+        item.minute = 30;
+        item.offset = offset;
+        return item;
+    }
+}
@@ -0,0 +1,121 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.alarmclock;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SunElevationDaySearchTest
+{
+    public static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    public static final double TROMSO = 69.65;
+
+    @Test
+    public void test_declination()
+    {
+        assertEquals(23.44, SunElevationDaySearch.declination(getCalendar(2024, Calendar.JUNE, 20, 20, 51).getTimeInMillis()), 0.02);        // solstice
+        assertEquals(-23.44, SunElevationDaySearch.declination(getCalendar(2024, Calendar.DECEMBER, 21, 9, 20).getTimeInMillis()), 0.02);
+        assertEquals(0, SunElevationDaySearch.declination(getCalendar(2024, Calendar.MARCH, 20, 3, 6).getTimeInMillis()), 0.02);             // equinox
+        assertEquals(0, SunElevationDaySearch.declination(getCalendar(2024, Calendar.SEPTEMBER, 22, 12, 44).getTimeInMillis()), 0.02);
+    }
+
+    @Test
+    public void test_isReachable()
+    {
+        double margin = SunElevationDaySearch.MARGIN;
+        long december = getCalendar(2024, Calendar.DECEMBER, 21, 12, 0).getTimeInMillis();
+        long june = getCalendar(2024, Calendar.JUNE, 21, 12, 0).getTimeInMillis();
+        long march = getCalendar(2024, Calendar.MARCH, 21, 12, 0).getTimeInMillis();
+
+        assertFalse(SunElevationDaySearch.isReachable(TROMSO, -0.833, december, margin));    // polar night
+        assertTrue(SunElevationDaySearch.isReachable(TROMSO, -6, december, margin));          // civil twilight still occurs
+        assertFalse(SunElevationDaySearch.isReachable(TROMSO, -0.833, june, margin));        // midnight sun
+        assertFalse(SunElevationDaySearch.isReachable(TROMSO, -12, june, margin));
+        assertTrue(SunElevationDaySearch.isReachable(TROMSO, -0.833, march, margin));
+
+        assertTrue(SunElevationDaySearch.isReachable(35, -18, june, margin));
+        assertFalse(SunElevationDaySearch.isReachable(35, 80, june, margin));                // above the noon elevation (78.4)
+        assertTrue(SunElevationDaySearch.isReachable(35, 78, june, margin));
+    }
+
+    @Test
+    public void test_advanceToCandidate()
+    {
+        Calendar day = getCalendar(2024, Calendar.DECEMBER, 10, 12, 0);    // polar night (ends mid january)
+        int skipped = SunElevationDaySearch.advanceToCandidate(day, UTC, TROMSO, -0.833, SunElevationDaySearch.MARGIN, null, SunElevationDaySearch.MAX_SEARCH_DAYS);
+        assertTrue("skipped " + skipped, skipped > 20 && skipped < 40);
+        assertEquals(2025, day.get(Calendar.YEAR));
+        assertEquals(Calendar.JANUARY, day.get(Calendar.MONTH));
+
+        Calendar day1 = getCalendar(2024, Calendar.DECEMBER, 10, 12, 0);
+        ArrayList<Integer> saturdays = new ArrayList<>(Arrays.asList(Calendar.SATURDAY));
+        int skipped1 = SunElevationDaySearch.advanceToCandidate(day1, UTC, TROMSO, -0.833, SunElevationDaySearch.MARGIN, saturdays, SunElevationDaySearch.MAX_SEARCH_DAYS);
+        assertTrue(skipped1 >= skipped && skipped1 < skipped + 7);
+        assertTrue(SunElevationDaySearch.isNearRepeatingDay(day1, saturdays));    // friday, saturday, or sunday
+
+        Calendar day2 = getCalendar(2024, Calendar.JUNE, 1, 12, 0);        // every day (noon)
+        assertEquals(0, SunElevationDaySearch.advanceToCandidate(day2, UTC, TROMSO, null, SunElevationDaySearch.MARGIN, null, SunElevationDaySearch.MAX_SEARCH_DAYS));
+
+        Calendar day3 = getCalendar(2024, Calendar.JUNE, 1, 12, 0);        // never reached
+        assertEquals(-1, SunElevationDaySearch.advanceToCandidate(day3, UTC, TROMSO, 60d, SunElevationDaySearch.MARGIN, null, SunElevationDaySearch.MAX_SEARCH_DAYS));
+        assertEquals(-1, SunElevationDaySearch.advanceToCandidate(day3, UTC, TROMSO, 0d, SunElevationDaySearch.MARGIN, new ArrayList<Integer>(), 10));
+    }
+
+    @Test
+    public void test_advanceToCandidate_offsetCrossesMidnight()
+    {
+        ArrayList<Integer> saturdays = new ArrayList<>(Arrays.asList(Calendar.SATURDAY));
+        Calendar friday = getCalendar(2024, Calendar.MARCH, 15, 12, 0);
+        assertEquals(Calendar.FRIDAY, friday.get(Calendar.DAY_OF_WEEK));
+        assertEquals(0, SunElevationDaySearch.advanceToCandidate(friday, UTC, 35, -6d, SunElevationDaySearch.MARGIN, saturdays, SunElevationDaySearch.MAX_SEARCH_DAYS));    // friday's sunset (+ offset) may fall on saturday
+
+        Calendar sunday = getCalendar(2024, Calendar.MARCH, 17, 12, 0);
+        assertEquals(0, SunElevationDaySearch.advanceToCandidate(sunday, UTC, 35, -6d, SunElevationDaySearch.MARGIN, saturdays, SunElevationDaySearch.MAX_SEARCH_DAYS));    // sunday's sunrise (- offset) may fall on saturday
+
+        Calendar monday = getCalendar(2024, Calendar.MARCH, 18, 12, 0);
+        assertEquals(4, SunElevationDaySearch.advanceToCandidate(monday, UTC, 35, -6d, SunElevationDaySearch.MARGIN, saturdays, SunElevationDaySearch.MAX_SEARCH_DAYS));
+        assertEquals(Calendar.FRIDAY, monday.get(Calendar.DAY_OF_WEEK));
+    }
+
+    @Test
+    public void test_isNearRepeatingDay()
+    {
+        Calendar sunday = getCalendar(2024, Calendar.MARCH, 17, 12, 0);
+        assertTrue(SunElevationDaySearch.isNearRepeatingDay(sunday, Arrays.asList(Calendar.SATURDAY)));
+        assertTrue(SunElevationDaySearch.isNearRepeatingDay(sunday, Arrays.asList(Calendar.SUNDAY)));
+        assertTrue(SunElevationDaySearch.isNearRepeatingDay(sunday, Arrays.asList(Calendar.MONDAY)));
+        assertFalse(SunElevationDaySearch.isNearRepeatingDay(sunday, Arrays.asList(Calendar.TUESDAY, Calendar.WEDNESDAY, Calendar.THURSDAY, Calendar.FRIDAY)));
+    }
+
+    private static Calendar getCalendar(int year, int month, int day, int hour, int minute)
+    {
+        Calendar calendar = Calendar.getInstance(UTC);
+        calendar.set(year, month, day, hour, minute, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar;
+    }
+}
@@ -0,0 +1,286 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.calculator;
+
+import com.forrestguice.suntimeswidget.UnlistedTest;
+import com.forrestguice.suntimeswidget.calculator.core.Location;
+import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator;
+import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator2;
+import com.forrestguice.suntimeswidget.calculator.time4a.Time4ANOAASuntimesCalculator;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RenderEphemerisTest
+{
+    public static final Location[] TEST_LOCATIONS = new Location[] {
+            new Location("Phoenix", "33.45579", "-111.9485", "360"),
+            new Location("Equator", "0", "0"),
+            new Location("Wellington", "-41.2865", "174.7762"),
+            new Location("Tromso", "69.6492", "18.9553"),
+            new Location("McMurdo", "-77.846", "166.676"),
+    };
+
+    public static final long START_MILLIS = -631152000000L;    // 1950-01-01
+    public static final long END_MILLIS = 2524608000000L;      // 2050-01-01
+
+    public static long[] times(int n)
+    {
+        Random random = new Random(1950);
+        long[] times = new long[n];
+        for (int i=0; i<n; i++) {
+            times[i] = START_MILLIS + (long)(random.nextDouble() * (END_MILLIS - START_MILLIS));
+        }
+        return times;
+    }
+
+    protected static SuntimesCalculator calculator(Location location)
+    {
+        SuntimesCalculator calculator = new Time4ANOAASuntimesCalculator();
+        calculator.init(location, TimeZone.getTimeZone("UTC"));
+        return calculator;
+    }
+
+    @Test
+    public void test_equatorial()
+    {
+        double[] out = new double[3];
+        double jd = 2448724.5;    // 1992 April 12 (Meeus, example 47.a)
+        RenderEphemeris.moonEquatorial(jd, RenderEphemeris.obliquity(jd), out);
+        assertEquals(134.688470, out[RenderEphemeris.RIGHT_ASCENSION], 0.05);
+        assertEquals(13.768368, out[RenderEphemeris.DECLINATION], 0.05);
+        assertEquals(368409.7, out[RenderEphemeris.DISTANCE], 100);
+
+        jd = 2448908.5;    // 1992 October 13 (Meeus, example 25.a)
+        RenderEphemeris.sunEquatorial(jd, RenderEphemeris.obliquity(jd), out);
+        assertEquals(198.378178, out[RenderEphemeris.RIGHT_ASCENSION], 0.01);
+        assertEquals(-7.783871, out[RenderEphemeris.DECLINATION], 0.01);
+
+        assertEquals(197.693195, RenderEphemeris.siderealTime(2446895.5), 0.0001);    // 1987 April 10 (Meeus, example 12.a)
+    }
+
+    @Test
+    public void test_refraction()
+    {
+        assertEquals(0, RenderEphemeris.refraction(-6), 0);
+        assertEquals(0, RenderEphemeris.refraction(90), 0);
+        assertEquals(0.48, RenderEphemeris.refraction(0), 0.01);
+        assertEquals(0.06, RenderEphemeris.refraction(15), 0.01);
+
+        double elevation0 = -10;    // apparent elevation increases with true elevation
+        for (double elevation = -10; elevation < 90; elevation += 0.1)
+        {
+            double apparent = elevation + RenderEphemeris.refraction(elevation);
+            assertTrue("elevation " + elevation, apparent >= elevation0);
+            elevation0 = apparent;
+        }
+    }
+
+    @Test
+    public void test_sunPosition_error()
+    {
+        long[] times = times(2000);
+        for (Location location : TEST_LOCATIONS) {
+            sunPositionError(location, times);
+        }
+    }
+
+    @Test
+    public void test_moonPosition_error()
+    {
+        long[] times = times(2000);
+        for (Location location : TEST_LOCATIONS) {
+            moonPositionError(location, times);
+        }
+    }
+
+    @Test
+    @Category(UnlistedTest.class)
+    public void test_positions_error_report()
+    {
+        long[] times = times(2000);
+        for (Location location : TEST_LOCATIONS)
+        {
+            System.out.println("sun: " + location.getLabel() + ": max error " + sunPositionError(location, times));
+            System.out.println("moon: " + location.getLabel() + ": max error " + moonPositionError(location, times));
+        }
+    }
+
+    /**
+     * @return max angular error (degrees) of the render sun position (vs Time4A); asserts the error is within MAX_ERROR_SUN
+     */
+    protected static double sunPositionError(Location location, long[] times)
+    {
+        double[] expected = new double[SuntimesCalculator2.NUM_POSITION_VALUES];
+        double[] actual = new double[SuntimesCalculator2.NUM_POSITION_VALUES];
+        SuntimesCalculator2 calculator = (SuntimesCalculator2) calculator(location);
+        SuntimesCalculator2 render = RenderSuntimesCalculator.of((SuntimesCalculator) calculator);
+        assertTrue(render instanceof RenderSuntimesCalculator);
+
+        double maxError = 0;
+        for (long millis : times)
+        {
+            String tag = location.getLabel() + " @ " + millis;
+            assertTrue(calculator.sunPosition(millis, expected));
+            assertTrue(render.sunPosition(millis, actual));
+            assertEquals(tag, 0, angularSeparation(expected[SuntimesCalculator2.POSITION_RIGHT_ASCENSION], expected[SuntimesCalculator2.POSITION_DECLINATION],
+                    actual[SuntimesCalculator2.POSITION_RIGHT_ASCENSION], actual[SuntimesCalculator2.POSITION_DECLINATION]), RenderEphemeris.MAX_ERROR_SUN);
+            maxError = Math.max(maxError, assertHorizontal(tag, expected, actual, RenderEphemeris.MAX_ERROR_SUN));
+        }
+        return maxError;
+    }
+
+    /**
+     * @return max angular error (degrees) of the render moon position (vs Time4A); asserts the error is within MAX_ERROR_MOON
+     */
+    protected static double moonPositionError(Location location, long[] times)
+    {
+        double[] expected = new double[SuntimesCalculator2.NUM_POSITION_VALUES];
+        double[] actual = new double[SuntimesCalculator2.NUM_POSITION_VALUES];
+        SuntimesCalculator2 calculator = (SuntimesCalculator2) calculator(location);
+        SuntimesCalculator2 render = RenderSuntimesCalculator.of((SuntimesCalculator) calculator);
+
+        double maxError = 0;
+        for (long millis : times)
+        {
+            String tag = location.getLabel() + " @ " + millis;
+            assertTrue(calculator.moonPosition(millis, expected));
+            assertTrue(render.moonPosition(millis, actual));
+            assertEquals(tag, expected[SuntimesCalculator2.POSITION_DISTANCE], actual[SuntimesCalculator2.POSITION_DISTANCE], RenderEphemeris.MAX_ERROR_MOON_DISTANCE);
+            maxError = Math.max(maxError, assertHorizontal(tag, expected, actual, RenderEphemeris.MAX_ERROR_MOON));
+        }
+        return maxError;
+    }
+
+    /**
+     * @return angular error (degrees) if the expected elevation is above ELEVATION_MIN, otherwise 0
+     */
+    protected static double assertHorizontal(String tag, double[] expected, double[] actual, double maxError)
+    {
+        double elevation = expected[SuntimesCalculator2.POSITION_ELEVATION];
+        assertEquals(tag, elevation, actual[SuntimesCalculator2.POSITION_ELEVATION], RenderEphemeris.MAX_ERROR_HORIZON);
+        if (elevation >= RenderEphemeris.ELEVATION_MIN)
+        {
+            double error = angularSeparation(expected[SuntimesCalculator2.POSITION_AZIMUTH], elevation, actual[SuntimesCalculator2.POSITION_AZIMUTH], actual[SuntimesCalculator2.POSITION_ELEVATION]);
+            assertEquals(tag, 0, error, maxError);
+            return error;
+        }
+        return 0;
+    }
+
+    /**
+     * @return angle between two points (degrees); longitude/latitude (degrees)
+     */
+    protected static double angularSeparation(double lon0, double lat0, double lon1, double lat1)
+    {
+        double phi0 = Math.toRadians(lat0), phi1 = Math.toRadians(lat1);
+        double dPhi = phi1 - phi0, dLambda = Math.toRadians(lon1 - lon0);
+        double a = Math.pow(Math.sin(dPhi / 2), 2) + Math.cos(phi0) * Math.cos(phi1) * Math.pow(Math.sin(dLambda / 2), 2);
+        return Math.toDegrees(2 * Math.asin(Math.min(1, Math.sqrt(a))));
+    }
+
+    @Test
+    public void test_positions_batch()
+    {
+        SuntimesCalculator2 render = RenderSuntimesCalculator.of(calculator(TEST_LOCATIONS[0]));
+        long[] times = SuntimesCalculatorTest.batchTimes(1717264800000L, 2 * 24 * 12, 5 * 60 * 1000L);
+        double[] position = new double[SuntimesCalculator2.NUM_POSITION_VALUES];
+        double[] azimuth = new double[times.length], elevation = new double[times.length], distance = new double[times.length];
+
+        assertTrue(render.sunPositions(times, azimuth, elevation, null, null));
+        for (int i=0; i<times.length; i++)
+        {
+            render.sunPosition(times[i], position);
+            assertEquals(position[SuntimesCalculator2.POSITION_AZIMUTH], azimuth[i], 1e-6);
+            assertEquals(position[SuntimesCalculator2.POSITION_ELEVATION], elevation[i], 1e-6);
+        }
+
+        assertTrue(render.moonPositions(times, azimuth, elevation, null, null, distance));
+        for (int i=0; i<times.length; i++)
+        {
+            render.moonPosition(times[i], position);
+            assertEquals(position[SuntimesCalculator2.POSITION_AZIMUTH], azimuth[i], 1e-6);
+            assertEquals(position[SuntimesCalculator2.POSITION_ELEVATION], elevation[i], 1e-6);
+            assertEquals(position[SuntimesCalculator2.POSITION_DISTANCE], distance[i], 1e-3);
+        }
+        assertTrue(render.sunPositions(new long[0], null, null, null, null));
+    }
+
+    @Test
+    public void test_of()
+    {
+        SuntimesCalculator calculator0 = new com.forrestguice.suntimeswidget.calculator.sunrisesunset_java.SunriseSunsetSuntimesCalculator();
+        calculator0.init(TEST_LOCATIONS[0], TimeZone.getTimeZone("UTC"));
+        assertFalse(RenderSuntimesCalculator.of(calculator0) instanceof RenderSuntimesCalculator);    // no FEATURE_POSITION
+
+        SuntimesCalculator calculator1 = calculator(TEST_LOCATIONS[0]);
+        SuntimesCalculator2 render = RenderSuntimesCalculator.of(calculator1);
+        assertTrue(render instanceof RenderSuntimesCalculator);
+
+        long millis = 1717264800000L;    // events from the calculator
+        for (int event = 0; event < SuntimesCalculator2.NUM_SUN_EVENTS; event++) {
+            assertEquals(((SuntimesCalculator2) calculator1).sunEventMillis(millis, event), render.sunEventMillis(millis, event));
+        }
+        assertEquals(((SuntimesCalculator2) calculator1).moonIllumination(millis), render.moonIllumination(millis), 0);
+    }
+
+    @Test
+    @Category(UnlistedTest.class)
+    public void test_positions_benchmark()
+    {
+        SuntimesCalculator calculator = calculator(TEST_LOCATIONS[0]);
+        SuntimesCalculator2 calculator2 = (SuntimesCalculator2) calculator;
+        SuntimesCalculator2 render = RenderSuntimesCalculator.of(calculator);
+        long[] times = SuntimesCalculatorTest.batchTimes(1717264800000L, 2 * 24 * 60, 60 * 1000L);    // two days at 1 minute intervals
+        double[] elevation = new double[times.length];
+        int n = 5;
+
+        long t0 = 0, t1 = 0, t2 = 0, t3 = 0;
+        for (int j=0; j<n; j++)
+        {
+            long bench_start = System.nanoTime();
+            calculator2.sunPositions(times, null, elevation, null, null);
+            t0 += System.nanoTime() - bench_start;
+
+            bench_start = System.nanoTime();
+            render.sunPositions(times, null, elevation, null, null);
+            t1 += System.nanoTime() - bench_start;
+
+            bench_start = System.nanoTime();
+            calculator2.moonPositions(times, null, elevation, null, null, null);
+            t2 += System.nanoTime() - bench_start;
+
+            bench_start = System.nanoTime();
+            render.moonPositions(times, null, elevation, null, null, null);
+            t3 += System.nanoTime() - bench_start;
+        }
+        int numPositions = n * times.length;
+        System.out.println("sun: Time4A: " + (t0 / numPositions) + "ns, render: " + (t1 / numPositions) + "ns (per position)");
+        System.out.println("moon: Time4A: " + (t2 / numPositions) + "ns, render: " + (t3 / numPositions) + "ns (per position)");
+        assertTrue(t1 < t0);
+        assertTrue(t3 < t2);
+    }
+}
@@ -0,0 +1,270 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.calculator;
+
+import com.forrestguice.suntimeswidget.UnlistedTest;
+import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator2;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SunElevationSolverTest
+{
+    public static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+    public static final long START = 1700000000000L;
+    public static final long NOON = START + (DAY_MILLIS / 2);
+
+    @Test
+    public void test_findCrossings()
+    {
+        double latitude = 35, declination = 20;
+        SunElevationSolver solver = new SunElevationSolver(sunElevation(latitude, declination));
+        double[] angles = new double[] {-18, -12, -6, -0.833, 0, 6, 30};
+
+        for (double angle : angles)
+        {
+            List<SunElevationSolver.Crossing> crossings = solver.findCrossings(angle, START, START + DAY_MILLIS - 1);
+            assertEquals("angle " + angle, 2, crossings.size());
+            assertTrue(crossings.get(0).rising);
+            assertFalse(crossings.get(1).rising);
+
+            long halfDay = halfDayMillis(latitude, declination, angle);
+            assertEquals("angle " + angle, NOON - halfDay, crossings.get(0).millis, SunElevationSolver.DEFAULT_TOLERANCE_MILLIS);
+            assertEquals("angle " + angle, NOON + halfDay, crossings.get(1).millis, SunElevationSolver.DEFAULT_TOLERANCE_MILLIS);
+
+            Long setting = solver.findCrossing(angle, START, START + DAY_MILLIS - 1, false);
+            assertNotNull(setting);
+            assertEquals(crossings.get(1).millis, (long) setting);
+        }
+
+        assertTrue(solver.findCrossings(80, START, START + DAY_MILLIS - 1).isEmpty());    // never reached
+        assertNull(solver.findCrossing(-80, START, START + DAY_MILLIS - 1, true));
+    }
+
+    @Test
+    public void test_findCrossings_grazing()
+    {
+        double latitude = 35, declination = 20;
+        double maxElevation = 90 - latitude + declination;    // 75 at noon
+        SunElevationSolver solver = new SunElevationSolver(sunElevation(latitude, declination), 1000, 3 * 60 * 60 * 1000);    // noon falls between steps
+
+        List<SunElevationSolver.Crossing> crossings = solver.findCrossings(maxElevation - 0.5, START + (DAY_MILLIS / 4), START + DAY_MILLIS - 1);
+        assertEquals(2, crossings.size());    // reached for a short time around noon
+        long halfDay = halfDayMillis(latitude, declination, maxElevation - 0.5);
+        assertEquals(NOON - halfDay, crossings.get(0).millis, 1000);
+        assertEquals(NOON + halfDay, crossings.get(1).millis, 1000);
+
+        double polarLatitude = 70;                           // sun stays up (minimum 0.5 at midnight)
+        SunElevationSolver solver1 = new SunElevationSolver(sunElevation(polarLatitude, 20.5));
+        assertTrue(solver1.findCrossings(0, START, START + DAY_MILLIS - 1).isEmpty());
+        List<SunElevationSolver.Crossing> crossings1 = solver1.findCrossings(1, START - (DAY_MILLIS / 2), START + (DAY_MILLIS / 2));
+        assertEquals(2, crossings1.size());                  // dips below 1 around midnight
+        assertFalse(crossings1.get(0).rising);
+        assertTrue(crossings1.get(1).rising);
+    }
+
+    @Test
+    public void test_findCrossings_unsupported()
+    {
+        SunElevationSolver solver = new SunElevationSolver(new SunElevationSolver.ElevationFunction()
+        {
+            @Override
+            public double elevation(long millis) {
+                return Double.NaN;    // e.g. a calculator without FEATURE_POSITION
+            }
+        });
+        assertTrue(solver.findCrossings(0, START, START + DAY_MILLIS - 1).isEmpty());
+        assertNull(solver.findCrossing(-6, START, START + DAY_MILLIS - 1, null));
+    }
+
+    @Test
+    public void test_findCrossings_sharedSamples()
+    {
+        SunElevationSolver solver = new SunElevationSolver(sunElevation(35, 20));
+        solver.findCrossings(-6, START, START + DAY_MILLIS - 1);
+        int evaluations = solver.getEvaluations();
+
+        List<SunElevationSolver.Crossing> crossings = solver.findCrossings(-12, START, START + DAY_MILLIS - 1);    // same range; the samples are reused
+        assertEquals(2, crossings.size());
+        assertTrue(solver.getEvaluations() - evaluations < evaluations);
+        long halfDay = halfDayMillis(35, 20, -12);
+        assertEquals(NOON - halfDay, crossings.get(0).millis, SunElevationSolver.DEFAULT_TOLERANCE_MILLIS);
+        assertEquals(NOON + halfDay, crossings.get(1).millis, SunElevationSolver.DEFAULT_TOLERANCE_MILLIS);
+    }
+
+    @Test
+    @Category(UnlistedTest.class)
+    public void test_solver_benchmark()
+    {
+        double[] latitudes = new double[] {0, 35, 60, 66};
+        double[] angles = new double[] {-18, -12, -6, 0, 6};
+
+        for (double latitude : latitudes)
+        {
+            CountingFunction f0 = new CountingFunction(sunElevation(latitude, 20));
+            CountingFunction f1 = new CountingFunction(sunElevation(latitude, 20));
+            SunElevationSolver solver = new SunElevationSolver(f1, 30 * 1000, SunElevationSolver.DEFAULT_STEP_MILLIS);
+
+            long t0 = 0, t1 = 0, error0 = 0, error1 = 0;
+            for (int i=0; i<100; i++)
+            {
+                for (double angle : angles)
+                {
+                    if (angle <= (latitude + 20 - 90) || angle >= (90 - latitude + 20)) {
+                        continue;    // not reached (below the minimum, or above the maximum elevation)
+                    }
+                    long halfDay = halfDayMillis(latitude, 20, angle);
+                    long bench_start = System.nanoTime();
+                    Long rising0 = findMillis_bisection(angle, f0, START, NOON - 1, true);
+                    Long setting0 = findMillis_bisection(angle, f0, NOON + 1, START + DAY_MILLIS, false);
+                    t0 += System.nanoTime() - bench_start;
+
+                    bench_start = System.nanoTime();
+                    List<SunElevationSolver.Crossing> crossings = solver.findCrossings(angle, START, START + DAY_MILLIS);
+                    t1 += System.nanoTime() - bench_start;
+
+                    assertNotNull(rising0);
+                    assertNotNull(setting0);
+                    assertEquals(2, crossings.size());
+                    error0 = Math.max(error0, Math.max(Math.abs(rising0 - (NOON - halfDay)), Math.abs(setting0 - (NOON + halfDay))));
+                    error1 = Math.max(error1, Math.max(Math.abs(crossings.get(0).millis - (NOON - halfDay)), Math.abs(crossings.get(1).millis - (NOON + halfDay))));
+                }
+            }
+            System.out.println("SunElevationSolver :: latitude " + latitude + " :: bisection " + f0.count + " evaluations (" + (t0 / 1000000d) + " ms, error " + (error0 / 1000) + "s), "
+                    + "solver " + f1.count + " evaluations (" + (t1 / 1000000d) + " ms, error " + (error1 / 1000) + "s)");
+        }
+    }
+
+    /**
+     * the previous implementation of LineGraphView.findMillis (0.25 degree tolerance)
+     */
+    private static Long findMillis_bisection(double degrees, SunElevationSolver.ElevationFunction f, long minMillis, long maxMillis, boolean rising)
+    {
+        long midMillis = minMillis + ((maxMillis - minMillis) / 2L);
+        double elevation = f.elevation(midMillis);
+        if (Math.abs(elevation - degrees) < 0.25) {
+            return midMillis;
+        }
+        if (maxMillis - minMillis <= 1000) {
+            return null;
+        }
+        boolean below = (elevation < degrees);
+        if ((rising && below) || (!rising && !below)) {
+            return findMillis_bisection(degrees, f, midMillis + 1, maxMillis, rising);
+        } else return findMillis_bisection(degrees, f, minMillis, midMillis - 1, rising);
+    }
+
+    @Test
+    public void test_findEvent()
+    {
+        final double latitude = 35, declination = 20;
+        SunElevationSolver solver = new SunElevationSolver(sunElevation(latitude, declination));
+        SunElevationSolver.EventFunction events = new SunElevationSolver.EventFunction()
+        {
+            @Override
+            public long event(long dayMillis, double degrees, boolean rising)
+            {
+                if (degrees - 0.5 > 90 - latitude + declination) {
+                    return SuntimesCalculator2.NONE;
+                }
+                long halfDay = halfDayMillis(latitude, declination, degrees - 0.5);    // e.g. refraction (reached sooner)
+                return (rising ? NOON - halfDay : NOON + halfDay);
+            }
+        };
+
+        Long rising = solver.findEvent(events, -6, START, START + DAY_MILLIS - 1, true);    // refined with the event's root
+        Long setting = solver.findEvent(events, -6, START, START + DAY_MILLIS - 1, false);
+        assertNotNull(rising);
+        assertNotNull(setting);
+        assertEquals(events.event(START, -6, true), (long) rising);
+        assertEquals(events.event(START, -6, false), (long) setting);
+
+        double maxElevation = 90 - latitude + declination;
+        rising = solver.findEvent(events, maxElevation + 0.25, START, START + DAY_MILLIS - 1, true);    // only reached by the event
+        assertNotNull(rising);
+        assertEquals(events.event(START, maxElevation + 0.25, true), (long) rising);
+        assertNull(solver.findEvent(events, maxElevation + 1, START, START + DAY_MILLIS - 1, true));
+
+        SunElevationSolver.EventFunction none = new SunElevationSolver.EventFunction()
+        {
+            @Override
+            public long event(long dayMillis, double degrees, boolean rising) {
+                return SuntimesCalculator2.NONE;
+            }
+        };
+        assertEquals(solver.findCrossing(-6, START, START + DAY_MILLIS - 1, true), solver.findEvent(none, -6, START, START + DAY_MILLIS - 1, true));    // no root; the crossing is kept
+
+        long start = events.event(START, -6, true) + 1;    // root outside the range; the crossing is kept
+        assertNotNull(solver.findCrossing(-6, start, START + DAY_MILLIS - 1, true));
+        assertEquals(solver.findCrossing(-6, start, START + DAY_MILLIS - 1, true), solver.findEvent(events, -6, start, START + DAY_MILLIS - 1, true));
+    }
+
+    /**
+     * @return a simplified sun elevation curve (fixed declination, noon at NOON)
+     */
+    static SunElevationSolver.ElevationFunction sunElevation(double latitude, double declination)
+    {
+        final double sinLat = Math.sin(Math.toRadians(latitude)), cosLat = Math.cos(Math.toRadians(latitude));
+        final double sinDec = Math.sin(Math.toRadians(declination)), cosDec = Math.cos(Math.toRadians(declination));
+        return new SunElevationSolver.ElevationFunction()
+        {
+            @Override
+            public double elevation(long millis)
+            {
+                double hourAngle = 2 * Math.PI * (millis - NOON) / DAY_MILLIS;
+                return Math.toDegrees(Math.asin((sinLat * sinDec) + (cosLat * cosDec * Math.cos(hourAngle))));
+            }
+        };
+    }
+
+    /**
+     * @return millis from noon to the crossing (exact)
+     */
+    static long halfDayMillis(double latitude, double declination, double angle)
+    {
+        double radLat = Math.toRadians(latitude), radDec = Math.toRadians(declination);
+        double cosH = (Math.sin(Math.toRadians(angle)) - (Math.sin(radLat) * Math.sin(radDec))) / (Math.cos(radLat) * Math.cos(radDec));
+        return Math.round(Math.acos(cosH) / (2 * Math.PI) * DAY_MILLIS);
+    }
+
+    private static class CountingFunction implements SunElevationSolver.ElevationFunction
+    {
+        private final SunElevationSolver.ElevationFunction f;
+        public int count = 0;
+
+        public CountingFunction(SunElevationSolver.ElevationFunction f) {
+            this.f = f;
+        }
+
+        @Override
+        public double elevation(long millis)
+        {
+            count++;
+            return f.elevation(millis);
+        }
+    }
+}
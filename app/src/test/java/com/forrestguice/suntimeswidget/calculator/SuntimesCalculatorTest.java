@@ -20,13 +20,29 @@ package com.forrestguice.suntimeswidget.calculator;
 
 import android.content.Context;
 
+import com.forrestguice.suntimeswidget.UnlistedTest;
 import com.forrestguice.suntimeswidget.calculator.core.Location;
 import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator;
+import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator2;
+import com.forrestguice.suntimeswidget.calculator.time4a.Time4ANOAASuntimesCalculator;
+
+import net.time4j.Moment;
+import net.time4j.TemporalType;
+import net.time4j.calendar.astro.LunarTime;
+import net.time4j.tz.TZID;
+import net.time4j.tz.Timezone;
 
 import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Calendar;
 import java.util.TimeZone;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class SuntimesCalculatorTest
@@ -63,4 +79,426 @@ public class SuntimesCalculatorTest
         assertTrue("calculator name (" + calculator.name() + ") should match descriptor (" + descriptor.getName() + ")", calculator.name().equals(descriptor.getName()));
     }
 
+    @Test
+    public void test_pool()
+    {
+        SuntimesCalculatorPool pool = SuntimesCalculatorPool.getInstance();
+        pool.invalidate();
+        pool.resetCounts();
+
+        TimeZone timezone = TimeZone.getTimeZone("America/Phoenix");
+        SuntimesCalculatorDescriptor descriptor = com.forrestguice.suntimeswidget.calculator.time4a.Time4ANOAASuntimesCalculator.getDescriptor();
+        SuntimesCalculatorFactory factory = new SuntimesCalculatorFactory((Context)null, descriptor);
+
+        SuntimesCalculator calculator0 = factory.createCalculator(TEST_LOCATIONS[3], timezone);
+        SuntimesCalculator calculator1 = factory.createCalculator(new Location(TEST_LOCATIONS[3]), timezone);
+        assertSame(calculator0, calculator1);
+        assertEquals(1, pool.getHitCount());
+        assertEquals(1, pool.getMissCount());
+
+        SuntimesCalculator calculator2 = factory.createCalculator(TEST_LOCATIONS[1], timezone);    // different location
+        assertNotSame(calculator0, calculator2);
+        SuntimesCalculator calculator3 = factory.createCalculator(TEST_LOCATIONS[3], TimeZone.getTimeZone("UTC"));    // different timezone
+        assertNotSame(calculator0, calculator3);
+        assertEquals("UTC", calculator3.getTimeZone().getID());
+        assertEquals(3, pool.getMissCount());
+
+        pool.invalidate();
+        assertEquals(0, pool.size());
+        assertNotSame(calculator0, factory.createCalculator(TEST_LOCATIONS[3], timezone));
+    }
+
+    @Test
+    public void test_eventCache()
+    {
+        TimeZone timezone = TimeZone.getTimeZone("America/Phoenix");
+        SuntimesCalculator calculator0 = new com.forrestguice.suntimeswidget.calculator.time4a.Time4ANOAASuntimesCalculator();
+        calculator0.init(TEST_LOCATIONS[3], timezone);
+
+        SuntimesEventCache cache = new SuntimesEventCache(4);
+        SuntimesCalculator calculator1 = new CachingSuntimesCalculator(calculator0, cache);
+
+        Calendar date = Calendar.getInstance(timezone);
+        date.set(2024, 5, 21, 8, 0, 0);
+        Calendar sunrise0 = calculator0.getOfficialSunriseCalendarForDate(date);
+        Calendar sunrise1 = calculator1.getOfficialSunriseCalendarForDate(date);
+        assertEquals(sunrise0.getTimeInMillis(), sunrise1.getTimeInMillis());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        date.set(Calendar.HOUR_OF_DAY, 20);    // same day; later time
+        Calendar sunrise2 = calculator1.getOfficialSunriseCalendarForDate(date);
+        assertEquals(sunrise0.getTimeInMillis(), sunrise2.getTimeInMillis());
+        assertNotSame(sunrise1, sunrise2);
+        assertEquals(1, cache.getHitCount());
+
+        sunrise2.add(Calendar.DAY_OF_YEAR, 1);    // modifying a result doesn't modify the cache
+        assertEquals(sunrise0.getTimeInMillis(), calculator1.getOfficialSunriseCalendarForDate(date).getTimeInMillis());
+
+        date.add(Calendar.DAY_OF_YEAR, 1);    // next day
+        assertEquals(calculator0.getOfficialSunriseCalendarForDate(date).getTimeInMillis(), calculator1.getOfficialSunriseCalendarForDate(date).getTimeInMillis());
+
+        Calendar polarDate = Calendar.getInstance(timezone);
+        polarDate.set(2024, 5, 21, 12, 0, 0);
+        SuntimesCalculator polar0 = new com.forrestguice.suntimeswidget.calculator.time4a.Time4ANOAASuntimesCalculator();
+        polar0.init(new Location("polar", "80", "-112"), timezone);
+        SuntimesCalculator polar1 = new CachingSuntimesCalculator(polar0, cache);
+        assertNull(polar1.getAstronomicalSunriseCalendarForDate(polarDate));    // null results are cached too
+        assertNull(polar1.getAstronomicalSunriseCalendarForDate(polarDate));
+        assertEquals(3, cache.size());
+
+        for (int i=0; i<4; i++) {
+            date.add(Calendar.DAY_OF_YEAR, 1);
+            calculator1.getOfficialSunsetCalendarForDate(date);
+        }
+        assertEquals(4, cache.size());
+        assertEquals(3, cache.getEvictionCount());
+    }
+
+    @Test
+    public void test_dailyEvents_range()
+    {
+        TimeZone timezone = TimeZone.getTimeZone("America/Phoenix");
+        final SuntimesCalculator calculator = new com.forrestguice.suntimeswidget.calculator.time4a.Time4ANOAASuntimesCalculator();
+        calculator.init(TEST_LOCATIONS[3], timezone);
+
+        Calendar startDay = Calendar.getInstance(timezone);
+        startDay.set(2024, 0, 1, 12, 0, 0);
+        Calendar endDay = (Calendar) startDay.clone();
+        endDay.add(Calendar.DAY_OF_YEAR, 60);
+
+        final long[] expected = new long[SuntimesDailyEvents.NUM_SUN_EVENTS];
+        final int[] numRows = new int[] { 0 };
+        SuntimesDailyEvents.sunEventsForRange(calculator, startDay, endDay, new SuntimesDailyEvents.RangeCallback()
+        {
+            @Override
+            public boolean onRow(Calendar day, long[] values)
+            {
+                SuntimesDailyEvents.sunEventsForDate(calculator, day, expected);    // one event per call
+                for (int i=0; i<expected.length; i++) {
+                    assertEquals("event " + i + " should match", expected[i], values[i]);
+                }
+                numRows[0]++;
+                return true;
+            }
+        });
+        assertEquals(60, numRows[0]);
+    }
+
+    @Test
+    public void test_calculator2()
+    {
+        TimeZone timezone = TimeZone.getTimeZone("America/Phoenix");
+        SuntimesCalculator[] calculators = new SuntimesCalculator[] {
+                new com.forrestguice.suntimeswidget.calculator.sunrisesunset_java.SunriseSunsetSuntimesCalculator(),
+                new com.forrestguice.suntimeswidget.calculator.ca.rmen.sunrisesunset.SunriseSunsetSuntimesCalculator(),
+                new com.forrestguice.suntimeswidget.calculator.time4a.Time4ASimpleSuntimesCalculator(),
+                new com.forrestguice.suntimeswidget.calculator.time4a.Time4ANOAASuntimesCalculator(),
+                new com.forrestguice.suntimeswidget.calculator.time4a.Time4ACCSuntimesCalculator(),
+                new com.forrestguice.suntimeswidget.calculator.time4a.Time4A4JSuntimesCalculator()
+        };
+        for (SuntimesCalculator calculator : calculators)
+        {
+            calculator.init(TEST_LOCATIONS[3], timezone);
+            assertTrue(calculator.name(), calculator instanceof SuntimesCalculator2);
+            test_calculator2(calculator, (SuntimesCalculator2) calculator);
+            test_calculator2(calculator, new SuntimesCalculator2Adapter(calculator));
+
+            CachingSuntimesCalculator cachingCalculator = new CachingSuntimesCalculator(calculator, new SuntimesEventCache(64));
+            test_calculator2(calculator, cachingCalculator);
+            test_calculator2(cachingCalculator, cachingCalculator);    // second pass from cache
+        }
+    }
+
+    protected void test_calculator2(SuntimesCalculator calculator, SuntimesCalculator2 calculator2)
+    {
+        Calendar day = Calendar.getInstance(calculator.getTimeZone());
+        day.set(2024, 5, 1, 12, 0, 0);
+        long[] expected = new long[SuntimesDailyEvents.NUM_SUN_EVENTS];
+        long[] moonTimes = new long[SuntimesCalculator2.NUM_MOON_EVENTS];
+        double[] position = new double[SuntimesCalculator2.NUM_POSITION_VALUES];
+
+        for (int i=0; i<30; i++)
+        {
+            String tag = calculator.name() + " @ " + day.getTimeInMillis();
+            SuntimesDailyEvents.sunEventsForDate(calculator, day, expected);
+            for (int event=0; event<expected.length; event++) {
+                assertEquals(tag + " event " + event, expected[event], calculator2.sunEventMillis(day.getTimeInMillis(), event));
+            }
+            assertEquals(tag, SuntimesDailyEvents.toMillis(calculator.getSunriseCalendarForDate(day, -3)), calculator2.sunriseMillis(day.getTimeInMillis(), -3));
+            assertEquals(tag, SuntimesDailyEvents.toMillis(calculator.getSunsetCalendarForDate(day, -3)), calculator2.sunsetMillis(day.getTimeInMillis(), -3));
+            assertEquals(tag, calculator.isDay(day), calculator2.isDay(day.getTimeInMillis()));
+            assertEquals(tag, calculator.getMoonIlluminationForDate(day), calculator2.moonIllumination(day.getTimeInMillis()), 0);
+            assertEquals(tag, calculator.equationOfTime(day), calculator2.equationOfTime(day.getTimeInMillis()), 0);
+            assertEquals(tag, SuntimesDailyEvents.toMillis(calculator.getMoonPhaseNextDate(SuntimesCalculator.MoonPhase.FULL, day)), calculator2.moonPhaseNextMillis(SuntimesCalculator.MoonPhase.FULL, day.getTimeInMillis()));
+
+            SuntimesCalculator.MoonTimes moonTimes0 = calculator.getMoonTimesForDate(day);
+            assertEquals(tag, (moonTimes0 != null), calculator2.moonTimes(day.getTimeInMillis(), moonTimes));
+            if (moonTimes0 != null)
+            {
+                assertEquals(tag, SuntimesDailyEvents.toMillis(moonTimes0.riseTime), moonTimes[SuntimesCalculator2.MOON_RISE]);
+                assertEquals(tag, SuntimesDailyEvents.toMillis(moonTimes0.setTime), moonTimes[SuntimesCalculator2.MOON_SET]);
+            }
+
+            SuntimesCalculator.SunPosition sunPosition = calculator.getSunPosition(day);
+            assertEquals(tag, (sunPosition != null), calculator2.sunPosition(day.getTimeInMillis(), position));
+            if (sunPosition != null)
+            {
+                assertEquals(tag, sunPosition.azimuth, position[SuntimesCalculator2.POSITION_AZIMUTH], 0);
+                assertEquals(tag, sunPosition.elevation, position[SuntimesCalculator2.POSITION_ELEVATION], 0);
+                assertEquals(tag, sunPosition.rightAscension, position[SuntimesCalculator2.POSITION_RIGHT_ASCENSION], 0);
+                assertEquals(tag, sunPosition.declination, position[SuntimesCalculator2.POSITION_DECLINATION], 0);
+            }
+
+            SuntimesCalculator.MoonPosition moonPosition = calculator.getMoonPosition(day);
+            assertEquals(tag, (moonPosition != null), calculator2.moonPosition(day.getTimeInMillis(), position));
+            if (moonPosition != null)
+            {
+                assertEquals(tag, moonPosition.elevation, position[SuntimesCalculator2.POSITION_ELEVATION], 0);
+                assertEquals(tag, moonPosition.distance, position[SuntimesCalculator2.POSITION_DISTANCE], 0);
+            }
+            day.add(Calendar.DAY_OF_YEAR, 1);
+        }
+    }
+
+
+    @Test
+    public void test_positions_batch()
+    {
+        TimeZone timezone = TimeZone.getTimeZone("America/Phoenix");
+        long[] times = batchTimes(1717264800000L, 200, 7 * 60 * 1000L);
+        SuntimesCalculator[] calculators = new SuntimesCalculator[] {
+                new com.forrestguice.suntimeswidget.calculator.sunrisesunset_java.SunriseSunsetSuntimesCalculator(),
+                new com.forrestguice.suntimeswidget.calculator.ca.rmen.sunrisesunset.SunriseSunsetSuntimesCalculator(),
+                new com.forrestguice.suntimeswidget.calculator.time4a.Time4ASimpleSuntimesCalculator(),
+                new com.forrestguice.suntimeswidget.calculator.time4a.Time4ANOAASuntimesCalculator(),
+                new com.forrestguice.suntimeswidget.calculator.time4a.Time4ACCSuntimesCalculator(),
+                new com.forrestguice.suntimeswidget.calculator.time4a.Time4A4JSuntimesCalculator()
+        };
+        for (SuntimesCalculator calculator : calculators)
+        {
+            calculator.init(TEST_LOCATIONS[3], timezone);
+            test_positions_batch(calculator, (SuntimesCalculator2) calculator, times);
+            test_positions_batch(calculator, new SuntimesCalculator2Adapter(calculator), times);
+            test_positions_batch(calculator, new CachingSuntimesCalculator(calculator, new SuntimesEventCache(64)), times);
+        }
+    }
+
+    protected void test_positions_batch(SuntimesCalculator calculator, SuntimesCalculator2 calculator2, long[] times)
+    {
+        double[] position = new double[SuntimesCalculator2.NUM_POSITION_VALUES];
+        double[] azimuth = new double[times.length], elevation = new double[times.length];
+        double[] rightAscension = new double[times.length], declination = new double[times.length], distance = new double[times.length];
+
+        boolean supported = calculator2.sunPosition(times[0], position);
+        assertEquals(calculator.name(), supported, calculator2.sunPositions(times, azimuth, elevation, rightAscension, declination));
+        if (supported)
+        {
+            for (int i=0; i<times.length; i++)
+            {
+                String tag = calculator.name() + " @ " + times[i];
+                assertTrue(calculator2.sunPosition(times[i], position));
+                assertEquals(tag, position[SuntimesCalculator2.POSITION_AZIMUTH], azimuth[i], 0);
+                assertEquals(tag, position[SuntimesCalculator2.POSITION_ELEVATION], elevation[i], 0);
+                assertEquals(tag, position[SuntimesCalculator2.POSITION_RIGHT_ASCENSION], rightAscension[i], 0);
+                assertEquals(tag, position[SuntimesCalculator2.POSITION_DECLINATION], declination[i], 0);
+            }
+
+            double[] elevation1 = new double[times.length];    // only some of the values
+            assertTrue(calculator2.sunPositions(times, null, elevation1, null, null));
+            for (int i=0; i<times.length; i++) {
+                assertEquals(elevation[i], elevation1[i], 0);
+            }
+        }
+
+        supported = calculator2.moonPosition(times[0], position);
+        assertEquals(calculator.name(), supported, calculator2.moonPositions(times, azimuth, elevation, rightAscension, declination, distance));
+        if (supported)
+        {
+            for (int i=0; i<times.length; i++)
+            {
+                String tag = calculator.name() + " @ " + times[i];
+                assertTrue(calculator2.moonPosition(times[i], position));
+                assertEquals(tag, position[SuntimesCalculator2.POSITION_AZIMUTH], azimuth[i], 0);
+                assertEquals(tag, position[SuntimesCalculator2.POSITION_ELEVATION], elevation[i], 0);
+                assertEquals(tag, position[SuntimesCalculator2.POSITION_RIGHT_ASCENSION], rightAscension[i], 0);
+                assertEquals(tag, position[SuntimesCalculator2.POSITION_DECLINATION], declination[i], 0);
+                assertEquals(tag, position[SuntimesCalculator2.POSITION_DISTANCE], distance[i], 0);
+            }
+        }
+    }
+
+    protected static long[] batchTimes(long startMillis, int n, long stepMillis)
+    {
+        long[] times = new long[n];
+        for (int i=0; i<n; i++) {
+            times[i] = startMillis + (i * stepMillis);
+        }
+        return times;
+    }
+
+    @Test
+    @Category(UnlistedTest.class)
+    public void test_positions_batch_benchmark()
+    {
+        SuntimesCalculator calculator = new com.forrestguice.suntimeswidget.calculator.time4a.Time4ANOAASuntimesCalculator();
+        calculator.init(TEST_LOCATIONS[3], TimeZone.getTimeZone("America/Phoenix"));
+        SuntimesCalculator2[] calculators = new SuntimesCalculator2[] { (SuntimesCalculator2) calculator, new SuntimesCalculator2Adapter(calculator) };
+
+        long[] times = batchTimes(1717264800000L, 2 * 24 * 12, 5 * 60 * 1000L);    // two days at 5 minute intervals
+        double[] elevation = new double[times.length];
+        double[] position = new double[SuntimesCalculator2.NUM_POSITION_VALUES];
+        int n = 20;
+
+        for (SuntimesCalculator2 calculator2 : calculators)
+        {
+            long t0 = 0, t1 = 0, t2 = 0, t3 = 0;
+            for (int j=0; j<n; j++)
+            {
+                long bench_start = System.nanoTime();
+                for (int i=0; i<times.length; i++)
+                {
+                    calculator2.sunPosition(times[i], position);
+                    elevation[i] = position[SuntimesCalculator2.POSITION_ELEVATION];
+                }
+                t0 += System.nanoTime() - bench_start;
+
+                bench_start = System.nanoTime();
+                calculator2.sunPositions(times, null, elevation, null, null);
+                t1 += System.nanoTime() - bench_start;
+
+                bench_start = System.nanoTime();
+                for (int i=0; i<times.length; i++)
+                {
+                    calculator2.moonPosition(times[i], position);
+                    elevation[i] = position[SuntimesCalculator2.POSITION_ELEVATION];
+                }
+                t2 += System.nanoTime() - bench_start;
+
+                bench_start = System.nanoTime();
+                calculator2.moonPositions(times, null, elevation, null, null, null);
+                t3 += System.nanoTime() - bench_start;
+            }
+            int numPositions = n * times.length;
+            String name = calculator2.getClass().getSimpleName();
+            System.out.println(name + ": sunPosition: " + (t0 / numPositions) + "ns, sunPositions: " + (t1 / numPositions) + "ns (per position)");
+            System.out.println(name + ": moonPosition: " + (t2 / numPositions) + "ns, moonPositions: " + (t3 / numPositions) + "ns (per position)");
+        }
+    }
+
+    @Test
+    public void test_time4a_reinit()
+    {
+        TimeZone timezone0 = TimeZone.getTimeZone("America/Phoenix");
+        TimeZone timezone1 = TimeZone.getTimeZone("Asia/Tokyo");
+        Calendar day = Calendar.getInstance(timezone0);
+        day.set(2024, 5, 1, 12, 0, 0);
+
+        Time4ANOAASuntimesCalculator calculator = new Time4ANOAASuntimesCalculator();
+        for (Location location : new Location[] { TEST_LOCATIONS[3], TEST_LOCATIONS[1], TEST_LOCATIONS[4], TEST_LOCATIONS[3] })    // reused (same location), and replaced (new location)
+        {
+            for (TimeZone timezone : new TimeZone[] { timezone0, timezone1, timezone0 })
+            {
+                calculator.init(location, timezone);
+                Time4ANOAASuntimesCalculator expected = new Time4ANOAASuntimesCalculator();
+                expected.init(location, timezone);
+
+                String tag = location.getLabel() + " " + timezone.getID();
+                for (int event=0; event<SuntimesCalculator2.NUM_SUN_EVENTS; event++) {
+                    assertEquals(tag, expected.sunEventMillis(day.getTimeInMillis(), event), calculator.sunEventMillis(day.getTimeInMillis(), event));
+                }
+                assertEquals(tag, SuntimesDailyEvents.toMillis(expected.getSunriseCalendarForDate(day, 10)), SuntimesDailyEvents.toMillis(calculator.getSunriseCalendarForDate(day, 10)));
+                assertEquals(tag, expected.isDay(day), calculator.isDay(day));
+                assertEquals(tag, SuntimesDailyEvents.toMillis(expected.getMoonTimesForDate(day).riseTime), SuntimesDailyEvents.toMillis(calculator.getMoonTimesForDate(day).riseTime));
+                assertEquals(tag, SuntimesDailyEvents.toMillis(expected.getMoonTimesForDate(day).setTime), SuntimesDailyEvents.toMillis(calculator.getMoonTimesForDate(day).setTime));
+            }
+        }
+    }
+
+    @Test
+    public void test_time4a_moonTimes_zones()
+    {
+        Time4ANOAASuntimesCalculator calculator = new Time4ANOAASuntimesCalculator();
+        calculator.init(TEST_LOCATIONS[3], TimeZone.getTimeZone("America/Phoenix"));
+        Time4ANOAASuntimesCalculator.clearTimezoneCache();
+
+        for (String tzID : new String[] { "America/Phoenix", "UTC", "Asia/Tokyo", "Europe/London", "America/Denver", "America/Phoenix" })    // more zones than MAX_ZONES
+        {
+            TimeZone timezone = TimeZone.getTimeZone(tzID);
+            Calendar day = Calendar.getInstance(timezone);
+            day.set(2024, 5, 1, 12, 0, 0);
+            for (int i=0; i<10; i++)
+            {
+                long[] expected = uncachedMoonTimes(calculator, day);
+                SuntimesCalculator.MoonTimes moonTimes = calculator.getMoonTimesForDate(day);
+                assertEquals(tzID, expected[SuntimesCalculator2.MOON_RISE], SuntimesDailyEvents.toMillis(moonTimes.riseTime));
+                assertEquals(tzID, expected[SuntimesCalculator2.MOON_SET], SuntimesDailyEvents.toMillis(moonTimes.setTime));
+                day.add(Calendar.DAY_OF_YEAR, 1);
+            }
+        }
+    }
+
+    /**
+     * moonrise and moonset (the Time4J objects are created for each call)
+     */
+    protected static long[] uncachedMoonTimes(SuntimesCalculator calculator, Calendar day)
+    {
+        Location location = calculator.getLocation();
+        TZID tzid = Timezone.of("java.util.TimeZone~" + day.getTimeZone().getID(), Timezone.ofPlatform().getID()).getID();
+        LunarTime lunarTime = LunarTime.ofLocation(tzid, location.getLatitudeAsDouble(), location.getLongitudeAsDouble(), location.getAltitudeAsInteger());
+        Moment moment = TemporalType.MILLIS_SINCE_UNIX.translate(day.getTimeInMillis());
+        LunarTime.Moonlight moonlight = lunarTime.on(moment.toZonalTimestamp(tzid).toDate());
+        Moment rise = moonlight.moonrise(), set = moonlight.moonset();
+        return new long[] { (rise != null ? TemporalType.MILLIS_SINCE_UNIX.from(rise) : SuntimesDailyEvents.NONE),
+                            (set != null ? TemporalType.MILLIS_SINCE_UNIX.from(set) : SuntimesDailyEvents.NONE) };
+    }
+
+    @Test
+    @Category(UnlistedTest.class)
+    public void test_time4a_moonTimes_benchmark()
+    {
+        TimeZone timezone = TimeZone.getTimeZone("America/Phoenix");
+        Time4ANOAASuntimesCalculator calculator = new Time4ANOAASuntimesCalculator();
+        calculator.init(TEST_LOCATIONS[3], timezone);
+        Calendar start = Calendar.getInstance(timezone);
+        start.set(2024, 0, 1, 12, 0, 0);
+        int numDays = 366;
+
+        long t0 = 0, t1 = 0, t2 = 0;
+        long[] values = new long[SuntimesCalculator2.NUM_MOON_EVENTS];
+        for (int j=0; j<3; j++)
+        {
+            Calendar day = (Calendar) start.clone();
+            for (int i=0; i<numDays; i++)
+            {
+                long bench_start = System.nanoTime();
+                long[] expected = uncachedMoonTimes(calculator, day);    // previously (per call)
+                t0 += System.nanoTime() - bench_start;
+
+                bench_start = System.nanoTime();
+                SuntimesCalculator.MoonTimes moonTimes = calculator.getMoonTimesForDate(day);
+                t1 += System.nanoTime() - bench_start;
+
+                bench_start = System.nanoTime();
+                calculator.moonTimes(day.getTimeInMillis(), values);
+                t2 += System.nanoTime() - bench_start;
+
+                assertEquals(expected[SuntimesCalculator2.MOON_RISE], SuntimesDailyEvents.toMillis(moonTimes.riseTime));
+                assertEquals(expected[SuntimesCalculator2.MOON_RISE], values[SuntimesCalculator2.MOON_RISE]);
+                day.add(Calendar.DAY_OF_YEAR, 1);
+            }
+        }
+        int n = 3 * numDays;
+        System.out.println("moonTimes: uncached: " + (t0 / n) + "ns, getMoonTimesForDate: " + (t1 / n) + "ns, moonTimes: " + (t2 / n) + "ns (per day)");
+
+        Calendar day = (Calendar) start.clone();
+        long bench_start = System.nanoTime();
+        for (int i=0; i<numDays; i++) {
+            calculator.getCivilSunriseCalendarForDate(day);
+            day.add(Calendar.DAY_OF_YEAR, 1);
+        }
+        System.out.println("getCivilSunriseCalendarForDate: " + ((System.nanoTime() - bench_start) / numDays) + "ns (per day)");
+        assertTrue(t1 < t0);
+    }
+
 }
@@ -19,9 +19,13 @@
 package com.forrestguice.suntimeswidget.calculator.core;
 
 import org.junit.Test;
+
+import java.util.HashSet;
+
 import static junit.framework.Assert.assertEquals;
 import static junit.framework.Assert.assertFalse;
 import static junit.framework.Assert.assertTrue;
+import static junit.framework.Assert.fail;
 
 @SuppressWarnings("ConstantConditions")
 public class LocationTest0
@@ -101,6 +105,60 @@ public class LocationTest0
         test_equals(location0, location2);
     }
 
+    @Test public void test_location_invalid()
+    {
+        Location loc0 = new Location("test", "invalid", "", "invalid");
+        assertEquals(0d, loc0.getAltitudeAsDouble());
+        try {
+            loc0.getLatitudeAsDouble();
+            fail("NumberFormatException expected");
+        } catch (NumberFormatException e) { /* EMPTY */ }
+        try {
+            loc0.getLongitudeAsDouble();
+            fail("NumberFormatException expected");
+        } catch (NumberFormatException e) { /* EMPTY */ }
+        try {
+            loc0.getCoordinateKey();
+            fail("NumberFormatException expected");
+        } catch (NumberFormatException e) { /* EMPTY */ }
+    }
+
+    @Test public void test_location_hashCode()
+    {
+        Location location0 = new Location("test", "1.5", "2.5", "3");
+        Location location1 = new Location("test", "1.5", "2.5", "3");
+        assertEquals(location0, location1);
+        assertEquals(location0.hashCode(), location1.hashCode());
+
+        location1.setUseAltitude(false);
+        assertEquals(location0, location1);    // useAltitude isn't part of equals
+        assertEquals(location0.hashCode(), location1.hashCode());
+    }
+
+    @Test public void test_location_coordinateKey()
+    {
+        Location location0 = new Location("test", "1.5", "2.5", "3");
+        assertEquals(location0.getCoordinateKey(), new Location("other", "1.50001", "2.49999", "3.1").getCoordinateKey());    // label ignored, rounded
+        assertEquals(location0.getCoordinateKey(), new Location(location0).getCoordinateKey());
+
+        assertFalse(location0.getCoordinateKey() == new Location("test", "1.5001", "2.5", "3").getCoordinateKey());
+        assertFalse(location0.getCoordinateKey() == new Location("test", "1.5", "2.5001", "3").getCoordinateKey());
+        assertFalse(location0.getCoordinateKey() == new Location("test", "1.5", "2.5", "4").getCoordinateKey());
+        assertFalse(location0.getCoordinateKey() == new Location("test", "2.5", "1.5", "3").getCoordinateKey());
+
+        Location location1 = new Location("test", "1.5", "2.5", "3");
+        location1.setUseAltitude(false);
+        assertFalse(location0.getCoordinateKey() == location1.getCoordinateKey());
+        assertEquals(new Location("test", "1.5", "2.5", "0").getCoordinateKey(), location1.getCoordinateKey());
+
+        String[][] extremes = new String[][] { {"90", "-180", "-1000000000"}, {"-90", "179.99999", "1000000000"}, {"-90", "-180", "-1000000000"}, {"90", "179.99999", "1000000000"}, {"0", "0", "0"} };
+        HashSet<Long> keys = new HashSet<>();
+        for (String[] values : extremes) {
+            keys.add(new Location(null, values[0], values[1], values[2]).getCoordinateKey());
+        }
+        assertEquals(extremes.length, keys.size());    // no overlap between packed fields
+    }
+
     public static void test_equals(Location location0, Location location)
     {
         assertEquals(location0.getLatitude(), location.getLatitude());
@@ -0,0 +1,215 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.cards;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CardDataLoaderTest
+{
+    private ExecutorService background;
+    private ArrayList<Runnable> callbacks;       // callbacks are queued here, and run by the test (as the "main" thread)
+    private HashMap<Integer, String> loaded;
+    private CardDataLoader<String> loader;
+
+    @Before
+    public void setUp()
+    {
+        background = Executors.newSingleThreadExecutor();
+        callbacks = new ArrayList<>();
+        loaded = new HashMap<>();
+        loader = new CardDataLoader<>(background, new Executor()
+        {
+            @Override
+            public void execute(Runnable command)
+            {
+                synchronized (callbacks) {
+                    callbacks.add(command);
+                }
+            }
+        }, new CardDataLoader.LoadListener<String>()
+        {
+            @Override
+            public void onLoaded(int position, String data) {
+                loaded.put(position, data);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        background.shutdownNow();
+    }
+
+    @Test
+    public void test_request()
+    {
+        AtomicInteger count = new AtomicInteger(0);
+        loader.request(1, task("one", count, null));
+        loader.request(1, task("one", count, null));    // already pending; ignored
+        loader.request(2, task("two", count, null));
+        assertTrue(loader.isPending(1));
+        assertTrue(loader.isPending(2));
+        assertEquals(2, loader.numPending());
+
+        runCallbacks();
+        assertEquals(2, count.get());
+        assertEquals("one", loaded.get(1));
+        assertEquals("two", loaded.get(2));
+        assertFalse(loader.isPending(1));
+        assertFalse(loader.isPending(2));
+        assertEquals(0, loader.numPending());
+    }
+
+    @Test
+    public void test_cancel()
+    {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger count = new AtomicInteger(0);
+        loader.request(1, task("one", count, latch));    // blocks the executor until released
+        loader.request(2, task("two", count, null));
+        loader.request(3, task("three", count, null));
+
+        loader.cancel(2);
+        assertFalse(loader.isPending(2));
+        latch.countDown();
+        runCallbacks();
+
+        assertEquals("one", loaded.get(1));
+        assertFalse(loaded.containsKey(2));
+        assertEquals("three", loaded.get(3));
+        assertEquals(2, count.get());
+    }
+
+    @Test
+    public void test_retain()
+    {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger count = new AtomicInteger(0);
+        loader.request(0, task("zero", count, latch));
+        for (int i=1; i<=10; i++) {
+            loader.request(i, task("" + i, count, null));
+        }
+        assertEquals(11, loader.numPending());
+
+        loader.retain(4, 6);
+        assertEquals(3, loader.numPending());
+        latch.countDown();
+        runCallbacks();
+
+        assertEquals(3, loaded.size());
+        assertTrue(loaded.containsKey(4) && loaded.containsKey(5) && loaded.containsKey(6));
+        assertEquals(0, loader.numPending());
+    }
+
+    @Test
+    public void test_cancelAll()
+    {
+        AtomicInteger count = new AtomicInteger(0);
+        loader.request(1, task("one", count, null));
+        awaitBackground();
+        assertEquals(1, count.get());    // loaded, but not yet delivered
+
+        loader.cancelAll();
+        assertEquals(0, loader.numPending());
+        runCallbacks();
+        assertTrue(loaded.isEmpty());    // discarded
+
+        loader.request(1, task("one again", count, null));
+        runCallbacks();
+        assertEquals("one again", loaded.get(1));
+    }
+
+    @Test
+    public void test_requestAfterCancel()
+    {
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger count = new AtomicInteger(0);
+        loader.request(0, task("zero", count, latch));
+        loader.request(1, task("one", count, null));
+        loader.cancel(1);
+        loader.request(1, task("one again", count, null));    // requested again after scrolling back
+        latch.countDown();
+        runCallbacks();
+
+        assertEquals("one again", loaded.get(1));
+        assertEquals(2, count.get());
+    }
+
+    protected static CardDataLoader.LoadTask<String> task(final String value, final AtomicInteger count, final CountDownLatch latch)
+    {
+        return new CardDataLoader.LoadTask<String>()
+        {
+            @Override
+            public String load()
+            {
+                if (latch != null)
+                {
+                    try {
+                        latch.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                count.incrementAndGet();
+                return value;
+            }
+        };
+    }
+
+    protected void awaitBackground()
+    {
+        try {
+            background.submit(new Runnable() {
+                @Override
+                public void run() {}
+            }).get(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    protected void runCallbacks()
+    {
+        awaitBackground();
+        ArrayList<Runnable> pending;
+        synchronized (callbacks)
+        {
+            pending = new ArrayList<>(callbacks);
+            callbacks.clear();
+        }
+        for (Runnable callback : pending) {
+            callback.run();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.graph;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ElevationPathSamplerTest
+{
+    public static final int MINUTES_IN_DAY = 24 * 60;
+    public static final long START = 1700000000000L;
+
+    /**
+     * a sun-like elevation curve (degrees); noon at 12:10, 50 degree amplitude, 15 degree offset
+     */
+    public static class TestFunction implements ElevationPathSampler.ElevationFunction
+    {
+        public int calls = 0;
+
+        @Override
+        public double elevation(long millis)
+        {
+            calls++;
+            double minutes = (millis - START) / (double) ElevationPathSampler.MILLIS_IN_MINUTE;
+            return 15 + 50 * Math.cos(2 * Math.PI * (minutes - 730) / MINUTES_IN_DAY);
+        }
+    }
+
+    @Test
+    public void test_samplePath()
+    {
+        for (int interval : new int[] {1, 5, 7})
+        {
+            TestFunction f = new TestFunction();
+            ElevationPathSampler.ElevationPath path = ElevationPathSampler.samplePath(f, START, 2 * MINUTES_IN_DAY, interval);
+            assertTrue("fewer calls than per-interval stepping: " + f.calls, f.calls < (2 * MINUTES_IN_DAY / interval));
+            if (interval == 1) {
+                assertTrue("far fewer calls at 1 minute intervals: " + f.calls, f.calls < (2 * MINUTES_IN_DAY) / 4);
+            }
+            assertEquals(0, path.minutes[0], 0);
+            assertEquals(((2 * MINUTES_IN_DAY - 1) / interval) * interval, path.minutes[path.count - 1], 0);
+
+            for (int i=1; i<path.count; i++)
+            {
+                assertTrue(path.minutes[i] > path.minutes[i-1]);
+                assertEquals(0, path.minutes[i] % interval, 0);    // samples are on the interval grid
+            }
+
+            for (int m = 0; m < 2 * MINUTES_IN_DAY; m += interval)    // linear interpolation stays close to the curve
+            {
+                double expected = f.elevation(START + m * ElevationPathSampler.MILLIS_IN_MINUTE);
+                assertEquals("minute " + m, expected, interpolate(path, m), 0.25);
+            }
+            assertEquals(horizonCrossings(f, interval), horizonCrossings(path));    // same crossings as per-interval stepping
+        }
+    }
+
+    /**
+     * the same curve, with the coarse samples taken in batches
+     */
+    public static class TestBatchFunction extends TestFunction implements ElevationPathSampler.ElevationBatchFunction
+    {
+        public int batchCalls = 0, batchSize = 0;
+
+        @Override
+        public void elevations(long[] millis, double[] out)
+        {
+            batchCalls++;
+            batchSize += millis.length;
+            for (int i=0; i<millis.length; i++) {
+                out[i] = elevation(millis[i]);
+            }
+            calls -= millis.length;
+        }
+    }
+
+    @Test
+    public void test_samplePath_batch()
+    {
+        for (int interval : new int[] {1, 5, 7, 60, 90})
+        {
+            TestFunction f0 = new TestFunction();
+            TestBatchFunction f1 = new TestBatchFunction();
+            ElevationPathSampler.ElevationPath path0 = ElevationPathSampler.samplePath(f0, START, 2 * MINUTES_IN_DAY, interval);
+            ElevationPathSampler.ElevationPath path1 = ElevationPathSampler.samplePath(f1, START, 2 * MINUTES_IN_DAY, interval);
+
+            assertEquals(1, f1.batchCalls);    // coarse samples in one call
+            assertEquals(f0.calls, f1.calls + f1.batchSize);
+            assertEquals(path0.count, path1.count);    // same samples either way
+            for (int i=0; i<path0.count; i++)
+            {
+                assertEquals(path0.minutes[i], path1.minutes[i], 0);
+                assertEquals(path0.elevations[i], path1.elevations[i], 0);
+            }
+        }
+
+        TestBatchFunction f = new TestBatchFunction();
+        ElevationPathSampler.ElevationPath path = ElevationPathSampler.samplePath(f, START, 1, 1);    // single sample
+        assertEquals(1, path.count);
+        assertEquals(1, f.batchSize);
+    }
+
+    @Test
+    public void test_getPath_cached()
+    {
+        ElevationPathSampler.clearCache();
+        TestFunction f = new TestFunction();
+        ElevationPathSampler.ElevationPath path0 = ElevationPathSampler.getPath("test:" + START, f, START, 2 * MINUTES_IN_DAY, 1);
+        int calls = f.calls;
+
+        ElevationPathSampler.ElevationPath path1 = ElevationPathSampler.getPath("test:" + START, f, START, 2 * MINUTES_IN_DAY, 1);
+        assertSame(path0, path1);
+        assertEquals(calls, f.calls);
+        assertEquals(1, ElevationPathSampler.getCacheHits());
+        assertEquals(1, ElevationPathSampler.getCacheMisses());
+    }
+
+    private static double interpolate(ElevationPathSampler.ElevationPath path, double minute)
+    {
+        for (int i=1; i<path.count; i++)
+        {
+            if (path.minutes[i] >= minute)
+            {
+                double fraction = (minute - path.minutes[i-1]) / (path.minutes[i] - path.minutes[i-1]);
+                return path.elevations[i-1] + fraction * (path.elevations[i] - path.elevations[i-1]);
+            }
+        }
+        return path.elevations[path.count - 1];
+    }
+
+    private static ArrayList<Double> horizonCrossings(ElevationPathSampler.ElevationPath path)
+    {
+        ArrayList<Double> crossings = new ArrayList<>();
+        for (int i=1; i<path.count; i++) {
+            if ((path.elevations[i-1] < 0) != (path.elevations[i] < 0)) {
+                crossings.add(path.minutes[i]);
+            }
+        }
+        return crossings;
+    }
+
+    private static ArrayList<Double> horizonCrossings(TestFunction f, int interval)
+    {
+        ArrayList<Double> crossings = new ArrayList<>();
+        double prev = f.elevation(START);
+        for (int m = interval; m < 2 * MINUTES_IN_DAY; m += interval)
+        {
+            double e = f.elevation(START + m * ElevationPathSampler.MILLIS_IN_MINUTE);
+            if ((prev < 0) != (e < 0)) {
+                crossings.add((double) m);
+            }
+            prev = e;
+        }
+        return crossings;
+    }
+}
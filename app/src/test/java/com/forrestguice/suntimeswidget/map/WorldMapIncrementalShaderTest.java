@@ -0,0 +1,95 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.map;
+
+import org.junit.Test;
+
+import static com.forrestguice.suntimeswidget.map.WorldMapPixelShaderTest.COMBINED;
+import static com.forrestguice.suntimeswidget.map.WorldMapPixelShaderTest.MOONLIGHT;
+import static com.forrestguice.suntimeswidget.map.WorldMapPixelShaderTest.SHADOW;
+import static com.forrestguice.suntimeswidget.map.WorldMapPixelShaderTest.TRANSPARENT;
+import static com.forrestguice.suntimeswidget.map.WorldMapPixelShaderTest.testMatrix;
+import static com.forrestguice.suntimeswidget.map.WorldMapPixelShaderTest.unitVector;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WorldMapIncrementalShaderTest
+{
+    @Test
+    public void test_shade_animation()
+    {
+        int w = 360, h = 360;
+        float[] m = testMatrix(w, h);
+        boolean[][] modes = new boolean[][] {{true, true}, {true, false}, {false, true}};
+        for (boolean[] mode : modes)
+        {
+            int[] palette = WorldMapPixelShader.palette(TRANSPARENT, mode[0], SHADOW, mode[1], MOONLIGHT, COMBINED);
+            WorldMapIncrementalShader shader = new WorldMapIncrementalShader();
+            int[] pixels = new int[w * h];
+
+            for (int frame = 0; frame < 200; frame++)    // 3 minute frames (10 hours)
+            {
+                double sunLon = 45 - (frame * 0.75);                  // 15 degrees per hour
+                double moonLon = -120 - (frame * 0.7241);
+                double[] sunUp = unitVector(23.4 - (frame * 0.0003), sunLon);
+                double[] moonUp = unitVector(-10 + (frame * 0.01), moonLon);
+
+                shader.shade(m, w, h, sunUp, moonUp, palette, pixels);
+                assertArrayEquals("mode " + mode[0] + "," + mode[1] + ", frame " + frame, fullShade(m, w, h, sunUp, moonUp, palette), pixels);
+            }
+
+            assertTrue(shader.toString(), shader.getIncrementalCount() > shader.getFullCount());
+            assertTrue(shader.toString(), shader.getTilesShaded() < (shader.getIncrementalCount() * shader.getTileCount()) / 2);    // only a fraction of each frame is re-shaded
+        }
+    }
+
+    @Test
+    public void test_shade_fallback()
+    {
+        int w = 360, h = 360;
+        float[] m = testMatrix(w, h);
+        int[] palette = WorldMapPixelShader.palette(TRANSPARENT, true, SHADOW, true, MOONLIGHT, COMBINED);
+        WorldMapIncrementalShader shader = new WorldMapIncrementalShader();
+        int[] pixels = new int[w * h];
+
+        assertTrue(shader.shade(m, w, h, unitVector(10, 10), unitVector(-5, 100), palette, pixels));      // first frame
+        assertFalse(shader.shade(m, w, h, unitVector(10, 9), unitVector(-5, 99.5), palette, pixels));    // small step
+
+        double[] sunUp = unitVector(-20, 170), moonUp = unitVector(5, -80);                                  // large jump (seek)
+        assertTrue(shader.shade(m, w, h, sunUp, moonUp, palette, pixels));
+        assertArrayEquals(fullShade(m, w, h, sunUp, moonUp, palette), pixels);
+
+        int[] palette1 = WorldMapPixelShader.palette(TRANSPARENT, true, SHADOW, false, MOONLIGHT, COMBINED);  // mode changed
+        assertTrue(shader.shade(m, w, h, sunUp, moonUp, palette1, pixels));
+        assertArrayEquals(fullShade(m, w, h, sunUp, moonUp, palette1), pixels);
+
+        int[] pixels1 = new int[w * h];                                                                      // different buffer
+        assertTrue(shader.shade(m, w, h, sunUp, moonUp, palette1, pixels1));
+        assertEquals(4, shader.getFullCount());
+    }
+
+    private static int[] fullShade(float[] m, int w, int h, double[] sunUp, double[] moonUp, int[] palette)
+    {
+        int[] pixels = new int[w * h];
+        WorldMapPixelShader.shade(m, w, h, sunUp, moonUp, palette, pixels);
+        return pixels;
+    }
+}
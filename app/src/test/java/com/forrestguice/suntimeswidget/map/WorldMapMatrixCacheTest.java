@@ -0,0 +1,151 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.map;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class WorldMapMatrixCacheTest
+{
+    @Test
+    public void test_key()
+    {
+        int[] size = new int[] {360, 360};
+        String key0 = WorldMapMatrixCache.key("WorldMapEquiazimuthal2", size, new double[] {33.45, -111.94});
+        assertEquals(key0, WorldMapMatrixCache.key("WorldMapEquiazimuthal2", size, new double[] {33.45, -111.94}));
+        assertNotEquals(key0, WorldMapMatrixCache.key("WorldMapEquiazimuthal2", size, new double[] {33.45, -111.95}));      // center
+        assertNotEquals(key0, WorldMapMatrixCache.key("WorldMapEquiazimuthal2", new int[] {720, 360}, new double[] {33.45, -111.94}));    // size
+        assertNotEquals(key0, WorldMapMatrixCache.key("WorldMapEquiazimuthal", size, new double[] {33.45, -111.94}));       // projection
+        assertEquals(WorldMapMatrixCache.key("WorldMapEquirectangular", size, null), WorldMapMatrixCache.key("WorldMapEquirectangular", size, new double[] {0, 0}));
+    }
+
+    @Test
+    public void test_getPut()
+    {
+        WorldMapMatrixCache cache = new WorldMapMatrixCache(2);
+        float[] m0 = testMatrix(30, 0);
+        assertNull(cache.get("m0", m0.length));
+        cache.put("m0", m0);
+        assertSame(m0, cache.get("m0", m0.length));
+        assertNull(cache.get("m0", m0.length + 1));    // unexpected length
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+
+        cache.put("m1", testMatrix(30, 1));
+        cache.get("m0", m0.length);                    // m1 is now least recently used
+        cache.put("m2", testMatrix(30, 2));
+        assertEquals(2, cache.size());
+        assertNull(cache.get("m1", 30));
+        assertSame(m0, cache.get("m0", m0.length));
+    }
+
+    @Test
+    public void test_persisted() throws IOException
+    {
+        File dir = File.createTempFile("worldmap", "");
+        assertTrue(dir.delete());
+
+        try {
+            float[] m0 = testMatrix(720 * 360 * 3, 5);
+            WorldMapMatrixCache cache0 = new WorldMapMatrixCache(2);
+            cache0.setCacheDir(dir);
+            cache0.put("m0", m0);
+
+            WorldMapMatrixCache cache1 = new WorldMapMatrixCache(2);    // a "cold start"
+            cache1.setCacheDir(dir);
+            float[] m1 = cache1.get("m0", m0.length);
+            assertNotNull(m1);
+            assertArrayEquals(m0, m1, 0);
+            assertEquals(1, cache1.getDiskHitCount());
+            assertSame(m1, cache1.get("m0", m0.length));    // now in memory
+            assertEquals(1, cache1.getHitCount());
+
+            assertNull(cache1.get("m0", m0.length - 3));    // unexpected length
+            cache1.clear();
+            cache1.clearPersisted();
+            assertNull(cache1.get("m0", m0.length));
+
+        } finally {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void test_persisted_trim() throws IOException
+    {
+        File dir = File.createTempFile("worldmap", "");
+        assertTrue(dir.delete());
+
+        try {
+            WorldMapMatrixCache cache = new WorldMapMatrixCache(2, 2);
+            cache.setCacheDir(dir);
+            cache.put("m0", testMatrix(30, 0));
+            cache.put("m1", testMatrix(30, 1));
+            assertEquals(2, dir.listFiles().length);
+
+            File file0 = WorldMapMatrixCache.matrixFile(dir, "m0");
+            File file1 = WorldMapMatrixCache.matrixFile(dir, "m1");
+            assertTrue(file0.setLastModified(1000));
+            assertTrue(file1.setLastModified(2000));
+            cache.clear();
+            assertNotNull(cache.get("m0", 30));    // disk hit touches m0 (m1 is now least recently used)
+
+            cache.put("m2", testMatrix(30, 2));
+            assertEquals(2, dir.listFiles().length);
+            assertTrue(file0.exists());
+            assertFalse(file1.exists());
+            assertTrue(WorldMapMatrixCache.matrixFile(dir, "m2").exists());
+
+        } finally {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            dir.delete();
+        }
+    }
+
+    private static float[] testMatrix(int n, int seed)
+    {
+        float[] m = new float[n];
+        for (int i=0; i<n; i++) {
+            m[i] = (float) Math.sin(i + seed);
+        }
+        return m;
+    }
+}
@@ -0,0 +1,200 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.map;
+
+import com.forrestguice.suntimeswidget.UnlistedTest;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class WorldMapPixelShaderTest
+{
+    public static final int TRANSPARENT = 0;
+    public static final int SHADOW = 0xff000080, MOONLIGHT = 0x40ffffff, COMBINED = 0xff404080;
+
+    @Test
+    public void test_shade_identical()
+    {
+        Random random = new Random(42);
+        int w = 360, h = 360;
+        float[] m = testMatrix(w, h);
+        boolean[][] modes = new boolean[][] {{true, true}, {true, false}, {false, true}};
+
+        for (int n=0; n<20; n++)
+        {
+            double[] sunUp = unitVector(random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180);
+            double[] moonUp = unitVector(random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180);
+            for (boolean[] mode : modes)
+            {
+                int[] expected = shade_legacy(m, w, h, sunUp, moonUp, mode[0], mode[1]);
+                int[] palette = WorldMapPixelShader.palette(TRANSPARENT, mode[0], SHADOW, mode[1], MOONLIGHT, COMBINED);
+                int[] pixels = new int[w * h];
+                WorldMapPixelShader.shade(m, w, h, sunUp, moonUp, palette, pixels);
+                assertArrayEquals("mode " + mode[0] + "," + mode[1], expected, pixels);
+            }
+        }
+    }
+
+    @Test
+    @Category(UnlistedTest.class)
+    public void test_shade_benchmark()
+    {
+        double[] sunUp = unitVector(23.4, 45);
+        double[] moonUp = unitVector(-10, -120);
+        int[] palette = WorldMapPixelShader.palette(TRANSPARENT, true, SHADOW, true, MOONLIGHT, COMBINED);
+
+        int size = 360;    // the projection matrix size (see WorldMapEquiazimuthal.matrixSize)
+        float[] m = testMatrix(size, size);
+        int[] pixels = new int[size * size];
+        double legacy = bench(m, size, sunUp, moonUp, palette, pixels, true);
+        double shader = bench(m, size, sunUp, moonUp, palette, pixels, false);
+        System.out.println("WorldMapPixelShader :: " + size + "x" + size + " :: legacy " + legacy + " ms, shader " + shader + " ms");
+    }
+
+    private static double bench(float[] m, int size, double[] sunUp, double[] moonUp, int[] palette, int[] pixels, boolean legacy)
+    {
+        double best = Double.POSITIVE_INFINITY;
+        for (int i=0; i<30; i++)
+        {
+            long bench_start = System.nanoTime();
+            if (legacy) {
+                shade_legacy(m, size, size, sunUp, moonUp, true, true);
+            } else WorldMapPixelShader.shade(m, size, size, sunUp, moonUp, palette, pixels);
+            best = Math.min(best, (System.nanoTime() - bench_start) / 1000000.0);
+        }
+        return best;
+    }
+
+    /**
+     * the previous implementation of WorldMapEquiazimuthal.initPixels (reference output)
+     */
+    private static int[] shade_legacy(float[] m, int w, int h, double[] sunUp, double[] moonUp, boolean showSunShadow, boolean showMoonLight)
+    {
+        int z = 0;
+        int j0, j1, j2;
+        double v0, v1, v2;
+        double sunIntensity, moonIntensity;
+        int[] pixels = new int[w * h];
+
+        if (showSunShadow && showMoonLight)
+        {
+            for (int j = 0; j < h; j++)
+            {
+                j0 = (w * j);
+                j1 = (w * (h + j));
+                j2 = (w * ((2 * h) + j));
+
+                for (int i = 0; i < w; i++)
+                {
+                    v0 = m[i + j0];
+                    v1 = m[i + j1];
+                    v2 = m[i + j2];
+
+                    sunIntensity = (sunUp[0] * v0) + (sunUp[1] * v1) + (sunUp[2] * v2);
+                    moonIntensity = (moonUp[0] * v0) + (moonUp[1] * v1) + (moonUp[2] * v2);
+                    if (sunIntensity <= 0 && moonIntensity > 0) {
+                        pixels[z] = COMBINED;
+                    } else if (sunIntensity <= 0) {
+                        pixels[z] = SHADOW;
+                    } else if (moonIntensity > 0) {
+                        pixels[z] = MOONLIGHT;
+                    }
+                    z++;
+                }
+            }
+
+        } else if (showSunShadow) {
+            for (int j = 0; j < h; j++)
+            {
+                j0 = (w * j);
+                j1 = (w * (h + j));
+                j2 = (w * ((2 * h) + j));
+
+                for (int i = 0; i < w; i++)
+                {
+                    v0 = m[i + j0];
+                    v1 = m[i + j1];
+                    v2 = m[i + j2];
+
+                    sunIntensity = (sunUp[0] * v0) + (sunUp[1] * v1) + (sunUp[2] * v2);
+                    pixels[z] = (sunIntensity <= 0) ? SHADOW : TRANSPARENT;
+                    z++;
+                }
+            }
+
+        } else if (showMoonLight) {
+            for (int j = 0; j < h; j++)
+            {
+                j0 = (w * j);
+                j1 = (w * (h + j));
+                j2 = (w * ((2 * h) + j));
+
+                for (int i = 0; i < w; i++)
+                {
+                    v0 = m[i + j0];
+                    v1 = m[i + j1];
+                    v2 = m[i + j2];
+
+                    moonIntensity = (moonUp[0] * v0) + (moonUp[1] * v1) + (moonUp[2] * v2);
+                    pixels[z] = (moonIntensity > 0) ? MOONLIGHT : TRANSPARENT;
+                    z++;
+                }
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * @return an equiazimuthal (north pole) style matrix; pixels outside the disc are left zero
+     */
+    static float[] testMatrix(int w, int h)
+    {
+        float[] v = new float[w * h * 3];
+        double r = w / 2d;
+        for (int i = 0; i < w; i++)
+        {
+            for (int j = 0; j < h; j++)
+            {
+                double x = i - r, y = (h - j) - r;
+                double p = Math.sqrt(x * x + y * y);
+                if (p > r) {
+                    continue;
+                }
+                double radLon = Math.atan2(x, y);
+                double radLat = Math.toRadians(90 - (180 * p / r));
+                v[i + (w * j)] = (float) (Math.cos(radLon) * Math.cos(radLat));
+                v[i + (w * (h + j))] = (float) (Math.sin(radLon) * Math.cos(radLat));
+                v[i + (w * ((2 * h) + j))] = (float) Math.sin(radLat);
+            }
+        }
+        return v;
+    }
+
+    static double[] unitVector(double lat, double lon)
+    {
+        double radLon = Math.toRadians(lon);
+        double radLat = Math.toRadians(lat);
+        double cosLat = Math.cos(radLat);
+        return new double[] { Math.cos(radLon) * cosLat, Math.sin(radLon) * cosLat, Math.sin(radLat) };
+    }
+}
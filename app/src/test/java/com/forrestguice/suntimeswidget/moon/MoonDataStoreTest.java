@@ -0,0 +1,264 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.moon;
+
+import com.forrestguice.suntimeswidget.calculator.SuntimesData;
+import com.forrestguice.suntimeswidget.calculator.core.Location;
+import com.forrestguice.suntimeswidget.calculator.core.SuntimesCalculator;
+import com.forrestguice.suntimeswidget.calculator.time4a.Time4ANOAASuntimesCalculator;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MoonDataStoreTest
+{
+    public static final int NUM_PERIODS = 150;
+
+    @Test
+    public void test_key()
+    {
+        MoonDataStore.Key key0 = new MoonDataStore.Key("calculator|35,-112|US/Arizona", MoonDataStore.TYPE_PHASES, 19000, 1);
+        assertEquals(key0, new MoonDataStore.Key("calculator|35,-112|US/Arizona", MoonDataStore.TYPE_PHASES, 19000, 1));
+        assertEquals(key0.hashCode(), new MoonDataStore.Key("calculator|35,-112|US/Arizona", MoonDataStore.TYPE_PHASES, 19000, 1).hashCode());
+        assertNotEquals(key0, new MoonDataStore.Key("calculator|35,-112|UTC", MoonDataStore.TYPE_PHASES, 19000, 1));
+        assertNotEquals(key0, new MoonDataStore.Key("calculator|35,-112|US/Arizona", MoonDataStore.TYPE_APSIS, 19000, 1));
+        assertNotEquals(key0, new MoonDataStore.Key("calculator|35,-112|US/Arizona", MoonDataStore.TYPE_PHASES, 19001, 1));
+        assertNotEquals(key0, new MoonDataStore.Key("calculator|35,-112|US/Arizona", MoonDataStore.TYPE_PHASES, 19000, -1));
+    }
+
+    @Test
+    public void test_store_bounded()
+    {
+        MoonDataStore store = new MoonDataStore(8);
+        for (int i=0; i<20; i++) {
+            store.put(new MoonDataStore.Key("calculator", MoonDataStore.TYPE_RISESET, 19000, i), null);
+            assertTrue(store.size() <= store.getMaxSize());
+        }
+        assertEquals(8, store.size());
+        store.clear();
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void test_localDay()
+    {
+        TimeZone utc = TimeZone.getTimeZone("UTC");
+        assertEquals(0, MoonDataStore.localDay(0, utc));
+        assertEquals(0, MoonDataStore.localDay(SuntimesData.DAY_MILLIS - 1, utc));
+        assertEquals(1, MoonDataStore.localDay(SuntimesData.DAY_MILLIS, utc));
+        assertEquals(-1, MoonDataStore.localDay(0, TimeZone.getTimeZone("GMT-1")));
+    }
+
+    /**
+     * Walking the phase series forward (then back again) should visit every lunation exactly once.
+     */
+    @Test
+    public void test_startMillis_phases()
+    {
+        SuntimesCalculator calculator = new Time4ANOAASuntimesCalculator();
+        calculator.init(new Location("test", "35", "-112"), TimeZone.getTimeZone("UTC"));
+        SuntimesCalculator.MoonPhase[] phases = SuntimesCalculator.MoonPhase.values();
+
+        long[][] series = new long[NUM_PERIODS][];
+        long start = calendar(1990, Calendar.JANUARY, 1).getTimeInMillis();
+        for (int i=0; i<NUM_PERIODS; i++)
+        {
+            if (i > 0) {
+                start = MoonDataStore.Series.startMillis(max(series[i-1]), start, true, MoonDataStore.PhaseSeries.SYNODIC_MONTH_DAYS);
+            }
+            series[i] = new long[phases.length];
+            for (int j=0; j<phases.length; j++) {
+                series[i][j] = calculator.getMoonPhaseNextDate(phases[j], calendar(start)).getTimeInMillis();
+            }
+            if (i > 0) {
+                assertPeriod(series[i-1], series[i], 29.1, 30.0);
+            }
+        }
+
+        long[] next = series[NUM_PERIODS - 1];
+        for (int i = NUM_PERIODS - 2; i >= 0; i--)
+        {
+            start = MoonDataStore.Series.startMillis(min(next), start, false, MoonDataStore.PhaseSeries.SYNODIC_MONTH_DAYS);
+            for (int j=0; j<phases.length; j++) {
+                assertEquals(series[i][j], calculator.getMoonPhaseNextDate(phases[j], calendar(start)).getTimeInMillis());
+            }
+            next = series[i];
+        }
+    }
+
+    /**
+     * Walking the apsis series forward (then back again) should visit every anomalistic month exactly once.
+     */
+    @Test
+    public void test_startMillis_apsis()
+    {
+        SuntimesCalculator calculator = new Time4ANOAASuntimesCalculator();
+        calculator.init(new Location("test", "35", "-112"), TimeZone.getTimeZone("UTC"));
+
+        long[][] series = new long[NUM_PERIODS][];
+        long start = calendar(1990, Calendar.JANUARY, 1).getTimeInMillis();
+        for (int i=0; i<NUM_PERIODS; i++)
+        {
+            if (i > 0) {
+                start = MoonDataStore.Series.startMillis(max(series[i-1]), start, true, MoonDataStore.ApsisSeries.ANOMALISTIC_MONTH_DAYS);
+            }
+            series[i] = new long[] { calculator.getMoonApogeeNextDate(calendar(start)).getTimeInMillis(), calculator.getMoonPerigeeNextDate(calendar(start)).getTimeInMillis() };
+            if (i > 0) {
+                assertPeriod(series[i-1], series[i], 24.0, 29.5);
+            }
+        }
+
+        long[] next = series[NUM_PERIODS - 1];
+        for (int i = NUM_PERIODS - 2; i >= 0; i--)
+        {
+            start = MoonDataStore.Series.startMillis(min(next), start, false, MoonDataStore.ApsisSeries.ANOMALISTIC_MONTH_DAYS);
+            assertEquals(series[i][0], calculator.getMoonApogeeNextDate(calendar(start)).getTimeInMillis());
+            assertEquals(series[i][1], calculator.getMoonPerigeeNextDate(calendar(start)).getTimeInMillis());
+            next = series[i];
+        }
+    }
+
+    /**
+     * Estimating a lunation from index 0 (estimateStartMillis) should give the same phases as walking the series.
+     */
+    @Test
+    public void test_estimateStartMillis_phases()
+    {
+        SuntimesCalculator calculator = new Time4ANOAASuntimesCalculator();
+        calculator.init(new Location("test", "35", "-112"), TimeZone.getTimeZone("UTC"));
+        SuntimesCalculator.MoonPhase[] phases = SuntimesCalculator.MoonPhase.values();
+        long start0 = calendar(2020, Calendar.JANUARY, 1).getTimeInMillis();
+
+        for (int step : new int[] { 1, -1 })
+        {
+            long start = start0;
+            long[] series0 = null, previous = null;
+            for (int i=0; i<NUM_PERIODS; i++)
+            {
+                if (i > 0) {
+                    start = MoonDataStore.Series.startMillis((step > 0 ? max(previous) : min(previous)), start, (step > 0), MoonDataStore.PhaseSeries.SYNODIC_MONTH_DAYS);
+                }
+                long[] walked = new long[phases.length];
+                for (int j=0; j<phases.length; j++) {
+                    walked[j] = calculator.getMoonPhaseNextDate(phases[j], calendar(start)).getTimeInMillis();
+                }
+                if (i == 0) {
+                    series0 = walked;
+                }
+
+                long estimated = MoonDataStore.Series.estimateStartMillis(min(series0), start0, step * i, MoonDataStore.PhaseSeries.SYNODIC_MONTH_DAYS, 4);
+                for (int j=0; j<phases.length; j++) {
+                    assertEquals("index " + (step * i), walked[j], calculator.getMoonPhaseNextDate(phases[j], calendar(estimated)).getTimeInMillis());
+                }
+                previous = walked;
+            }
+        }
+    }
+
+    /**
+     * Estimating an anomalistic month from index 0 (estimateStartMillis) should give the same apsides as walking the series.
+     */
+    @Test
+    public void test_estimateStartMillis_apsis()
+    {
+        SuntimesCalculator calculator = new Time4ANOAASuntimesCalculator();
+        calculator.init(new Location("test", "35", "-112"), TimeZone.getTimeZone("UTC"));
+        long start0 = calendar(2020, Calendar.JANUARY, 1).getTimeInMillis();
+
+        for (int step : new int[] { 1, -1 })
+        {
+            long start = start0;
+            long[] series0 = null, previous = null;
+            for (int i=0; i<NUM_PERIODS; i++)
+            {
+                if (i > 0) {
+                    start = MoonDataStore.Series.startMillis((step > 0 ? max(previous) : min(previous)), start, (step > 0), MoonDataStore.ApsisSeries.ANOMALISTIC_MONTH_DAYS);
+                }
+                long[] walked = new long[] { calculator.getMoonApogeeNextDate(calendar(start)).getTimeInMillis(), calculator.getMoonPerigeeNextDate(calendar(start)).getTimeInMillis() };
+                if (i == 0) {
+                    series0 = walked;
+                }
+
+                long estimated = MoonDataStore.Series.estimateStartMillis(min(series0), start0, step * i, MoonDataStore.ApsisSeries.ANOMALISTIC_MONTH_DAYS, 2);
+                assertEquals("index " + (step * i), walked[0], calculator.getMoonApogeeNextDate(calendar(estimated)).getTimeInMillis());
+                assertEquals("index " + (step * i), walked[1], calculator.getMoonPerigeeNextDate(calendar(estimated)).getTimeInMillis());
+                previous = walked;
+            }
+        }
+    }
+
+    @Test
+    public void test_startMillis_noEvents()
+    {
+        long start = calendar(2020, Calendar.JANUARY, 1).getTimeInMillis();
+        long period = (long)(MoonDataStore.PhaseSeries.SYNODIC_MONTH_DAYS * SuntimesData.DAY_MILLIS);
+        assertEquals(start + period, MoonDataStore.Series.startMillis(Long.MIN_VALUE, start, true, MoonDataStore.PhaseSeries.SYNODIC_MONTH_DAYS));
+        assertEquals(start - period, MoonDataStore.Series.startMillis(Long.MAX_VALUE, start, false, MoonDataStore.PhaseSeries.SYNODIC_MONTH_DAYS));
+        assertEquals(start + 3 * period, MoonDataStore.Series.estimateStartMillis(Long.MAX_VALUE, start, 3, MoonDataStore.PhaseSeries.SYNODIC_MONTH_DAYS, 4));
+        assertEquals(start - 3 * period, MoonDataStore.Series.estimateStartMillis(Long.MAX_VALUE, start, -3, MoonDataStore.PhaseSeries.SYNODIC_MONTH_DAYS, 4));
+    }
+
+    protected static void assertPeriod(long[] previous, long[] next, double minDays, double maxDays)
+    {
+        for (int j=0; j<next.length; j++)
+        {
+            double days = (next[j] - previous[j]) / (double) SuntimesData.DAY_MILLIS;
+            assertTrue("period " + days + " should be within [" + minDays + ", " + maxDays + "]", days >= minDays && days <= maxDays);
+        }
+    }
+
+    protected static long min(long[] values)
+    {
+        long retValue = Long.MAX_VALUE;
+        for (long value : values) {
+            retValue = Math.min(retValue, value);
+        }
+        return retValue;
+    }
+
+    protected static long max(long[] values)
+    {
+        long retValue = Long.MIN_VALUE;
+        for (long value : values) {
+            retValue = Math.max(retValue, value);
+        }
+        return retValue;
+    }
+
+    protected static Calendar calendar(int year, int month, int day)
+    {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.set(year, month, day, 0, 0, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar;
+    }
+
+    protected static Calendar calendar(long millis)
+    {
+        Calendar calendar = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        calendar.setTimeInMillis(millis);
+        return calendar;
+    }
+}
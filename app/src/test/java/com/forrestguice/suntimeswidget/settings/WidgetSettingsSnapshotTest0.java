@@ -0,0 +1,42 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.settings;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+public class WidgetSettingsSnapshotTest0
+{
+    @Test
+    public void test_widgetIdForKey()
+    {
+        assertEquals(Integer.valueOf(0), WidgetSettingsSnapshot.widgetIdForKey(WidgetSettings.PREF_PREFIX_KEY + "0" + WidgetSettings.PREF_PREFIX_KEY_LOCATION + WidgetSettings.PREF_KEY_LOCATION_LATITUDE));
+        assertEquals(Integer.valueOf(12), WidgetSettingsSnapshot.widgetIdForKey(WidgetSettings.PREF_PREFIX_KEY + "12" + WidgetSettings.PREF_PREFIX_KEY_GENERAL + WidgetSettings.PREF_KEY_GENERAL_CALCULATOR));
+        assertEquals(Integer.valueOf(123456789), WidgetSettingsSnapshot.widgetIdForKey(WidgetSettings.PREF_PREFIX_KEY + "123456789_general_calculator"));
+
+        assertNull(WidgetSettingsSnapshot.widgetIdForKey(null));
+        assertNull(WidgetSettingsSnapshot.widgetIdForKey(""));
+        assertNull(WidgetSettingsSnapshot.widgetIdForKey("somethingelse_12_general_calculator"));
+        assertNull(WidgetSettingsSnapshot.widgetIdForKey(WidgetSettings.PREF_PREFIX_KEY));
+        assertNull(WidgetSettingsSnapshot.widgetIdForKey(WidgetSettings.PREF_PREFIX_KEY + "_general_calculator"));
+        assertNull(WidgetSettingsSnapshot.widgetIdForKey(WidgetSettings.PREF_PREFIX_KEY + "12345678901_general_calculator"));    // too long
+    }
+}
@@ -0,0 +1,132 @@
+/**
+    Copyright (C) 2024 Forrest Guice
+    This file is part of SuntimesWidget.
+
+    SuntimesWidget is free software: you can redistribute it and/or modify
+    it under the terms of the GNU General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    SuntimesWidget is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU General Public License for more details.
+
+    You should have received a copy of the GNU General Public License
+    along with SuntimesWidget.  If not, see <http://www.gnu.org/licenses/>.
+*/
+
+package com.forrestguice.suntimeswidget.views;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AnimationFrameSchedulerTest
+{
+    /**
+     * A scheduler with a simulated clock; sleeping advances the clock, rendering is simulated with `render`.
+     */
+    public static class TestScheduler extends AnimationFrameScheduler
+    {
+        public long clock = 0;
+        public long slept = 0;
+        public boolean interrupt = false;
+
+        public TestScheduler(long frameDurationMs) {
+            super(frameDurationMs);
+        }
+
+        public void render(long ms) {
+            clock += ms * NANOS_PER_MS;
+        }
+
+        @Override
+        protected long nanoTime() {
+            return clock;
+        }
+
+        @Override
+        protected boolean sleepNanos(long nanos)
+        {
+            if (interrupt) {
+                return false;
+            }
+            slept += nanos;
+            clock += nanos;
+            return true;
+        }
+    }
+
+    @Test
+    public void test_awaitNextFrame()
+    {
+        TestScheduler scheduler = new TestScheduler(100);
+        scheduler.start();
+        for (int i=0; i<10; i++)
+        {
+            scheduler.render(20);
+            assertEquals(1, scheduler.awaitNextFrame());
+        }
+        assertEquals(10 * 100 * AnimationFrameScheduler.NANOS_PER_MS, scheduler.clock);      // frames are on fixed deadlines
+        assertEquals(10 * 80 * AnimationFrameScheduler.NANOS_PER_MS, scheduler.slept);       // sleeps (rather than spins) the remainder
+        assertEquals(10, scheduler.getFrameCount());
+        assertEquals(0, scheduler.getDroppedFrameCount());
+        assertEquals(10, scheduler.getTargetFps(), 0.001);
+        assertEquals(10, scheduler.getActualFps(), 0.001);
+    }
+
+    @Test
+    public void test_awaitNextFrame_dropFrames()
+    {
+        TestScheduler scheduler = new TestScheduler(100);
+        scheduler.start();
+
+        scheduler.render(350);                             // falls behind (frame due at 100ms; 200ms and 300ms are missed)
+        assertEquals(3, scheduler.awaitNextFrame());       // advances over the missed frames
+        assertEquals(2, scheduler.getDroppedFrameCount());
+        assertEquals(0, scheduler.slept);
+
+        scheduler.render(20);
+        assertEquals(1, scheduler.awaitNextFrame());       // back on schedule (next deadline at 400ms)
+        assertEquals(400 * AnimationFrameScheduler.NANOS_PER_MS, scheduler.clock);
+
+        scheduler.setDropFrames(false);
+        scheduler.render(350);
+        assertEquals(1, scheduler.awaitNextFrame());       // shows every frame
+        assertEquals(2, scheduler.getDroppedFrameCount());
+        assertTrue(scheduler.getActualFps() < scheduler.getTargetFps());
+    }
+
+    @Test
+    public void test_awaitNextFrame_lowPower()
+    {
+        TestScheduler scheduler = new TestScheduler(100);
+        scheduler.setLowPowerMode(true);
+        scheduler.start();
+
+        assertEquals(5, scheduler.getFrameStride());
+        assertEquals(AnimationFrameScheduler.LOW_POWER_MAX_FPS, scheduler.getTargetFps(), 0.001);
+
+        scheduler.render(20);
+        assertEquals(5, scheduler.awaitNextFrame());       // each shown frame advances the animation by 5 frames
+        assertEquals(500 * AnimationFrameScheduler.NANOS_PER_MS, scheduler.clock);
+        assertEquals(0, scheduler.getDroppedFrameCount());
+
+        scheduler.setLowPowerMode(false);
+        scheduler.render(20);
+        assertEquals(1, scheduler.awaitNextFrame());
+        assertEquals(600 * AnimationFrameScheduler.NANOS_PER_MS, scheduler.clock);
+    }
+
+    @Test
+    public void test_awaitNextFrame_interrupted()
+    {
+        TestScheduler scheduler = new TestScheduler(100);
+        scheduler.start();
+        scheduler.interrupt = true;
+        assertEquals(0, scheduler.awaitNextFrame());
+        assertEquals(0, scheduler.getFrameCount());
+    }
+}